@@ -0,0 +1,119 @@
+package nerunerune.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.parser.Parser;
+import nerunerune.parser.StorageLineTokenizer;
+import nerunerune.task.Task;
+
+/**
+ * Measures how long loading a large storage file takes, sequentially and with
+ * parallel chunked parsing on pools of increasing size.
+ * <p>
+ * Run with {@code ./gradlew loadBenchmark}, optionally passing the number of lines
+ * as an argument, e.g. {@code ./gradlew loadBenchmark --args=500000}. It lives in its own
+ * {@code benchmark} source set, so the test task neither compiles nor runs it. The timings are
+ * printed, and also written to the file named by the {@code nerunerune.benchmark.report} property,
+ * which the Gradle task sets to {@code build/reports/loadBenchmark.txt}, to compare between runs.
+ */
+public class StorageLoadBenchmark {
+    private static final int DEFAULT_LINE_COUNT = 1_000_000;
+    private static final int WARMUP_RUNS = 3;
+    private static final int MEASURED_RUNS = 5;
+    private static final String REPORT_PROPERTY = "nerunerune.benchmark.report";
+
+    public static void main(String[] args) throws IOException, NeruneruneException {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_LINE_COUNT;
+        Path dataFile = Files.createTempFile("nerunerune-benchmark", ".txt");
+        dataFile.toFile().deleteOnExit();
+        writeSampleFile(dataFile, lineCount);
+
+        StringWriter report = new StringWriter();
+        PrintStream out = System.out;
+        report.append(String.format("Loading %d lines (%d MiB)%n", lineCount, Files.size(dataFile) / (1024 * 1024)));
+        report.append(String.format("sequential: %d ms%n", measure(() -> loadSequentially(dataFile.toFile()))));
+
+        int maxParallelism = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= maxParallelism; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            ParallelStorageLoader loader = new ParallelStorageLoader(pool);
+            long millis = measure(() -> loader.loadChunks(dataFile.toFile(), false).size());
+            report.append(String.format("parallel, %d thread(s): %d ms%n", parallelism, millis));
+            pool.shutdown();
+        }
+
+        out.print(report);
+        String reportPath = System.getProperty(REPORT_PROPERTY);
+        if (reportPath != null) {
+            Path reportFile = Path.of(reportPath);
+            Files.createDirectories(reportFile.toAbsolutePath().getParent());
+            Files.writeString(reportFile, report.toString());
+        }
+    }
+
+    /**
+     * Writes a storage file with an even mix of todos, deadlines and events.
+     */
+    private static void writeSampleFile(Path dataFile, int lineCount) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < lineCount; i++) {
+            switch (i % 3) {
+            case 0:
+                sb.append("T | 0 | buy books ").append(i);
+                break;
+            case 1:
+                sb.append("D | 1 | submit report ").append(i).append(" | Nov 07 2025 2359");
+                break;
+            default:
+                sb.append("E | 0 | meeting ").append(i).append(" | Aug 03 2025 1400 | Aug 03 2025 1530");
+                break;
+            }
+            sb.append(System.lineSeparator());
+        }
+        Files.writeString(dataFile, sb);
+    }
+
+    private static int loadSequentially(File f) throws IOException, NeruneruneException {
+        List<Task> tasks = new ArrayList<>();
+        try (StorageFileReader reader = new StorageFileReader(f)) {
+            StorageLineTokenizer fields;
+            while ((fields = reader.nextFields()) != null) {
+                tasks.add(Parser.parseTaskFields(fields));
+            }
+        }
+        return tasks.size();
+    }
+
+    /**
+     * Returns the median wall-clock time of the measured runs, after warming up.
+     */
+    private static long measure(Load load) throws IOException, NeruneruneException {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            load.run();
+        }
+
+        long[] millis = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            load.run();
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        return millis[MEASURED_RUNS / 2];
+    }
+
+    @FunctionalInterface
+    private interface Load {
+        int run() throws IOException, NeruneruneException;
+    }
+}
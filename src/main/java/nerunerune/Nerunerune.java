@@ -1,6 +1,7 @@
 package nerunerune;
 
 import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javafx.application.Application;
 import javafx.fxml.FXMLLoader;
@@ -12,6 +13,7 @@ import nerunerune.controller.MainWindow;
 import nerunerune.exception.NeruneruneException;
 import nerunerune.parser.Parser;
 import nerunerune.storage.Storage;
+import nerunerune.storage.StorageSettings;
 import nerunerune.tasklist.TaskList;
 import nerunerune.ui.Ui;
 
@@ -33,6 +35,8 @@ public class Nerunerune extends Application {
     /**
      * Constructs a Nerunerune instance with the specified storage file path.
      * Initializes the UI handler, storage manager, and task list.
+     * Storage options, including the storage backend, are read from system properties,
+     * see {@link StorageSettings#fromSystemProperties()}.
      * <p>
      * Note: This constructor is primarily used for testing or custom file paths.
      * The default no-arg constructor is used by JavaFX during normal operation.
@@ -40,11 +44,23 @@ public class Nerunerune extends Application {
      * @param filePath The file path where tasks are stored and loaded from
      */
     public Nerunerune(String filePath) {
+        this(filePath, StorageSettings.fromSystemProperties());
+    }
+
+    /**
+     * Constructs a Nerunerune instance with the specified storage file path and storage settings.
+     * The settings select the storage backend, see {@link Storage#create(String, StorageSettings, StorageReporter)},
+     * and what happens to the storage files is reported through the UI.
+     *
+     * @param filePath The file path where tasks are stored and loaded from
+     * @param settings The storage backend and options to use
+     */
+    public Nerunerune(String filePath, StorageSettings settings) {
         assert filePath != null : "file path should not be null";
         assert !filePath.isEmpty() : "file path should not be empty";
 
         ui = new Ui();
-        storage = new Storage(filePath);
+        storage = Storage.create(filePath, settings, ui::printMessage);
         taskList = new TaskList(storage, ui);
     }
 
@@ -116,10 +132,24 @@ public class Nerunerune extends Application {
         }
     }
 
+    /**
+     * Writes any pending changes to storage before the application exits.
+     * This method is called by JavaFX when the last window is closed.
+     */
+    @Override
+    public void stop() {
+        try {
+            taskList.close();
+        } catch (NeruneruneException e) {
+            ui.printMessage("Storage error: " + e.getMessage());
+        }
+    }
+
     /**
      * Processes user input and returns the response for GUI display.
      * Parses the input into a command, executes it, and captures the output
-     * for display in the chat interface.
+     * for display in the chat interface. The command runs while holding the
+     * storage task list lock.
      *
      * @param input The user's input string from the GUI text field
      * @return The command execution result as a formatted string, or an error message if execution fails
@@ -127,7 +157,15 @@ public class Nerunerune extends Application {
     public String getResponse(String input) {
         try {
             Command userCommand = Parser.parseCommand(input.trim());
-            String output = ui.executeAndCapture(userCommand, taskList, storage);
+            String output;
+            ReentrantLock taskListLock = storage.getTaskListLock();
+            taskListLock.lock(); // keep background saves from seeing a half-applied command
+            try {
+                taskList.syncExternalChanges(); // run the command on changes made by other instances too
+                output = ui.executeAndCapture(userCommand, taskList, storage);
+            } finally {
+                taskListLock.unlock();
+            }
             return output.isEmpty() ? "Command executed successfully!" : output;
 
         } catch (NeruneruneException e) {
@@ -0,0 +1,23 @@
+package nerunerune.command;
+
+import nerunerune.storage.Storage;
+import nerunerune.tasklist.TaskList;
+import nerunerune.ui.Ui;
+
+/**
+ * Represents a command to list every pair of events whose times overlap.
+ * Executes the display of the clashing events in the task list.
+ */
+public class ClashesCommand extends Command {
+    /**
+     * Executes the command by listing the clashing events in the given task list.
+     *
+     * @param tasks   the task list to check
+     * @param ui      the user interface
+     * @param storage the storage component
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) {
+        tasks.listEventClashes();
+    }
+}
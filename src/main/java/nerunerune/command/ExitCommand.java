@@ -1,5 +1,6 @@
 package nerunerune.command;
 
+import nerunerune.exception.NeruneruneException;
 import nerunerune.storage.Storage;
 import nerunerune.tasklist.TaskList;
 import nerunerune.ui.Ui;
@@ -10,14 +11,17 @@ import nerunerune.ui.Ui;
  */
 public class ExitCommand extends Command {
     /**
-     * Executes the exit command by displaying the end message to the user.
+     * Executes the exit command by writing any pending changes to storage
+     * and displaying the end message to the user.
      *
      * @param tasks   the task list
      * @param ui      the user interface to display the end message
-     * @param storage the storage component
+     * @param storage the storage component to flush
+     * @throws NeruneruneException if writing pending changes fails
      */
     @Override
-    public void execute(TaskList tasks, Ui ui, Storage storage) {
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws NeruneruneException {
+        storage.flush();
         ui.endMsg();
     }
 
@@ -0,0 +1,29 @@
+package nerunerune.command;
+
+import java.io.File;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.storage.Storage;
+import nerunerune.tasklist.TaskList;
+import nerunerune.ui.Ui;
+
+/**
+ * Represents a command to export the task list in the human-readable text format.
+ * Useful when the storage file itself is kept in the binary format.
+ */
+public class ExportCommand extends Command {
+
+    /**
+     * Executes the command by writing all tasks to a text file next to the storage file.
+     *
+     * @param tasks   the task list to export
+     * @param ui      the user interface to display the export location
+     * @param storage the storage instance that writes the export file
+     * @throws NeruneruneException if writing the export file fails
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws NeruneruneException {
+        File exportFile = storage.exportAsText(tasks.getTaskList());
+        ui.printMessage(("Exported " + tasks.getTaskList().size() + " task(s) to " + exportFile.getPath()).indent(4));
+    }
+}
@@ -10,9 +10,17 @@ import nerunerune.ui.Ui;
 
 /**
  * Represents a command to find tasks containing a specific keyword in their description.
- * Searches through the task list and displays all matching tasks to the user.
+ * Searches through the task list and the archive of completed tasks,
+ * and displays all matching tasks to the user.
+ * <p>
+ * A keyword starting with {@value #FUZZY_PREFIX} is a fuzzy search instead, for the tasks
+ * in the task list with a word closest to the rest of the keyword, allowing for typos.
  */
 public class FindCommand extends Command {
+    /** Marks a keyword as a fuzzy search term. */
+    private static final String FUZZY_PREFIX = "~";
+    private static final int FUZZY_MATCH_LIMIT = 10;
+
     private final String taskString;
 
     /**
@@ -35,7 +43,13 @@ public class FindCommand extends Command {
      */
     @Override
     public void execute(TaskList tasks, Ui ui, Storage storage) throws NeruneruneException {
+        if (taskString.startsWith(FUZZY_PREFIX)) {
+            String term = taskString.substring(FUZZY_PREFIX.length()).trim();
+            ui.showMatchingTasks(tasks.findClosestTasks(term, FUZZY_MATCH_LIMIT), new ArrayList<>());
+            return;
+        }
         ArrayList<Task> foundResult = tasks.filterTasksByKeyword(taskString);
-        ui.showMatchingTasks(foundResult);
+        ArrayList<Task> archivedResult = tasks.filterArchivedTasksByKeyword(taskString);
+        ui.showMatchingTasks(foundResult, archivedResult);
     }
 }
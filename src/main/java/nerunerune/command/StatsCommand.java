@@ -0,0 +1,23 @@
+package nerunerune.command;
+
+import nerunerune.storage.Storage;
+import nerunerune.tasklist.TaskList;
+import nerunerune.ui.Ui;
+
+/**
+ * Represents a command to show how many tasks there are of each kind.
+ * Executes the display of the counts of the task list.
+ */
+public class StatsCommand extends Command {
+    /**
+     * Executes the command by showing the counts of the given task list.
+     *
+     * @param tasks   the task list to count
+     * @param ui      the user interface
+     * @param storage the storage component
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) {
+        tasks.printStats();
+    }
+}
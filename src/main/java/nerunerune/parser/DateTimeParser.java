@@ -17,7 +17,6 @@ public class DateTimeParser {
 
     private static final DateTimeFormatter INPUT_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy HHmm");
     private static final DateTimeFormatter OUTPUT_FORMATTER = DateTimeFormatter.ofPattern("MMM dd yyyy h:mm a");
-    private static final DateTimeFormatter STORAGE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd yyyy HHmm");
     private static final DateTimeFormatter DATE_ONLY_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy");
     private static final DateTimeFormatter LONG_DATE_FORMATTER = DateTimeFormatter.ofPattern("EEEE, dd MMM yyyy");
 
@@ -54,7 +53,7 @@ public class DateTimeParser {
     }
 
     /**
-     * Parses a date-time string from the storage format.
+     * Parses a date-time string from the storage format, see {@link StorageDateTimeCodec}.
      *
      * @param dateTimeString the stored date-time string
      * @return LocalDateTime parsed from the storage string
@@ -62,7 +61,25 @@ public class DateTimeParser {
      */
     public static LocalDateTime parseStorageDateTime(String dateTimeString) throws NeruneruneException {
         try {
-            return LocalDateTime.parse(dateTimeString, STORAGE_FORMATTER);
+            return StorageDateTimeCodec.parse(dateTimeString);
+        } catch (DateTimeParseException e) {
+            throw new NeruneruneException("Invalid storage date/time format");
+        }
+    }
+
+    /**
+     * Parses a date-time from the storage format held in a range of a character array,
+     * such as a field of a stored task line.
+     *
+     * @param chars the array holding the stored date-time
+     * @param start the index of the first character of the date-time
+     * @param end   the index just past the last character of the date-time
+     * @return LocalDateTime parsed from the stored text
+     * @throws NeruneruneException if the text is not in the correct storage format
+     */
+    public static LocalDateTime parseStorageDateTime(char[] chars, int start, int end) throws NeruneruneException {
+        try {
+            return StorageDateTimeCodec.parse(chars, start, end);
         } catch (DateTimeParseException e) {
             throw new NeruneruneException("Invalid storage date/time format");
         }
@@ -85,7 +102,17 @@ public class DateTimeParser {
      * @return formatted date-time string for storage
      */
     public static String formatForStorage(LocalDateTime dateTime) {
-        return dateTime.format(STORAGE_FORMATTER);
+        return StorageDateTimeCodec.format(dateTime);
+    }
+
+    /**
+     * Appends a LocalDateTime to the builder in the storage format, without creating an intermediate string.
+     *
+     * @param sb       the builder to append to
+     * @param dateTime the LocalDateTime to format
+     */
+    public static void appendForStorage(StringBuilder sb, LocalDateTime dateTime) {
+        StorageDateTimeCodec.append(sb, dateTime);
     }
 
     /**
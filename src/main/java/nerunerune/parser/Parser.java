@@ -6,13 +6,16 @@ import java.time.LocalDateTime;
 import nerunerune.command.AddDeadlineCommand;
 import nerunerune.command.AddEventCommand;
 import nerunerune.command.AddTodoCommand;
+import nerunerune.command.ClashesCommand;
 import nerunerune.command.Command;
 import nerunerune.command.DeleteCommand;
 import nerunerune.command.ExitCommand;
+import nerunerune.command.ExportCommand;
 import nerunerune.command.FindCommand;
 import nerunerune.command.MarkCommand;
 import nerunerune.command.PrintTaskListCommand;
 import nerunerune.command.ScheduleCommand;
+import nerunerune.command.StatsCommand;
 import nerunerune.command.UnmarkCommand;
 import nerunerune.command.ViewAllCommand;
 import nerunerune.exception.NeruneruneException;
@@ -28,7 +31,6 @@ import nerunerune.validation.CommandValidator;
  * and translates them into corresponding Command objects or Task instances.
  */
 public class Parser {
-
     /**
      * Extracts the command keyword from the user's input string.
      *
@@ -107,7 +109,7 @@ public class Parser {
 
     /**
      * Parses a stored task line string into a corresponding Task object.
-     * Split stored task line string using '|'
+     * The line is cut into fields on {@code " | "} by a {@link StorageLineTokenizer}.
      *
      * @param line the stored task line string, formatted with delimiters
      * @return Task object corresponding to the stored line
@@ -115,38 +117,118 @@ public class Parser {
      * @throws NeruneruneException if stored date-time parsing fails
      */
     public static Task parseTaskLine(String line) throws IOException, NeruneruneException {
-        String[] parts = line.split(" \\| ");
-        if (parts.length < 3) {
-            throw new IOException("Corrupted line: " + line);
+        return parseTaskFields(new StorageLineTokenizer().reset(line));
+    }
+
+    /**
+     * Splits a stored task line on the {@code " | "} delimiter without using regular expressions.
+     * Produces the same fields as {@code line.split(" \\| ")}.
+     *
+     * @param line the stored task line string
+     * @return the fields of the line
+     */
+    public static String[] splitStorageLine(String line) {
+        return new StorageLineTokenizer().reset(line).toFields();
+    }
+
+    /**
+     * Parses the fields of a stored task line into a corresponding Task object,
+     * reading the type, done flag, dates and ID in place so only the description is copied.
+     * The ID is the optional last field, as lines stored before tasks had IDs end without it.
+     *
+     * @param fields the tokenizer positioned on the stored task line
+     * @return Task object corresponding to the stored fields
+     * @throws IOException         if the fields are corrupted or task type unknown
+     * @throws NeruneruneException if stored date-time parsing fails
+     */
+    public static Task parseTaskFields(StorageLineTokenizer fields) throws IOException, NeruneruneException {
+        int fieldCount = fields.getFieldCount();
+        if (fieldCount < 3) {
+            throw new IOException("Corrupted line: " + fields);
         }
-        String taskType = parts[0];
-        boolean isDone = parts[1].equals("1"); // true if 1 -> mark with X
-        String description = parts[2];
+        char taskType = fields.getFieldEnd(0) - fields.getFieldStart(0) == 1
+                ? fields.getChars()[fields.getFieldStart(0)]
+                : '\0';
+        boolean isDone = fields.isField(1, '1'); // true if 1 -> mark with X
 
+        Task task;
+        long id;
         switch (taskType) {
-        case "T": // todo
-            if (parts.length > 3)
-                throw new IOException("Corrupted todo line: " + line);
-            return new Todo(description, isDone);
-        case "D": // deadline
-            if (parts.length < 4)
-                throw new IOException("Corrupted deadline line: " + line);
-            LocalDateTime deadlineBy = DateTimeParser.parseStorageDateTime(parts[3]);
-            return new Deadline(description, deadlineBy, isDone);
-        case "E": // event
-            if (parts.length < 5)
-                throw new IOException("Corrupted event line: " + line);
-            LocalDateTime eventFrom = DateTimeParser.parseStorageDateTime(parts[3]);
-            LocalDateTime eventTo = DateTimeParser.parseStorageDateTime(parts[4]);
-            return new Event(description, eventFrom, eventTo, isDone);
+        case 'T': // todo
+            id = parseIdField(fields, 3);
+            if (fieldCount > 4 || (fieldCount == 4 && id == 0))
+                throw new IOException("Corrupted todo line: " + fields);
+            task = new Todo(fields.getField(2), isDone);
+            break;
+        case 'D': // deadline
+            if (fieldCount < 4)
+                throw new IOException("Corrupted deadline line: " + fields);
+            LocalDateTime deadlineBy = parseDateTimeField(fields, 3);
+            task = new Deadline(fields.getField(2), deadlineBy, isDone);
+            id = parseIdField(fields, 4);
+            break;
+        case 'E': // event
+            if (fieldCount < 5)
+                throw new IOException("Corrupted event line: " + fields);
+            LocalDateTime eventFrom = parseDateTimeField(fields, 3);
+            LocalDateTime eventTo = parseDateTimeField(fields, 4);
+            task = new Event(fields.getField(2), eventFrom, eventTo, isDone);
+            id = parseIdField(fields, 5);
+            break;
         default:
-            throw new IOException("Unknown task type in line: " + line);
+            throw new IOException("Unknown task type in line: " + fields);
+        }
+        if (id > 0) {
+            task.setId(id);
         }
+        return task;
+    }
+
+    /**
+     * Parses a stored task ID field in place.
+     *
+     * @param fields the tokenizer positioned on the stored task line
+     * @param field  the 0-based position of the ID field
+     * @return the ID, or 0 if the line has no such field or it is not a task ID
+     */
+    private static long parseIdField(StorageLineTokenizer fields, int field) {
+        if (field >= fields.getFieldCount()) {
+            return 0;
+        }
+        char[] chars = fields.getChars();
+        int start = fields.getFieldStart(field);
+        int end = fields.getFieldEnd(field);
+        if (start == end || end - start > 18) { // more digits could overflow a long
+            return 0;
+        }
+        long id = 0;
+        for (int i = start; i < end; i++) {
+            if (chars[i] < '0' || chars[i] > '9') {
+                return 0;
+            }
+            id = id * 10 + (chars[i] - '0');
+        }
+        return id;
+    }
+
+    /**
+     * Parses a stored date-time field in place.
+     *
+     * @param fields the tokenizer positioned on the stored task line
+     * @param field  the 0-based position of the date-time field
+     * @return the parsed date-time
+     * @throws NeruneruneException if the field is not in the storage format
+     */
+    private static LocalDateTime parseDateTimeField(StorageLineTokenizer fields, int field)
+            throws NeruneruneException {
+        return DateTimeParser.parseStorageDateTime(fields.getChars(), fields.getFieldStart(field),
+                fields.getFieldEnd(field));
     }
 
     /**
      * Parses the user input into a Command object, validating input and arguments.
-     * Supports commands: list, bye, command, find, schedule, mark, unmark, todo, deadline, event, and delete.
+     * Supports commands: list, bye, command, export, clashes, find, schedule, mark, unmark, todo, deadline, event,
+     * and delete.
      *
      * @param userInput the full input string from the user
      * @return the Command object representing the user's requested action
@@ -167,6 +249,18 @@ public class Parser {
                 CommandValidator.validateNoArguments(extractedCommand, taskString);
                 yield new ExitCommand();
             }
+            case "export" -> {
+                CommandValidator.validateNoArguments(extractedCommand, taskString);
+                yield new ExportCommand();
+            }
+            case "clashes" -> {
+                CommandValidator.validateNoArguments(extractedCommand, taskString);
+                yield new ClashesCommand();
+            }
+            case "stats" -> {
+                CommandValidator.validateNoArguments(extractedCommand, taskString);
+                yield new StatsCommand();
+            }
             case "command" -> {
                 CommandValidator.validateNoArguments(extractedCommand, taskString);
                 yield new ViewAllCommand();
@@ -0,0 +1,266 @@
+package nerunerune.parser;
+
+import java.nio.charset.Charset;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Parses and formats date-times in the storage layout {@code MMM dd yyyy HHmm}, e.g. {@code Oct 26 2025 1830}.
+ * <p>
+ * Storage files hold two dates for most tasks, so loading and saving large files spends much of
+ * its time on them. This codec handles the layout directly: the month is looked up in a table
+ * of the twelve month names, and the numbers are read and written digit by digit, without the
+ * intermediate objects a {@link DateTimeFormatter} creates. Anything it does not handle, such as
+ * a year outside 1 to 9999, an hour of 24 or text in another layout, is passed on to the formatter,
+ * so the results are always the same as the formatter's.
+ * <p>
+ * Month names are taken from the formatter's locale, as the formatter itself does.
+ */
+public class StorageDateTimeCodec {
+    /** Returned by {@link #parseEpochMinutes(byte[], int, int)} for text this codec does not handle. */
+    public static final long NOT_PARSED = Long.MIN_VALUE;
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("MMM dd yyyy HHmm");
+    private static final String[] MONTH_NAMES = new String[12];
+    private static final byte[][] MONTH_NAME_BYTES = new byte[12][];
+    private static final int LENGTH_AFTER_MONTH = " dd yyyy HHmm".length();
+    private static final long DAYS_0000_TO_1970 = 719_528;
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    static {
+        DateTimeFormatter monthFormatter = DateTimeFormatter.ofPattern("MMM", FORMATTER.getLocale());
+        for (Month month : Month.values()) {
+            String name = monthFormatter.format(month);
+            MONTH_NAMES[month.ordinal()] = name;
+            MONTH_NAME_BYTES[month.ordinal()] = name.getBytes(Charset.defaultCharset());
+        }
+    }
+
+    /**
+     * Parses a stored date-time.
+     *
+     * @param text the stored date-time
+     * @return the parsed date-time
+     * @throws java.time.format.DateTimeParseException if the text is not a valid stored date-time
+     */
+    public static LocalDateTime parse(String text) {
+        int month = findMonth(text);
+        if (month != 0) {
+            int i = MONTH_NAMES[month - 1].length();
+            if (text.charAt(i) == ' ' && text.charAt(i + 3) == ' ' && text.charAt(i + 8) == ' ') {
+                int day = readNumber(text, i + 1, 2);
+                int year = readNumber(text, i + 4, 4);
+                int hour = readNumber(text, i + 9, 2);
+                int minute = readNumber(text, i + 11, 2);
+                if (isHandled(year, month, day, hour, minute)) {
+                    return LocalDateTime.of(year, month, day, hour, minute);
+                }
+            }
+        }
+        return LocalDateTime.parse(text, FORMATTER);
+    }
+
+    /**
+     * Parses a stored date-time from a range of a character array, such as a field of a stored line,
+     * without copying it into a string unless it must be passed on to the formatter.
+     *
+     * @param chars the array holding the text
+     * @param start the index of the first character of the date-time
+     * @param end   the index just past the last character of the date-time
+     * @return the parsed date-time
+     * @throws java.time.format.DateTimeParseException if the text is not a valid stored date-time
+     */
+    public static LocalDateTime parse(char[] chars, int start, int end) {
+        int month = findMonth(chars, start, end);
+        if (month != 0) {
+            int i = start + MONTH_NAMES[month - 1].length();
+            if (chars[i] == ' ' && chars[i + 3] == ' ' && chars[i + 8] == ' ') {
+                int day = readNumber(chars, i + 1, 2);
+                int year = readNumber(chars, i + 4, 4);
+                int hour = readNumber(chars, i + 9, 2);
+                int minute = readNumber(chars, i + 11, 2);
+                if (isHandled(year, month, day, hour, minute)) {
+                    return LocalDateTime.of(year, month, day, hour, minute);
+                }
+            }
+        }
+        return LocalDateTime.parse(new String(chars, start, end - start), FORMATTER);
+    }
+
+    /**
+     * Parses a stored date-time straight from encoded text into minutes since the epoch, in UTC.
+     *
+     * @param bytes the buffer holding the text, encoded with the platform charset
+     * @param start the index of the first byte of the date-time
+     * @param end   the index just past the last byte of the date-time
+     * @return the minutes since 1970-01-01T00:00, or {@link #NOT_PARSED} if the text
+     *         is not handled by this codec and must be parsed with {@link #parse(String)}
+     */
+    public static long parseEpochMinutes(byte[] bytes, int start, int end) {
+        int month = findMonth(bytes, start, end);
+        if (month == 0) {
+            return NOT_PARSED;
+        }
+        int i = start + MONTH_NAME_BYTES[month - 1].length;
+        if (bytes[i] != ' ' || bytes[i + 3] != ' ' || bytes[i + 8] != ' ') {
+            return NOT_PARSED;
+        }
+        int day = readNumber(bytes, i + 1, 2);
+        int year = readNumber(bytes, i + 4, 4);
+        int hour = readNumber(bytes, i + 9, 2);
+        int minute = readNumber(bytes, i + 11, 2);
+        if (!isHandled(year, month, day, hour, minute)) {
+            return NOT_PARSED;
+        }
+        return toEpochDay(year, month, day) * MINUTES_PER_DAY + hour * 60 + minute;
+    }
+
+    /**
+     * Appends a date-time in the storage layout.
+     *
+     * @param sb       the builder to append to
+     * @param dateTime the date-time to format
+     */
+    public static void append(StringBuilder sb, LocalDateTime dateTime) {
+        int year = dateTime.getYear();
+        if (year < 1 || year > 9999) {
+            FORMATTER.formatTo(dateTime, sb); // signed or wider years
+            return;
+        }
+        sb.append(MONTH_NAMES[dateTime.getMonthValue() - 1]).append(' ');
+        appendDigits(sb, dateTime.getDayOfMonth(), 2);
+        sb.append(' ');
+        appendDigits(sb, year, 4);
+        sb.append(' ');
+        appendDigits(sb, dateTime.getHour(), 2);
+        appendDigits(sb, dateTime.getMinute(), 2);
+    }
+
+    /**
+     * Formats a date-time in the storage layout.
+     *
+     * @param dateTime the date-time to format
+     * @return the formatted date-time
+     */
+    public static String format(LocalDateTime dateTime) {
+        StringBuilder sb = new StringBuilder(MONTH_NAMES[0].length() + LENGTH_AFTER_MONTH);
+        append(sb, dateTime);
+        return sb.toString();
+    }
+
+    /**
+     * Returns the month whose name starts the text, if the text is as long as a date-time with that month.
+     *
+     * @return the month from 1 to 12, or 0 if there is none
+     */
+    private static int findMonth(String text) {
+        for (int i = 0; i < MONTH_NAMES.length; i++) {
+            String name = MONTH_NAMES[i];
+            if (text.length() == name.length() + LENGTH_AFTER_MONTH && text.startsWith(name)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static int findMonth(char[] chars, int start, int end) {
+        for (int i = 0; i < MONTH_NAMES.length; i++) {
+            String name = MONTH_NAMES[i];
+            if (end - start == name.length() + LENGTH_AFTER_MONTH && startsWith(chars, start, name)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean startsWith(char[] chars, int start, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (chars[start + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int findMonth(byte[] bytes, int start, int end) {
+        for (int i = 0; i < MONTH_NAME_BYTES.length; i++) {
+            byte[] name = MONTH_NAME_BYTES[i];
+            if (end - start == name.length + LENGTH_AFTER_MONTH
+                    && Arrays.equals(bytes, start, start + name.length, name, 0, name.length)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Reads a fixed number of decimal digits.
+     *
+     * @return the number, or -1 if a character is not a digit
+     */
+    private static int readNumber(String text, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int readNumber(char[] chars, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = chars[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int readNumber(byte[] bytes, int start, int length) {
+        int value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Returns whether the fields form a date-time that this codec parses itself. Days past the end
+     * of the month and an hour of 24 are left to the formatter, which adjusts them to valid values.
+     */
+    private static boolean isHandled(int year, int month, int day, int hour, int minute) {
+        return year >= 1 && day >= 1 && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59
+                && day <= Month.of(month).length(Year.isLeap(year));
+    }
+
+    private static void appendDigits(StringBuilder sb, int value, int length) {
+        for (int divisor = length == 4 ? 1000 : 10; divisor > 0; divisor /= 10) {
+            sb.append((char) ('0' + value / divisor % 10));
+        }
+    }
+
+    /**
+     * Returns the days since 1970-01-01 of a date from year 1 on, the same as {@link java.time.LocalDate#toEpochDay()}.
+     */
+    private static long toEpochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12 + day - 1;
+        if (month > 2) {
+            total -= Year.isLeap(year) ? 1 : 2;
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+}
@@ -0,0 +1,182 @@
+package nerunerune.parser;
+
+import java.util.Arrays;
+
+/**
+ * Cuts a stored task line into its {@code " | "} separated fields in a single pass, without
+ * regular expressions and without copying the fields out of the line.
+ * <p>
+ * A tokenizer is reset onto a line, either a range of a character array such as a reader's decode
+ * buffer, or a {@link CharSequence} that is copied into a reused buffer. It then records only where
+ * each field starts and ends, and callers look at the fields in place, so a stored task costs no
+ * intermediate strings apart from its description. The fields are the same as those of
+ * {@code line.split(" \\| ")}: delimiters never overlap, and trailing empty fields are dropped.
+ * <p>
+ * A tokenizer is meant to be reused for many lines and is not thread-safe. The fields of a line
+ * are only valid until the tokenizer is reset, or the array it was reset onto is changed.
+ */
+public class StorageLineTokenizer {
+    private static final int DELIMITER_LENGTH = 3; // " | "
+
+    private char[] chars;
+    private char[] ownChars;
+    private int[] fieldStarts;
+    private int[] fieldEnds;
+    private int fieldCount;
+
+    /**
+     * Constructs a StorageLineTokenizer with no line.
+     */
+    public StorageLineTokenizer() {
+        this.ownChars = new char[0]; // sized on first use, as readers never need it
+        this.fieldStarts = new int[8];
+        this.fieldEnds = new int[8];
+    }
+
+    /**
+     * Moves to a line held in a character sequence, copying it into the tokenizer's own buffer.
+     *
+     * @param line the stored task line
+     * @return this tokenizer, for chaining
+     */
+    public StorageLineTokenizer reset(CharSequence line) {
+        int length = line.length();
+        if (ownChars.length < length) {
+            ownChars = new char[Math.max(length, ownChars.length * 2)];
+        }
+        if (line instanceof String) {
+            ((String) line).getChars(0, length, ownChars, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                ownChars[i] = line.charAt(i);
+            }
+        }
+        return reset(ownChars, 0, length);
+    }
+
+    /**
+     * Moves to a line held in a range of a character array, which is used in place.
+     *
+     * @param chars the array holding the line
+     * @param start the index of the first character of the line
+     * @param end   the index just past the last character of the line
+     * @return this tokenizer, for chaining
+     */
+    public StorageLineTokenizer reset(char[] chars, int start, int end) {
+        this.chars = chars;
+        fieldCount = 0;
+
+        int fieldStart = start;
+        int i = start;
+        while (i + DELIMITER_LENGTH <= end) {
+            if (chars[i + 1] == '|' && chars[i] == ' ' && chars[i + 2] == ' ') {
+                addField(fieldStart, i);
+                i += DELIMITER_LENGTH;
+                fieldStart = i;
+            } else {
+                i++;
+            }
+        }
+        addField(fieldStart, end);
+
+        // drop trailing empty fields like String.split does
+        while (fieldCount > 1 && fieldStarts[fieldCount - 1] == fieldEnds[fieldCount - 1]) {
+            fieldCount--;
+        }
+        return this;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    /**
+     * Returns the number of fields in the line.
+     *
+     * @return the number of fields, at least 1
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns the array the line is held in, for reading a field in place
+     * between {@link #getFieldStart(int)} and {@link #getFieldEnd(int)}.
+     *
+     * @return the array holding the line
+     */
+    public char[] getChars() {
+        return chars;
+    }
+
+    /**
+     * Returns where a field starts in the array returned by {@link #getChars()}.
+     *
+     * @param field the 0-based position of the field
+     * @return the index of the first character of the field
+     */
+    public int getFieldStart(int field) {
+        return fieldStarts[field];
+    }
+
+    /**
+     * Returns where a field ends in the array returned by {@link #getChars()}.
+     *
+     * @param field the 0-based position of the field
+     * @return the index just past the last character of the field
+     */
+    public int getFieldEnd(int field) {
+        return fieldEnds[field];
+    }
+
+    /**
+     * Returns whether a field is exactly one given character, such as a task type or a done flag.
+     *
+     * @param field the 0-based position of the field
+     * @param c     the character to compare with
+     * @return true if the field consists of that character alone
+     */
+    public boolean isField(int field, char c) {
+        return fieldEnds[field] - fieldStarts[field] == 1 && chars[fieldStarts[field]] == c;
+    }
+
+    /**
+     * Copies a field out of the line.
+     *
+     * @param field the 0-based position of the field
+     * @return the text of the field
+     */
+    public String getField(int field) {
+        return new String(chars, fieldStarts[field], fieldEnds[field] - fieldStarts[field]);
+    }
+
+    /**
+     * Copies all fields out of the line.
+     *
+     * @return the fields, as {@code line.split(" \\| ")} would return them
+     */
+    public String[] toFields() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = getField(i);
+        }
+        return fields;
+    }
+
+    /**
+     * Returns the fields joined back with their delimiters, without any dropped trailing
+     * empty fields. Typically used to report a line that could not be parsed.
+     *
+     * @return the text of the line from its first field to its last
+     */
+    @Override
+    public String toString() {
+        return new String(chars, fieldStarts[0], fieldEnds[fieldCount - 1] - fieldStarts[0]);
+    }
+}
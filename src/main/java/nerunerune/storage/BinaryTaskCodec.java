@@ -0,0 +1,565 @@
+package nerunerune.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import nerunerune.task.Deadline;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+/**
+ * Encodes and decodes tasks in the compact binary storage format.
+ * <p>
+ * A file starts with the magic bytes {@code NRNR} and a version byte, followed by one record per task.
+ * Since version 2, each record is framed by its length as a varint before it and the CRC32C
+ * checksum of its bytes after it, so a corrupted record is detected and can be skipped.
+ * Since version 3, the version byte is followed by the next task ID as a varint, or 0 if none
+ * is stored (see {@link TaskIdCounter}).
+ * A record holds:
+ * <ul>
+ *   <li>a type byte ({@code T}, {@code D} or {@code E})</li>
+ *   <li>a flags byte, with bit 0 set when the task is done</li>
+ *   <li>for deadlines, the due time as a zigzag varint of epoch minutes;
+ *       for events, the start time the same way, then the duration in minutes</li>
+ *   <li>the description as a varint byte length followed by UTF-8 bytes</li>
+ *   <li>the task ID as a varint, in framed records of tasks that have one</li>
+ * </ul>
+ * Dates are stored to the minute, the same precision as the text format. Records written before tasks
+ * had IDs end after the description; as a framed record's length is known, the ID needs no new version.
+ * <p>
+ * When reading into a {@link LazyTaskList}, framed records are only verified and their hot fields
+ * decoded; the rest of each record is decoded when the task is first accessed.
+ */
+public class BinaryTaskCodec {
+    private static final byte[] MAGIC = {'N', 'R', 'N', 'R'};
+    private static final byte UNFRAMED_VERSION = 1;
+    private static final byte FRAMED_VERSION = 2;
+    private static final byte VERSION = 3;
+    private static final int CHECKSUM_LENGTH = 4;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final byte TODO_TYPE = 'T';
+    private static final byte DEADLINE_TYPE = 'D';
+    private static final byte EVENT_TYPE = 'E';
+    private static final int DONE_FLAG = 1;
+
+    /**
+     * Returns whether the given file starts with the binary format's magic bytes.
+     *
+     * @param f the file to check
+     * @return true if the file is in the binary format
+     * @throws IOException if reading the file fails
+     */
+    public static boolean isBinaryFile(File f) throws IOException {
+        if (f.length() < MAGIC.length) {
+            return false;
+        }
+        try (InputStream in = new FileInputStream(f)) {
+            return isBinary(in.readNBytes(MAGIC.length));
+        }
+    }
+
+    /**
+     * Returns whether the given start of a file is the binary format's magic bytes.
+     *
+     * @param start the first bytes of the file
+     * @return true if the file is in the binary format
+     */
+    static boolean isBinary(byte[] start) {
+        return start.length >= MAGIC.length && Arrays.equals(start, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * Reads the next task ID stored in the header of a binary file.
+     *
+     * @param bytes the start of the file, at least up to the end of the header
+     * @return the stored next ID, or 0 if the file has none, such as one written before version 3
+     */
+    static long readNextId(ByteBuffer bytes) {
+        try {
+            bytes.position(bytes.position() + MAGIC.length);
+            return bytes.get() == VERSION ? Math.max(0, readVarLong(bytes)) : 0;
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Encodes the given tasks in the binary format, including a header without a next ID.
+     *
+     * @param taskList the tasks to encode
+     * @return the encoded file contents
+     */
+    public static byte[] encode(List<Task> taskList) {
+        return encode(taskList, 0);
+    }
+
+    /**
+     * Encodes the given tasks in the binary format, including the header.
+     *
+     * @param taskList the tasks to encode
+     * @param nextId   the next task ID to store in the header, or 0 to store none
+     * @return the encoded file contents
+     */
+    public static byte[] encode(List<Task> taskList, long nextId) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(Channels.newChannel(bytes), taskList, nextId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // an in-memory stream does not fail
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the given tasks in the binary format, including the header, to a channel.
+     * Records are buffered one at a time, so the file contents are never held in memory as a whole.
+     *
+     * @param channel  the channel to write to; it is not closed
+     * @param taskList the tasks to write
+     * @param nextId   the next task ID to store in the header, or 0 to store none
+     * @throws IOException if writing to the channel fails
+     */
+    public static void write(WritableByteChannel channel, List<Task> taskList, long nextId) throws IOException {
+        LazyTaskList lazyTasks = taskList instanceof LazyTaskList ? (LazyTaskList) taskList : null;
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel),
+                OUTPUT_BUFFER_SIZE));
+        CRC32C crc = new CRC32C();
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        writeVarLong(out, nextId);
+        for (int i = 0; i < taskList.size(); i++) {
+            recordBytes.reset();
+            byte[] unreadRecord = lazyTasks != null ? lazyTasks.getUnreadRecord(i, StorageFormat.BINARY) : null;
+            if (unreadRecord != null) {
+                record.write(unreadRecord); // copy as-is rather than decode it only to encode it again
+            } else {
+                writeTask(record, taskList.get(i));
+            }
+            record.flush();
+
+            crc.reset();
+            crc.update(recordBytes.toByteArray());
+            writeVarLong(out, recordBytes.size());
+            recordBytes.writeTo(out);
+            out.writeInt((int) crc.getValue());
+        }
+        out.flush(); // not closed, as that would close the channel
+    }
+
+    /**
+     * Returns the number of bytes {@link #write(WritableByteChannel, List, long)} writes for the given tasks,
+     * without encoding them, so that a file of exactly that size can be prepared up front.
+     *
+     * @param taskList the tasks to measure
+     * @param nextId   the next task ID to store in the header, or 0 to store none
+     * @return the encoded size in bytes
+     */
+    static long encodedSize(List<Task> taskList, long nextId) {
+        LazyTaskList lazyTasks = taskList instanceof LazyTaskList ? (LazyTaskList) taskList : null;
+        long size = MAGIC.length + 1 + varLongSize(nextId);
+        for (int i = 0; i < taskList.size(); i++) {
+            byte[] unreadRecord = lazyTasks != null ? lazyTasks.getUnreadRecord(i, StorageFormat.BINARY) : null;
+            long recordSize = unreadRecord != null ? unreadRecord.length : recordSize(taskList.get(i));
+            size += varLongSize(recordSize) + recordSize + CHECKSUM_LENGTH;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes {@link #writeTask(DataOutputStream, Task)} writes for a task.
+     */
+    private static long recordSize(Task task) {
+        long size = 2; // type and flags
+        if (task instanceof Deadline deadline) {
+            size += varLongSize(toEpochMinutes(deadline.getDeadlineByDateTime()));
+        } else if (task instanceof Event event) {
+            long fromMinutes = toEpochMinutes(event.getEventFromDateTime());
+            size += varLongSize(fromMinutes) + varLongSize(toEpochMinutes(event.getEventToDateTime()) - fromMinutes);
+        }
+        long descriptionLength = utf8Length(task.getDescription());
+        size += varLongSize(descriptionLength) + descriptionLength;
+        if (task.hasId()) {
+            size += varLongSize(task.getId());
+        }
+        return size;
+    }
+
+    /**
+     * Returns the length of a string encoded as UTF-8 by {@link String#getBytes(java.nio.charset.Charset)},
+     * which replaces a lone surrogate with a single {@code ?}.
+     */
+    private static long utf8Length(String s) {
+        long length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Writes a single task record.
+     *
+     * @param out  the stream to write to
+     * @param task the task to write
+     * @throws IOException if writing fails
+     */
+    private static void writeTask(DataOutputStream out, Task task) throws IOException {
+        if (task instanceof Deadline deadline) {
+            out.writeByte(DEADLINE_TYPE);
+            out.writeByte(task.getIsDone() ? DONE_FLAG : 0);
+            writeVarLong(out, toEpochMinutes(deadline.getDeadlineByDateTime()));
+        } else if (task instanceof Event event) {
+            long fromMinutes = toEpochMinutes(event.getEventFromDateTime());
+            out.writeByte(EVENT_TYPE);
+            out.writeByte(task.getIsDone() ? DONE_FLAG : 0);
+            writeVarLong(out, fromMinutes);
+            writeVarLong(out, toEpochMinutes(event.getEventToDateTime()) - fromMinutes);
+        } else {
+            out.writeByte(TODO_TYPE);
+            out.writeByte(task.getIsDone() ? DONE_FLAG : 0);
+        }
+
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, description.length);
+        out.write(description);
+        if (task.hasId()) {
+            writeVarLong(out, task.getId());
+        }
+    }
+
+    /**
+     * Decodes all task records in the given file contents and adds them to the task list.
+     * <p>
+     * Without salvaging, the first corrupted record fails the whole read. When salvaging, a framed
+     * record that fails its checksum or cannot be decoded is skipped and a placeholder takes its
+     * place; if the framing itself is damaged, the rest of the file is skipped as one record.
+     * A {@link LazyTaskList} must be empty and given the whole file contents, which it keeps.
+     *
+     * @param bytes    the file contents, starting with the header
+     * @param taskList the task list to populate
+     * @param salvaged the collector for skipped records, or null to fail on the first corrupted record
+     * @throws CorruptedRecordException if the header is corrupted, or a record is and salvaged is null
+     */
+    public static void read(ByteBuffer bytes, List<Task> taskList, SalvagedRecords salvaged)
+            throws CorruptedRecordException {
+        byte version;
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            bytes.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new CorruptedRecordException("Not a binary storage file");
+            }
+            version = bytes.get();
+            if (version == VERSION) {
+                readVarLong(bytes); // the next ID, see readNextId
+            }
+        } catch (IOException | BufferUnderflowException e) {
+            throw new CorruptedRecordException("Truncated binary storage header");
+        }
+        if (version != VERSION && version != FRAMED_VERSION && version != UNFRAMED_VERSION) {
+            throw new CorruptedRecordException("Unsupported binary storage version: " + version);
+        }
+        boolean isFramed = version != UNFRAMED_VERSION;
+
+        LazyTaskList lazyTasks = null;
+        if (taskList instanceof LazyTaskList && isFramed) {
+            lazyTasks = (LazyTaskList) taskList;
+            lazyTasks.setSource(bytes.array(), StorageFormat.BINARY);
+        }
+
+        CRC32C crc = new CRC32C();
+        while (bytes.hasRemaining()) {
+            int recordStart = bytes.position();
+            try {
+                if (lazyTasks != null) {
+                    readFramedRecordLazily(bytes, crc, lazyTasks);
+                } else {
+                    taskList.add(isFramed ? readFramedTask(bytes, crc) : readTask(bytes));
+                }
+            } catch (IOException | BufferUnderflowException | DateTimeException e) {
+                String message = "Corrupted binary record after " + taskList.size() + " task(s)";
+                if (salvaged == null) {
+                    throw new CorruptedRecordException(message);
+                }
+                int recordEnd = isFramed ? findFramedRecordEnd(bytes, recordStart) : bytes.limit();
+                taskList.add(salvaged.addRecord(message + ": " + toHex(bytes, recordStart, recordEnd)));
+                bytes.position(recordEnd);
+            }
+        }
+    }
+
+    /**
+     * Decodes a record framed by its length and checksum, verifying the checksum first.
+     *
+     * @param bytes the buffer positioned at the record length
+     * @param crc   a checksum instance to reuse
+     * @return the decoded task
+     * @throws IOException if the framing or checksum is wrong, or the record is corrupted
+     */
+    private static Task readFramedTask(ByteBuffer bytes, CRC32C crc) throws IOException {
+        int recordEnd = verifyFramedRecord(bytes, crc);
+        Task task = readRecord(bytes.duplicate().limit(recordEnd).slice());
+        bytes.position(recordEnd + CHECKSUM_LENGTH);
+        return task;
+    }
+
+    /**
+     * Verifies a record framed by its length and checksum, then adds it to the lazy task list
+     * with only its hot fields decoded.
+     *
+     * @param bytes     the buffer positioned at the record length
+     * @param crc       a checksum instance to reuse
+     * @param lazyTasks the task list to add the record to
+     * @throws IOException if the framing or checksum is wrong, or the hot fields are corrupted
+     */
+    private static void readFramedRecordLazily(ByteBuffer bytes, CRC32C crc, LazyTaskList lazyTasks)
+            throws IOException {
+        int recordEnd = verifyFramedRecord(bytes, crc);
+        int recordStart = bytes.position();
+        byte type = bytes.get();
+        boolean isDone = (bytes.get() & DONE_FLAG) != 0;
+        long dueMinutes = switch (type) {
+        case TODO_TYPE -> LazyTaskList.NO_DUE_TIME;
+        case DEADLINE_TYPE -> readVarLong(bytes);
+        case EVENT_TYPE -> readVarLong(bytes) + readVarLong(bytes); // start plus duration
+        default -> throw new IOException("Unknown task type in binary record: " + type);
+        };
+        long descriptionLength = readVarLong(bytes);
+        if (descriptionLength < 0 || descriptionLength > recordEnd - bytes.position()) {
+            throw new IOException("Invalid description length in binary record: " + descriptionLength);
+        }
+        bytes.position(bytes.position() + (int) descriptionLength);
+        long id = bytes.position() < recordEnd ? readVarLong(bytes) : 0;
+        if (id < 0) {
+            throw new IOException("Invalid task ID in binary record: " + id);
+        }
+
+        lazyTasks.addBinaryRecord(bytes.arrayOffset() + recordStart, bytes.arrayOffset() + recordEnd,
+                isDone, dueMinutes, id);
+        bytes.position(recordEnd + CHECKSUM_LENGTH);
+    }
+
+    /**
+     * Reads the length of a framed record and verifies the record against its checksum.
+     *
+     * @param bytes the buffer positioned at the record length, left positioned at the record itself
+     * @param crc   a checksum instance to reuse
+     * @return the position just past the record, where its checksum starts
+     * @throws IOException if the length is invalid or the checksum does not match
+     */
+    private static int verifyFramedRecord(ByteBuffer bytes, CRC32C crc) throws IOException {
+        long length = readVarLong(bytes);
+        if (length < 0 || length > bytes.remaining() - CHECKSUM_LENGTH) {
+            throw new IOException("Invalid binary record length: " + length);
+        }
+        int recordEnd = bytes.position() + (int) length;
+
+        crc.reset();
+        crc.update(bytes.duplicate().limit(recordEnd));
+        if ((int) crc.getValue() != bytes.getInt(recordEnd)) {
+            throw new IOException("Checksum mismatch in binary record");
+        }
+        return recordEnd;
+    }
+
+    /**
+     * Decodes a single task record that has already been verified, such as one kept by a {@link LazyTaskList}.
+     *
+     * @param record the record bytes, without length or checksum
+     * @return the decoded task
+     * @throws IOException if the record is corrupted
+     */
+    static Task decodeRecord(ByteBuffer record) throws IOException {
+        try {
+            return readRecord(record);
+        } catch (BufferUnderflowException | DateTimeException e) {
+            throw new IOException("Corrupted binary record", e);
+        }
+    }
+
+    /**
+     * Returns where a corrupted framed record ends, so reading can resume after it.
+     *
+     * @param bytes       the file contents
+     * @param recordStart the position of the record length
+     * @return the position after the record's checksum, or the end of the file if the length is unusable
+     */
+    private static int findFramedRecordEnd(ByteBuffer bytes, int recordStart) {
+        try {
+            ByteBuffer lengthBytes = bytes.duplicate().position(recordStart);
+            long length = readVarLong(lengthBytes);
+            long recordEnd = lengthBytes.position() + length + CHECKSUM_LENGTH;
+            return length >= 0 && recordEnd <= bytes.limit() ? (int) recordEnd : bytes.limit();
+        } catch (IOException | BufferUnderflowException e) {
+            return bytes.limit();
+        }
+    }
+
+    private static String toHex(ByteBuffer bytes, int start, int end) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = start; i < end; i++) {
+            sb.append(String.format("%02x", bytes.get(i)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Decodes a single framed task record, along with the task ID at its end if it has one.
+     *
+     * @param record the record bytes, without length or checksum
+     * @return the decoded task
+     * @throws IOException if the record is corrupted
+     */
+    private static Task readRecord(ByteBuffer record) throws IOException {
+        Task task = readTask(record);
+        if (record.hasRemaining()) {
+            long id = readVarLong(record);
+            if (id <= 0) {
+                throw new IOException("Invalid task ID in binary record: " + id);
+            }
+            task.setId(id);
+        }
+        return task;
+    }
+
+    /**
+     * Decodes a single task record, up to the end of its description.
+     *
+     * @param bytes the buffer positioned at the start of a record
+     * @return the decoded task
+     * @throws IOException if the record is corrupted
+     */
+    private static Task readTask(ByteBuffer bytes) throws IOException {
+        byte type = bytes.get();
+        boolean isDone = (bytes.get() & DONE_FLAG) != 0;
+
+        switch (type) {
+        case TODO_TYPE:
+            return new Todo(readDescription(bytes), isDone);
+        case DEADLINE_TYPE: {
+            LocalDateTime by = fromEpochMinutes(readVarLong(bytes));
+            return new Deadline(readDescription(bytes), by, isDone);
+        }
+        case EVENT_TYPE: {
+            long fromMinutes = readVarLong(bytes);
+            long toMinutes = fromMinutes + readVarLong(bytes);
+            return new Event(readDescription(bytes), fromEpochMinutes(fromMinutes), fromEpochMinutes(toMinutes),
+                    isDone);
+        }
+        default:
+            throw new IOException("Unknown task type in binary record: " + type);
+        }
+    }
+
+    /**
+     * Decodes a length-prefixed UTF-8 description.
+     *
+     * @param bytes the buffer positioned at the description length
+     * @return the description
+     * @throws IOException if the length is invalid
+     */
+    private static String readDescription(ByteBuffer bytes) throws IOException {
+        long length = readVarLong(bytes);
+        if (length < 0 || length > bytes.remaining()) {
+            throw new IOException("Invalid description length in binary record: " + length);
+        }
+        if (!bytes.hasArray()) { // e.g. a memory-mapped file
+            byte[] descriptionBytes = new byte[(int) length];
+            bytes.get(descriptionBytes);
+            return new String(descriptionBytes, StandardCharsets.UTF_8);
+        }
+        String description = new String(bytes.array(), bytes.arrayOffset() + bytes.position(), (int) length,
+                StandardCharsets.UTF_8);
+        bytes.position(bytes.position() + (int) length);
+        return description;
+    }
+
+    /**
+     * Writes a signed value as a zigzag-encoded varint, using one byte for every 7 bits.
+     *
+     * @param out   the stream to write to
+     * @param value the value to write
+     * @throws IOException if writing fails
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    /**
+     * Returns the number of bytes {@link #writeVarLong(DataOutputStream, long)} writes for a value.
+     */
+    private static int varLongSize(long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        int size = 1;
+        while ((zigzag & ~0x7FL) != 0) {
+            size++;
+            zigzag >>>= 7;
+        }
+        return size;
+    }
+
+    /**
+     * Reads a zigzag-encoded varint written by {@link #writeVarLong(DataOutputStream, long)}.
+     *
+     * @param bytes the buffer to read from
+     * @return the decoded value
+     * @throws IOException if the varint is longer than 64 bits
+     */
+    private static long readVarLong(ByteBuffer bytes) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = bytes.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("Malformed varint in binary record");
+    }
+
+    private static long toEpochMinutes(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static LocalDateTime fromEpochMinutes(long epochMinutes) {
+        return LocalDateTime.ofEpochSecond(epochMinutes * 60, 0, ZoneOffset.UTC);
+    }
+}
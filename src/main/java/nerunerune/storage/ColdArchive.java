@@ -0,0 +1,239 @@
+package nerunerune.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.task.Task;
+
+/**
+ * An append-only, compressed file of completed tasks that have been moved out of the task list.
+ * <p>
+ * Each append adds one block: its compressed length as a 4-byte int, followed by the tasks
+ * as checksummed text records compressed with {@link Deflater}. Blocks are never rewritten.
+ * Searching decompresses one block at a time, so only a single block is held in memory.
+ * A block cut short by a crash during an append is ignored, and cut off by the next append,
+ * while a block that fails to decompress is skipped.
+ */
+public class ColdArchive {
+    private static final int BLOCK_HEADER_LENGTH = Integer.BYTES;
+
+    private final File file;
+    private final boolean isDurable;
+
+    /**
+     * Constructs a ColdArchive kept in the given file.
+     *
+     * @param file      the archive file, created on the first append
+     * @param isDurable true to force each append to disk before it completes
+     */
+    public ColdArchive(File file, boolean isDurable) {
+        this.file = file;
+        this.isDurable = isDurable;
+    }
+
+    /**
+     * Appends the given tasks to the archive as a single compressed block.
+     *
+     * @param tasks the tasks to archive
+     * @throws NeruneruneException if writing to the archive file fails
+     */
+    public void append(List<Task> tasks) throws NeruneruneException {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        byte[] block = compress(StorageFiles.encodeTasks(tasks, 0, StorageFormat.TEXT, true));
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_HEADER_LENGTH + block.length)
+                .putInt(block.length)
+                .put(block)
+                .flip();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long end = findEndOfLastBlock(channel);
+            channel.truncate(end); // drop a block cut short, so it does not swallow this one
+            channel.position(end);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (isDurable) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while archiving completed tasks: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Moves the completed tasks whose deadline or end time is before the cutoff out of the task list
+     * and appends them to the archive as a single block. The tasks are only removed once the block
+     * is written, so a failed append leaves the task list as it was.
+     *
+     * @param taskList the task list to move the tasks out of
+     * @param cutoff   the time before which a completed task is archived
+     * @return the number of tasks moved
+     * @throws NeruneruneException if writing to the archive file fails
+     */
+    public int moveCompletedTasks(List<Task> taskList, LocalDateTime cutoff) throws NeruneruneException {
+        LazyTaskList lazyTasks = taskList instanceof LazyTaskList ? (LazyTaskList) taskList : null;
+        List<Task> archivedTasks = new ArrayList<>();
+        for (int i = 0; i < taskList.size(); i++) {
+            boolean isArchived = lazyTasks != null
+                    ? lazyTasks.isDone(i) && lazyTasks.isDueBefore(i, cutoff)
+                    : isCompletedBefore(taskList.get(i), cutoff);
+            if (isArchived) {
+                archivedTasks.add(taskList.get(i));
+            }
+        }
+        if (archivedTasks.isEmpty()) {
+            return 0;
+        }
+
+        append(archivedTasks);
+        if (lazyTasks != null) {
+            lazyTasks.removeDoneBefore(cutoff);
+        } else {
+            Set<Task> archivedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            archivedSet.addAll(archivedTasks);
+            taskList.removeIf(archivedSet::contains);
+        }
+        return archivedTasks.size();
+    }
+
+    private static boolean isCompletedBefore(Task task, LocalDateTime dateTime) {
+        LocalDateTime dueDateTime = FileStorage.getDueDateTime(task);
+        return task.getIsDone() && dueDateTime != null && dueDateTime.isBefore(dateTime);
+    }
+
+    /**
+     * Walks the block headers to find where the last complete block ends.
+     *
+     * @param channel the archive file channel
+     * @return the file position just past the last complete block
+     * @throws IOException if reading the file fails
+     */
+    private static long findEndOfLastBlock(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(BLOCK_HEADER_LENGTH);
+        while (position + BLOCK_HEADER_LENGTH <= size) {
+            header.clear();
+            while (header.hasRemaining() && channel.read(header, position + header.position()) > 0) {
+                // keep reading until the header is complete
+            }
+            int length = header.getInt(0);
+            if (length < 0 || position + BLOCK_HEADER_LENGTH + length > size) {
+                break;
+            }
+            position += BLOCK_HEADER_LENGTH + length;
+        }
+        return position;
+    }
+
+    /**
+     * Returns the archived tasks matching the filter, in the order they were archived.
+     *
+     * @param filter the condition the returned tasks satisfy
+     * @return the matching tasks, or an empty list if nothing has been archived
+     * @throws NeruneruneException if the archive file cannot be read
+     */
+    public List<Task> search(Predicate<Task> filter) throws NeruneruneException {
+        List<Task> matchingTasks = new ArrayList<>();
+        if (!file.exists()) {
+            return matchingTasks;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] block;
+            while ((block = readBlock(in)) != null) {
+                List<Task> tasks = new ArrayList<>();
+                try {
+                    readBlockTasks(block, tasks);
+                } catch (ZipException e) {
+                    continue; // a damaged block does not hide the blocks after it
+                }
+                for (Task task : tasks) {
+                    if (filter.test(task)) {
+                        matchingTasks.add(task);
+                    }
+                }
+            }
+        } catch (IOException | NeruneruneException e) {
+            throw new NeruneruneException("An error occurred while searching archived tasks: " + e.getMessage());
+        }
+        return matchingTasks;
+    }
+
+    /**
+     * Reads the next compressed block.
+     *
+     * @param in the archive file stream, positioned at the start of a block
+     * @return the compressed block, or null at the end of the archive or at a block cut short
+     * @throws IOException if reading the file fails
+     */
+    private static byte[] readBlock(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] block = in.readNBytes(length);
+            return block.length == length ? block : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decompresses a block and adds its tasks to the list, skipping records that fail their checksum.
+     *
+     * @param block the compressed block
+     * @param tasks the list to add the tasks to
+     * @throws ZipException        if the block cannot be decompressed
+     * @throws NeruneruneException if a record cannot be parsed
+     * @throws IOException         if decompressing fails
+     */
+    private static void readBlockTasks(byte[] block, List<Task> tasks) throws NeruneruneException, IOException {
+        byte[] records;
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(block))) {
+            records = in.readAllBytes();
+        }
+        SalvagedRecords salvaged = new SalvagedRecords();
+        try (StorageFileReader reader = new StorageFileReader(ByteBuffer.wrap(records))) {
+            StorageFiles.readTasks(reader, tasks, salvaged);
+        }
+        salvaged.removePlaceholders(tasks);
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater)) {
+            deflaterOut.write(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("Compressing into memory should not fail", e);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+}
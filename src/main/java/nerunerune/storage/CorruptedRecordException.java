@@ -0,0 +1,20 @@
+package nerunerune.storage;
+
+import java.io.IOException;
+
+/**
+ * Signals that a record in a storage file is corrupted, as opposed to the file being unreadable.
+ * The reader that threw it is positioned after the bad record, so reading can continue past it.
+ */
+public class CorruptedRecordException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a CorruptedRecordException with the given message.
+     *
+     * @param message the description of the corruption
+     */
+    public CorruptedRecordException(String message) {
+        super(message);
+    }
+}
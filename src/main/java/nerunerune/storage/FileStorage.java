@@ -0,0 +1,899 @@
+package nerunerune.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.task.Deadline;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+
+/**
+ * Stores tasks in a storage file on disk; the default {@link Storage} backend.
+ * Handles file creation, loading tasks from file, saving tasks to file,
+ * and recovering from corrupted storage files by archiving or deletion.
+ * <p>
+ * In salvage mode, every record is stored with a CRC32C checksum, and a corrupted record is
+ * skipped and archived on its own instead of archiving the whole storage file. Otherwise text records
+ * are stored without one, unless in lazy mode, and records that have none are accepted unchecked.
+ * <p>
+ * In lazy mode, the task list is a {@link LazyTaskList} that the storage file is read into
+ * without decoding each task until it is first accessed.
+ * <p>
+ * In sharded mode, tasks are stored in monthly {@link TaskShards} instead of the storage file.
+ * Only todos and the current and upcoming months are loaded on startup; older months are
+ * loaded into the task list when a query reaches back to them.
+ * <p>
+ * In journaled mode, mutations are appended to a journal next to the storage file
+ * instead of rewriting the whole file on every save. The journal is replayed on load,
+ * and folded back into the storage file by a background checkpoint once it grows
+ * past a record-count or size threshold.
+ * <p>
+ * The storage file is written in either the text or the binary {@link StorageFormat}.
+ * Loading detects the format from the file itself, and a file found in the other
+ * format is migrated to the configured one right after it is loaded.
+ * <p>
+ * The storage file is read and written through {@link StorageFiles}, which never truncates it in place:
+ * a new version is written to a temporary file and renamed over it, so a crash mid-save leaves the
+ * previous version intact.
+ * In durable mode, every write is also forced to disk before it completes. Unless a save interval is set,
+ * durable saves are written behind within a short commit window, so a burst of commands shares one force.
+ * <p>
+ * New tasks are given IDs from a {@link TaskIdCounter}, whose next ID is stored with the tasks,
+ * so that the ID of a deleted task is never given out again. In shared mode, IDs are given out
+ * one at a time under the {@link StorageFileLock}, which keeps the next ID for every process.
+ * <p>
+ * Lookup indexes of the task list can be kept in a sidecar file, stamped with the
+ * generation of the storage files they describe, so they are only reused while current.
+ * <p>
+ * With write-behind saving, saves only mark the task list dirty and a {@link SaveScheduler}
+ * coalesces them into at most one write per interval. Commands must then hold
+ * {@link #getTaskListLock()} while they run, and {@link #close()} must be called on exit.
+ * <p>
+ * In shared mode, other processes may use the same storage files at the same time. Saves append
+ * to the journal, and a {@link SharedStorageSync} keeps the task list in step with the records
+ * that other processes append.
+ */
+public class FileStorage implements Storage {
+    private static final String JOURNAL_FILENAME = "tasksJournal.txt";
+    private static final String INDEX_FILENAME = "tasksIndex.bin";
+    private static final String SHARDS_DIRECTORY_NAME = "tasksShards";
+    private static final String COLD_ARCHIVE_FILENAME = "tasksColdArchive.bin";
+    private static final String LOCK_FILENAME = "tasks.lock";
+    private static final int CHECKPOINT_RECORD_THRESHOLD = 1000;
+    private static final long CHECKPOINT_BYTE_THRESHOLD = 256 * 1024;
+
+    private final String filepath;
+    private final StorageReporter reporter;
+    private final StorageFormat format;
+    private final boolean isDurable;
+    private final boolean isSalvaging;
+    private final boolean isChecksummed;
+    private final boolean isLazy;
+    private final boolean isSharded;
+    private final TaskShards shards;
+    private final long archiveAfterDays;
+    private final ColdArchive coldArchive;
+    private final TaskIdCounter ids;
+    private final TaskJournal journal;
+    private final JournalCheckpointer checkpointer;
+    private final ReentrantLock taskListLock;
+    private final SaveScheduler saveScheduler;
+    private final TaskIndexFile indexFile;
+    private final SharedStorageSync sharedSync;
+    private Long loadedGeneration;
+
+    /**
+     * Constructs a FileStorage with the specified file path and default settings.
+     *
+     * @param filepath the path to the local tasks storage file
+     */
+    public FileStorage(String filepath) {
+        this(filepath, StorageSettings.defaults());
+    }
+
+    /**
+     * Constructs a FileStorage with the specified file path and settings.
+     *
+     * @param filepath the path to the local tasks storage file
+     * @param settings the storage mode, file format and save interval to use
+     */
+    public FileStorage(String filepath, StorageSettings settings) {
+        this(filepath, settings, StorageReporter.SILENT);
+    }
+
+    /**
+     * Constructs a FileStorage with the specified file path and settings, reporting what happens
+     * to the storage files while loading and saving, such as migrations and skipped records.
+     *
+     * @param filepath the path to the local tasks storage file
+     * @param settings the storage mode, file format and save interval to use
+     * @param reporter the reporter to send messages for the user to
+     */
+    public FileStorage(String filepath, StorageSettings settings, StorageReporter reporter) {
+        this.filepath = filepath;
+        this.reporter = reporter;
+        this.format = settings.getFormat();
+        this.isDurable = settings.isDurable();
+        this.isSalvaging = settings.isSalvaging();
+        this.isChecksummed = settings.isChecksummed();
+        this.isLazy = settings.isLazy();
+        this.isSharded = settings.isSharded();
+        this.shards = new TaskShards(new File(new File(filepath).getAbsoluteFile().getParentFile(),
+                SHARDS_DIRECTORY_NAME), format, isChecksummed, isDurable);
+        this.archiveAfterDays = settings.getArchiveAfterDays();
+        this.coldArchive = new ColdArchive(new File(new File(filepath).getAbsoluteFile().getParentFile(),
+                COLD_ARCHIVE_FILENAME), isDurable);
+        StorageFileLock fileLock = settings.isShared()
+                ? StorageFileLock.forFile(new File(new File(filepath).getAbsoluteFile().getParentFile(),
+                        LOCK_FILENAME))
+                : null;
+        this.ids = new TaskIdCounter();
+        this.journal = settings.isJournaled() ? new TaskJournal(getJournalFile(filepath), isDurable, ids) : null;
+        this.checkpointer = settings.isJournaled()
+                ? new JournalCheckpointer(new File(filepath), journal, ids, settings,
+                        CHECKPOINT_RECORD_THRESHOLD, CHECKPOINT_BYTE_THRESHOLD, fileLock)
+                : null;
+        this.taskListLock = new ReentrantLock();
+        this.sharedSync = fileLock != null
+                ? new SharedStorageSync(new File(filepath), getJournalFile(filepath), fileLock, journal, checkpointer,
+                        ids, isSalvaging, taskListLock, () -> loadedGeneration = null)
+                : null;
+        this.saveScheduler = settings.isWriteBehind()
+                ? new SaveScheduler(settings.getSaveIntervalMillis(), taskListLock, this::captureSave)
+                : null;
+        this.indexFile = new TaskIndexFile(
+                new File(new File(filepath).getAbsoluteFile().getParentFile(), INDEX_FILENAME));
+        this.loadedGeneration = null;
+    }
+
+    /**
+     * Returns the journal file that sits next to the given storage file.
+     *
+     * @param filepath the path to the local tasks storage file
+     * @return the journal file in the same directory as the storage file
+     */
+    private static File getJournalFile(String filepath) {
+        return new File(new File(filepath).getAbsoluteFile().getParentFile(), JOURNAL_FILENAME);
+    }
+
+    /**
+     * Returns whether this storage appends mutations to a journal.
+     *
+     * @return true if journaled mode is enabled
+     */
+    public boolean isJournaled() {
+        return journal != null;
+    }
+
+    /**
+     * Returns whether other processes may use the storage files at the same time.
+     *
+     * @return true if shared mode is enabled
+     */
+    public boolean isShared() {
+        return sharedSync != null;
+    }
+
+    /**
+     * Creates an empty task list to load this storage into: a {@link LazyTaskList} in lazy mode,
+     * or a {@link TieredTaskList} otherwise, so that deleting a task does not shift every later one.
+     *
+     * @return the new task list
+     */
+    public List<Task> createTaskList() {
+        return isLazy ? new LazyTaskList() : new TieredTaskList();
+    }
+
+    /**
+     * Returns the lock that must be held while a command reads or mutates the task list,
+     * so that write-behind saves never capture a half-applied command.
+     *
+     * @return the task list lock
+     */
+    @Override
+    public ReentrantLock getTaskListLock() {
+        return taskListLock;
+    }
+
+    /**
+     * Loads tasks from storage file if it exists, or creates a new storage file otherwise.
+     * A storage file in a different format from the configured one is migrated after loading.
+     * Corrupted records skipped in salvage mode are archived once the journal has been replayed,
+     * and the storage file is rewritten without them. Tasks stored before tasks had IDs are given one,
+     * and storage is rewritten with them. Completed tasks past the archive age are then
+     * moved to the cold archive. In shared mode, other processes are locked out meanwhile.
+     *
+     * @param taskList the list to populate with loaded tasks
+     * @throws NeruneruneException if creating or reading storage files fails
+     * @throws IOException         if an IO error occurs reading the file
+     */
+    @Override
+    public void handleStorage(List<Task> taskList) throws NeruneruneException, IOException {
+        if (isSharded) {
+            handleShardedStorage(taskList);
+            return;
+        }
+        if (!isShared()) {
+            loadStorageFile(taskList);
+            return;
+        }
+        sharedSync.load(() -> loadStorageFile(taskList));
+    }
+
+    /**
+     * Loads tasks from the storage file and the journal, recovering and migrating them as needed.
+     *
+     * @param taskList the list to populate with loaded tasks
+     * @throws NeruneruneException if creating or reading storage files fails
+     * @throws IOException         if an IO error occurs reading the file
+     */
+    private void loadStorageFile(List<Task> taskList) throws NeruneruneException, IOException {
+        if (isJournaled()) {
+            try {
+                checkpointer.recoverInterruptedCheckpoint();
+            } catch (NeruneruneException | IOException e) {
+                reporter.report("Could not finish interrupted checkpoint: " + e.getMessage());
+            }
+        }
+
+        loadedGeneration = computeGeneration();
+        File f = new File(filepath);
+        SalvagedRecords salvaged = new SalvagedRecords();
+        if (f.exists()) {
+            reporter.report("Storage file found. saved tasks loaded");
+            StorageFormat storedFormat = StorageFiles.detectFormat(f);
+            salvaged = readStorageFile(f, taskList);
+            ids.raiseTo(TaskIds.readNextId(f));
+            ids.raisePast(taskList);
+            if (storedFormat != format && f.length() > 0 && salvaged.isEmpty()) {
+                writeSnapshot(taskList); // migrate before any journal records are applied on top
+                reporter.report("Migrated storage file to " + format.name().toLowerCase() + " format.");
+            }
+        } else {
+            StorageFiles.createStorageFile(f, reporter);
+        }
+        boolean isMergingShards = f.length() == 0 && shards.hasShards();
+        if (isMergingShards) { // left behind by sharded mode, and only they hold the tasks
+            shards.loadAll(taskList, isSalvaging ? salvaged : null);
+            ids.raiseTo(shards.readNextId());
+        }
+
+        if (isJournaled()) {
+            int appliedCount = checkpointer.replaySealedJournal(taskList, isSalvaging ? salvaged : null);
+            if (journal.hasRecords()) {
+                appliedCount += journal.replay(taskList, isSalvaging ? salvaged : null);
+            }
+            if (appliedCount > 0) {
+                reporter.report("Replayed " + appliedCount + " journal record(s).");
+            }
+        }
+        int numberedCount = ids.assignMissingIds(taskList);
+        if (!salvaged.isEmpty()) {
+            dropSalvagedRecords(taskList, salvaged); // only now, as skipped journal records are collected too
+        } else if (isMergingShards) {
+            writeSnapshot(taskList);
+        } else if (numberedCount > 0) {
+            saveNumberedTasks(taskList, numberedCount);
+        }
+        if (f.length() > 0 && shards.hasShards()) { // the storage file holds every task, shards are stale
+            shards.deleteAll();
+            if (isMergingShards) {
+                reporter.report("Merged monthly shards back into the storage file.");
+            }
+        }
+        moveCompletedTasksToArchive(taskList);
+        if (isJournaled()) {
+            checkpointer.checkpoint(); // fold in the background so the next load starts from a fresh snapshot
+        }
+    }
+
+    /**
+     * Loads the todos and the current and upcoming months from the shards. A non-empty storage file
+     * left behind by the other modes holds every task instead, so it is split into shards first.
+     *
+     * @param taskList the list to populate with loaded tasks
+     * @throws NeruneruneException if creating, reading or writing storage files fails
+     * @throws IOException         if an IO error occurs reading the files
+     */
+    private void handleShardedStorage(List<Task> taskList) throws NeruneruneException, IOException {
+        loadedGeneration = null; // the sidecar index only describes a single storage file
+        File f = new File(filepath);
+        if (!f.exists()) {
+            StorageFiles.createStorageFile(f, reporter);
+        }
+
+        SalvagedRecords salvaged = new SalvagedRecords();
+        if (f.length() > 0) {
+            reporter.report("Storage file found. saved tasks loaded");
+            salvaged = readStorageFile(f, taskList);
+            if (!salvaged.isEmpty()) {
+                dropSalvagedRecords(taskList, salvaged);
+            }
+            ids.raiseTo(TaskIds.readNextId(f));
+            ids.assignMissingIds(taskList);
+            shards.replaceAll(taskList, ids.getNextId());
+            // commit point: the shards now hold every task
+            StorageFiles.writeStorageFile(f, new byte[0], isDurable);
+            reporter.report("Split storage file into monthly shards.");
+            moveCompletedTasksToArchive(taskList);
+            return;
+        }
+
+        int loadedCount = shards.loadCurrentShards(taskList, YearMonth.now(), isSalvaging ? salvaged : null);
+        long storedNextId = shards.readNextId();
+        boolean isNumbering = TaskIds.hasMissingIds(taskList);
+        boolean isFindingNextId = storedNextId == 0 && shards.hasShards();
+        if (isNumbering || isFindingNextId) { // stored before the next ID was, so every ID must be seen once
+            loadedCount += shards.loadAll(taskList, isSalvaging ? salvaged : null);
+        }
+        ids.raiseTo(storedNextId);
+        if (loadedCount > 0) {
+            reporter.report("Loaded " + loadedCount + " shard(s). Older months load when a query reaches them.");
+        }
+        if (!salvaged.isEmpty()) {
+            dropSalvagedRecords(taskList, salvaged);
+        }
+        if (isNumbering) {
+            saveNumberedTasks(taskList, ids.assignMissingIds(taskList));
+        } else if (isFindingNextId) {
+            ids.raisePast(taskList);
+            shards.write(taskList, ids.getNextId()); // only stores the next ID, as no shard changed
+        }
+        moveCompletedTasksToArchive(taskList);
+    }
+
+    /**
+     * Moves completed tasks whose deadline or end time is older than the archive age out of the task list
+     * and into the cold archive, then rewrites storage without them. Does nothing if the archive age is 0.
+     * <p>
+     * The tasks are appended to the archive before storage is rewritten, so a crash in between
+     * leaves them in both, and they are archived again on the next load rather than lost.
+     *
+     * @param taskList the loaded task list, with the journal replayed
+     * @throws NeruneruneException if appending to the archive or rewriting storage fails
+     */
+    private void moveCompletedTasksToArchive(List<Task> taskList) throws NeruneruneException {
+        if (archiveAfterDays == 0 || (isJournaled() && checkpointer.getSealedFile().exists())) {
+            return; // the files cannot be rewritten until the sealed journal is folded in
+        }
+        LocalDateTime cutoff = LocalDate.now().minusDays(archiveAfterDays).atStartOfDay();
+        int archivedCount = coldArchive.moveCompletedTasks(taskList, cutoff);
+        if (archivedCount == 0) {
+            return;
+        }
+        loadedGeneration = null; // the list no longer matches the files, so no index is current
+        if (isJournaled()) {
+            checkpointer.rebase(taskList);
+        } else {
+            writeSnapshot(taskList);
+        }
+        reporter.report("Moved " + archivedCount + " completed task(s) older than "
+                + archiveAfterDays + " day(s) to the archive.");
+    }
+
+    /**
+     * Returns the time a task is due: the deadline of a deadline, or the end of an event.
+     *
+     * @param task the task
+     * @return the due time, or null if the task has none
+     */
+    static LocalDateTime getDueDateTime(Task task) {
+        if (task instanceof Deadline deadline) {
+            return deadline.getDeadlineByDateTime();
+        } else if (task instanceof Event event) {
+            return event.getEventToDateTime();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the tasks in the cold archive that match the filter, in the order they were archived.
+     * Archived tasks are no longer part of the task list, so they cannot be changed.
+     *
+     * @param filter the condition the returned tasks satisfy
+     * @return the matching archived tasks
+     * @throws NeruneruneException if the archive cannot be read
+     */
+    public List<Task> searchArchive(Predicate<Task> filter) throws NeruneruneException {
+        return coldArchive.search(filter);
+    }
+
+    /**
+     * Loads the shards that are not loaded yet and may hold tasks due or still going on
+     * at or after the given date, appending their tasks to the task list.
+     * Does nothing unless sharded mode is enabled.
+     *
+     * @param taskList  the task list to append the loaded tasks to
+     * @param startDate the earliest date the caller looks at
+     * @return the tasks that were appended
+     * @throws NeruneruneException if a shard cannot be read, or corrupted records cannot be archived
+     */
+    public List<Task> loadShardsFrom(List<Task> taskList, LocalDate startDate) throws NeruneruneException {
+        if (!isSharded) {
+            return List.of();
+        }
+        return loadShards(taskList, salvaged -> shards.loadFrom(YearMonth.from(startDate), taskList, salvaged));
+    }
+
+    /**
+     * Loads every shard that is not loaded yet, appending its tasks to the task list.
+     * Does nothing unless sharded mode is enabled.
+     *
+     * @param taskList the task list to append the loaded tasks to
+     * @return the tasks that were appended
+     * @throws NeruneruneException if a shard cannot be read, or corrupted records cannot be archived
+     */
+    public List<Task> loadAllShards(List<Task> taskList) throws NeruneruneException {
+        if (!isSharded || shards.isFullyLoaded()) {
+            return List.of();
+        }
+        return loadShards(taskList, salvaged -> shards.loadAll(taskList, salvaged));
+    }
+
+    /**
+     * Runs a shard load and drops any corrupted records it skipped.
+     *
+     * @param taskList the task list the shards are loaded into
+     * @param loader   the load to run
+     * @return the tasks that were appended
+     * @throws NeruneruneException if the load fails, or corrupted records cannot be archived
+     */
+    private List<Task> loadShards(List<Task> taskList, ShardLoader loader) throws NeruneruneException {
+        int sizeBeforeLoad = taskList.size();
+        SalvagedRecords salvaged = new SalvagedRecords();
+        try {
+            loader.load(isSalvaging ? salvaged : null);
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while loading older tasks: " + e.getMessage());
+        }
+        if (!salvaged.isEmpty()) {
+            dropSalvagedRecords(taskList, salvaged);
+        }
+        List<Task> loadedTasks = new ArrayList<>(taskList.subList(sizeBeforeLoad, taskList.size()));
+        ids.assignMissingIds(loadedTasks); // saved with their shards, which then no longer match what was read
+        return loadedTasks;
+    }
+
+    /**
+     * Loads shards into the task list, collecting the corrupted records it skips.
+     */
+    private interface ShardLoader {
+        void load(SalvagedRecords salvaged) throws NeruneruneException, IOException;
+    }
+
+    /**
+     * Removes the placeholders of corrupted records from the loaded task list, archives the records,
+     * and rewrites the storage file without them. In journaled mode the journal is folded in by the
+     * same rewrite, which also leaves out the journal records that could not be applied.
+     *
+     * @param taskList the loaded task list, with the journal replayed
+     * @param salvaged the corrupted records skipped while loading
+     * @throws NeruneruneException if archiving the records or rewriting the storage file fails
+     */
+    private void dropSalvagedRecords(List<Task> taskList, SalvagedRecords salvaged)
+            throws NeruneruneException {
+        salvaged.removePlaceholders(taskList);
+        loadedGeneration = null; // the list no longer matches the files, so no index is current
+        int skippedCount = salvaged.getRecords().size();
+        if (isJournaled() && checkpointer.getSealedFile().exists()) {
+            // the files cannot be rewritten until the sealed journal is folded in
+            reporter.report("Skipped " + skippedCount + " corrupted record(s); "
+                    + "they stay in the storage files until the sealed journal is folded in.");
+            return;
+        }
+
+        File f = new File(filepath);
+        StorageFiles.archiveRecords(f, salvaged.getRecords());
+        if (isJournaled()) {
+            checkpointer.rebase(taskList);
+        } else {
+            writeSnapshot(taskList);
+        }
+        reporter.report("Skipped " + skippedCount + " corrupted record(s), archived to: "
+                + StorageFiles.getArchiveFile(f).getName());
+    }
+
+    /**
+     * Rewrites storage after tasks stored without an ID were given one on load, so that they
+     * keep their IDs on the next load. In journaled mode the journal is folded in by the same rewrite,
+     * as otherwise the tasks it adds could take IDs that the tasks in the storage file get next time.
+     *
+     * @param taskList      the loaded task list, with the journal replayed
+     * @param numberedCount the number of tasks given an ID
+     * @throws NeruneruneException if rewriting the storage file fails
+     */
+    private void saveNumberedTasks(List<Task> taskList, int numberedCount) throws NeruneruneException {
+        if (isJournaled() && checkpointer.getSealedFile().exists()) {
+            return; // numbered again on the next load, once the sealed journal is folded in
+        }
+        loadedGeneration = null; // the files are rewritten, so no index is current
+        if (isJournaled()) {
+            checkpointer.rebase(taskList);
+        } else {
+            writeSnapshot(taskList);
+        }
+        reporter.report("Numbered " + numberedCount + " task(s) saved without an ID.");
+    }
+
+    /**
+     * Saves the current task list to storage.
+     * In journaled mode, only the mutations recorded since the last save are appended
+     * to the journal; otherwise the whole storage file is rewritten.
+     * With write-behind saving enabled, the task list is only marked dirty and is
+     * written by the save scheduler later.
+     *
+     * @param taskList the list of tasks to save
+     * @throws NeruneruneException if writing to file fails
+     */
+    @Override
+    public void saveTasksToStorage(List<Task> taskList) throws NeruneruneException {
+        if (saveScheduler != null) {
+            saveScheduler.markDirty(taskList);
+            return;
+        }
+        captureSave(taskList).write();
+    }
+
+    /**
+     * Gives out the ID for a new task. In shared mode, the next ID is taken from the lock file
+     * and written back under the file lock, so that two processes never give out the same ID.
+     *
+     * @return the ID to give the new task
+     * @throws NeruneruneException if locking, reading or writing the lock file fails
+     */
+    @Override
+    public long takeNextId() throws NeruneruneException {
+        return isShared() ? sharedSync.takeNextId() : ids.take();
+    }
+
+    /**
+     * Writes any changes still pending in the write-behind scheduler.
+     * Does nothing unless write-behind saving is enabled.
+     *
+     * @throws NeruneruneException if writing to file fails
+     */
+    @Override
+    public void flush() throws NeruneruneException {
+        if (saveScheduler != null) {
+            saveScheduler.flush();
+        }
+    }
+
+    /**
+     * Writes any pending changes and stops the write-behind scheduler.
+     * Must be called before the application exits.
+     *
+     * @throws NeruneruneException if writing to file fails
+     */
+    @Override
+    public void close() throws NeruneruneException {
+        if (sharedSync != null) {
+            sharedSync.close();
+        }
+        if (saveScheduler != null) {
+            saveScheduler.shutdown();
+        }
+    }
+
+    /**
+     * Captures what needs to be written to save the task list, so that the write itself
+     * can happen after the task list lock is released.
+     * <p>
+     * A storage file written behind is captured as a copy of the list of task references only, and the tasks
+     * are encoded and streamed to the file on the save scheduler thread. A task that a later command changes
+     * meanwhile may be written with that change, but the command marks the list dirty again, so the next
+     * flush writes the list the change belongs to in full.
+     *
+     * @param taskList the list of tasks to save
+     * @return the write that saves the captured state
+     */
+    private SaveScheduler.PendingWrite captureSave(List<Task> taskList) {
+        if (isSharded) {
+            return shards.captureWrite(taskList, ids.getNextId());
+        }
+        if (isJournaled()) {
+            List<String> records = journal.drainPendingRecords();
+            byte[] encodedIndex = captureIndexAfterCheckpoint(taskList);
+            if (isShared()) { // never written behind, so the task list is still locked when this runs
+                return () -> appendShared(records, taskList, encodedIndex);
+            }
+            return () -> {
+                journal.append(records);
+                if (encodedIndex != null) {
+                    writeIndex(encodedIndex);
+                }
+                checkpointer.checkpointIfNeeded();
+            };
+        }
+
+        if (saveScheduler == null) { // written right away, while the task list is still locked
+            return () -> StorageFiles.writeTasks(new File(filepath), taskList, ids.getNextId(), format, isChecksummed,
+                    isDurable);
+        }
+        List<Task> capturedTasks = taskList instanceof LazyTaskList lazyTasks
+                ? lazyTasks.copy()
+                : new ArrayList<>(taskList);
+        long nextId = ids.getNextId();
+        return () -> StorageFiles.writeTasks(new File(filepath), capturedTasks, nextId, format, isChecksummed,
+                isDurable);
+    }
+
+    /**
+     * Encodes the sidecar lookup indexes of the task list if a checkpoint has rewritten the snapshot
+     * since the last save, so that they are saved along with the journal records and need not be rebuilt
+     * on the next start even if the application never exits cleanly. Lazy task lists are skipped,
+     * see {@link #saveIndex(List)}.
+     *
+     * @param taskList the task list being saved
+     * @return the encoded indexes, or null if they need not be saved
+     */
+    private byte[] captureIndexAfterCheckpoint(List<Task> taskList) {
+        if (!checkpointer.takeFolded() || taskList instanceof LazyTaskList) {
+            return null;
+        }
+        return TaskIndexFile.encode(taskList);
+    }
+
+    /**
+     * Writes sidecar lookup indexes encoded while the task list was locked, stamped with the current
+     * generation of the storage files. Must be called once the files hold every change the indexes reflect.
+     *
+     * @param encodedIndex the encoded indexes
+     * @throws NeruneruneException if writing the index file fails
+     */
+    private void writeIndex(byte[] encodedIndex) throws NeruneruneException {
+        try {
+            indexFile.write(computeGeneration(), encodedIndex);
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while writing the index file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Appends records to the shared journal, reloading the task list from the files if another process
+     * changed them at the same time.
+     *
+     * @param records      the records to append, oldest first
+     * @param taskList     the task list the records were made on
+     * @param encodedIndex the sidecar lookup indexes to write once the records are appended, or null
+     * @throws NeruneruneException if locking, writing or reloading the files fails
+     */
+    private void appendShared(List<String> records, List<Task> taskList, byte[] encodedIndex)
+            throws NeruneruneException {
+        SaveScheduler.PendingWrite indexWrite = encodedIndex != null ? () -> writeIndex(encodedIndex) : null;
+        if (sharedSync.append(records, taskList, indexWrite)) {
+            reporter.report("Tasks were changed by another instance at the same time, so they were reloaded.");
+        }
+    }
+
+    /**
+     * Applies changes that other processes made to the storage files since this process last read them.
+     * Does nothing unless shared mode is enabled and the task list is being watched.
+     *
+     * @throws NeruneruneException if locking or reading the files fails
+     */
+    public void syncExternalChanges() throws NeruneruneException {
+        if (isShared()) {
+            sharedSync.syncExternalChanges();
+        }
+    }
+
+    /**
+     * Starts applying changes that other processes make to the storage files to the task list,
+     * as soon as the files change. Does nothing unless shared mode is enabled.
+     *
+     * @param taskList the loaded task list to apply the changes to
+     * @param onChange the callback to run, holding the task list lock, after the changes were applied
+     */
+    public void watchExternalChanges(List<Task> taskList, Runnable onChange) {
+        if (isShared()) {
+            sharedSync.watchExternalChanges(taskList, onChange);
+        }
+    }
+
+    /**
+     * Rewrites the storage file with every task in the task list.
+     *
+     * @param taskList the list of tasks to write
+     * @throws NeruneruneException if writing to file fails
+     */
+    private void writeSnapshot(List<Task> taskList) throws NeruneruneException {
+        if (isSharded) {
+            shards.write(taskList, ids.getNextId());
+            return;
+        }
+        StorageFiles.writeTasks(new File(filepath), taskList, ids.getNextId(), format, isChecksummed, isDurable);
+    }
+
+    /**
+     * Exports the task list in the text format to a file next to the storage file,
+     * regardless of the format the storage file is kept in.
+     * Records are written without checksums, so the file stays plain and easy to edit.
+     *
+     * @param taskList the list of tasks to export
+     * @return the file the tasks were exported to
+     * @throws NeruneruneException if writing to file fails
+     */
+    @Override
+    public File exportAsText(List<Task> taskList) throws NeruneruneException {
+        return StorageFiles.exportAsText(new File(filepath), taskList);
+    }
+
+    /**
+     * Reads tasks from the storage file and adds them to the task list.
+     * Lines are streamed through a file channel and split without regular expressions,
+     * and large files are parsed in parallel chunks.
+     * On encountering corrupted records, either skips them in salvage mode, or otherwise
+     * archives or deletes the file and clears the task list.
+     *
+     * @param f        storage file to read from
+     * @param taskList task list to populate
+     * @return the corrupted records that were skipped, whose placeholders are in the task list
+     * @throws NeruneruneException if a stored date is invalid or corrupted file handling fails
+     * @throws IOException         if reading the file fails
+     */
+    public SalvagedRecords readStorageFile(File f, List<Task> taskList) throws NeruneruneException, IOException {
+        SalvagedRecords salvaged = new SalvagedRecords();
+        try {
+            StorageFiles.readTasks(f, taskList, isSalvaging ? salvaged : null);
+        } catch (CorruptedRecordException e) {
+            handleCorruptedLoad(f, taskList, e);
+            return new SalvagedRecords();
+        }
+        return salvaged;
+    }
+
+    /**
+     * Reports a corrupted storage file, then archives it and discards
+     * everything that was loaded or journaled on top of it.
+     *
+     * @param f        the corrupted storage file
+     * @param taskList the task list to clear
+     * @param e        the error describing the corrupted line
+     * @throws NeruneruneException if recreating the storage file fails
+     */
+    private void handleCorruptedLoad(File f, List<Task> taskList, IOException e) throws NeruneruneException {
+        reporter.report("Storage file appears corrupted: " + e.getMessage());
+        StorageFiles.handleCorruptedFile(f, taskList, reporter);
+        loadedGeneration = null; // the list no longer matches the files, so no index is current
+        if (isJournaled()) {
+            journal.clear(); // journal records refer to the discarded snapshot
+            checkpointer.discardCheckpointFiles();
+        }
+    }
+
+    /**
+     * Returns a number that changes whenever the storage file or the journal files change,
+     * derived from their sizes and modification times.
+     *
+     * @return the generation of the storage files
+     */
+    private long computeGeneration() {
+        File[] files = isJournaled()
+                ? new File[] {new File(filepath), getJournalFile(filepath), checkpointer.getSealedFile()}
+                : new File[] {new File(filepath)};
+
+        long generation = 17;
+        for (File f : files) {
+            long modifiedNanos = 0;
+            try {
+                modifiedNanos = f.exists() ? Files.getLastModifiedTime(f.toPath()).to(TimeUnit.NANOSECONDS) : 0;
+            } catch (IOException e) {
+                // treat as missing, the stamp then simply will not match
+            }
+            generation = 31 * generation + f.length();
+            generation = 31 * generation + modifiedNanos;
+        }
+        return generation;
+    }
+
+    /**
+     * Reads the sidecar lookup indexes, if they describe the task list that was just loaded.
+     *
+     * @param taskCount the number of tasks loaded
+     * @return the indexes, or null if they are missing or stale and must be rebuilt
+     */
+    public TaskIndexFile.Snapshot loadIndex(int taskCount) {
+        if (loadedGeneration == null) {
+            return null;
+        }
+        return indexFile.read(loadedGeneration, taskCount);
+    }
+
+    /**
+     * Writes the sidecar lookup indexes for the task list, stamped with the current generation
+     * of the storage files. Must be called after all changes have been saved, typically on exit;
+     * in journaled mode, they are also saved with the first save after each checkpoint.
+     * In shared mode, nothing is written if another process changed the files since, as the
+     * task list no longer describes them. Nothing is written for a {@link LazyTaskList} either, as encoding
+     * its indexes decodes every task, and it is only indexed on demand rather than from the index file.
+     *
+     * @param taskList the saved task list
+     * @throws NeruneruneException if writing the index file fails
+     */
+    public void saveIndex(List<Task> taskList) throws NeruneruneException {
+        if (isSharded || taskList instanceof LazyTaskList) {
+            return; // never read back, see handleShardedStorage and TaskList.loadTasks
+        }
+        SaveScheduler.PendingWrite write = () -> {
+            try {
+                indexFile.write(computeGeneration(), taskList);
+            } catch (IOException e) {
+                throw new NeruneruneException("An error occurred while writing the index file: " + e.getMessage());
+            }
+        };
+        if (isShared()) {
+            sharedSync.writeIfInSync(write);
+        } else {
+            write.write();
+        }
+    }
+
+    /**
+     * Records that a task was appended to the end of the task list.
+     * Does nothing unless journaled mode is enabled.
+     *
+     * @param task the task that was added
+     */
+    public void recordAdd(Task task) {
+        if (isJournaled()) {
+            journal.recordAdd(task);
+        }
+    }
+
+    /**
+     * Records that a task was removed from the task list.
+     * Does nothing unless journaled mode is enabled.
+     *
+     * @param task the removed task
+     */
+    public void recordDelete(Task task) {
+        if (isJournaled()) {
+            journal.recordDelete(task);
+        }
+    }
+
+    /**
+     * Records that all completed tasks were removed from the task list.
+     * Does nothing unless journaled mode is enabled.
+     */
+    public void recordDeleteDone() {
+        if (isJournaled()) {
+            journal.recordDeleteDone();
+        }
+    }
+
+    /**
+     * Records that a task was marked as done.
+     * Does nothing unless journaled mode is enabled.
+     *
+     * @param task the marked task
+     */
+    public void recordMark(Task task) {
+        if (isJournaled()) {
+            journal.recordMark(task);
+        }
+    }
+
+    /**
+     * Records that a task was marked as not done.
+     * Does nothing unless journaled mode is enabled.
+     *
+     * @param task the unmarked task
+     */
+    public void recordUnmark(Task task) {
+        if (isJournaled()) {
+            journal.recordUnmark(task);
+        }
+    }
+}
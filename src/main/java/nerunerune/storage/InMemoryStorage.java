@@ -0,0 +1,102 @@
+package nerunerune.storage;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.task.Task;
+
+/**
+ * Keeps the saved task list in memory only, for tests and benchmarks that should not touch the disk.
+ * <p>
+ * Saves are kept as an encoded binary snapshot rather than as the tasks themselves,
+ * so changing a task after it was saved does not change what a later load returns.
+ * Everything saved is lost when the application exits.
+ */
+public class InMemoryStorage implements Storage {
+    private final ReentrantLock taskListLock;
+    private final TaskIdCounter ids;
+    private byte[] snapshot;
+
+    /**
+     * Constructs an InMemoryStorage with no saved tasks.
+     */
+    public InMemoryStorage() {
+        this(List.of());
+    }
+
+    /**
+     * Constructs an InMemoryStorage that starts out with the given tasks saved.
+     *
+     * @param savedTasks the tasks the first load returns
+     */
+    public InMemoryStorage(List<Task> savedTasks) {
+        this.taskListLock = new ReentrantLock();
+        this.ids = new TaskIdCounter();
+        this.snapshot = BinaryTaskCodec.encode(savedTasks);
+    }
+
+    @Override
+    public ReentrantLock getTaskListLock() {
+        return taskListLock;
+    }
+
+    /**
+     * Loads the last saved snapshot into the task list.
+     *
+     * @param taskList the list to populate with loaded tasks
+     * @throws NeruneruneException if the snapshot cannot be decoded
+     */
+    @Override
+    public void handleStorage(List<Task> taskList) throws NeruneruneException {
+        try {
+            BinaryTaskCodec.read(ByteBuffer.wrap(snapshot), taskList, null);
+            ids.raiseTo(BinaryTaskCodec.readNextId(ByteBuffer.wrap(snapshot)));
+        } catch (CorruptedRecordException e) {
+            throw new NeruneruneException("Saved tasks could not be decoded: " + e.getMessage());
+        }
+        ids.assignMissingIds(taskList);
+    }
+
+    /**
+     * Replaces the saved snapshot with the current task list.
+     *
+     * @param taskList the list of tasks to save
+     */
+    @Override
+    public void saveTasksToStorage(List<Task> taskList) {
+        snapshot = BinaryTaskCodec.encode(taskList, ids.getNextId());
+    }
+
+    @Override
+    public long takeNextId() {
+        return ids.take();
+    }
+
+    /**
+     * Always fails, as there is no directory to export to.
+     *
+     * @param taskList the list of tasks to export
+     * @return never returns normally
+     * @throws NeruneruneException always
+     */
+    @Override
+    public File exportAsText(List<Task> taskList) throws NeruneruneException {
+        throw new NeruneruneException("Tasks are only kept in memory, so there is nowhere to export them to.");
+    }
+
+    /**
+     * Returns a copy of the tasks last saved.
+     *
+     * @return the saved tasks
+     * @throws NeruneruneException if the snapshot cannot be decoded
+     */
+    public List<Task> getSavedTasks() throws NeruneruneException {
+        List<Task> savedTasks = new ArrayList<>();
+        handleStorage(savedTasks);
+        return savedTasks;
+    }
+}
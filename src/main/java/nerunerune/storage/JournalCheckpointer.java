@@ -0,0 +1,332 @@
+package nerunerune.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.task.Task;
+
+/**
+ * Folds the task journal into a fresh storage file snapshot on a background thread.
+ * <p>
+ * Once the journal passes a record-count or size threshold, it is sealed (moved aside)
+ * on the command thread so new records go to a fresh journal. A background thread then
+ * rebuilds the snapshot from the storage file plus the sealed records, writes it to a
+ * staging file, and swaps it in. This keeps both write latency and load time bounded.
+ * <p>
+ * Deleting the sealed journal is the commit point of a checkpoint. If the application
+ * stops midway, {@link #recoverInterruptedCheckpoint()} either discards the staged
+ * snapshot (sealed journal still present) or finishes swapping it in (sealed journal gone).
+ * <p>
+ * A new snapshot stores the next task ID of the {@link TaskIdCounter} shared with the storage,
+ * raised past the IDs in the snapshot it replaces and in the sealed journal, so that the IDs of tasks
+ * deleted since are still not given out again once the journal is gone.
+ * <p>
+ * In salvage mode, corrupted records in the storage file and the sealed journal are archived and
+ * left out of the new snapshot. Otherwise a corrupted record fails the checkpoint, keeping the sealed journal.
+ * <p>
+ * When the storage files are shared with other processes, sealing and folding hold the
+ * {@link StorageFileLock}, so another process never sees a checkpoint half done.
+ * Sealing counts as a rewrite of the files, as the records other processes have not read yet
+ * are no longer in the journal; folding does not, as the tasks in the files stay the same.
+ */
+public class JournalCheckpointer {
+    private static final String SEALED_JOURNAL_FILENAME = "tasksJournalSealed.txt";
+    private static final String STAGED_SNAPSHOT_FILENAME = "tasksSnapshotStaged.txt";
+
+    private final File storageFile;
+    private final File sealedFile;
+    private final File stagedFile;
+    private final TaskJournal journal;
+    private final TaskIdCounter ids;
+    private final StorageFormat format;
+    private final boolean isDurable;
+    private final boolean isSalvaging;
+    private final boolean isChecksummed;
+    private final int maxRecords;
+    private final long maxBytes;
+    private final AtomicBoolean isCheckpointRunning;
+    private final AtomicBoolean hasFolded;
+    private final ExecutorService executor;
+    private final StorageFileLock fileLock;
+
+    /**
+     * Constructs a JournalCheckpointer for the given storage file and journal.
+     *
+     * @param storageFile the storage file holding the snapshot
+     * @param journal     the journal to fold into the snapshot
+     * @param ids         the counter of the IDs given to tasks, whose next ID the snapshot stores
+     * @param settings    the format to write the snapshot in, and whether to checksum it, force it
+     *                    to disk and salvage corrupted records
+     * @param maxRecords  the number of journal records that triggers a checkpoint
+     * @param maxBytes    the journal size in bytes that triggers a checkpoint
+     * @param fileLock    the lock shared with other processes using the storage files,
+     *                    or null if they are not shared
+     */
+    public JournalCheckpointer(File storageFile, TaskJournal journal, TaskIdCounter ids, StorageSettings settings,
+            int maxRecords, long maxBytes, StorageFileLock fileLock) {
+        this.storageFile = storageFile.getAbsoluteFile();
+        this.sealedFile = new File(this.storageFile.getParentFile(), SEALED_JOURNAL_FILENAME);
+        this.stagedFile = new File(this.storageFile.getParentFile(), STAGED_SNAPSHOT_FILENAME);
+        this.journal = journal;
+        this.ids = ids;
+        this.format = settings.getFormat();
+        this.isDurable = settings.isDurable();
+        this.isSalvaging = settings.isSalvaging();
+        this.isChecksummed = settings.isChecksummed();
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+        this.fileLock = fileLock;
+        this.isCheckpointRunning = new AtomicBoolean(false);
+        this.hasFolded = new AtomicBoolean(false);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-checkpointer");
+            thread.setDaemon(true); // an interrupted checkpoint is recovered on the next load
+            return thread;
+        });
+    }
+
+    /**
+     * Returns the file the journal is moved to while it is being folded into the snapshot.
+     *
+     * @return the sealed journal file
+     */
+    public File getSealedFile() {
+        return sealedFile;
+    }
+
+    /**
+     * Starts a background checkpoint if the journal has passed its record-count or size threshold.
+     *
+     * @throws NeruneruneException if sealing the journal fails
+     */
+    public void checkpointIfNeeded() throws NeruneruneException {
+        if (journal.getRecordCount() >= maxRecords || journal.getSizeInBytes() >= maxBytes) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Seals the journal and folds it into the snapshot on the background thread.
+     * Does nothing if the journal is empty or a checkpoint is already running.
+     *
+     * @throws NeruneruneException if sealing the journal fails
+     */
+    public void checkpoint() throws NeruneruneException {
+        if (!journal.hasRecords() || !isCheckpointRunning.compareAndSet(false, true)) {
+            return;
+        }
+
+        boolean isSealed;
+        try {
+            isSealed = sealJournal();
+        } catch (NeruneruneException e) {
+            isCheckpointRunning.set(false);
+            throw e;
+        }
+        if (!isSealed) {
+            isCheckpointRunning.set(false);
+            return;
+        }
+
+        executor.execute(() -> {
+            try {
+                lockFiles();
+                try {
+                    if (sealedFile.exists()) { // another process sharing the files may have folded it
+                        foldSealedJournal();
+                        hasFolded.set(true);
+                    }
+                } finally {
+                    unlockFiles();
+                }
+            } catch (NeruneruneException | IOException e) {
+                // sealed journal is kept and replayed on the next load,
+                // report on stderr as stdout may be captured for the GUI response
+                System.err.println("Checkpoint failed: " + e.getMessage());
+            } finally {
+                isCheckpointRunning.set(false);
+            }
+        });
+    }
+
+    /**
+     * Returns whether a background checkpoint has folded the journal into the snapshot
+     * since this was last called.
+     *
+     * @return true if the snapshot was rewritten since the last call
+     */
+    public boolean takeFolded() {
+        return hasFolded.getAndSet(false);
+    }
+
+    /**
+     * Moves the journal aside to be folded, unless it is empty or an earlier sealed journal
+     * is still waiting to be folded.
+     *
+     * @return true if the journal was sealed
+     * @throws NeruneruneException if locking the storage files or sealing the journal fails
+     */
+    private boolean sealJournal() throws NeruneruneException {
+        lockFiles();
+        try {
+            if (sealedFile.exists()) { // an earlier sealed journal could not be folded, keep it intact
+                return false;
+            }
+            if (!journal.hasRecords()) { // another process sharing the files checkpointed first
+                return false;
+            }
+            journal.seal(sealedFile);
+            if (fileLock != null) {
+                fileLock.countRewrite();
+            }
+            return true;
+        } finally {
+            unlockFiles();
+        }
+    }
+
+    private void lockFiles() throws NeruneruneException {
+        if (fileLock != null) {
+            fileLock.lock();
+        }
+    }
+
+    private void unlockFiles() {
+        if (fileLock != null) {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Completes or rolls back a checkpoint that was interrupted before the previous exit.
+     * Must be called before the storage file is read.
+     *
+     * @throws NeruneruneException if folding the sealed journal fails
+     * @throws IOException         if reading or moving the checkpoint files fails
+     */
+    public void recoverInterruptedCheckpoint() throws NeruneruneException, IOException {
+        if (stagedFile.exists()) {
+            if (sealedFile.exists()) {
+                Files.delete(stagedFile.toPath()); // not committed yet, fold again below
+            } else {
+                moveStagedSnapshot(); // committed, finish swapping in the snapshot
+            }
+        }
+
+        if (sealedFile.exists()) {
+            foldSealedJournal();
+        }
+    }
+
+    /**
+     * Replays a sealed journal left behind by a checkpoint that could not be folded.
+     *
+     * @param taskList the task list loaded from the storage file
+     * @param salvaged the collector for skipped records, or null to fail on the first bad record
+     * @return the number of records applied, or 0 if there is no sealed journal
+     * @throws NeruneruneException if a record cannot be applied and salvaged is null
+     * @throws IOException         if reading the sealed journal fails
+     */
+    public int replaySealedJournal(List<Task> taskList, SalvagedRecords salvaged)
+            throws NeruneruneException, IOException {
+        return sealedFile.exists() ? TaskJournal.replay(sealedFile, taskList, salvaged, ids) : 0;
+    }
+
+    /**
+     * Deletes the sealed journal and staged snapshot, typically because the
+     * storage file they were based on has been discarded.
+     */
+    public void discardCheckpointFiles() {
+        if (sealedFile.exists() && !sealedFile.delete()) {
+            System.out.println("Failed to delete sealed journal: " + sealedFile.getName());
+        }
+        if (stagedFile.exists() && !stagedFile.delete()) {
+            System.out.println("Failed to delete staged snapshot: " + stagedFile.getName());
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the given task list, folding in the journal, which is assumed to
+     * be already replayed on top of it. Used when the loaded list no longer matches the storage file
+     * the journal records refer to, such as after corrupted records were dropped.
+     * Must not be called while a sealed journal exists or a checkpoint is running.
+     *
+     * @param taskList the complete task list, with the journal replayed
+     * @throws NeruneruneException if sealing the journal or writing the snapshot fails
+     */
+    public void rebase(List<Task> taskList) throws NeruneruneException {
+        assert !sealedFile.exists() : "a sealed journal should not be pending";
+
+        if (journal.hasRecords()) {
+            journal.seal(sealedFile);
+        }
+        writeStagedSnapshot(taskList);
+        try {
+            commitStagedSnapshot();
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while rewriting the storage file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot from the storage file and the sealed journal,
+     * commits it by deleting the sealed journal, then swaps it in.
+     *
+     * @throws NeruneruneException if the storage file or sealed journal cannot be parsed, and not salvaged
+     * @throws IOException         if reading or writing the checkpoint files fails
+     */
+    private void foldSealedJournal() throws NeruneruneException, IOException {
+        ArrayList<Task> taskList = new ArrayList<>();
+        SalvagedRecords salvaged = isSalvaging ? new SalvagedRecords() : null;
+        if (storageFile.exists()) {
+            StorageFiles.readTasks(storageFile, taskList, salvaged);
+            ids.raiseTo(TaskIds.readNextId(storageFile));
+            ids.raisePast(taskList);
+        }
+        TaskJournal.replay(sealedFile, taskList, salvaged, ids);
+        if (salvaged != null && !salvaged.isEmpty()) {
+            salvaged.removePlaceholders(taskList);
+            StorageFiles.archiveRecords(storageFile, salvaged.getRecords());
+        }
+        writeStagedSnapshot(taskList);
+        commitStagedSnapshot();
+    }
+
+    /**
+     * Commits the staged snapshot by deleting the sealed journal, if any, then swaps it in.
+     *
+     * @throws IOException if deleting the sealed journal or moving the staged snapshot fails
+     */
+    private void commitStagedSnapshot() throws IOException {
+        if (Files.deleteIfExists(sealedFile.toPath()) && isDurable) { // commit point
+            StorageFiles.forceDirectory(sealedFile.getParentFile().toPath());
+        }
+        moveStagedSnapshot();
+    }
+
+    /**
+     * Writes the given tasks to the staging file.
+     *
+     * @param taskList the tasks to write
+     * @throws NeruneruneException if writing the staging file fails
+     */
+    private void writeStagedSnapshot(List<Task> taskList) throws NeruneruneException {
+        StorageFiles.writeTasks(stagedFile, taskList, ids.getNextId(), format, isChecksummed, isDurable);
+    }
+
+    /**
+     * Replaces the storage file with the staged snapshot.
+     *
+     * @throws IOException if the staged snapshot cannot be moved
+     */
+    private void moveStagedSnapshot() throws IOException {
+        StorageFiles.moveAtomically(stagedFile.toPath(), storageFile.toPath(), isDurable);
+    }
+}
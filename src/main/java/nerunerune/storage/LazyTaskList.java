@@ -0,0 +1,434 @@
+package nerunerune.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.parser.DateTimeParser;
+import nerunerune.parser.Parser;
+import nerunerune.parser.StorageDateTimeCodec;
+import nerunerune.task.Task;
+
+/**
+ * A task list that keeps stored tasks as raw records and decodes each one only when it is first accessed.
+ * <p>
+ * Loading a storage file into this list only finds where each record is and decodes a few hot fields
+ * of it: its type, done flag, due time and ID. Those answer {@link #isDone(int)}, {@link #isBackdated(int)}
+ * and {@link #getId(int)} without decoding the record, while {@link #get(int)} decodes the full task once and keeps it.
+ * Records that were never accessed are copied as-is when the list is saved in the format they were read in.
+ * <p>
+ * Like {@link java.util.ArrayList}, this list is not thread-safe; it must only be used while
+ * holding the task list lock, as even reading a task may decode it.
+ */
+public class LazyTaskList extends AbstractList<Task> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 16;
+    /** Due time of a record without one, such as a todo. */
+    static final long NO_DUE_TIME = Long.MIN_VALUE;
+    private static final String DELIMITER = " | ";
+
+    private byte[] source;
+    private StorageFormat sourceFormat;
+    private Task[] tasks;
+    private int[] recordStarts;
+    private int[] recordEnds;
+    private boolean[] doneFlags;
+    private long[] dueMinutes;
+    private long[] ids;
+    private int size;
+
+    /**
+     * Constructs an empty LazyTaskList.
+     */
+    public LazyTaskList() {
+        this.tasks = new Task[INITIAL_CAPACITY];
+        this.recordStarts = new int[INITIAL_CAPACITY];
+        this.recordEnds = new int[INITIAL_CAPACITY];
+        this.doneFlags = new boolean[INITIAL_CAPACITY];
+        this.dueMinutes = new long[INITIAL_CAPACITY];
+        this.ids = new long[INITIAL_CAPACITY];
+        this.size = 0;
+    }
+
+    /**
+     * Sets the storage file contents that records added afterwards point into.
+     * Can only be called while the list is empty, as existing records point into the previous contents.
+     *
+     * @param source the storage file contents, which must not be modified afterwards
+     * @param format the format the contents are in
+     */
+    void setSource(byte[] source, StorageFormat format) {
+        assert size == 0 : "records should not point into a replaced source";
+
+        this.source = source;
+        this.sourceFormat = format;
+    }
+
+    /**
+     * Appends a checksummed text record, decoding only its hot fields.
+     * The record is left for the caller to parse eagerly if it is not laid out as this version writes it.
+     *
+     * @param start the array index of the first byte of the record, after its checksum prefix
+     * @param end   the array index just past the last byte of the record
+     * @return true if the record was added, false if it must be parsed eagerly instead
+     */
+    boolean addTextRecord(int start, int end) {
+        assert sourceFormat == StorageFormat.TEXT : "text records should point into a text source";
+
+        // a record looks like "T | 0 | description", with up to two dates and then an ID after the description
+        if (end - start < 2 * DELIMITER.length() + 1 || !isDelimiterAt(start + 1) || !isDelimiterAt(start + 5)) {
+            return false;
+        }
+        byte type = source[start];
+        byte done = source[start + 4];
+        if ((type != 'T' && type != 'D' && type != 'E') || (done != '0' && done != '1')) {
+            return false;
+        }
+
+        long id = 0;
+        int fieldsEnd = end;
+        int lastFieldStart = lastDelimiterEnd(start, end);
+        if (lastFieldStart > start + 2 * DELIMITER.length() + 2) { // a field after the description of a todo
+            id = parseId(lastFieldStart, end);
+            if (id > 0) {
+                fieldsEnd = lastFieldStart - DELIMITER.length();
+            } else if (type == 'T') {
+                return false;
+            }
+        }
+
+        long due = NO_DUE_TIME;
+        if (type != 'T') {
+            int dueStart = lastDelimiterEnd(start, fieldsEnd);
+            due = StorageDateTimeCodec.parseEpochMinutes(source, dueStart, fieldsEnd);
+            if (due == StorageDateTimeCodec.NOT_PARSED) {
+                try {
+                    String dueText = new String(source, dueStart, fieldsEnd - dueStart, Charset.defaultCharset());
+                    due = toEpochMinutes(DateTimeParser.parseStorageDateTime(dueText));
+                } catch (NeruneruneException e) {
+                    return false; // let the eager parse report or salvage it
+                }
+            }
+        }
+        addRecord(start, end, done == '1', due, id);
+        return true;
+    }
+
+    /**
+     * Appends a binary record whose checksum has been verified, with the hot fields decoded from it.
+     *
+     * @param start      the array index of the first byte of the record, after its length
+     * @param end        the array index just past the last byte of the record, before its checksum
+     * @param isDone     whether the task is done
+     * @param dueMinutes the deadline or event end time in epoch minutes, or {@link #NO_DUE_TIME}
+     * @param id         the task ID, or 0 if the record has none
+     */
+    void addBinaryRecord(int start, int end, boolean isDone, long dueMinutes, long id) {
+        assert sourceFormat == StorageFormat.BINARY : "binary records should point into a binary source";
+
+        addRecord(start, end, isDone, dueMinutes, id);
+    }
+
+    private boolean isDelimiterAt(int i) {
+        return source[i] == ' ' && source[i + 1] == '|' && source[i + 2] == ' ';
+    }
+
+    private int lastDelimiterEnd(int start, int end) {
+        for (int i = end - DELIMITER.length(); i > start; i--) {
+            if (isDelimiterAt(i)) {
+                return i + DELIMITER.length();
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Parses the digits of a text record field as a task ID.
+     *
+     * @return the ID, or 0 if the field is not a task ID
+     */
+    private long parseId(int start, int end) {
+        if (start == end || end - start > 18) { // more digits could overflow a long
+            return 0;
+        }
+        long id = 0;
+        for (int i = start; i < end; i++) {
+            if (source[i] < '0' || source[i] > '9') {
+                return 0;
+            }
+            id = id * 10 + (source[i] - '0');
+        }
+        return id;
+    }
+
+    private void addRecord(int start, int end, boolean isDone, long due, long id) {
+        ensureCapacity(size + 1);
+        tasks[size] = null;
+        recordStarts[size] = start;
+        recordEnds[size] = end;
+        doneFlags[size] = isDone;
+        dueMinutes[size] = due;
+        ids[size] = id;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Returns the task at the given position, decoding its record on first access.
+     *
+     * @param index the 0-based position of the task
+     * @return the task
+     */
+    @Override
+    public Task get(int index) {
+        Objects.checkIndex(index, size);
+        if (tasks[index] == null) {
+            tasks[index] = decode(index);
+        }
+        return tasks[index];
+    }
+
+    /**
+     * Decodes the record at the given position into a task.
+     * Records are verified when they are added, so decoding them is not expected to fail.
+     *
+     * @param index the 0-based position of the record
+     * @return the decoded task
+     */
+    private Task decode(int index) {
+        int start = recordStarts[index];
+        int length = recordEnds[index] - start;
+        try {
+            if (sourceFormat == StorageFormat.BINARY) {
+                return BinaryTaskCodec.decodeRecord(ByteBuffer.wrap(source, start, length).slice());
+            }
+            try (StorageFileReader reader = new StorageFileReader(ByteBuffer.wrap(source, start, length))) {
+                return Parser.parseTaskFields(reader.nextFields());
+            }
+        } catch (IOException | NeruneruneException e) {
+            throw new IllegalStateException("Stored task " + (index + 1) + " could not be decoded: "
+                    + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns whether the task at the given position is done, without decoding its record.
+     *
+     * @param index the 0-based position of the task
+     * @return true if the task is done
+     */
+    public boolean isDone(int index) {
+        Objects.checkIndex(index, size);
+        return tasks[index] != null ? tasks[index].getIsDone() : doneFlags[index];
+    }
+
+    /**
+     * Returns whether the task at the given position is backdated, without decoding its record.
+     *
+     * @param index the 0-based position of the task
+     * @return true if the task's deadline or end time has passed
+     */
+    public boolean isBackdated(int index) {
+        Objects.checkIndex(index, size);
+        if (tasks[index] != null) {
+            return tasks[index].isBackdated();
+        }
+        return isDueBefore(index, LocalDateTime.now());
+    }
+
+    /**
+     * Returns whether the task at the given position has a deadline or end time before the given time,
+     * without decoding its record.
+     *
+     * @param index    the 0-based position of the task
+     * @param dateTime the time to compare against
+     * @return true if the task is due or ends before the given time
+     */
+    public boolean isDueBefore(int index, LocalDateTime dateTime) {
+        Objects.checkIndex(index, size);
+        if (tasks[index] != null) {
+            LocalDateTime dueDateTime = FileStorage.getDueDateTime(tasks[index]);
+            return dueDateTime != null && dueDateTime.isBefore(dateTime);
+        }
+        return dueMinutes[index] != NO_DUE_TIME && dueMinutes[index] < toEpochMinutes(dateTime);
+    }
+
+    /**
+     * Returns the ID of the task at the given position, without decoding its record.
+     *
+     * @param index the 0-based position of the task
+     * @return the task ID, or 0 if the task has none
+     */
+    public long getId(int index) {
+        Objects.checkIndex(index, size);
+        return tasks[index] != null ? tasks[index].getId() : ids[index];
+    }
+
+    /**
+     * Returns the raw bytes of the record at the given position if it has not been accessed
+     * since it was read, so it can be written again without being decoded.
+     *
+     * @param index  the 0-based position of the task
+     * @param format the format the record is to be written in
+     * @return the record bytes, without checksum or framing, or null if the task must be encoded instead
+     */
+    byte[] getUnreadRecord(int index, StorageFormat format) {
+        Objects.checkIndex(index, size);
+        if (tasks[index] != null || format != sourceFormat) {
+            return null;
+        }
+        return Arrays.copyOfRange(source, recordStarts[index], recordEnds[index]);
+    }
+
+    /**
+     * Returns a copy of this list that shares its storage file contents and decoded tasks, so that it can be
+     * written without the task list lock while this list goes on changing. Records are not copied, and records
+     * that were never accessed stay undecoded in both lists.
+     *
+     * @return the copy
+     */
+    LazyTaskList copy() {
+        LazyTaskList copy = new LazyTaskList();
+        copy.source = source;
+        copy.sourceFormat = sourceFormat;
+        copy.tasks = Arrays.copyOf(tasks, Math.max(size, INITIAL_CAPACITY));
+        copy.recordStarts = Arrays.copyOf(recordStarts, copy.tasks.length);
+        copy.recordEnds = Arrays.copyOf(recordEnds, copy.tasks.length);
+        copy.doneFlags = Arrays.copyOf(doneFlags, copy.tasks.length);
+        copy.dueMinutes = Arrays.copyOf(dueMinutes, copy.tasks.length);
+        copy.ids = Arrays.copyOf(ids, copy.tasks.length);
+        copy.size = size;
+        return copy;
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        Task previous = get(index);
+        tasks[index] = Objects.requireNonNull(task);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        Objects.checkIndex(index, size + 1);
+        ensureCapacity(size + 1);
+        shift(index, index + 1, size - index);
+        tasks[index] = Objects.requireNonNull(task);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Task removed = get(index);
+        shift(index + 1, index, size - index - 1);
+        size--;
+        tasks[size] = null;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Removes every task matching the filter in a single pass.
+     * Every task is decoded to be tested against the filter.
+     *
+     * @param filter the condition the removed tasks satisfy
+     * @return true if any task was removed
+     */
+    @Override
+    public boolean removeIf(Predicate<? super Task> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!filter.test(get(i))) {
+                shift(i, kept++, 1);
+            }
+        }
+        return truncate(kept);
+    }
+
+    /**
+     * Removes every task that is done in a single pass, without decoding records that were not accessed.
+     *
+     * @return true if any task was removed
+     */
+    public boolean removeDone() {
+        return removeWhere(this::isDone);
+    }
+
+    /**
+     * Removes every task that is done and due or ended before the given time in a single pass,
+     * without decoding records that were not accessed.
+     *
+     * @param dateTime the time the removed tasks are due before
+     * @return true if any task was removed
+     */
+    public boolean removeDoneBefore(LocalDateTime dateTime) {
+        return removeWhere(i -> isDone(i) && isDueBefore(i, dateTime));
+    }
+
+    private boolean removeWhere(IntPredicate isRemoved) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!isRemoved.test(i)) {
+                shift(i, kept++, 1);
+            }
+        }
+        return truncate(kept);
+    }
+
+    private boolean truncate(int newSize) {
+        if (newSize == size) {
+            return false;
+        }
+        Arrays.fill(tasks, newSize, size, null);
+        size = newSize;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(tasks, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void shift(int from, int to, int length) {
+        System.arraycopy(tasks, from, tasks, to, length);
+        System.arraycopy(recordStarts, from, recordStarts, to, length);
+        System.arraycopy(recordEnds, from, recordEnds, to, length);
+        System.arraycopy(doneFlags, from, doneFlags, to, length);
+        System.arraycopy(dueMinutes, from, dueMinutes, to, length);
+        System.arraycopy(ids, from, ids, to, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= tasks.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, tasks.length * 2);
+        tasks = Arrays.copyOf(tasks, newCapacity);
+        recordStarts = Arrays.copyOf(recordStarts, newCapacity);
+        recordEnds = Arrays.copyOf(recordEnds, newCapacity);
+        doneFlags = Arrays.copyOf(doneFlags, newCapacity);
+        dueMinutes = Arrays.copyOf(dueMinutes, newCapacity);
+        ids = Arrays.copyOf(ids, newCapacity);
+    }
+
+    private static long toEpochMinutes(LocalDateTime dateTime) {
+        return Math.floorDiv(dateTime.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+}
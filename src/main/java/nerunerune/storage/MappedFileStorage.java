@@ -0,0 +1,215 @@
+package nerunerune.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.task.Task;
+
+/**
+ * Stores tasks as binary records in a storage file that is read and written through memory mappings.
+ * <p>
+ * Loading maps the file and decodes the records straight from the mapping, without copying
+ * the file onto the heap first. Saving measures the encoded size of the tasks, maps a temporary file
+ * of exactly that size and encodes the records straight into the mapping, so the file contents are
+ * never held on the heap either; the temporary file is then renamed over the storage file, so a crash
+ * mid-save keeps the previous version. The file is in the same format as a binary {@link FileStorage}
+ * file, and a text storage file is migrated on first load, so the two backends can be switched between freely.
+ * <p>
+ * Only the durable and salvage options apply to this backend; it has no journal,
+ * write-behind saving, sidecar index, shards or archive.
+ */
+public class MappedFileStorage implements Storage {
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private final File file;
+    private final StorageReporter reporter;
+    private final boolean isDurable;
+    private final boolean isSalvaging;
+    private final ReentrantLock taskListLock;
+    private final TaskIdCounter ids;
+
+    /**
+     * Constructs a MappedFileStorage with the specified file path and settings.
+     *
+     * @param filepath the path to the local tasks storage file
+     * @param settings the storage settings; only the durable and salvage options are used
+     */
+    public MappedFileStorage(String filepath, StorageSettings settings) {
+        this(filepath, settings, StorageReporter.SILENT);
+    }
+
+    /**
+     * Constructs a MappedFileStorage with the specified file path and settings, reporting what happens
+     * to the storage file while loading, such as migrations and skipped records.
+     *
+     * @param filepath the path to the local tasks storage file
+     * @param settings the storage settings; only the durable and salvage options are used
+     * @param reporter the reporter to send messages for the user to
+     */
+    public MappedFileStorage(String filepath, StorageSettings settings, StorageReporter reporter) {
+        this.file = new File(filepath);
+        this.reporter = reporter;
+        this.isDurable = settings.isDurable();
+        this.isSalvaging = settings.isSalvaging();
+        this.taskListLock = new ReentrantLock();
+        this.ids = new TaskIdCounter();
+    }
+
+    @Override
+    public ReentrantLock getTaskListLock() {
+        return taskListLock;
+    }
+
+    /**
+     * Loads tasks from the storage file if it exists, or creates a new storage file otherwise.
+     * Corrupted records are skipped and archived in salvage mode; otherwise the whole file is archived.
+     * Tasks stored before tasks had IDs are given one, and the file is rewritten with them.
+     *
+     * @param taskList the list to populate with loaded tasks
+     * @throws NeruneruneException if creating, archiving or rewriting the storage file fails
+     * @throws IOException         if an IO error occurs reading the file
+     */
+    @Override
+    public void handleStorage(List<Task> taskList) throws NeruneruneException, IOException {
+        if (!file.exists()) {
+            StorageFiles.createStorageFile(file, reporter);
+            return;
+        }
+        if (file.length() == 0) {
+            return;
+        }
+
+        reporter.report("Storage file found. saved tasks loaded");
+        boolean isBinary = BinaryTaskCodec.isBinaryFile(file);
+        SalvagedRecords salvaged = new SalvagedRecords();
+        try {
+            if (isBinary) {
+                MappedByteBuffer mapping = map(file.toPath());
+                ids.raiseTo(BinaryTaskCodec.readNextId(mapping.duplicate()));
+                BinaryTaskCodec.read(mapping, taskList, isSalvaging ? salvaged : null);
+            } else {
+                StorageFiles.readTasks(file, taskList, isSalvaging ? salvaged : null);
+                ids.raiseTo(TaskIds.readNextId(file));
+            }
+        } catch (CorruptedRecordException e) {
+            reporter.report("Storage file appears corrupted: " + e.getMessage());
+            StorageFiles.handleCorruptedFile(file, taskList, reporter);
+            return;
+        }
+
+        if (!salvaged.isEmpty()) {
+            salvaged.removePlaceholders(taskList);
+            StorageFiles.archiveRecords(file, salvaged.getRecords());
+            reporter.report("Skipped " + salvaged.getRecords().size() + " corrupted record(s).");
+        }
+        int numberedCount = ids.assignMissingIds(taskList);
+        if (numberedCount > 0) {
+            reporter.report("Numbered " + numberedCount + " task(s) saved without an ID.");
+        }
+        if (!isBinary || !salvaged.isEmpty() || numberedCount > 0) {
+            saveTasksToStorage(taskList);
+        }
+    }
+
+    /**
+     * Maps the whole of a file for reading.
+     *
+     * @param path the file to map
+     * @return the mapping, positioned at the start of the file
+     * @throws IOException if the file cannot be mapped
+     */
+    private static MappedByteBuffer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid once closed
+        }
+    }
+
+    /**
+     * Rewrites the storage file with every task in the task list, encoding the records straight into
+     * a mapping of a temporary file.
+     *
+     * @param taskList the list of tasks to save
+     * @throws NeruneruneException if writing to file fails
+     */
+    @Override
+    public void saveTasksToStorage(List<Task> taskList) throws NeruneruneException {
+        long nextId = ids.getNextId();
+        long size = BinaryTaskCodec.encodedSize(taskList, nextId);
+        Path target = file.toPath();
+        Path tempFile = target.resolveSibling(target.getFileName() + TEMP_FILE_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                BinaryTaskCodec.write(new MappingChannel(mapping), taskList, nextId);
+                if (mapping.hasRemaining()) {
+                    throw new IOException("Encoded tasks fell " + mapping.remaining()
+                            + " byte(s) short of their size");
+                }
+                if (isDurable) {
+                    mapping.force(); // contents must be on disk before the rename can be
+                }
+            }
+            StorageFiles.moveAtomically(tempFile, target, isDurable);
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while writing to the file: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long takeNextId() {
+        return ids.take();
+    }
+
+    /**
+     * Exports the task list in the text format to a file next to the storage file.
+     *
+     * @param taskList the list of tasks to export
+     * @return the file the tasks were exported to
+     * @throws NeruneruneException if writing to file fails
+     */
+    @Override
+    public File exportAsText(List<Task> taskList) throws NeruneruneException {
+        return StorageFiles.exportAsText(file, taskList);
+    }
+
+    /**
+     * Writes into a mapping of a file, which is sized to fit everything written.
+     */
+    private static class MappingChannel implements WritableByteChannel {
+        private final MappedByteBuffer mapping;
+
+        MappingChannel(MappedByteBuffer mapping) {
+            this.mapping = mapping;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int length = src.remaining();
+            if (length > mapping.remaining()) {
+                throw new IOException("Encoded tasks overran their size by " + (length - mapping.remaining())
+                        + " byte(s)");
+            }
+            mapping.put(src);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
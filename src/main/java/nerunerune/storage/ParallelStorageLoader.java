@@ -0,0 +1,214 @@
+package nerunerune.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.task.Task;
+
+/**
+ * Parses large storage files in parallel on a fork-join pool.
+ * <p>
+ * The file is read into memory and cut into line-aligned chunks. Each chunk is parsed
+ * independently with {@link StorageFiles#readTasks(StorageFileReader, List, SalvagedRecords)}, and the
+ * chunks are returned in file order so task numbering is preserved. Unless salvaging, a chunk stops
+ * at its first bad line and reports the failure, leaving the caller to decide how to handle corruption.
+ */
+public class ParallelStorageLoader {
+    /** Files smaller than this are parsed on the calling thread, where forking would not pay off. */
+    public static final long PARALLEL_THRESHOLD_BYTES = 1024 * 1024;
+
+    private static final int MIN_CHUNK_BYTES = 256 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a ParallelStorageLoader that parses chunks on the given pool.
+     *
+     * @param pool the fork-join pool to parse chunks on
+     */
+    public ParallelStorageLoader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Returns whether the given storage file is large enough to be worth parsing in parallel.
+     *
+     * @param f the storage file
+     * @return true if the file is at least {@link #PARALLEL_THRESHOLD_BYTES} long
+     */
+    public static boolean isWorthParallelLoading(File f) {
+        return f.length() >= PARALLEL_THRESHOLD_BYTES;
+    }
+
+    /**
+     * Reads the storage file and parses its chunks in parallel.
+     *
+     * @param f           the storage file to read
+     * @param isSalvaging true to skip corrupted lines instead of stopping at them
+     * @return the parsed chunks in file order
+     * @throws IOException if reading the file fails
+     */
+    public List<ParsedChunk> loadChunks(File f, boolean isSalvaging) throws IOException {
+        ByteBuffer bytes = readFully(f);
+        List<ByteBuffer> chunks = splitIntoChunks(bytes);
+
+        List<ChunkParser> parsers = new ArrayList<>();
+        for (ByteBuffer chunk : chunks) {
+            parsers.add(new ChunkParser(chunk, isSalvaging ? new SalvagedRecords() : null));
+        }
+        return pool.invoke(new ChunkParserGroup(parsers));
+    }
+
+    /**
+     * Reads the whole file into a heap buffer.
+     * A heap buffer is used instead of a memory mapping so the file can still be
+     * renamed or deleted straight away if it turns out to be corrupted.
+     *
+     * @param f the file to read
+     * @return a buffer holding the file contents, ready for reading
+     * @throws IOException if reading the file fails or the file is too large
+     */
+    private static ByteBuffer readFully(File f) throws IOException {
+        try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Storage file is too large to load: " + f.getName());
+            }
+
+            ByteBuffer bytes = ByteBuffer.allocate((int) size);
+            while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+                // keep reading until the buffer is full
+            }
+            bytes.flip();
+            return bytes;
+        }
+    }
+
+    /**
+     * Cuts the bytes into chunks that each end just after a line separator,
+     * so that no line is split between two chunks.
+     *
+     * @param bytes the file contents
+     * @return the chunks in file order
+     */
+    private List<ByteBuffer> splitIntoChunks(ByteBuffer bytes) {
+        int size = bytes.limit();
+        int chunkCount = Math.max(1, Math.min(pool.getParallelism() * CHUNKS_PER_THREAD, size / MIN_CHUNK_BYTES));
+        int targetChunkSize = size / chunkCount + 1;
+
+        List<ByteBuffer> chunks = new ArrayList<>();
+        int chunkStart = 0;
+        while (chunkStart < size) {
+            int chunkEnd = Math.min(size, chunkStart + targetChunkSize);
+            while (chunkEnd < size && bytes.get(chunkEnd - 1) != '\n') {
+                chunkEnd++;
+            }
+            chunks.add(bytes.duplicate().position(chunkStart).limit(chunkEnd).slice());
+            chunkStart = chunkEnd;
+        }
+        return chunks;
+    }
+
+    /**
+     * Tasks parsed from one chunk of the storage file, together with the
+     * failure that stopped parsing early, if any.
+     */
+    public static class ParsedChunk {
+        private final ArrayList<Task> tasks;
+        private final SalvagedRecords salvaged;
+        private final Exception failure;
+
+        private ParsedChunk(ArrayList<Task> tasks, SalvagedRecords salvaged, Exception failure) {
+            this.tasks = tasks;
+            this.salvaged = salvaged;
+            this.failure = failure;
+        }
+
+        /**
+         * Returns the tasks parsed before the end of the chunk or its first bad line.
+         *
+         * @return the parsed tasks in file order
+         */
+        public ArrayList<Task> getTasks() {
+            return tasks;
+        }
+
+        /**
+         * Returns the corrupted lines skipped in this chunk, whose placeholders are among its tasks.
+         *
+         * @return the skipped lines, or null if the chunk was not parsed in salvage mode
+         */
+        public SalvagedRecords getSalvagedRecords() {
+            return salvaged;
+        }
+
+        /**
+         * Returns the failure that stopped parsing this chunk.
+         *
+         * @return a CorruptedRecordException for a corrupted line, a NeruneruneException for an
+         *         invalid stored date, or null if the whole chunk was parsed
+         */
+        public Exception getFailure() {
+            return failure;
+        }
+    }
+
+    /**
+     * Parses every chunk parser in parallel and collects their results in order.
+     */
+    private static class ChunkParserGroup extends RecursiveTask<List<ParsedChunk>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<ChunkParser> parsers;
+
+        private ChunkParserGroup(List<ChunkParser> parsers) {
+            this.parsers = parsers;
+        }
+
+        @Override
+        protected List<ParsedChunk> compute() {
+            invokeAll(parsers);
+
+            List<ParsedChunk> results = new ArrayList<>();
+            for (ChunkParser parser : parsers) {
+                results.add(parser.join());
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Parses the lines of a single chunk.
+     */
+    private static class ChunkParser extends RecursiveTask<ParsedChunk> {
+        private static final long serialVersionUID = 1L;
+
+        private final ByteBuffer chunk;
+        private final SalvagedRecords salvaged;
+
+        private ChunkParser(ByteBuffer chunk, SalvagedRecords salvaged) {
+            this.chunk = chunk;
+            this.salvaged = salvaged;
+        }
+
+        @Override
+        protected ParsedChunk compute() {
+            ArrayList<Task> tasks = new ArrayList<>();
+            try (StorageFileReader reader = new StorageFileReader(chunk)) {
+                StorageFiles.readTasks(reader, tasks, salvaged);
+            } catch (IOException | NeruneruneException e) {
+                return new ParsedChunk(tasks, salvaged, e);
+            }
+            return new ParsedChunk(tasks, salvaged, null);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package nerunerune.storage;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes and verifies the CRC32C checksums that prefix text storage records.
+ * <p>
+ * A checksummed line looks like {@code #1a2b3c4d T | 0 | buy books}: a {@code #}, the checksum
+ * of the record bytes as 8 lowercase hex digits, and a space, followed by the record itself.
+ * Lines without the prefix, such as those written by older versions, are accepted unchecked.
+ * <p>
+ * Checksums are computed over the raw bytes with {@link CRC32C}, which the JVM implements
+ * with dedicated CPU instructions, so verifying every record on load is cheap.
+ */
+public class RecordChecksums {
+    /** Length of the {@code #xxxxxxxx } prefix, in bytes. */
+    public static final int PREFIX_LENGTH = 10;
+
+    private static final byte PREFIX_MARKER = '#';
+    private static final byte[] HEX_DIGITS = {
+        '0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'
+    };
+
+    /**
+     * Writes the checksum prefix of a record.
+     *
+     * @param out    the buffer to write to, with at least {@link #PREFIX_LENGTH} bytes remaining
+     * @param record the buffer holding the encoded record, without a line separator
+     * @param offset the index of the first byte of the record
+     * @param length the length of the record in bytes
+     * @param crc    a checksum instance to reuse
+     */
+    public static void putPrefix(ByteBuffer out, byte[] record, int offset, int length, CRC32C crc) {
+        crc.reset();
+        crc.update(record, offset, length);
+        long checksum = crc.getValue();
+
+        out.put(PREFIX_MARKER);
+        for (int shift = 28; shift >= 0; shift -= 4) {
+            out.put(HEX_DIGITS[(int) (checksum >>> shift) & 0xF]);
+        }
+        out.put((byte) ' ');
+    }
+
+    /**
+     * Returns whether the line starts with a checksum prefix.
+     *
+     * @param bytes the buffer holding the line
+     * @param start the index of the first byte of the line
+     * @param end   the index just past the last byte of the line
+     * @return true if the line is checksummed
+     */
+    public static boolean hasChecksum(byte[] bytes, int start, int end) {
+        return end - start >= PREFIX_LENGTH && bytes[start] == PREFIX_MARKER
+                && bytes[start + PREFIX_LENGTH - 1] == ' ';
+    }
+
+    /**
+     * Returns whether the record in a checksummed line matches its checksum.
+     *
+     * @param bytes the buffer holding the line
+     * @param start the index of the first byte of the line, where the prefix starts
+     * @param end   the index just past the last byte of the record
+     * @param crc   a checksum instance to reuse
+     * @return true if the checksum is well-formed and matches the record
+     */
+    public static boolean isValid(byte[] bytes, int start, int end, CRC32C crc) {
+        long expected = 0;
+        for (int i = start + 1; i < start + PREFIX_LENGTH - 1; i++) {
+            int digit = Character.digit(bytes[i], 16);
+            if (digit < 0) {
+                return false;
+            }
+            expected = (expected << 4) | digit;
+        }
+
+        crc.reset();
+        crc.update(bytes, start + PREFIX_LENGTH, end - start - PREFIX_LENGTH);
+        return crc.getValue() == expected;
+    }
+}
@@ -0,0 +1,89 @@
+package nerunerune.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+/**
+ * Collects the corrupted records skipped while loading a storage file in salvage mode.
+ * <p>
+ * Each skipped record of a storage file is replaced by a placeholder task at its position in the
+ * task list, which is removed once the journal has been replayed. Skipped journal records have none,
+ * as they are not tasks.
+ */
+public class SalvagedRecords {
+    private final ArrayList<String> records;
+    private final Set<Task> placeholders;
+
+    /**
+     * Constructs an empty SalvagedRecords.
+     */
+    public SalvagedRecords() {
+        this.records = new ArrayList<>();
+        this.placeholders = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Records a corrupted record and returns the placeholder to put in its position.
+     *
+     * @param record the raw text of the corrupted record
+     * @return the placeholder task
+     */
+    public Task addRecord(String record) {
+        Task placeholder = new Todo(record);
+        records.add(record);
+        placeholders.add(placeholder);
+        return placeholder;
+    }
+
+    /**
+     * Records a corrupted record that has no placeholder, such as a journal record that could not be applied.
+     *
+     * @param record the raw text of the corrupted record
+     */
+    public void addSkippedRecord(String record) {
+        records.add(record);
+    }
+
+    /**
+     * Adds all records and placeholders collected by another instance, such as for one chunk of a file.
+     *
+     * @param other the records to add, which must come after the ones already collected
+     */
+    public void addAll(SalvagedRecords other) {
+        records.addAll(other.records);
+        placeholders.addAll(other.placeholders);
+    }
+
+    /**
+     * Returns whether any corrupted record was skipped.
+     *
+     * @return true if no record was skipped
+     */
+    public boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    /**
+     * Returns the raw text of the skipped records, in file order.
+     *
+     * @return the skipped records
+     */
+    public List<String> getRecords() {
+        return Collections.unmodifiableList(records);
+    }
+
+    /**
+     * Removes the placeholders of the skipped records from the task list.
+     *
+     * @param taskList the task list holding the placeholders
+     */
+    public void removePlaceholders(List<Task> taskList) {
+        taskList.removeIf(placeholders::contains);
+    }
+}
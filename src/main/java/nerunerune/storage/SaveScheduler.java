@@ -0,0 +1,181 @@
+package nerunerune.storage;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.task.Task;
+
+/**
+ * Coalesces saves and writes them behind the command thread.
+ * <p>
+ * Commands only mark the task list as dirty. A background thread flushes it at most
+ * once per interval, so a burst of commands costs a single write and command latency
+ * does not include disk I/O. {@link #flush()} writes pending changes immediately and
+ * must be called before the application exits.
+ * <p>
+ * A save happens in two steps: the pending changes are captured while holding the task
+ * list lock, and are then written to disk without it. The background thread only ever
+ * tries the task list lock, skipping a tick while a command holds it, so a command that
+ * flushes while holding the lock cannot deadlock with it.
+ */
+public class SaveScheduler {
+    private final SaveCapture saveCapture;
+    private final ReentrantLock taskListLock;
+    private final Object writeLock;
+    private final ScheduledExecutorService executor;
+    private volatile List<Task> dirtyTaskList;
+
+    /**
+     * Captures the changes that need saving, while the task list lock is held.
+     */
+    @FunctionalInterface
+    public interface SaveCapture {
+        /**
+         * Captures everything that needs to be written for the given task list.
+         *
+         * @param taskList the task list to save
+         * @return the write to perform once the lock is released
+         * @throws NeruneruneException if capturing fails
+         */
+        PendingWrite capture(List<Task> taskList) throws NeruneruneException;
+    }
+
+    /**
+     * Writes previously captured changes to disk.
+     */
+    @FunctionalInterface
+    public interface PendingWrite {
+        /**
+         * Writes the captured changes.
+         *
+         * @throws NeruneruneException if writing fails
+         */
+        void write() throws NeruneruneException;
+    }
+
+    /**
+     * Constructs a SaveScheduler that flushes at most once per interval.
+     *
+     * @param intervalMillis the minimum time between background flushes, in milliseconds
+     * @param taskListLock   the lock held while the task list is being mutated
+     * @param saveCapture    captures the changes to write for a dirty task list
+     */
+    public SaveScheduler(long intervalMillis, ReentrantLock taskListLock, SaveCapture saveCapture) {
+        assert intervalMillis > 0 : "flush interval should be positive";
+
+        this.saveCapture = saveCapture;
+        this.taskListLock = taskListLock;
+        this.writeLock = new Object();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "save-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.scheduleWithFixedDelay(this::flushInBackground, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Marks the task list as having unsaved changes.
+     *
+     * @param taskList the task list to save on the next flush
+     */
+    public void markDirty(List<Task> taskList) {
+        dirtyTaskList = taskList;
+    }
+
+    /**
+     * Returns whether there are changes that have not been written yet.
+     *
+     * @return true if the task list has been marked dirty since the last flush
+     */
+    public boolean isDirty() {
+        return dirtyTaskList != null;
+    }
+
+    /**
+     * Writes pending changes on the calling thread, waiting for the task list lock if needed.
+     *
+     * @throws NeruneruneException if saving fails; the changes stay pending
+     */
+    public void flush() throws NeruneruneException {
+        taskListLock.lock();
+        try {
+            synchronized (writeLock) {
+                List<Task> taskList = dirtyTaskList;
+                if (taskList == null) {
+                    return;
+                }
+                dirtyTaskList = null;
+                try {
+                    saveCapture.capture(taskList).write();
+                } catch (NeruneruneException e) {
+                    dirtyTaskList = taskList;
+                    throw e;
+                }
+            }
+        } finally {
+            taskListLock.unlock();
+        }
+    }
+
+    /**
+     * Writes pending changes on the background thread, unless a command currently holds
+     * the task list lock, in which case the flush is retried on the next tick.
+     */
+    private void flushInBackground() {
+        synchronized (writeLock) {
+            List<Task> taskList = dirtyTaskList;
+            if (taskList == null || !taskListLock.tryLock()) {
+                return;
+            }
+
+            PendingWrite pendingWrite;
+            try {
+                dirtyTaskList = null;
+                pendingWrite = saveCapture.capture(taskList);
+            } catch (NeruneruneException e) {
+                dirtyTaskList = taskList;
+                System.err.println("Background save failed: " + e.getMessage());
+                return;
+            } finally {
+                taskListLock.unlock();
+            }
+
+            try {
+                pendingWrite.write();
+            } catch (NeruneruneException e) {
+                markDirtyIfClean(taskList);
+                System.err.println("Background save failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Marks the task list dirty again after a failed write, unless newer changes already did.
+     *
+     * @param taskList the task list whose write failed
+     */
+    private void markDirtyIfClean(List<Task> taskList) {
+        if (dirtyTaskList == null) {
+            dirtyTaskList = taskList;
+        }
+    }
+
+    /**
+     * Flushes pending changes and stops the background thread.
+     *
+     * @throws NeruneruneException if the final flush fails
+     */
+    public void shutdown() throws NeruneruneException {
+        try {
+            flush();
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package nerunerune.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.task.Task;
+
+/**
+ * Keeps the task list of a shared {@link FileStorage} in step with other processes using the same files.
+ * <p>
+ * Every write holds the {@link StorageFileLock}, and saves append to the journal. Records that other processes
+ * append are replayed onto the task list from where this process last read, either before a command runs
+ * or as soon as a {@link StorageWatcher} sees them. The task list is only reloaded in full once another
+ * process has rewritten the files, such as by sealing the journal, which it counts in the lock file.
+ */
+class SharedStorageSync {
+    private final File storageFile;
+    private final File journalFile;
+    private final StorageFileLock fileLock;
+    private final TaskJournal journal;
+    private final JournalCheckpointer checkpointer;
+    private final TaskIdCounter ids;
+    private final boolean isSalvaging;
+    private final ReentrantLock taskListLock;
+    private final Runnable onFilesDiverged;
+    private StorageWatcher watcher;
+    private List<Task> watchedTaskList;
+    private Runnable onExternalChange;
+    private long syncedRewriteCount;
+    private long syncedJournalPosition;
+
+    /**
+     * Constructs a SharedStorageSync for the files of a shared, and therefore journaled, storage.
+     *
+     * @param storageFile     the storage file
+     * @param journalFile     the journal next to it
+     * @param fileLock        the lock that every process holds while it writes the files
+     * @param journal         the journal that saves append to
+     * @param checkpointer    the checkpointer that folds the journal into the storage file
+     * @param ids             the counter of task IDs, which is raised past the IDs of the tasks read
+     * @param isSalvaging     true to leave corrupted records out of a reloaded task list
+     * @param taskListLock    the lock that commands hold while they use the task list
+     * @param onFilesDiverged run whenever the task list stops matching the files it was loaded from
+     */
+    SharedStorageSync(File storageFile, File journalFile, StorageFileLock fileLock, TaskJournal journal,
+            JournalCheckpointer checkpointer, TaskIdCounter ids, boolean isSalvaging, ReentrantLock taskListLock,
+            Runnable onFilesDiverged) {
+        this.storageFile = storageFile;
+        this.journalFile = journalFile;
+        this.fileLock = fileLock;
+        this.journal = journal;
+        this.checkpointer = checkpointer;
+        this.ids = ids;
+        this.isSalvaging = isSalvaging;
+        this.taskListLock = taskListLock;
+        this.onFilesDiverged = onFilesDiverged;
+    }
+
+    /**
+     * Runs a load of the task list with other processes locked out. If the load replaced the storage file
+     * or the journal, such as to drop corrupted records, the rewrite is counted so that other processes reload.
+     *
+     * @param load the load to run
+     * @throws NeruneruneException if locking the files fails, or the load does
+     * @throws IOException         if the load fails to read the files
+     */
+    void load(Load load) throws NeruneruneException, IOException {
+        fileLock.lock();
+        try {
+            Object storageFileKey = getFileKey(storageFile);
+            Object journalKey = getFileKey(journalFile);
+            load.run();
+            if (!Objects.equals(getFileKey(storageFile), storageFileKey)
+                    || !Objects.equals(getFileKey(journalFile), journalKey)) {
+                fileLock.countRewrite();
+            }
+            markSynced();
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Loads the files into the task list.
+     */
+    interface Load {
+        void run() throws NeruneruneException, IOException;
+    }
+
+    /**
+     * Gives out the ID for a new task, taking the next ID from the lock file and writing it back
+     * under the file lock, so that two processes never give out the same ID.
+     *
+     * @return the ID to give the new task
+     * @throws NeruneruneException if locking, reading or writing the lock file fails
+     */
+    long takeNextId() throws NeruneruneException {
+        fileLock.lock();
+        try {
+            ids.raiseTo(fileLock.getNextId());
+            long id = ids.take();
+            fileLock.setNextId(id + 1);
+            return id;
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Appends records to the shared journal. If another process changed the files since this one
+     * last read them, the records are still appended after its changes, and the task list is then
+     * reloaded from the files, so that every process ends up with the same tasks.
+     *
+     * @param records    the records to append, oldest first
+     * @param taskList   the task list the records were made on
+     * @param indexWrite the write of the sidecar lookup indexes, run only if the task list is not reloaded,
+     *                   or null if there is none
+     * @return true if the task list was reloaded
+     * @throws NeruneruneException if locking, writing or reloading the files fails
+     */
+    boolean append(List<String> records, List<Task> taskList, SaveScheduler.PendingWrite indexWrite)
+            throws NeruneruneException {
+        if (records.isEmpty()) {
+            return false;
+        }
+        fileLock.lock();
+        try {
+            boolean isBehind = hasExternalChanges();
+            if (isBehind) {
+                journal.reopen(); // the journal may have been sealed, and the open channel with it
+            }
+            journal.append(records);
+            if (isBehind) {
+                reloadFromFiles(taskList);
+                notifyExternalChange();
+            } else if (indexWrite != null) { // the reloaded list no longer matches the indexes
+                indexWrite.write();
+            }
+            checkpointer.checkpointIfNeeded();
+            markSynced(); // in sync before a checkpoint, so still in sync after it
+            return isBehind;
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Runs a write that must only happen while the task list matches the files, holding the file lock.
+     * Does nothing if another process changed the files since this one last read them.
+     *
+     * @param write the write to run
+     * @throws NeruneruneException if locking the files fails, or the write does
+     */
+    void writeIfInSync(SaveScheduler.PendingWrite write) throws NeruneruneException {
+        fileLock.lock();
+        try {
+            if (!hasExternalChanges()) {
+                write.write();
+            }
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Applies changes that other processes made to the storage files since this process last read them.
+     * Does nothing unless the task list is being watched.
+     *
+     * @throws NeruneruneException if locking or reading the files fails
+     */
+    void syncExternalChanges() throws NeruneruneException {
+        if (watchedTaskList == null) {
+            return;
+        }
+        fileLock.lock();
+        try {
+            if (applyExternalChanges(watchedTaskList)) {
+                notifyExternalChange();
+            }
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * Starts applying changes that other processes make to the storage files to the task list,
+     * as soon as the files change.
+     *
+     * @param taskList the loaded task list to apply the changes to
+     * @param onChange the callback to run, holding the task list lock, after the changes were applied
+     */
+    void watchExternalChanges(List<Task> taskList, Runnable onChange) {
+        watchedTaskList = taskList;
+        onExternalChange = onChange;
+        File f = storageFile.getAbsoluteFile();
+        try {
+            watcher = new StorageWatcher(f.getParentFile().toPath(), Set.of(f.getName(), journalFile.getName()),
+                    this::syncInBackground);
+            watcher.start();
+        } catch (IOException e) {
+            System.err.println("Could not watch the storage files, changes by other instances "
+                    + "will show from the next command: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops watching the storage files.
+     */
+    void close() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Applies changes made by other processes from the watcher thread, holding the task list lock.
+     * Reports failures on stderr, as stdout may be captured for the GUI response.
+     */
+    private void syncInBackground() {
+        taskListLock.lock();
+        try {
+            syncExternalChanges();
+        } catch (NeruneruneException e) {
+            System.err.println("Could not apply changes made by another instance: " + e.getMessage());
+        } finally {
+            taskListLock.unlock();
+        }
+    }
+
+    /**
+     * Brings the task list up to date with the storage files, replaying only the journal records
+     * appended since it was last synced when the storage file and journal are otherwise unchanged.
+     * Must be called holding the file lock, with no records pending.
+     *
+     * @param taskList the task list to update
+     * @return true if the task list may have changed
+     * @throws NeruneruneException if reading the files fails
+     */
+    private boolean applyExternalChanges(List<Task> taskList) throws NeruneruneException {
+        long journalSize = journal.getSizeInBytes();
+        if (fileLock.getRewriteCount() != syncedRewriteCount || journalSize < syncedJournalPosition) {
+            reloadFromFiles(taskList); // the records read so far may no longer be in the journal
+            return true;
+        }
+        if (journalSize == syncedJournalPosition) {
+            return false;
+        }
+        try {
+            syncedJournalPosition = journal.replayFrom(syncedJournalPosition, taskList);
+        } catch (IOException e) {
+            System.err.println("Reloading tasks, as " + e.getMessage());
+            reloadFromFiles(taskList);
+        }
+        onFilesDiverged.run();
+        return true;
+    }
+
+    /**
+     * Returns whether other processes changed the storage files since this process last read them.
+     * Must be called holding the file lock.
+     *
+     * @return true if the files were rewritten or the journal was appended to
+     * @throws NeruneruneException if reading the lock file fails
+     */
+    private boolean hasExternalChanges() throws NeruneruneException {
+        return fileLock.getRewriteCount() != syncedRewriteCount
+                || journal.getSizeInBytes() != syncedJournalPosition;
+    }
+
+    /**
+     * Replaces the task list with the tasks in the storage file, the sealed journal and the journal.
+     * Corrupted records are left out of the list in salvage mode, but left in the files for the
+     * next process that loads them to archive.
+     *
+     * @param taskList the task list to replace
+     * @throws NeruneruneException if the files cannot be read
+     */
+    private void reloadFromFiles(List<Task> taskList) throws NeruneruneException {
+        taskList.clear();
+        SalvagedRecords salvaged = isSalvaging ? new SalvagedRecords() : null;
+        try {
+            if (storageFile.exists()) {
+                StorageFiles.readTasks(storageFile, taskList, salvaged);
+                ids.raiseTo(TaskIds.readNextId(storageFile));
+            }
+            checkpointer.replaySealedJournal(taskList, salvaged);
+            if (journalFile.exists()) {
+                TaskJournal.replay(journalFile, taskList, salvaged, ids);
+            }
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while reloading tasks changed by another instance: "
+                    + e.getMessage());
+        }
+        if (salvaged != null) {
+            salvaged.removePlaceholders(taskList);
+        }
+        onFilesDiverged.run();
+        markSynced();
+    }
+
+    /**
+     * Remembers the current state of the storage files as the one the task list reflects.
+     * Must be called holding the file lock.
+     *
+     * @throws NeruneruneException if reading the lock file fails
+     */
+    private void markSynced() throws NeruneruneException {
+        syncedRewriteCount = fileLock.getRewriteCount();
+        syncedJournalPosition = journal.getSizeInBytes();
+    }
+
+    private void notifyExternalChange() {
+        if (onExternalChange != null) {
+            onExternalChange.run();
+        }
+    }
+
+    /**
+     * Returns a key that identifies a file, and changes when the file is replaced by a rename
+     * or deleted and created again.
+     *
+     * @param f the file
+     * @return the identity of the file, or null if it does not exist
+     */
+    private static Object getFileKey(File f) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(f.toPath(), BasicFileAttributes.class);
+            return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -1,149 +1,109 @@
 package nerunerune.storage;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.StandardCopyOption;
-import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
 
 import nerunerune.exception.NeruneruneException;
-import nerunerune.parser.Parser;
 import nerunerune.task.Task;
 
 /**
- * Manages reading and writing tasks to persistent storage.
- * Handles file creation, loading tasks from file, saving tasks to file,
- * and recovering from corrupted storage files by archiving or deletion.
+ * Persists the task list between runs of the application.
+ * <p>
+ * A backend loads the saved tasks with {@link #handleStorage(List)} and saves them with
+ * {@link #saveTasksToStorage(List)}. Backends are chosen by {@link StorageSettings#getBackend()},
+ * see {@link #create(String, StorageSettings)}. Features that only work with files on disk,
+ * such as lazy loading, the journal, the sidecar index, shards and the cold archive,
+ * are not part of this interface; callers reach them through {@link FileStorage} itself.
+ * <p>
+ * Commands run while holding {@link #getTaskListLock()}, so a backend that writes in the background
+ * must take the same lock before it reads the task list.
  */
-public class Storage {
-    private final String filepath;
-
+public interface Storage {
     /**
-     * Constructs a Storage handler with the specified file path.
+     * Creates the backend selected by the settings.
      *
-     * @param filepath the path to the local tasks storage file
+     * @param filepath the path to the local tasks storage file; unused by the in-memory backend
+     * @param settings the storage settings, including the backend to use
+     * @return the storage backend
      */
-    public Storage(String filepath) {
-        this.filepath = filepath;
+    static Storage create(String filepath, StorageSettings settings) {
+        return create(filepath, settings, StorageReporter.SILENT);
     }
 
     /**
-     * Creates a storage file and necessary parent directories if they don't exist.
+     * Creates the backend selected by the settings, which reports what happens to its files to the reporter.
      *
-     * @param f the file to create
-     * @throws NeruneruneException if file creation fails
+     * @param filepath the path to the local tasks storage file; unused by the in-memory backend
+     * @param settings the storage settings, including the backend to use
+     * @param reporter the reporter to send messages for the user to
+     * @return the storage backend
      */
-    public static void createStorageFile(File f) throws NeruneruneException {
-        try {
-            File parent = f.getParentFile();
-            if (!parent.exists()) parent.mkdirs();
-            if (!f.exists()) f.createNewFile();
-            System.out.println("Created new storage file: " + f.getName());
-        } catch (IOException e) {
-            throw new NeruneruneException("An error occurred while creating storage file: " + e.getMessage());
-        }
+    static Storage create(String filepath, StorageSettings settings, StorageReporter reporter) {
+        return switch (settings.getBackend()) {
+        case MEMORY -> new InMemoryStorage();
+        case MAPPED -> new MappedFileStorage(filepath, settings, reporter);
+        default -> new FileStorage(filepath, settings, reporter);
+        };
     }
 
     /**
-     * Handles corrupted storage files by renaming them to an archive,
-     * or deleting if renaming fails, then recreating the storage file and clearing the task list.
+     * Returns the lock that must be held while the task list is read or changed.
      *
-     * @param f        the corrupted storage file
-     * @param taskList the task list to clear after corruption
-     * @throws NeruneruneException if file recreation fails
+     * @return the task list lock
      */
-    private static void handleCorruptedFile(File f, ArrayList<Task> taskList) throws NeruneruneException {
-        File archiveFile = new File(f.getParent(), "tasksArchive.txt");
-
-        try {
-            Files.move(f.toPath(), archiveFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-            System.out.println("Renamed corrupted file to: " + archiveFile.getName());
-        } catch (IOException e) {
-            System.out.println("Rename failed: " + e.getMessage());
-            if (f.delete()) {
-                System.out.println("Deleted corrupted file.");
-            } else {
-                System.out.println("Failed to delete corrupted file.");
-            }
-        }
-        createStorageFile(f);
-        taskList.clear(); // clear the task list as loading failed
-    }
+    ReentrantLock getTaskListLock();
 
     /**
-     * Loads tasks from storage file if it exists, or creates a new storage file otherwise.
+     * Loads the saved tasks into the task list, preparing the storage on first use.
      *
      * @param taskList the list to populate with loaded tasks
-     * @throws NeruneruneException if creating or reading storage files fails
-     * @throws IOException         if an IO error occurs reading the file
+     * @throws NeruneruneException if the storage cannot be prepared or read
+     * @throws IOException         if an IO error occurs while reading
      */
-    public void handleStorage(ArrayList<Task> taskList) throws NeruneruneException, IOException {
-        File f = new File(filepath);
-        if (f.exists()) {
-            System.out.println("Storage file found. saved tasks loaded");
-            readStorageFile(f, taskList);
-        } else {
-            createStorageFile(f);
-        }
-    }
+    void handleStorage(List<Task> taskList) throws NeruneruneException, IOException;
 
     /**
-     * Writes the given text content to the specified file.
+     * Saves the current task list.
      *
-     * @param f         the file to write to
-     * @param textToAdd the text content to write
-     * @throws NeruneruneException if writing to file fails
+     * @param taskList the list of tasks to save
+     * @throws NeruneruneException if saving fails
      */
-    public void writeStorageFile(File f, String textToAdd) throws NeruneruneException {
-        try (FileWriter fw = new FileWriter(f)) { // close file automatically
-            fw.write(textToAdd);
-        } catch (IOException e) {
-            throw new NeruneruneException("An error occurred while writing to the file: " + e.getMessage());
-        }
-    }
+    void saveTasksToStorage(List<Task> taskList) throws NeruneruneException;
 
+    /**
+     * Gives out the ID for a new task. An ID is never given out twice, not even after
+     * the task that had it is deleted, as the next ID is saved along with the tasks.
+     *
+     * @return the ID to give the new task
+     * @throws NeruneruneException if the next ID shared with other processes cannot be read or written
+     */
+    long takeNextId() throws NeruneruneException;
 
     /**
-     * Saves the current task list to the storage file.
+     * Writes any saves that are still pending.
      *
-     * @param taskList the list of tasks to save
-     * @throws NeruneruneException if writing to file fails
+     * @throws NeruneruneException if writing fails
      */
-    public void saveTasksToStorage(ArrayList<Task> taskList) throws NeruneruneException {
-        File f = new File(filepath);
-        StringBuilder sb = new StringBuilder();
-        for (Task task : taskList) {
-            sb.append(task.toStorageString()).append(System.lineSeparator());
-        }
-        writeStorageFile(f, sb.toString());
+    default void flush() throws NeruneruneException {
     }
 
     /**
-     * Reads tasks from the storage file and adds them to the task list.
-     * On encountering corrupted lines, archives or deletes the file and clears the task list.
+     * Writes any pending saves and releases the storage. Must be called before the application exits.
      *
-     * @param f        storage file to read from
-     * @param taskList task list to populate
-     * @throws NeruneruneException if corrupted file handling fails
-     * @throws IOException         if reading the file fails
+     * @throws NeruneruneException if writing fails
      */
-    public void readStorageFile(File f, ArrayList<Task> taskList) throws NeruneruneException, IOException {
-        try (Scanner s = new Scanner(f)) { // close scanner after done
-            while (s.hasNext()) {
-                String line = s.nextLine().trim();
-                try {
-                    Task task = Parser.parseTaskLine(line);
-                    taskList.add(task);
-                } catch (IOException e) {
-                    System.out.println("Storage file appears corrupted: " + e.getMessage());
-                    handleCorruptedFile(f, taskList);
-                    return;
-                }
-            }
-        }
-
+    default void close() throws NeruneruneException {
+        flush();
     }
 
+    /**
+     * Exports the task list in the human-readable text format.
+     *
+     * @param taskList the list of tasks to export
+     * @return the export file
+     * @throws NeruneruneException if writing the export file fails, or the backend cannot export
+     */
+    File exportAsText(List<Task> taskList) throws NeruneruneException;
 }
@@ -0,0 +1,30 @@
+package nerunerune.storage;
+
+/**
+ * Represents the engine that persists the task list, see {@link Storage#create(String, StorageSettings)}.
+ */
+public enum StorageBackend {
+    /** A storage file read and written through streams, see {@link FileStorage}. */
+    FILE,
+
+    /** Nothing written to disk, for tests and benchmarks, see {@link InMemoryStorage}. */
+    MEMORY,
+
+    /** A binary record file read and written through memory mappings, see {@link MappedFileStorage}. */
+    MAPPED;
+
+    /**
+     * Returns the backend with the given name, ignoring case.
+     *
+     * @param name the backend name, e.g. "file", "memory" or "mapped"
+     * @return the matching backend, or FILE if the name is null or unknown
+     */
+    public static StorageBackend fromName(String name) {
+        for (StorageBackend backend : values()) {
+            if (backend.name().equalsIgnoreCase(name)) {
+                return backend;
+            }
+        }
+        return FILE;
+    }
+}
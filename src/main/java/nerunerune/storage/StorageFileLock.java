@@ -0,0 +1,168 @@
+package nerunerune.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import nerunerune.exception.NeruneruneException;
+
+/**
+ * A reentrant lock over the storage files that is shared with other processes.
+ * <p>
+ * Other processes are locked out with a {@link FileLock} on a lock file next to the storage file.
+ * The storage files themselves are replaced by renames, so they cannot hold the lock.
+ * A file lock is held by the whole process, so threads of this process, including other storage
+ * instances on the same files, are locked out by a {@link ReentrantLock} shared per lock file.
+ * <p>
+ * The lock file also keeps a count of the rewrites of the storage files: changes other than
+ * appending to the journal, such as sealing it, after which other processes must reload the
+ * files rather than replay the records appended since they last read them. After the count,
+ * it keeps the next task ID, so that processes give out IDs one at a time under the lock
+ * rather than each from its own copy of the tasks.
+ */
+public class StorageFileLock {
+    private static final Map<Path, StorageFileLock> LOCKS = new ConcurrentHashMap<>();
+    private static final long REWRITE_COUNT_POSITION = 0;
+    private static final long NEXT_ID_POSITION = Long.BYTES;
+
+    private final Path lockFile;
+    private final ReentrantLock processLock;
+    private FileChannel channel;
+    private FileLock fileLock;
+
+    private StorageFileLock(Path lockFile) {
+        this.lockFile = lockFile;
+        this.processLock = new ReentrantLock();
+    }
+
+    /**
+     * Returns the lock for the given lock file, shared by every user of the file in this process.
+     *
+     * @param lockFile the lock file, created when the lock is first taken
+     * @return the lock
+     */
+    public static StorageFileLock forFile(File lockFile) {
+        return LOCKS.computeIfAbsent(lockFile.getAbsoluteFile().toPath().normalize(), StorageFileLock::new);
+    }
+
+    /**
+     * Takes the lock, waiting for other threads and processes to release it.
+     *
+     * @throws NeruneruneException if the lock file cannot be opened or locked
+     */
+    public void lock() throws NeruneruneException {
+        processLock.lock();
+        if (processLock.getHoldCount() > 1) {
+            return; // already holding the file lock
+        }
+        try {
+            channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            fileLock = channel.lock();
+        } catch (IOException e) {
+            closeChannel();
+            processLock.unlock();
+            throw new NeruneruneException("An error occurred while locking the storage files: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Releases the lock once it has been released as many times as it was taken.
+     */
+    public void unlock() {
+        if (processLock.getHoldCount() == 1) {
+            try {
+                fileLock.release();
+            } catch (IOException e) {
+                // closing the channel below releases the lock as well
+            }
+            closeChannel();
+        }
+        processLock.unlock();
+    }
+
+    /**
+     * Returns the number of rewrites of the storage files. Must be called holding the lock.
+     *
+     * @return the rewrite count, or 0 if the files were never rewritten
+     * @throws NeruneruneException if reading the lock file fails
+     */
+    public long getRewriteCount() throws NeruneruneException {
+        return readLong(REWRITE_COUNT_POSITION);
+    }
+
+    /**
+     * Counts a rewrite of the storage files. Must be called holding the lock.
+     *
+     * @throws NeruneruneException if reading or writing the lock file fails
+     */
+    public void countRewrite() throws NeruneruneException {
+        writeLong(REWRITE_COUNT_POSITION, getRewriteCount() + 1);
+    }
+
+    /**
+     * Returns the next task ID that any process sharing the files may give out. Must be called holding the lock.
+     *
+     * @return the next ID, or 0 if none was given out through this lock file yet
+     * @throws NeruneruneException if reading the lock file fails
+     */
+    public long getNextId() throws NeruneruneException {
+        return readLong(NEXT_ID_POSITION);
+    }
+
+    /**
+     * Stores the next task ID that any process sharing the files may give out. Must be called holding the lock.
+     *
+     * @param nextId the next ID
+     * @throws NeruneruneException if writing the lock file fails
+     */
+    public void setNextId(long nextId) throws NeruneruneException {
+        writeLong(NEXT_ID_POSITION, nextId);
+    }
+
+    private long readLong(long position) throws NeruneruneException {
+        assert processLock.isHeldByCurrentThread() : "the lock should be held";
+
+        ByteBuffer value = ByteBuffer.allocate(Long.BYTES);
+        try {
+            while (value.hasRemaining() && channel.read(value, position + value.position()) > 0) {
+                // keep reading until the value is complete
+            }
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while reading the storage lock file: " + e.getMessage());
+        }
+        return value.hasRemaining() ? 0 : value.getLong(0);
+    }
+
+    private void writeLong(long position, long value) throws NeruneruneException {
+        assert processLock.isHeldByCurrentThread() : "the lock should be held";
+
+        ByteBuffer bytes = ByteBuffer.allocate(Long.BYTES).putLong(0, value);
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes, position + bytes.position());
+            }
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while writing the storage lock file: " + e.getMessage());
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to close the storage lock file: " + e.getMessage());
+        }
+        channel = null;
+        fileLock = null;
+    }
+}
@@ -0,0 +1,298 @@
+package nerunerune.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+import nerunerune.parser.StorageLineTokenizer;
+
+/**
+ * Streams storage file lines through a {@link FileChannel}, or from bytes already in memory,
+ * and splits them into fields.
+ * <p>
+ * Lines are found in the raw bytes, and a line with a checksum prefix is verified against
+ * its checksum before it is decoded (see {@link RecordChecksums}). The record is then decoded
+ * using the platform default charset, the same one the storage file is written with, into a reused
+ * buffer, and a {@link StorageLineTokenizer} locates the {@code " | "} field delimiters in place,
+ * so no regular expressions are involved and no field is copied unless the caller asks for it.
+ * Lines are trimmed and blank lines are skipped.
+ */
+public class StorageFileReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private ByteBuffer byteBuffer;
+    private CharBuffer charBuffer;
+    private final CharsetDecoder decoder;
+    private final CRC32C crc;
+    private boolean isEndOfInput;
+    private int recordStart;
+    private int payloadStart;
+    private int recordEnd;
+    private final StorageLineTokenizer tokenizer;
+
+    /**
+     * Opens the given storage file for reading.
+     *
+     * @param f the storage file to read
+     * @throws IOException if the file cannot be opened
+     */
+    public StorageFileReader(File f) throws IOException {
+        this(FileChannel.open(f.toPath(), StandardOpenOption.READ), ByteBuffer.allocate(BUFFER_SIZE).flip());
+    }
+
+    /**
+     * Reads storage file lines from bytes that are already in memory, such as one chunk of a larger file.
+     *
+     * @param bytes the bytes to read, from their current position to their limit; must be backed by an array
+     */
+    public StorageFileReader(ByteBuffer bytes) {
+        this(null, bytes);
+    }
+
+    /**
+     * Constructs a reader over either a file channel or an in-memory byte buffer.
+     *
+     * @param channel    the channel to read from, or null to read only from the byte buffer
+     * @param byteBuffer the buffer bytes are read into, or the bytes themselves if channel is null
+     */
+    private StorageFileReader(FileChannel channel, ByteBuffer byteBuffer) {
+        assert byteBuffer.hasArray() : "storage bytes should be backed by an array";
+
+        this.channel = channel;
+        this.byteBuffer = byteBuffer;
+        this.charBuffer = CharBuffer.allocate(256);
+        this.decoder = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.crc = new CRC32C();
+        this.isEndOfInput = channel == null;
+        this.tokenizer = new StorageLineTokenizer();
+    }
+
+    /**
+     * Reads the next non-blank line and returns its fields.
+     *
+     * @return the tokenizer positioned on the next line, valid until the reader moves on,
+     *         or null if the end of the file is reached
+     * @throws CorruptedRecordException if the line does not match its checksum;
+     *                                  the reader is then positioned after the line
+     * @throws IOException              if reading the file fails
+     */
+    public StorageLineTokenizer nextFields() throws IOException {
+        while (nextRecord()) {
+            StorageLineTokenizer fields = getFields();
+            if (fields != null) {
+                return fields;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Moves to the next line, possibly a blank one, and verifies its checksum if it has one,
+     * without decoding it. The header line that stores the next task ID is skipped, see {@link TaskIds}.
+     *
+     * @return true if a line was found, false at the end of the input
+     * @throws CorruptedRecordException if the line does not match its checksum;
+     *                                  the reader is then positioned after the line
+     * @throws IOException              if reading the file fails
+     */
+    public boolean nextRecord() throws IOException {
+        byte[] bytes;
+        int start;
+        int end;
+        do {
+            if (!nextLine()) {
+                return false;
+            }
+            bytes = byteBuffer.array();
+            start = byteBuffer.arrayOffset() + recordStart;
+            end = byteBuffer.arrayOffset() + recordEnd;
+        } while (TaskIds.isNextIdHeader(bytes, start, end));
+        payloadStart = recordStart;
+        if (RecordChecksums.hasChecksum(bytes, start, end)) {
+            if (!RecordChecksums.isValid(bytes, start, end, crc)) {
+                throw new CorruptedRecordException("Checksum mismatch in record: " + getLastRecord());
+            }
+            payloadStart += RecordChecksums.PREFIX_LENGTH;
+        }
+        return true;
+    }
+
+    /**
+     * Decodes the line last moved to by {@link #nextRecord()}, trims it and splits it into fields.
+     *
+     * @return the tokenizer positioned on the line, valid until the reader moves on,
+     *         or null if the line is blank
+     */
+    public StorageLineTokenizer getFields() {
+        decodeRecord(byteBuffer.array(), byteBuffer.arrayOffset() + payloadStart,
+                byteBuffer.arrayOffset() + recordEnd);
+        char[] chars = charBuffer.array();
+        int start = 0;
+        int end = charBuffer.limit();
+        while (start < end && chars[start] <= ' ') {
+            start++;
+        }
+        while (end > start && chars[end - 1] <= ' ') {
+            end--;
+        }
+        return start == end ? null : tokenizer.reset(chars, start, end);
+    }
+
+    /**
+     * Returns whether the line last moved to carried a checksum, which has then been verified.
+     *
+     * @return true if the line is checksummed
+     */
+    public boolean isChecksummed() {
+        return payloadStart != recordStart;
+    }
+
+    /**
+     * Returns where the record of the line last moved to starts in the backing array,
+     * after any checksum prefix.
+     *
+     * @return the array index of the first byte of the record
+     */
+    public int getRecordStart() {
+        return byteBuffer.arrayOffset() + payloadStart;
+    }
+
+    /**
+     * Returns where the line last moved to ends in the backing array, excluding its line separator.
+     *
+     * @return the array index just past the last byte of the record
+     */
+    public int getRecordEnd() {
+        return byteBuffer.arrayOffset() + recordEnd;
+    }
+
+    /**
+     * Returns the raw text of the line last read, including any checksum prefix.
+     * Typically used to report a line that turned out to be corrupted.
+     *
+     * @return the last line read, without its line separator
+     */
+    public String getLastRecord() {
+        return new String(byteBuffer.array(), byteBuffer.arrayOffset() + recordStart, recordEnd - recordStart,
+                Charset.defaultCharset());
+    }
+
+    /**
+     * Locates the next line in the byte buffer, reading more of the file as needed,
+     * and positions the buffer after it.
+     *
+     * @return true if a line was found, false at the end of the input
+     * @throws IOException if reading the file fails
+     */
+    private boolean nextLine() throws IOException {
+        int searchFrom = byteBuffer.position();
+        while (true) {
+            int newline = indexOfNewline(searchFrom);
+            if (newline >= 0) {
+                setRecord(byteBuffer.position(), newline);
+                byteBuffer.position(newline + 1);
+                return true;
+            }
+            if (isEndOfInput) {
+                if (!byteBuffer.hasRemaining()) {
+                    return false;
+                }
+                setRecord(byteBuffer.position(), byteBuffer.limit()); // last line may lack a line separator
+                byteBuffer.position(byteBuffer.limit());
+                return true;
+            }
+            searchFrom = byteBuffer.limit() - byteBuffer.position();
+            readMore();
+        }
+    }
+
+    /**
+     * Records the bounds of the current line, excluding the carriage return of a {@code \r\n} separator.
+     *
+     * @param start the buffer index of the first byte of the line
+     * @param end   the buffer index of the line feed, or of the end of the input
+     */
+    private void setRecord(int start, int end) {
+        if (end > start && byteBuffer.get(end - 1) == '\r') {
+            end--;
+        }
+        recordStart = start;
+        recordEnd = end;
+    }
+
+    /**
+     * Returns the buffer index of the next line feed, searching from the given index up to the limit.
+     *
+     * @param from the buffer index to start searching from
+     * @return the index of the line feed, or -1 if there is none
+     */
+    private int indexOfNewline(int from) {
+        byte[] bytes = byteBuffer.array();
+        int offset = byteBuffer.arrayOffset();
+        for (int i = offset + from, end = offset + byteBuffer.limit(); i < end; i++) {
+            if (bytes[i] == '\n') {
+                return i - offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer, growing it if a single line fills it,
+     * and reads more of the file after them.
+     *
+     * @throws IOException if reading the file fails
+     */
+    private void readMore() throws IOException {
+        byteBuffer.compact();
+        if (!byteBuffer.hasRemaining()) {
+            byteBuffer = ByteBuffer.allocate(byteBuffer.capacity() * 2).put(byteBuffer.flip());
+        }
+        if (channel.read(byteBuffer) == -1) {
+            isEndOfInput = true;
+        }
+        byteBuffer.flip();
+    }
+
+    /**
+     * Decodes the bytes of a record into the character buffer.
+     *
+     * @param bytes the array holding the record
+     * @param start the index of the first byte of the record
+     * @param end   the index just past the last byte of the record
+     */
+    private void decodeRecord(byte[] bytes, int start, int end) {
+        int maxLength = (int) Math.ceil((end - start) * (double) decoder.maxCharsPerByte());
+        if (charBuffer.capacity() < maxLength) {
+            charBuffer = CharBuffer.allocate(maxLength);
+        }
+        charBuffer.clear();
+        decoder.reset();
+        decoder.decode(ByteBuffer.wrap(bytes, start, end - start), charBuffer, true);
+        decoder.flush(charBuffer);
+        charBuffer.flip();
+    }
+
+    /**
+     * Closes the underlying file channel, if any.
+     *
+     * @throws IOException if closing the channel fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
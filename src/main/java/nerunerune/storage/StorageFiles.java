@@ -0,0 +1,435 @@
+package nerunerune.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.parser.Parser;
+import nerunerune.parser.StorageLineTokenizer;
+import nerunerune.task.Task;
+
+/**
+ * Reads and writes storage files, whichever backend or mode they belong to.
+ * <p>
+ * Storage files are read in either {@link StorageFormat}, detected from the file itself, and written
+ * in the one asked for. A file is never truncated in place: a new version is written to a temporary file
+ * and renamed over it, so a crash mid-write leaves the previous version intact. A corrupted storage file
+ * is renamed to an archive next to it, and corrupted records skipped in salvage mode are appended there.
+ */
+public class StorageFiles {
+    private static final String EXPORT_FILENAME = "tasksExport.txt";
+    private static final String ARCHIVE_FILENAME = "tasksArchive.txt";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    /**
+     * Creates a storage file and necessary parent directories if they don't exist.
+     *
+     * @param f        the file to create
+     * @param reporter the reporter to tell that the file was created
+     * @throws NeruneruneException if file creation fails
+     */
+    public static void createStorageFile(File f, StorageReporter reporter) throws NeruneruneException {
+        try {
+            File parent = f.getParentFile();
+            if (!parent.exists()) parent.mkdirs();
+            if (!f.exists()) f.createNewFile();
+            reporter.report("Created new storage file: " + f.getName());
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while creating storage file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles corrupted storage files by renaming them to an archive,
+     * or deleting if renaming fails, then recreating the storage file and clearing the task list.
+     *
+     * @param f        the corrupted storage file
+     * @param taskList the task list to clear after corruption
+     * @param reporter the reporter to tell what happened to the file
+     * @throws NeruneruneException if file recreation fails
+     */
+    static void handleCorruptedFile(File f, List<Task> taskList, StorageReporter reporter)
+            throws NeruneruneException {
+        File archiveFile = getArchiveFile(f);
+
+        try {
+            Files.move(f.toPath(), archiveFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            reporter.report("Renamed corrupted file to: " + archiveFile.getName());
+        } catch (IOException e) {
+            reporter.report("Rename failed: " + e.getMessage());
+            if (f.delete()) {
+                reporter.report("Deleted corrupted file.");
+            } else {
+                reporter.report("Failed to delete corrupted file.");
+            }
+        }
+        createStorageFile(f, reporter);
+        taskList.clear(); // clear the task list as loading failed
+    }
+
+    /**
+     * Returns the archive file that sits next to the given storage file.
+     *
+     * @param f the storage file
+     * @return the archive file in the same directory as the storage file
+     */
+    static File getArchiveFile(File f) {
+        return new File(f.getAbsoluteFile().getParentFile(), ARCHIVE_FILENAME);
+    }
+
+    /**
+     * Appends corrupted records skipped while loading to the archive file next to the storage file.
+     *
+     * @param f       the storage file the records were read from
+     * @param records the raw text of the skipped records
+     * @throws NeruneruneException if writing to the archive file fails
+     */
+    static void archiveRecords(File f, List<String> records) throws NeruneruneException {
+        try (FileWriter fw = new FileWriter(getArchiveFile(f), true)) {
+            for (String record : records) {
+                fw.write(record + System.lineSeparator());
+            }
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while archiving corrupted records: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Replaces the contents of the specified file with the given bytes atomically.
+     *
+     * @param f         the file to write to
+     * @param bytes     the file contents
+     * @param isDurable true to force the new contents to disk before returning
+     * @throws NeruneruneException if writing to file fails
+     */
+    static void writeStorageFile(File f, byte[] bytes, boolean isDurable) throws NeruneruneException {
+        try {
+            writeAtomically(f.toPath(), bytes, isDurable);
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while writing to the file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the given bytes to a temporary file next to the target, then renames it over the target,
+     * so readers and crashes only ever see the old or the new contents in full.
+     *
+     * @param target    the file to replace
+     * @param bytes     the new contents
+     * @param isDurable true to force the temporary file and the rename to disk
+     * @throws IOException if writing or renaming fails
+     */
+    static void writeAtomically(Path target, byte[] bytes, boolean isDurable) throws IOException {
+        writeAtomically(target, channel -> {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }, isDurable);
+    }
+
+    /**
+     * Streams new contents into a temporary file next to the target, then renames it over the target,
+     * so readers and crashes only ever see the old or the new contents in full.
+     *
+     * @param target    the file to replace
+     * @param contents  the writer of the new contents
+     * @param isDurable true to force the temporary file and the rename to disk
+     * @throws IOException if writing or renaming fails
+     */
+    static void writeAtomically(Path target, ContentWriter contents, boolean isDurable) throws IOException {
+        Path tempFile = target.resolveSibling(target.getFileName() + TEMP_FILE_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            contents.writeTo(channel);
+            if (isDurable) {
+                channel.force(true); // contents must be on disk before the rename can be
+            }
+        }
+        moveAtomically(tempFile, target, isDurable);
+    }
+
+    /**
+     * Writes the contents of a file to its channel.
+     */
+    interface ContentWriter {
+        void writeTo(FileChannel channel) throws IOException;
+    }
+
+    /**
+     * Renames a file over another one atomically where the file system supports it.
+     *
+     * @param source    the file to move
+     * @param target    the file to replace
+     * @param isDurable true to force the directory entry change to disk
+     * @throws IOException if the move fails
+     */
+    static void moveAtomically(Path source, Path target, boolean isDurable) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (isDurable) {
+            forceDirectory(target.toAbsolutePath().getParent());
+        }
+    }
+
+    /**
+     * Forces changes to a directory's entries, such as a rename, to disk.
+     * Some platforms cannot open a directory for this, in which case it is skipped.
+     *
+     * @param directory the directory to force
+     */
+    static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not supported on this platform, e.g. Windows; the rename itself is still atomic
+        }
+    }
+
+    /**
+     * Writes every task in the task list to the given file in the given format.
+     * Tasks are streamed to the file rather than encoded in memory first.
+     *
+     * @param f             the file to write to
+     * @param taskList      the list of tasks to write
+     * @param nextId        the next task ID to store in the header, or 0 to store none
+     * @param format        the format to write the tasks in
+     * @param isChecksummed true to prefix every text record with its checksum
+     * @param isDurable     true to force the file to disk before returning
+     * @throws NeruneruneException if writing to file fails
+     */
+    static void writeTasks(File f, List<Task> taskList, long nextId, StorageFormat format, boolean isChecksummed,
+            boolean isDurable) throws NeruneruneException {
+        try {
+            if (format == StorageFormat.BINARY) {
+                writeAtomically(f.toPath(), channel -> BinaryTaskCodec.write(channel, taskList, nextId), isDurable);
+            } else {
+                writeAtomically(f.toPath(), channel -> writeTextRecords(channel, taskList, nextId, isChecksummed),
+                        isDurable);
+            }
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while writing to the file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Encodes every task in the task list in the given format.
+     * Text is encoded with the platform charset, the same as {@link FileWriter}.
+     *
+     * @param taskList      the list of tasks to encode
+     * @param nextId        the next task ID to store in the header, or 0 to store none
+     * @param format        the format to encode the tasks in
+     * @param isChecksummed true to prefix every text record with its checksum
+     * @return the file contents
+     */
+    static byte[] encodeTasks(List<Task> taskList, long nextId, StorageFormat format, boolean isChecksummed) {
+        if (format == StorageFormat.BINARY) {
+            return BinaryTaskCodec.encode(taskList, nextId);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writeTextRecords(Channels.newChannel(out), taskList, nextId, isChecksummed);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // an in-memory stream does not fail
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes every task in the task list as a text record through a {@link TextRecordWriter}.
+     * The header line that stores the next task ID is only written when the next ID cannot be found
+     * from the tasks themselves, as after the newest tasks are deleted, so that other files keep the
+     * format that builds which do not know the header can read.
+     * Records of a {@link LazyTaskList} that were never decoded are copied as they are.
+     *
+     * @param channel       the channel to write to
+     * @param taskList      the list of tasks to write
+     * @param nextId        the next task ID to store, or 0 to write no header
+     * @param isChecksummed true to prefix every record with its checksum
+     * @throws IOException if writing to the channel fails
+     */
+    private static void writeTextRecords(WritableByteChannel channel, List<Task> taskList, long nextId,
+            boolean isChecksummed) throws IOException {
+        LazyTaskList lazyTasks = taskList instanceof LazyTaskList ? (LazyTaskList) taskList : null;
+        TextRecordWriter writer = new TextRecordWriter(channel, isChecksummed);
+        if (nextId > TaskIds.findNextId(taskList)) {
+            writer.writeNextIdHeader(nextId);
+        }
+        for (int i = 0; i < taskList.size(); i++) {
+            byte[] record = lazyTasks != null ? lazyTasks.getUnreadRecord(i, StorageFormat.TEXT) : null;
+            if (record != null) {
+                writer.writeEncoded(record);
+            } else {
+                writer.write(taskList.get(i));
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Exports the task list in the text format to a file next to the given storage file.
+     *
+     * @param f        the storage file
+     * @param taskList the list of tasks to export
+     * @return the file the tasks were exported to
+     * @throws NeruneruneException if writing to file fails
+     */
+    static File exportAsText(File f, List<Task> taskList) throws NeruneruneException {
+        File exportFile = new File(f.getAbsoluteFile().getParentFile(), EXPORT_FILENAME);
+        try {
+            writeAtomically(exportFile.toPath(), channel -> writeTextRecords(channel, taskList, 0, false), false);
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while writing to the file: " + e.getMessage());
+        }
+        return exportFile;
+    }
+
+    /**
+     * Detects the format an existing storage file is written in.
+     *
+     * @param f the storage file
+     * @return BINARY if the file starts with the binary header, TEXT otherwise
+     * @throws IOException if reading the file fails
+     */
+    public static StorageFormat detectFormat(File f) throws IOException {
+        return BinaryTaskCodec.isBinaryFile(f) ? StorageFormat.BINARY : StorageFormat.TEXT;
+    }
+
+    /**
+     * Reads every task in a storage file of either format and adds them to the task list.
+     * A {@link LazyTaskList} must be empty, and is given the whole file contents to decode tasks from later.
+     *
+     * @param f        storage file to read from
+     * @param taskList task list to populate
+     * @param salvaged the collector for skipped records, or null to fail on the first corrupted record
+     * @throws CorruptedRecordException if the file is corrupted beyond salvaging
+     * @throws NeruneruneException      if a stored date is invalid and salvaged is null
+     * @throws IOException              if reading the file fails
+     */
+    static void readTasks(File f, List<Task> taskList, SalvagedRecords salvaged)
+            throws NeruneruneException, IOException {
+        if (detectFormat(f) == StorageFormat.BINARY) {
+            BinaryTaskCodec.read(ByteBuffer.wrap(Files.readAllBytes(f.toPath())), taskList, salvaged);
+            return;
+        }
+        if (taskList instanceof LazyTaskList lazyTasks) { // nothing is parsed up front, so no need to split
+            byte[] bytes = Files.readAllBytes(f.toPath());
+            lazyTasks.setSource(bytes, StorageFormat.TEXT);
+            try (StorageFileReader reader = new StorageFileReader(ByteBuffer.wrap(bytes))) {
+                readTasks(reader, taskList, salvaged);
+            }
+            return;
+        }
+        if (ParallelStorageLoader.isWorthParallelLoading(f)) {
+            readTasksInParallel(f, taskList, salvaged);
+            return;
+        }
+
+        try (StorageFileReader reader = new StorageFileReader(f)) { // close channel after done
+            readTasks(reader, taskList, salvaged);
+        }
+    }
+
+    /**
+     * Reads every line from the reader as a task and adds it to the task list.
+     * When salvaging, a line that fails its checksum or cannot be parsed is replaced by a placeholder.
+     * Checksummed lines are added to a {@link LazyTaskList} without being parsed; the reader must
+     * then read the list's source.
+     *
+     * @param reader   the reader to read lines from
+     * @param taskList task list to populate
+     * @param salvaged the collector for skipped records, or null to fail on the first corrupted record
+     * @throws CorruptedRecordException if a line is corrupted and salvaged is null
+     * @throws NeruneruneException      if a stored date is invalid and salvaged is null
+     * @throws IOException              if reading fails
+     */
+    static void readTasks(StorageFileReader reader, List<Task> taskList, SalvagedRecords salvaged)
+            throws NeruneruneException, IOException {
+        LazyTaskList lazyTasks = taskList instanceof LazyTaskList ? (LazyTaskList) taskList : null;
+        while (true) {
+            try {
+                if (!reader.nextRecord()) {
+                    return;
+                }
+            } catch (CorruptedRecordException e) {
+                if (salvaged == null) {
+                    throw e;
+                }
+                taskList.add(salvaged.addRecord(reader.getLastRecord()));
+                continue;
+            }
+            if (lazyTasks != null && reader.isChecksummed()
+                    && lazyTasks.addTextRecord(reader.getRecordStart(), reader.getRecordEnd())) {
+                continue;
+            }
+            StorageLineTokenizer fields = reader.getFields();
+            if (fields == null) {
+                continue; // blank line
+            }
+
+            try {
+                taskList.add(Parser.parseTaskFields(fields));
+            } catch (IOException e) {
+                if (salvaged == null) {
+                    throw new CorruptedRecordException(e.getMessage());
+                }
+                taskList.add(salvaged.addRecord(reader.getLastRecord()));
+            } catch (NeruneruneException e) {
+                if (salvaged == null) {
+                    throw e;
+                }
+                taskList.add(salvaged.addRecord(reader.getLastRecord()));
+            }
+        }
+    }
+
+    /**
+     * Reads tasks from a large storage file by parsing line-aligned chunks in parallel,
+     * then adds them to the task list in file order.
+     * The first failing chunk decides the outcome, exactly as if the file were read line by line.
+     *
+     * @param f        storage file to read from
+     * @param taskList task list to populate
+     * @param salvaged the collector for skipped records, or null to fail on the first corrupted record
+     * @throws CorruptedRecordException if a line is corrupted and salvaged is null
+     * @throws NeruneruneException      if a stored date is invalid and salvaged is null
+     * @throws IOException              if reading the file fails
+     */
+    private static void readTasksInParallel(File f, List<Task> taskList, SalvagedRecords salvaged)
+            throws NeruneruneException, IOException {
+        List<ParallelStorageLoader.ParsedChunk> chunks = new ParallelStorageLoader(ForkJoinPool.commonPool())
+                .loadChunks(f, salvaged != null);
+
+        for (ParallelStorageLoader.ParsedChunk chunk : chunks) {
+            taskList.addAll(chunk.getTasks());
+            if (salvaged != null) {
+                salvaged.addAll(chunk.getSalvagedRecords());
+            }
+
+            Exception failure = chunk.getFailure();
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof NeruneruneException) {
+                throw (NeruneruneException) failure;
+            }
+        }
+    }
+}
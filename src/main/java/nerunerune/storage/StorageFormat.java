@@ -0,0 +1,27 @@
+package nerunerune.storage;
+
+/**
+ * Represents the on-disk format of the storage file snapshot.
+ */
+public enum StorageFormat {
+    /** Human-readable lines such as {@code D | 0 | homework | Aug 02 2025 1845}. */
+    TEXT,
+
+    /** Compact versioned binary records, see {@link BinaryTaskCodec}. */
+    BINARY;
+
+    /**
+     * Returns the format with the given name, ignoring case.
+     *
+     * @param name the format name, e.g. "text" or "binary"
+     * @return the matching format, or TEXT if the name is null or unknown
+     */
+    public static StorageFormat fromName(String name) {
+        for (StorageFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return TEXT;
+    }
+}
@@ -0,0 +1,19 @@
+package nerunerune.storage;
+
+/**
+ * Receives the messages a {@link Storage} backend has for the user, such as that the storage file
+ * was migrated or that corrupted records were skipped, so that the backend does not print them itself.
+ */
+@FunctionalInterface
+public interface StorageReporter {
+    /** Drops every message, for backends created without a reporter. */
+    StorageReporter SILENT = message -> {
+    };
+
+    /**
+     * Reports a message to the user.
+     *
+     * @param message the message to report
+     */
+    void report(String message);
+}
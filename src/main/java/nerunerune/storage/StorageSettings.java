@@ -0,0 +1,226 @@
+package nerunerune.storage;
+
+/**
+ * Holds the options that select the {@link Storage} backend and control how it persists tasks.
+ * <p>
+ * Settings are normally read from system properties, so they can be chosen on the
+ * command line, e.g. {@code -Dnerunerune.journal=true -Dnerunerune.format=binary}.
+ */
+public class StorageSettings {
+    private static final String JOURNAL_MODE_PROPERTY = "nerunerune.journal";
+    private static final String STORAGE_FORMAT_PROPERTY = "nerunerune.format";
+    private static final String SAVE_INTERVAL_PROPERTY = "nerunerune.saveIntervalMillis";
+    private static final String DURABLE_PROPERTY = "nerunerune.durable";
+    private static final String SALVAGE_PROPERTY = "nerunerune.salvage";
+    private static final String LAZY_PROPERTY = "nerunerune.lazy";
+    private static final String SHARDED_PROPERTY = "nerunerune.sharded";
+    private static final String ARCHIVE_AFTER_DAYS_PROPERTY = "nerunerune.archiveAfterDays";
+    private static final String BACKEND_PROPERTY = "nerunerune.backend";
+    private static final String SHARED_PROPERTY = "nerunerune.shared";
+    private static final long DURABLE_COMMIT_WINDOW_MILLIS = 20;
+
+    private final boolean isJournaled;
+    private final StorageFormat format;
+    private final long saveIntervalMillis;
+    private final boolean isDurable;
+    private final boolean isSalvaging;
+    private final boolean isLazy;
+    private final boolean isSharded;
+    private final long archiveAfterDays;
+    private final StorageBackend backend;
+    private final boolean isShared;
+
+    /**
+     * Constructs StorageSettings with the given options.
+     *
+     * @param isJournaled        true to append mutations to a journal instead of rewriting the file on every save
+     * @param format             the format to write the storage file in
+     * @param saveIntervalMillis the write-behind flush interval in milliseconds, or 0 to save synchronously
+     * @param isDurable          true to force every write to disk; without a save interval, saves are then
+     *                           written behind within a short commit window, so a burst of saves shares one force
+     * @param isSalvaging        true to checksum text records and skip corrupted records on load
+     *                           instead of archiving the whole file
+     * @param isLazy             true to decode stored tasks only when they are first accessed
+     * @param isSharded          true to split stored tasks into monthly shard files; sharded storage
+     *                           is neither journaled nor lazy, so those options are then ignored
+     * @param archiveAfterDays   the number of days after its date that a completed task is moved
+     *                           to the cold archive, or 0 to never archive tasks
+     * @param backend            the engine that persists the task list; the other options
+     *                           only apply to the file backend, except where a backend says otherwise
+     * @param isShared           true to let other processes use the same storage files at the same time;
+     *                           shared storage is always journaled, saves synchronously and is not sharded
+     */
+    public StorageSettings(boolean isJournaled, StorageFormat format, long saveIntervalMillis, boolean isDurable,
+            boolean isSalvaging, boolean isLazy, boolean isSharded, long archiveAfterDays, StorageBackend backend,
+            boolean isShared) {
+        assert format != null : "storage format should not be null";
+        assert backend != null : "storage backend should not be null";
+        assert saveIntervalMillis >= 0 : "save interval should not be negative";
+        assert archiveAfterDays >= 0 : "archive age should not be negative";
+
+        this.isShared = isShared;
+        this.isSharded = isSharded && !isShared;
+        this.isJournaled = (isJournaled || isShared) && !this.isSharded;
+        this.format = format;
+        this.saveIntervalMillis = isShared ? 0
+                : saveIntervalMillis == 0 && isDurable ? DURABLE_COMMIT_WINDOW_MILLIS : saveIntervalMillis;
+        this.isDurable = isDurable;
+        this.isSalvaging = isSalvaging;
+        this.isLazy = isLazy && !this.isSharded;
+        this.archiveAfterDays = archiveAfterDays;
+        this.backend = backend;
+    }
+
+    /**
+     * Returns the default settings: a plain text storage file without checksums, rewritten synchronously
+     * on every save.
+     *
+     * @return the default settings
+     */
+    public static StorageSettings defaults() {
+        return new StorageSettings(false, StorageFormat.TEXT, 0, false, false, false, false, 0, StorageBackend.FILE,
+                false);
+    }
+
+    /**
+     * Reads the settings from system properties, falling back to the defaults for missing values.
+     * <ul>
+     *   <li>{@code nerunerune.journal} - {@code true} to enable journaled mode</li>
+     *   <li>{@code nerunerune.format} - {@code text} or {@code binary}</li>
+     *   <li>{@code nerunerune.saveIntervalMillis} - a positive interval to enable write-behind saving</li>
+     *   <li>{@code nerunerune.durable} - {@code true} to force every write to disk</li>
+     *   <li>{@code nerunerune.salvage} - {@code true} to checksum records and skip corrupted ones on load</li>
+     *   <li>{@code nerunerune.lazy} - {@code true} to decode stored tasks only when they are first accessed</li>
+     *   <li>{@code nerunerune.sharded} - {@code true} to split stored tasks into monthly shard files</li>
+     *   <li>{@code nerunerune.archiveAfterDays} - days after which completed tasks move to the cold archive</li>
+     *   <li>{@code nerunerune.backend} - {@code file}, {@code memory} or {@code mapped}</li>
+     *   <li>{@code nerunerune.shared} - {@code true} to let other processes use the same storage files</li>
+     * </ul>
+     *
+     * @return the settings described by the system properties
+     */
+    public static StorageSettings fromSystemProperties() {
+        return new StorageSettings(
+                Boolean.getBoolean(JOURNAL_MODE_PROPERTY),
+                StorageFormat.fromName(System.getProperty(STORAGE_FORMAT_PROPERTY)),
+                Math.max(0, Long.getLong(SAVE_INTERVAL_PROPERTY, 0)),
+                Boolean.getBoolean(DURABLE_PROPERTY),
+                Boolean.getBoolean(SALVAGE_PROPERTY),
+                Boolean.getBoolean(LAZY_PROPERTY),
+                Boolean.getBoolean(SHARDED_PROPERTY),
+                Math.max(0, Long.getLong(ARCHIVE_AFTER_DAYS_PROPERTY, 0)),
+                StorageBackend.fromName(System.getProperty(BACKEND_PROPERTY)),
+                Boolean.getBoolean(SHARED_PROPERTY));
+    }
+
+    /**
+     * Returns whether mutations are appended to a journal.
+     *
+     * @return true if journaled mode is enabled
+     */
+    public boolean isJournaled() {
+        return isJournaled;
+    }
+
+    /**
+     * Returns the format the storage file is written in.
+     *
+     * @return the storage file format
+     */
+    public StorageFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Returns the write-behind flush interval.
+     *
+     * @return the interval in milliseconds, or 0 if saves are synchronous
+     */
+    public long getSaveIntervalMillis() {
+        return saveIntervalMillis;
+    }
+
+    /**
+     * Returns whether saves are deferred to a background write-behind scheduler.
+     *
+     * @return true if the save interval is positive
+     */
+    public boolean isWriteBehind() {
+        return saveIntervalMillis > 0;
+    }
+
+    /**
+     * Returns whether writes are forced to disk before they complete.
+     *
+     * @return true if durable mode is enabled
+     */
+    public boolean isDurable() {
+        return isDurable;
+    }
+
+    /**
+     * Returns whether corrupted records are skipped on load, keeping the rest of the file.
+     *
+     * @return true if salvage mode is enabled
+     */
+    public boolean isSalvaging() {
+        return isSalvaging;
+    }
+
+    /**
+     * Returns whether text records are written with a checksum. Only salvage mode, which uses them to find
+     * corrupted records, and lazy mode, which only defers decoding records whose checksum was verified,
+     * write them, so the storage file otherwise stays plain text that can be edited by hand.
+     * Binary records always carry a checksum.
+     *
+     * @return true if salvage mode or lazy loading is enabled
+     */
+    public boolean isChecksummed() {
+        return isSalvaging || isLazy;
+    }
+
+    /**
+     * Returns whether stored tasks are decoded only when they are first accessed.
+     *
+     * @return true if lazy loading is enabled
+     */
+    public boolean isLazy() {
+        return isLazy;
+    }
+
+    /**
+     * Returns whether stored tasks are split into monthly shard files.
+     *
+     * @return true if sharded mode is enabled
+     */
+    public boolean isSharded() {
+        return isSharded;
+    }
+
+    /**
+     * Returns the number of days after its date that a completed task is moved to the cold archive.
+     *
+     * @return the archive age in days, or 0 if tasks are never archived
+     */
+    public long getArchiveAfterDays() {
+        return archiveAfterDays;
+    }
+
+    /**
+     * Returns the engine that persists the task list.
+     *
+     * @return the storage backend
+     */
+    public StorageBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Returns whether other processes may use the same storage files at the same time.
+     *
+     * @return true if shared mode is enabled
+     */
+    public boolean isShared() {
+        return isShared;
+    }
+}
@@ -0,0 +1,88 @@
+package nerunerune.storage;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Set;
+
+/**
+ * Watches the directory holding the storage files, and runs a callback on a daemon thread
+ * whenever some of the files are created, changed or removed, such as by another process.
+ * <p>
+ * Events are delivered in batches, and the callback runs once per batch that touches a watched file,
+ * so a burst of appends costs one callback. Changes made by this process are reported as well,
+ * so the callback must tell them apart itself.
+ */
+public class StorageWatcher {
+    private final WatchService watchService;
+    private final Set<String> fileNames;
+    private final Runnable onChange;
+    private final Thread thread;
+
+    /**
+     * Constructs a StorageWatcher and registers the directory, without starting to watch it yet.
+     *
+     * @param directory the directory holding the storage files
+     * @param fileNames the names of the files in the directory to watch
+     * @param onChange  the callback to run after the files changed
+     * @throws IOException if the directory cannot be watched
+     */
+    public StorageWatcher(Path directory, Set<String> fileNames, Runnable onChange) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.fileNames = fileNames;
+        this.onChange = onChange;
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        this.thread = new Thread(this::watch, "storage-watcher");
+        this.thread.setDaemon(true); // changes are picked up again by the next command anyway
+    }
+
+    /**
+     * Starts watching the files on the background thread.
+     */
+    public void start() {
+        thread.start();
+    }
+
+    private void watch() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            boolean isChanged = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || fileNames.contains(String.valueOf(event.context()))) {
+                    isChanged = true;
+                }
+            }
+            boolean isValid = key.reset();
+            if (isChanged) {
+                onChange.run();
+            }
+            if (!isValid) { // the directory is gone
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops watching the files. A callback already running is allowed to finish.
+     */
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Failed to stop watching the storage files: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package nerunerune.storage;
+
+import java.util.List;
+
+import nerunerune.task.Task;
+
+/**
+ * Counts up the IDs given to new tasks, so that no ID is given out twice,
+ * not even once the task that had it has been deleted.
+ * <p>
+ * The count is the high-water mark of the IDs given out: the next ID is stored with the tasks,
+ * in the header of the storage file or next to the shards, and is raised past the ID of every task
+ * read back, including the tasks that journal records added and later deleted again.
+ * Raising the count is safe from any thread, such as a background checkpoint.
+ */
+public class TaskIdCounter {
+    private long nextId;
+
+    /**
+     * Constructs a TaskIdCounter that gives out IDs from 1.
+     */
+    public TaskIdCounter() {
+        this.nextId = 1;
+    }
+
+    /**
+     * Returns the ID the next task will be given.
+     *
+     * @return the next free ID
+     */
+    public synchronized long getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Raises the next ID to the given one, if it is lower.
+     *
+     * @param nextId the next ID read from storage, or 0 if none was stored
+     */
+    public synchronized void raiseTo(long nextId) {
+        this.nextId = Math.max(this.nextId, nextId);
+    }
+
+    /**
+     * Raises the next ID past the given one, so that it is never given out.
+     *
+     * @param id the ID of a stored task
+     */
+    public void raisePast(long id) {
+        raiseTo(id + 1);
+    }
+
+    /**
+     * Raises the next ID past the ID of every task in the list.
+     * Reads the IDs of a {@link LazyTaskList} without decoding its records.
+     *
+     * @param taskList the stored tasks
+     */
+    public void raisePast(List<Task> taskList) {
+        raiseTo(TaskIds.findNextId(taskList));
+    }
+
+    /**
+     * Gives out the next ID.
+     *
+     * @return the ID to give a new task
+     */
+    public synchronized long take() {
+        return nextId++;
+    }
+
+    /**
+     * Gives every task in the list that has no ID, such as one stored before tasks had IDs,
+     * the next free ID in list order, after raising the next ID past the IDs they already have.
+     *
+     * @param taskList the tasks to number
+     * @return the number of tasks given an ID
+     */
+    public synchronized int assignMissingIds(List<Task> taskList) {
+        raisePast(taskList);
+        int assignedCount = TaskIds.assignMissingIds(taskList, 0, nextId);
+        nextId += assignedCount;
+        return assignedCount;
+    }
+}
@@ -0,0 +1,175 @@
+package nerunerune.storage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import nerunerune.task.Task;
+
+/**
+ * Gives tasks the IDs that commands refer to them by.
+ * <p>
+ * IDs start from 1 and increase with every task added, and an ID stays with its task as others are
+ * added and removed. The next ID is kept by a {@link TaskIdCounter} and stored in the header of the
+ * storage file: a field of the binary header, or in the text format a first line such as {@code NEXT_ID | 42}.
+ * That line is only written when the next ID is past the one after the largest stored ID, so that text files
+ * stay readable by builds that predate it for as long as no newest task has been deleted.
+ * Tasks stored before tasks had IDs are given the next IDs in list order when they are loaded.
+ */
+public class TaskIds {
+    /** The start of the header line that stores the next ID in a text storage file. */
+    static final String NEXT_ID_HEADER = "NEXT_ID | ";
+
+    private static final byte[] NEXT_ID_HEADER_BYTES = NEXT_ID_HEADER.getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_HEADER_LENGTH = 64;
+
+    /**
+     * Returns the ID to give the next task added to the list, one more than the largest ID in it.
+     * Reads the IDs of a {@link LazyTaskList} without decoding its records.
+     *
+     * @param taskList the tasks to look through
+     * @return the next free ID
+     */
+    public static long findNextId(List<Task> taskList) {
+        long maxId = 0;
+        for (int i = 0; i < taskList.size(); i++) {
+            maxId = Math.max(maxId, getId(taskList, i));
+        }
+        return maxId + 1;
+    }
+
+    /**
+     * Returns whether any task in the list has no ID, such as one stored before tasks had IDs.
+     * Reads the IDs of a {@link LazyTaskList} without decoding its records.
+     *
+     * @param taskList the tasks to look through
+     * @return true if a task has no ID
+     */
+    public static boolean hasMissingIds(List<Task> taskList) {
+        for (int i = 0; i < taskList.size(); i++) {
+            if (getId(taskList, i) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gives every task from the given position on that has no ID the next free ID, in list order.
+     * Only tasks without an ID are decoded from a {@link LazyTaskList}, and are then saved with it.
+     *
+     * @param taskList  the tasks to number
+     * @param fromIndex the 0-based position of the first task to number
+     * @param nextId    the next free ID
+     * @return the number of tasks given an ID; the next free ID is then that much larger
+     */
+    public static int assignMissingIds(List<Task> taskList, int fromIndex, long nextId) {
+        int assignedCount = 0;
+        for (int i = fromIndex; i < taskList.size(); i++) {
+            if (getId(taskList, i) == 0) {
+                taskList.get(i).setId(nextId + assignedCount);
+                assignedCount++;
+            }
+        }
+        return assignedCount;
+    }
+
+    /**
+     * Reads the next ID stored in the header of a storage file of either format.
+     * Only the start of the file is read.
+     *
+     * @param f the storage file
+     * @return the stored next ID, or 0 if the file has none, such as one written before it was stored
+     * @throws IOException if reading the file fails
+     */
+    public static long readNextId(File f) throws IOException {
+        if (!f.exists()) {
+            return 0;
+        }
+        byte[] start;
+        try (InputStream in = new FileInputStream(f)) {
+            start = in.readNBytes(MAX_HEADER_LENGTH);
+        }
+        if (BinaryTaskCodec.isBinary(start)) {
+            return BinaryTaskCodec.readNextId(ByteBuffer.wrap(start));
+        }
+        int end = 0;
+        while (end < start.length && start[end] != '\n' && start[end] != '\r') {
+            end++;
+        }
+        if (!isNextIdHeader(start, 0, end)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(new String(start, NEXT_ID_HEADER_BYTES.length, end - NEXT_ID_HEADER_BYTES.length,
+                    StandardCharsets.US_ASCII).trim());
+        } catch (NumberFormatException e) {
+            return 0; // a damaged header only costs the IDs of deleted tasks, which the stored tasks still raise past
+        }
+    }
+
+    /**
+     * Returns whether a line of a text storage file is the header that stores the next ID.
+     *
+     * @param bytes the bytes holding the line
+     * @param start the index of the first byte of the line
+     * @param end   the index just past the last byte of the line
+     * @return true if the line is the next ID header
+     */
+    static boolean isNextIdHeader(byte[] bytes, int start, int end) {
+        if (end - start < NEXT_ID_HEADER_BYTES.length) {
+            return false;
+        }
+        for (int i = 0; i < NEXT_ID_HEADER_BYTES.length; i++) {
+            if (bytes[start + i] != NEXT_ID_HEADER_BYTES[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the position of the task with the given ID. As tasks are added in the order of their IDs,
+     * the list is binary searched first, and only scanned if that misses, such as once older months
+     * were paged in behind newer ones. Reads the IDs of a {@link LazyTaskList} without decoding its records.
+     *
+     * @param taskList the tasks to look through
+     * @param id       the task ID
+     * @return the 0-based position of the task, or -1 if no task has the ID
+     */
+    public static int indexOf(List<Task> taskList, long id) {
+        int low = 0;
+        int high = taskList.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long middleId = getId(taskList, middle);
+            if (middleId == id) {
+                return middle;
+            } else if (middleId < id) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        for (int i = 0; i < taskList.size(); i++) {
+            if (getId(taskList, i) == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the ID of the task at the given position, without decoding it from a {@link LazyTaskList}.
+     */
+    private static long getId(List<Task> taskList, int index) {
+        if (taskList instanceof LazyTaskList lazyTasks) {
+            return lazyTasks.getId(index);
+        }
+        return taskList.get(index).getId();
+    }
+}
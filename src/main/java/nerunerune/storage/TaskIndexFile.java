@@ -0,0 +1,256 @@
+package nerunerune.storage;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import nerunerune.task.Deadline;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+
+/**
+ * Reads and writes the sidecar file holding precomputed task lookup indexes.
+ * <p>
+ * The file maps each case-folded description, and each task date, to the positions of
+ * the matching tasks in the task list. It is stamped with the generation of the storage
+ * files it was built from and the number of tasks, so a stale file is detected and ignored.
+ * <p>
+ * Layout: the magic bytes {@code NRIX}, a version byte, the generation, the task count,
+ * then the description entries (UTF-8 key and positions) and the date entries (epoch day
+ * and positions), each preceded by its entry count.
+ */
+public class TaskIndexFile {
+    private static final byte[] MAGIC = {'N', 'R', 'I', 'X'};
+    private static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + Long.BYTES;
+
+    private final File file;
+
+    /**
+     * Holds the position lists read from an up-to-date index file.
+     */
+    public static class Snapshot {
+        private final Map<String, int[]> descriptionPositions;
+        private final NavigableMap<LocalDate, int[]> datePositions;
+
+        private Snapshot(Map<String, int[]> descriptionPositions, NavigableMap<LocalDate, int[]> datePositions) {
+            this.descriptionPositions = descriptionPositions;
+            this.datePositions = datePositions;
+        }
+
+        /**
+         * Returns the positions of the tasks with each case-folded description, in list order.
+         *
+         * @return the description to positions map
+         */
+        public Map<String, int[]> getDescriptionPositions() {
+            return descriptionPositions;
+        }
+
+        /**
+         * Returns the positions of the tasks on each date, in list order.
+         *
+         * @return the date to positions map, sorted by date
+         */
+        public NavigableMap<LocalDate, int[]> getDatePositions() {
+            return datePositions;
+        }
+    }
+
+    /**
+     * Constructs a TaskIndexFile backed by the given file.
+     *
+     * @param file the sidecar index file
+     */
+    public TaskIndexFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Folds a description the same way {@link String#equalsIgnoreCase(String)} compares characters,
+     * so that two descriptions have the same key exactly when they are equal ignoring case.
+     *
+     * @param description the description to fold
+     * @return the case-folded key
+     */
+    public static String foldDescription(String description) {
+        StringBuilder sb = new StringBuilder(description.length());
+        description.codePoints()
+                .map(codePoint -> Character.toLowerCase(Character.toUpperCase(codePoint)))
+                .forEach(sb::appendCodePoint);
+        return sb.toString();
+    }
+
+    /**
+     * Returns the date a task is indexed under: the deadline date or the event start date.
+     *
+     * @param task the task
+     * @return the task date, or null if the task has no date
+     */
+    public static LocalDate getIndexedDate(Task task) {
+        if (task instanceof Deadline deadline && deadline.getDeadlineByDateTime() != null) {
+            return deadline.getDeadlineByDateTime().toLocalDate();
+        } else if (task instanceof Event event && event.getEventFromDateTime() != null) {
+            return event.getEventFromDateTime().toLocalDate();
+        }
+        return null;
+    }
+
+    /**
+     * Reads the index file if it was built from the given storage generation.
+     *
+     * @param generation the generation of the storage files the task list was loaded from
+     * @param taskCount  the number of tasks loaded
+     * @return the index, or null if the file is missing, stale or corrupted
+     */
+    public Snapshot read(long generation, int taskCount) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] magic = in.readNBytes(MAGIC.length);
+            if (!Arrays.equals(magic, MAGIC) || in.readByte() != VERSION
+                    || in.readLong() != generation || in.readInt() != taskCount) {
+                return null;
+            }
+
+            int descriptionCount = in.readInt();
+            Map<String, int[]> descriptionPositions = new HashMap<>(Math.max(16, descriptionCount * 4 / 3 + 1));
+            for (int i = 0; i < descriptionCount; i++) {
+                byte[] key = in.readNBytes(in.readInt());
+                descriptionPositions.put(new String(key, StandardCharsets.UTF_8), readPositions(in, taskCount));
+            }
+
+            int dateCount = in.readInt();
+            NavigableMap<LocalDate, int[]> datePositions = new TreeMap<>();
+            for (int i = 0; i < dateCount; i++) {
+                LocalDate date = LocalDate.ofEpochDay(in.readLong());
+                datePositions.put(date, readPositions(in, taskCount));
+            }
+            return new Snapshot(descriptionPositions, datePositions);
+        } catch (IOException | RuntimeException e) {
+            return null; // a damaged index is simply rebuilt
+        }
+    }
+
+    /**
+     * Reads a list of positions, checking that each one is within the task list.
+     *
+     * @param in        the stream to read from
+     * @param taskCount the number of tasks in the list
+     * @return the positions
+     * @throws IOException if reading fails or a position is out of range
+     */
+    private static int[] readPositions(DataInputStream in, int taskCount) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > taskCount) {
+            throw new EOFException("Invalid position count in index: " + count);
+        }
+        int[] positions = new int[count];
+        for (int i = 0; i < count; i++) {
+            positions[i] = in.readInt();
+            if (positions[i] < 0 || positions[i] >= taskCount) {
+                throw new EOFException("Invalid position in index: " + positions[i]);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Writes the index of the given task list, stamped with the given storage generation.
+     *
+     * @param generation the generation of the storage files holding the task list
+     * @param taskList   the tasks to index
+     * @throws IOException if writing the file fails
+     */
+    public void write(long generation, List<Task> taskList) throws IOException {
+        write(generation, encode(taskList));
+    }
+
+    /**
+     * Writes an index encoded earlier, stamped with the given storage generation.
+     * Lets the index be encoded while the task list is locked, and written once the storage files hold it.
+     *
+     * @param generation   the generation of the storage files holding the task list
+     * @param encodedIndex the index returned by {@link #encode(List)}
+     * @throws IOException if writing the file fails
+     */
+    public void write(long generation, byte[] encodedIndex) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_LENGTH + encodedIndex.length);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeLong(generation);
+            out.write(encodedIndex);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // an in-memory stream does not fail
+        }
+        StorageFiles.writeAtomically(file.toPath(), bytes.toByteArray(), false);
+    }
+
+    /**
+     * Encodes the index of the given task list, everything in the file after the generation.
+     *
+     * @param taskList the tasks to index
+     * @return the encoded index
+     */
+    public static byte[] encode(List<Task> taskList) {
+        Map<String, List<Integer>> descriptionPositions = new LinkedHashMap<>();
+        NavigableMap<LocalDate, List<Integer>> datePositions = new TreeMap<>();
+        for (int i = 0; i < taskList.size(); i++) {
+            Task task = taskList.get(i);
+            descriptionPositions.computeIfAbsent(foldDescription(task.getDescription()), key -> new ArrayList<>())
+                    .add(i);
+            LocalDate date = getIndexedDate(task);
+            if (date != null) {
+                datePositions.computeIfAbsent(date, key -> new ArrayList<>()).add(i);
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(taskList.size());
+
+            out.writeInt(descriptionPositions.size());
+            for (Map.Entry<String, List<Integer>> entry : descriptionPositions.entrySet()) {
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                writePositions(out, entry.getValue());
+            }
+
+            out.writeInt(datePositions.size());
+            for (Map.Entry<LocalDate, List<Integer>> entry : datePositions.entrySet()) {
+                out.writeLong(entry.getKey().toEpochDay());
+                writePositions(out, entry.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // an in-memory stream does not fail
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writePositions(DataOutputStream out, List<Integer> positions) throws IOException {
+        out.writeInt(positions.size());
+        for (int position : positions) {
+            out.writeInt(position);
+        }
+    }
+}
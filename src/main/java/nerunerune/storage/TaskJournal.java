@@ -0,0 +1,480 @@
+package nerunerune.storage;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.parser.Parser;
+import nerunerune.task.Task;
+
+/**
+ * Append-only log of task list mutations kept next to the storage file.
+ * <p>
+ * Each mutation is buffered as one small record and appended to the journal on flush,
+ * so saving costs O(1) per command instead of rewriting the whole storage file.
+ * On load, the journal is replayed on top of the snapshot in the storage file.
+ * <p>
+ * Records are stored one per line, e.g. {@code ADD | T | 0 | buy books | 3} or {@code MARK | 3},
+ * where the number is the ID of the task, so a record still finds its task wherever it ends up in the list.
+ * Replaying an add record raises the {@link TaskIdCounter} past the ID of its task, so the ID of a task that was
+ * added and deleted again since the last snapshot is not given out again.
+ * <p>
+ * Only the last record of a journal may be cut short, by a crash in the middle of appending it,
+ * so a bad last record is dropped on replay. Any other bad record fails the replay,
+ * or is skipped in salvage mode, rather than silently dropping the records after it.
+ * <p>
+ * A durable journal keeps its file open and forces every append to disk before returning.
+ * Unless storage is shared, appends come from the {@link SaveScheduler}, which gathers the records
+ * of every command within its commit window into one append, so a burst of commands costs one force.
+ */
+public class TaskJournal {
+    private static final String ADD = "ADD";
+    private static final String DELETE = "DELETE";
+    private static final String DELETE_DONE = "DELETE_DONE";
+    private static final String MARK = "MARK";
+    private static final String UNMARK = "UNMARK";
+    private static final String SEPARATOR = " | ";
+
+    private final File journalFile;
+    private final boolean isDurable;
+    private final TaskIdCounter ids;
+    private final ArrayList<String> pendingRecords;
+    private int recordCount;
+    private FileChannel channel;
+
+    /**
+     * Constructs a TaskJournal backed by the given journal file.
+     *
+     * @param journalFile the file that journal records are appended to
+     */
+    public TaskJournal(File journalFile) {
+        this(journalFile, false, new TaskIdCounter());
+    }
+
+    /**
+     * Constructs a TaskJournal backed by the given journal file.
+     *
+     * @param journalFile the file that journal records are appended to
+     * @param isDurable   true to force every append to disk before returning
+     * @param ids         the counter to raise past the IDs in replayed records
+     */
+    public TaskJournal(File journalFile, boolean isDurable, TaskIdCounter ids) {
+        this.journalFile = journalFile;
+        this.isDurable = isDurable;
+        this.ids = ids;
+        this.pendingRecords = new ArrayList<>();
+        this.recordCount = 0;
+    }
+
+    /**
+     * Records that a task was appended to the end of the list.
+     *
+     * @param task the task that was added
+     */
+    public void recordAdd(Task task) {
+        StringBuilder record = new StringBuilder(ADD).append(SEPARATOR);
+        task.appendStorageString(record);
+        pendingRecords.add(record.toString());
+    }
+
+    /**
+     * Records that a task was removed.
+     *
+     * @param task the removed task
+     */
+    public void recordDelete(Task task) {
+        pendingRecords.add(DELETE + SEPARATOR + task.getId());
+    }
+
+    /**
+     * Records that all completed tasks were removed.
+     */
+    public void recordDeleteDone() {
+        pendingRecords.add(DELETE_DONE);
+    }
+
+    /**
+     * Records that a task was marked as done.
+     *
+     * @param task the marked task
+     */
+    public void recordMark(Task task) {
+        pendingRecords.add(MARK + SEPARATOR + task.getId());
+    }
+
+    /**
+     * Records that a task was marked as not done.
+     *
+     * @param task the unmarked task
+     */
+    public void recordUnmark(Task task) {
+        pendingRecords.add(UNMARK + SEPARATOR + task.getId());
+    }
+
+    /**
+     * Appends all buffered records to the journal file.
+     *
+     * @throws NeruneruneException if writing to the journal fails
+     */
+    public void flush() throws NeruneruneException {
+        append(drainPendingRecords());
+    }
+
+    /**
+     * Removes and returns all buffered records, so they can be appended later
+     * without holding on to the task list.
+     *
+     * @return the buffered records, oldest first
+     */
+    public List<String> drainPendingRecords() {
+        List<String> records = new ArrayList<>(pendingRecords);
+        pendingRecords.clear();
+        return records;
+    }
+
+    /**
+     * Appends the given records to the journal file.
+     *
+     * @param records the records to append, oldest first
+     * @throws NeruneruneException if writing to the journal fails
+     */
+    public void append(List<String> records) throws NeruneruneException {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (String record : records) {
+            sb.append(record).append(System.lineSeparator());
+        }
+
+        try {
+            if (isDurable) {
+                appendDurably(sb.toString());
+            } else {
+                try (FileWriter fw = new FileWriter(journalFile, true)) { // append to the end of the journal
+                    fw.write(sb.toString());
+                }
+            }
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while writing to the journal: " + e.getMessage());
+        }
+        recordCount += records.size();
+    }
+
+    /**
+     * Appends the given text through the open journal channel and forces it to disk.
+     * The text is encoded with the platform charset, the same as {@link FileWriter}.
+     *
+     * @param text the records to append
+     * @throws IOException if writing or forcing the journal fails
+     */
+    private synchronized void appendDurably(String text) throws IOException {
+        ByteBuffer bytes = Charset.defaultCharset().encode(text);
+        if (channel == null) {
+            boolean isNewFile = !journalFile.exists();
+            channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (isNewFile) {
+                StorageFiles.forceDirectory(journalFile.getAbsoluteFile().getParentFile().toPath());
+            }
+        }
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Closes the journal channel, if it is open. Every append through it has already been forced to disk.
+     *
+     * @throws IOException if closing the journal fails
+     */
+    private synchronized void closeChannel() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } finally {
+            channel = null;
+        }
+    }
+
+    /**
+     * Returns the number of records in the journal file.
+     * Records still buffered in memory are not counted.
+     *
+     * @return the number of records written to or replayed from the journal file
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the size of the journal file.
+     *
+     * @return the journal file size in bytes, or 0 if it does not exist
+     */
+    public long getSizeInBytes() {
+        return journalFile.length();
+    }
+
+    /**
+     * Moves the journal file aside so that new records start a fresh journal
+     * while the sealed records are folded into a snapshot.
+     * Records still buffered in memory are not sealed; they go to the fresh journal.
+     *
+     * @param sealedFile the file to move the current journal to
+     * @throws NeruneruneException if moving the journal fails
+     */
+    public void seal(File sealedFile) throws NeruneruneException {
+        try {
+            closeChannel();
+            StorageFiles.moveAtomically(journalFile.toPath(), sealedFile.toPath(), isDurable);
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while sealing the journal: " + e.getMessage());
+        }
+        recordCount = 0;
+    }
+
+    /**
+     * Returns whether the journal file holds records that are not yet part of the snapshot.
+     *
+     * @return true if the journal file exists and is not empty
+     */
+    public boolean hasRecords() {
+        return journalFile.exists() && journalFile.length() > 0;
+    }
+
+    /**
+     * Replays the journal file on top of the given task list.
+     *
+     * @param taskList the task list loaded from the snapshot
+     * @param salvaged the collector for skipped records, or null to fail on the first bad record
+     * @return the number of records applied
+     * @throws NeruneruneException if a record other than the last cannot be applied and salvaged is null
+     * @throws IOException         if reading the journal file fails
+     */
+    public int replay(List<Task> taskList, SalvagedRecords salvaged) throws NeruneruneException, IOException {
+        int appliedCount = replay(journalFile, taskList, salvaged, ids);
+        recordCount += appliedCount;
+        return appliedCount;
+    }
+
+    /**
+     * Replays the records in the given journal file on top of the given task list.
+     * A last record that cannot be applied was torn by a crash mid-append, so it is dropped
+     * and cut off the file, for the records appended next not to follow it.
+     * Any other record that cannot be applied is skipped when salvaging, or fails the replay.
+     *
+     * @param file     the journal file to replay
+     * @param taskList the task list to apply the records to
+     * @param salvaged the collector for skipped records, or null to fail on the first bad record
+     * @param ids      the counter to raise past the IDs in the records
+     * @return the number of records applied
+     * @throws NeruneruneException if a record other than the last cannot be applied and salvaged is null
+     * @throws IOException         if reading or truncating the journal file fails
+     */
+    public static int replay(File file, List<Task> taskList, SalvagedRecords salvaged, TaskIdCounter ids)
+            throws NeruneruneException, IOException {
+        String[] lines = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset()).split("\n", -1);
+        int lastLine = lines.length - 1;
+        while (lastLine >= 0 && lines[lastLine].isBlank()) {
+            lastLine--;
+        }
+
+        int appliedCount = 0;
+        for (int i = 0; i <= lastLine; i++) {
+            String record = lines[i].trim();
+            if (record.isEmpty()) {
+                continue;
+            }
+            try {
+                applyRecord(record, taskList, ids);
+                appliedCount++;
+            } catch (IOException | NeruneruneException e) {
+                if (i == lastLine) {
+                    System.out.println("Dropped journal record cut short by an interrupted write: " + record);
+                    truncate(file, lines, i);
+                } else if (salvaged != null) {
+                    salvaged.addSkippedRecord(record);
+                } else {
+                    throw new NeruneruneException("Journal record " + (i + 1) + " of " + file.getName()
+                            + " could not be applied (" + e.getMessage() + "): " + record);
+                }
+            }
+        }
+        return appliedCount;
+    }
+
+    /**
+     * Cuts a journal file off just before the given line.
+     *
+     * @param file      the journal file
+     * @param lines     the lines of the journal file
+     * @param lineIndex the 0-based index of the first line to cut off
+     * @throws IOException if truncating the file fails
+     */
+    private static void truncate(File file, String[] lines, int lineIndex) throws IOException {
+        long size = 0;
+        for (int i = 0; i < lineIndex; i++) {
+            size += lines[i].getBytes(Charset.defaultCharset()).length + 1; // and its line feed
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    /**
+     * Applies the records appended to the journal file past the given position,
+     * such as records appended by another process sharing the journal.
+     * A record still being written is left for the next call.
+     *
+     * @param position the byte position in the journal file up to which records were already applied
+     * @param taskList the task list to apply the records to
+     * @return the byte position just past the last record applied
+     * @throws IOException if reading the journal file fails or a record cannot be applied
+     */
+    public long replayFrom(long position, List<Task> taskList) throws IOException {
+        ByteBuffer bytes;
+        try (FileChannel in = FileChannel.open(journalFile.toPath(), StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size <= position) {
+                return position;
+            }
+            bytes = ByteBuffer.allocate(Math.toIntExact(size - position));
+            while (bytes.hasRemaining() && in.read(bytes, position + bytes.position()) > 0) {
+                // keep reading until the appended records are complete
+            }
+        }
+
+        int end = bytes.position();
+        while (end > 0 && bytes.get(end - 1) != '\n') {
+            end--;
+        }
+        String text = Charset.defaultCharset().decode(bytes.flip().limit(end)).toString();
+        for (String line : text.split("\n")) {
+            String record = line.trim();
+            if (record.isEmpty()) {
+                continue;
+            }
+            try {
+                applyRecord(record, taskList, ids);
+            } catch (NeruneruneException e) {
+                throw new IOException("Journal record could not be applied: " + record);
+            }
+            recordCount++;
+        }
+        return position + end;
+    }
+
+    /**
+     * Closes the open journal channel, so the next append opens the journal file again.
+     * Needed after another process has sealed the journal, as the channel would still
+     * point at the sealed file.
+     *
+     * @throws NeruneruneException if closing the journal fails
+     */
+    public void reopen() throws NeruneruneException {
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while reopening the journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Applies a single journal record to the task list.
+     *
+     * @param record   the journal record to apply
+     * @param taskList the task list to modify
+     * @param ids      the counter to raise past the ID of an added task
+     * @throws IOException         if the record is malformed or no task has the ID it refers to
+     * @throws NeruneruneException if the task stored in an add record cannot be parsed
+     */
+    private static void applyRecord(String record, List<Task> taskList, TaskIdCounter ids)
+            throws IOException, NeruneruneException {
+        if (record.equals(DELETE_DONE)) {
+            if (taskList instanceof LazyTaskList lazyTasks) {
+                lazyTasks.removeDone();
+            } else {
+                taskList.removeIf(Task::getIsDone);
+            }
+            return;
+        }
+
+        int separatorIndex = record.indexOf(SEPARATOR);
+        if (separatorIndex == -1) {
+            throw new IOException("Corrupted journal record: " + record);
+        }
+        String operation = record.substring(0, separatorIndex);
+        String argument = record.substring(separatorIndex + SEPARATOR.length());
+
+        switch (operation) {
+        case ADD:
+            Task addedTask = Parser.parseTaskLine(argument);
+            taskList.add(addedTask);
+            ids.raisePast(addedTask.getId());
+            break;
+        case DELETE:
+            taskList.remove(findTask(argument, taskList));
+            break;
+        case MARK:
+            taskList.get(findTask(argument, taskList)).markAsDone();
+            break;
+        case UNMARK:
+            taskList.get(findTask(argument, taskList)).markAsUndone();
+            break;
+        default:
+            throw new IOException("Unknown journal operation: " + operation);
+        }
+    }
+
+    /**
+     * Finds the task whose ID is stored in a journal record.
+     *
+     * @param argument the ID string
+     * @param taskList the task list to search
+     * @return the 0-based position of the task with the ID
+     * @throws IOException if the ID is not a number or no task has it
+     */
+    private static int findTask(String argument, List<Task> taskList) throws IOException {
+        long id;
+        try {
+            id = Long.parseLong(argument);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid task ID in journal: " + argument);
+        }
+        int index = TaskIds.indexOf(taskList, id);
+        if (index < 0) {
+            throw new IOException("No task has ID " + id);
+        }
+        return index;
+    }
+
+    /**
+     * Discards all buffered records and deletes the journal file,
+     * typically after the journal has been folded into a new snapshot.
+     */
+    public void clear() {
+        try {
+            closeChannel();
+        } catch (IOException e) {
+            System.out.println("Failed to close journal file: " + e.getMessage());
+        }
+        pendingRecords.clear();
+        recordCount = 0;
+        if (journalFile.exists() && !journalFile.delete()) {
+            System.out.println("Failed to delete journal file: " + journalFile.getName());
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package nerunerune.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.task.Task;
+
+/**
+ * Splits the stored tasks into one shard file per month, plus one for todos.
+ * <p>
+ * A deadline belongs to the month it is due in and an event to the month it ends in, so every task
+ * that is due or still going on at a date is in the shard of that month or a later one.
+ * Shard files live in a directory next to the storage file and are named after their key,
+ * e.g. {@code 2025-11.txt} or {@code todo.txt}. Shards are loaded individually, so older months
+ * can stay on disk until a query reaches back to them. A save only rewrites the loaded shards whose
+ * contents changed; shards that are not loaded are never touched, so a task must only be added
+ * to a month once its shard is loaded.
+ * <p>
+ * As the tasks with the largest IDs may be in any shard, the next task ID is kept in a file of its own
+ * next to the shards, which is written before any shard whenever the next ID has grown.
+ */
+public class TaskShards {
+    private static final String TODO_SHARD = "todo";
+    private static final String SHARD_FILE_SUFFIX = ".txt";
+    private static final String NEXT_ID_FILENAME = "nextId";
+
+    private final File directory;
+    private final StorageFormat format;
+    private final boolean isChecksummed;
+    private final boolean isDurable;
+    private final Set<String> loadedShards;
+    private final Map<String, Long> writtenChecksums;
+    private volatile long writtenNextId;
+
+    /**
+     * Constructs TaskShards kept in the given directory.
+     *
+     * @param directory     the directory holding the shard files
+     * @param format        the format to write shards in
+     * @param isChecksummed true to prefix every text record with its checksum
+     * @param isDurable     true to force each shard to disk when it is written
+     */
+    public TaskShards(File directory, StorageFormat format, boolean isChecksummed, boolean isDurable) {
+        this.directory = directory.getAbsoluteFile();
+        this.format = format;
+        this.isChecksummed = isChecksummed;
+        this.isDurable = isDurable;
+        this.loadedShards = ConcurrentHashMap.newKeySet();
+        this.writtenChecksums = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns the key of the shard a task belongs to.
+     *
+     * @param task the task
+     * @return the month the task is due in or ends in as {@code yyyy-MM}, or the todo shard key for undated tasks
+     */
+    static String getShardKey(Task task) {
+        LocalDateTime dueDateTime = FileStorage.getDueDateTime(task);
+        return dueDateTime == null ? TODO_SHARD : YearMonth.from(dueDateTime).toString();
+    }
+
+    /**
+     * Returns whether any shard file exists.
+     *
+     * @return true if tasks are stored in shards
+     */
+    public boolean hasShards() {
+        return !listShardKeys().isEmpty();
+    }
+
+    /**
+     * Returns whether every shard on disk has been loaded.
+     *
+     * @return true if no shard is left to load
+     */
+    public boolean isFullyLoaded() {
+        return loadedShards.containsAll(listShardKeys());
+    }
+
+    /**
+     * Loads the shards that are likely to be needed: todos and the current and upcoming months.
+     *
+     * @param taskList     the task list to add the loaded tasks to
+     * @param currentMonth the current month
+     * @param salvaged     the collector for skipped records, or null to fail on the first corrupted record
+     * @return the number of shards loaded
+     * @throws NeruneruneException if a stored date is invalid and salvaged is null
+     * @throws IOException         if a shard cannot be read or is corrupted beyond salvaging
+     */
+    public int loadCurrentShards(List<Task> taskList, YearMonth currentMonth, SalvagedRecords salvaged)
+            throws NeruneruneException, IOException {
+        return load(key -> key.equals(TODO_SHARD) || !parseMonth(key).isBefore(currentMonth), taskList, salvaged);
+    }
+
+    /**
+     * Loads the shards for the given month and every later one that are not loaded yet,
+     * which hold every task due or still going on in that month or later.
+     *
+     * @param startMonth the first month to load
+     * @param taskList   the list to add the loaded tasks to
+     * @param salvaged   the collector for skipped records, or null to fail on the first corrupted record
+     * @return the number of shards loaded
+     * @throws NeruneruneException if a stored date is invalid and salvaged is null
+     * @throws IOException         if a shard cannot be read or is corrupted beyond salvaging
+     */
+    public int loadFrom(YearMonth startMonth, List<Task> taskList, SalvagedRecords salvaged)
+            throws NeruneruneException, IOException {
+        return load(key -> !key.equals(TODO_SHARD) && !parseMonth(key).isBefore(startMonth), taskList, salvaged);
+    }
+
+    /**
+     * Loads every shard that is not loaded yet.
+     *
+     * @param taskList the list to add the loaded tasks to
+     * @param salvaged the collector for skipped records, or null to fail on the first corrupted record
+     * @return the number of shards loaded
+     * @throws NeruneruneException if a stored date is invalid and salvaged is null
+     * @throws IOException         if a shard cannot be read or is corrupted beyond salvaging
+     */
+    public int loadAll(List<Task> taskList, SalvagedRecords salvaged) throws NeruneruneException, IOException {
+        return load(key -> true, taskList, salvaged);
+    }
+
+    private int load(Predicate<String> filter, List<Task> taskList, SalvagedRecords salvaged)
+            throws NeruneruneException, IOException {
+        int loadedCount = 0;
+        for (String key : listShardKeys()) {
+            if (loadedShards.contains(key) || !filter.test(key)) {
+                continue;
+            }
+            File shardFile = getShardFile(key);
+            List<Task> shardTasks = new ArrayList<>();
+            StorageFiles.readTasks(shardFile, shardTasks, salvaged);
+            taskList.addAll(shardTasks); // only whole shards, as a save would overwrite a partly loaded one
+            writtenChecksums.put(key, checksum(Files.readAllBytes(shardFile.toPath())));
+            loadedShards.add(key);
+            loadedCount++;
+        }
+        return loadedCount;
+    }
+
+    /**
+     * Reads the next task ID stored next to the shards.
+     *
+     * @return the stored next ID, or 0 if none is stored, such as for shards written before it was
+     * @throws IOException if reading the file fails
+     */
+    public long readNextId() throws IOException {
+        File f = new File(directory, NEXT_ID_FILENAME);
+        if (!f.exists()) {
+            return 0;
+        }
+        try {
+            writtenNextId = Long.parseLong(Files.readString(f.toPath()).trim());
+        } catch (NumberFormatException e) {
+            return 0; // the tasks in the shards are still raised past on load
+        }
+        return writtenNextId;
+    }
+
+    /**
+     * Captures the loaded shards whose contents changed, so that they can be written
+     * after the task list lock is released.
+     *
+     * @param taskList the loaded tasks
+     * @param nextId   the next task ID, written first if it has grown
+     * @return the write that saves the changed shards
+     */
+    public SaveScheduler.PendingWrite captureWrite(Collection<Task> taskList, long nextId) {
+        Map<String, byte[]> changedShards = new HashMap<>();
+        for (Map.Entry<String, List<Task>> shard : groupByShard(taskList).entrySet()) {
+            if (shard.getValue().isEmpty()) {
+                changedShards.put(shard.getKey(), null); // no tasks left, delete the shard
+                continue;
+            }
+            byte[] bytes = StorageFiles.encodeTasks(shard.getValue(), 0, format, isChecksummed);
+            Long writtenChecksum = writtenChecksums.get(shard.getKey());
+            if (writtenChecksum == null || writtenChecksum != checksum(bytes)) {
+                changedShards.put(shard.getKey(), bytes);
+            }
+        }
+        return () -> {
+            if (nextId > writtenNextId) { // before the shards, so no stored task has an ID past it
+                writeNextId(nextId);
+            }
+            for (Map.Entry<String, byte[]> shard : changedShards.entrySet()) {
+                if (shard.getValue() == null) {
+                    deleteShard(shard.getKey());
+                } else {
+                    writeShard(shard.getKey(), shard.getValue());
+                }
+            }
+        };
+    }
+
+    /**
+     * Writes the loaded shards whose contents changed.
+     *
+     * @param taskList the loaded tasks
+     * @param nextId   the next task ID, written first if it has grown
+     * @throws NeruneruneException if writing a shard fails
+     */
+    public void write(Collection<Task> taskList, long nextId) throws NeruneruneException {
+        captureWrite(taskList, nextId).write();
+    }
+
+    /**
+     * Replaces every shard with the given tasks, deleting shards that none of them belong to,
+     * and marks all of them loaded. Used to split a single storage file into shards.
+     *
+     * @param taskList every stored task
+     * @param nextId   the next task ID
+     * @throws NeruneruneException if writing or deleting a shard fails
+     */
+    public void replaceAll(Collection<Task> taskList, long nextId) throws NeruneruneException {
+        loadedShards.addAll(listShardKeys()); // so shards left without tasks are deleted by the write
+        write(taskList, nextId);
+    }
+
+    /**
+     * Deletes every shard file and the stored next ID, typically once they have been merged back
+     * into a single storage file.
+     *
+     * @throws NeruneruneException if a shard cannot be deleted
+     */
+    public void deleteAll() throws NeruneruneException {
+        for (String key : listShardKeys()) {
+            deleteShard(key);
+        }
+        try {
+            Files.deleteIfExists(new File(directory, NEXT_ID_FILENAME).toPath());
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while deleting the stored next ID: " + e.getMessage());
+        }
+        writtenNextId = 0;
+    }
+
+    private void writeNextId(long nextId) throws NeruneruneException {
+        try {
+            Files.createDirectories(directory.toPath());
+            StorageFiles.writeAtomically(new File(directory, NEXT_ID_FILENAME).toPath(),
+                    Long.toString(nextId).getBytes(StandardCharsets.US_ASCII), isDurable);
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while writing the next task ID: " + e.getMessage());
+        }
+        writtenNextId = nextId;
+    }
+
+    /**
+     * Groups tasks by shard, including an empty group for every loaded shard left without tasks.
+     *
+     * @param taskList the tasks to group
+     * @return the tasks of each shard, in list order
+     */
+    private Map<String, List<Task>> groupByShard(Collection<Task> taskList) {
+        Map<String, List<Task>> shards = new HashMap<>();
+        for (String key : loadedShards) {
+            shards.put(key, new ArrayList<>());
+        }
+        for (Task task : taskList) {
+            shards.computeIfAbsent(getShardKey(task), key -> new ArrayList<>()).add(task);
+        }
+        return shards;
+    }
+
+    private void writeShard(String key, byte[] bytes) throws NeruneruneException {
+        try {
+            Files.createDirectories(directory.toPath());
+            StorageFiles.writeAtomically(getShardFile(key).toPath(), bytes, isDurable);
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while writing shard " + key + ": " + e.getMessage());
+        }
+        loadedShards.add(key);
+        writtenChecksums.put(key, checksum(bytes));
+    }
+
+    private void deleteShard(String key) throws NeruneruneException {
+        try {
+            Files.deleteIfExists(getShardFile(key).toPath());
+        } catch (IOException e) {
+            throw new NeruneruneException("An error occurred while deleting shard " + key + ": " + e.getMessage());
+        }
+        loadedShards.remove(key);
+        writtenChecksums.remove(key);
+    }
+
+    /**
+     * Returns the keys of the shard files on disk, in key order.
+     *
+     * @return the shard keys
+     */
+    private Set<String> listShardKeys() {
+        Set<String> keys = new TreeSet<>();
+        String[] names = directory.list();
+        if (names == null) {
+            return keys;
+        }
+        for (String name : names) {
+            if (!name.endsWith(SHARD_FILE_SUFFIX)) {
+                continue;
+            }
+            String key = name.substring(0, name.length() - SHARD_FILE_SUFFIX.length());
+            if (key.equals(TODO_SHARD) || parseMonth(key) != null) {
+                keys.add(key);
+            }
+        }
+        return keys;
+    }
+
+    private File getShardFile(String key) {
+        return new File(directory, key + SHARD_FILE_SUFFIX);
+    }
+
+    private static YearMonth parseMonth(String key) {
+        try {
+            return YearMonth.parse(key);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private static long checksum(byte[] bytes) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+        return crc.getValue();
+    }
+}
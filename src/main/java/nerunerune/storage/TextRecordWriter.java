@@ -0,0 +1,179 @@
+package nerunerune.storage;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+import nerunerune.task.Task;
+
+/**
+ * Writes tasks as text storage records to a channel, one line per task, optionally checksummed.
+ * <p>
+ * Each task appends its fields to a reused {@link StringBuilder}, which is encoded into a reused
+ * byte buffer and copied into a fixed-size output buffer that is drained to the channel whenever it fills.
+ * Writing a task therefore allocates no per-task strings or arrays, and a file of any size is written
+ * without its contents ever being held in memory as a whole.
+ * <p>
+ * Text is encoded with the platform charset, the same as {@link java.io.FileWriter}, and characters
+ * it cannot represent are replaced the same way as by {@link String#getBytes(Charset)}.
+ */
+public class TextRecordWriter implements Flushable {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final int INITIAL_RECORD_CAPACITY = 256;
+
+    private final WritableByteChannel channel;
+    private final boolean isChecksummed;
+    private final ByteBuffer out;
+    private final StringBuilder record;
+    private final CharsetEncoder encoder;
+    private final byte[] lineSeparator;
+    private final CRC32C crc;
+    private char[] recordChars;
+    private CharBuffer recordCharBuffer;
+    private ByteBuffer recordBytes;
+
+    /**
+     * Constructs a TextRecordWriter that writes to the given channel.
+     *
+     * @param channel       the channel to write to; it is not closed by this writer
+     * @param isChecksummed true to prefix every record with its checksum, as in salvage and lazy mode
+     */
+    public TextRecordWriter(WritableByteChannel channel, boolean isChecksummed) {
+        this.channel = channel;
+        this.isChecksummed = isChecksummed;
+        this.out = ByteBuffer.allocate(OUTPUT_BUFFER_SIZE);
+        this.record = new StringBuilder(INITIAL_RECORD_CAPACITY);
+        Charset charset = Charset.defaultCharset();
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.lineSeparator = System.lineSeparator().getBytes(charset);
+        this.crc = new CRC32C();
+        this.recordChars = new char[INITIAL_RECORD_CAPACITY];
+        this.recordCharBuffer = CharBuffer.wrap(recordChars);
+        this.recordBytes = ByteBuffer.allocate(INITIAL_RECORD_CAPACITY * 2);
+    }
+
+    /**
+     * Writes a task as one record.
+     *
+     * @param task the task to write
+     * @throws IOException if writing to the channel fails
+     */
+    public void write(Task task) throws IOException {
+        record.setLength(0);
+        task.appendStorageString(record);
+        encodeRecord();
+        writeRecord(recordBytes.array(), 0, recordBytes.position());
+    }
+
+    /**
+     * Writes the header line that stores the next task ID, see {@link TaskIds}.
+     * The header has no checksum, as a damaged one is simply ignored on load.
+     *
+     * @param nextId the next task ID
+     * @throws IOException if writing to the channel fails
+     */
+    public void writeNextIdHeader(long nextId) throws IOException {
+        byte[] header = (TaskIds.NEXT_ID_HEADER + nextId).getBytes(StandardCharsets.US_ASCII);
+        put(header, 0, header.length);
+        put(lineSeparator, 0, lineSeparator.length);
+    }
+
+    /**
+     * Writes a record that is already encoded, such as one kept as-is by a {@link LazyTaskList}.
+     *
+     * @param encodedRecord the encoded record, without a checksum prefix or line separator
+     * @throws IOException if writing to the channel fails
+     */
+    public void writeEncoded(byte[] encodedRecord) throws IOException {
+        writeRecord(encodedRecord, 0, encodedRecord.length);
+    }
+
+    /**
+     * Encodes the record builder into the record byte buffer, growing the buffers as needed.
+     */
+    private void encodeRecord() {
+        int length = record.length();
+        if (length > recordChars.length) {
+            recordChars = new char[Math.max(length, recordChars.length * 2)];
+            recordCharBuffer = CharBuffer.wrap(recordChars);
+        }
+        record.getChars(0, length, recordChars, 0);
+
+        while (true) {
+            recordCharBuffer.clear().limit(length);
+            recordBytes.clear();
+            encoder.reset();
+            CoderResult result = encoder.encode(recordCharBuffer, recordBytes, true);
+            if (!result.isOverflow()) {
+                result = encoder.flush(recordBytes);
+            }
+            if (!result.isOverflow()) {
+                return;
+            }
+            recordBytes = ByteBuffer.allocate(recordBytes.capacity() * 2);
+        }
+    }
+
+    /**
+     * Writes an encoded record with its checksum prefix, if any, and a line separator.
+     *
+     * @param bytes  the buffer holding the encoded record
+     * @param offset the index of the first byte of the record
+     * @param length the length of the record in bytes
+     * @throws IOException if writing to the channel fails
+     */
+    private void writeRecord(byte[] bytes, int offset, int length) throws IOException {
+        if (isChecksummed) {
+            ensureRemaining(RecordChecksums.PREFIX_LENGTH);
+            RecordChecksums.putPrefix(out, bytes, offset, length, crc);
+        }
+        put(bytes, offset, length);
+        put(lineSeparator, 0, lineSeparator.length);
+    }
+
+    private void put(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!out.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(length, out.remaining());
+            out.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+
+    private void ensureRemaining(int length) throws IOException {
+        if (out.remaining() < length) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Writes any buffered records to the channel.
+     *
+     * @throws IOException if writing to the channel fails
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+}
@@ -0,0 +1,219 @@
+package nerunerune.storage;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+import nerunerune.task.Task;
+
+/**
+ * A task list that removes and inserts tasks in the middle without shifting every later task.
+ * <p>
+ * Tasks are kept in blocks of equal capacity, each a circular buffer, and every block but the last is full.
+ * A task is found by its position in constant time, from its block and its offset in that block. Removing a task
+ * shifts only the rest of its own block, and then moves one task from the front of each later block to the back
+ * of the block before it, which the circular buffers do in constant time. With blocks of about the square root
+ * of the list size, removing a task therefore takes time proportional to that square root rather than to the
+ * size of the list. Blocks double in capacity whenever the list outgrows them, so appending takes amortized
+ * constant time.
+ * <p>
+ * Like {@link java.util.ArrayList}, this list is not thread-safe.
+ */
+public class TieredTaskList extends AbstractList<Task> implements RandomAccess {
+    private static final int INITIAL_BLOCK_SHIFT = 4;
+
+    private int blockShift;
+    private int blockMask;
+    private Task[][] blocks;
+    private int[] heads;
+    private int size;
+
+    /**
+     * Constructs an empty TieredTaskList.
+     */
+    public TieredTaskList() {
+        reset(INITIAL_BLOCK_SHIFT);
+    }
+
+    private void reset(int shift) {
+        blockShift = shift;
+        blockMask = (1 << shift) - 1;
+        blocks = new Task[1 << shift][];
+        heads = new int[1 << shift];
+        size = 0;
+    }
+
+    @Override
+    public Task get(int index) {
+        Objects.checkIndex(index, size);
+        int block = index >> blockShift;
+        return blocks[block][(heads[block] + index) & blockMask];
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        Objects.checkIndex(index, size);
+        int block = index >> blockShift;
+        int slot = (heads[block] + index) & blockMask;
+        Task previous = blocks[block][slot];
+        blocks[block][slot] = Objects.requireNonNull(task);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        Objects.checkIndex(index, size + 1);
+        Objects.requireNonNull(task);
+        if (size == blocks.length << blockShift) {
+            growBlocks();
+        }
+        int lastBlock = size >> blockShift;
+        if (blocks[lastBlock] == null) {
+            blocks[lastBlock] = new Task[blockMask + 1];
+            heads[lastBlock] = 0;
+        }
+
+        // make room in the block of the index by moving the last task of each block before it to the next one
+        int block = index >> blockShift;
+        for (int i = lastBlock; i > block; i--) {
+            pushFront(i, popBack(i - 1, blockMask + 1));
+        }
+        int count = block < lastBlock ? blockMask : size - (block << blockShift);
+        insertAt(block, index & blockMask, count, task);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public Task remove(int index) {
+        Objects.checkIndex(index, size);
+        int lastBlock = (size - 1) >> blockShift;
+        int block = index >> blockShift;
+        int count = block < lastBlock ? blockMask + 1 : size - (block << blockShift);
+        Task removed = removeAt(block, index & blockMask, count);
+
+        // close the gap by moving the first task of each later block to the back of the block before it
+        for (int i = block + 1; i <= lastBlock; i++) {
+            pushBack(i - 1, blockMask, popFront(i));
+        }
+        size--;
+        if ((size & blockMask) == 0) {
+            blocks[lastBlock] = null; // the last block is empty now
+        }
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Removes every task matching the filter in a single pass.
+     *
+     * @param filter the condition the removed tasks satisfy
+     * @return true if any task was removed
+     */
+    @Override
+    public boolean removeIf(Predicate<? super Task> filter) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            Task task = get(i);
+            if (!filter.test(task)) {
+                if (kept != i) {
+                    set(kept, task);
+                }
+                kept++;
+            }
+        }
+        if (kept == size) {
+            return false;
+        }
+        truncate(kept);
+        return true;
+    }
+
+    private void truncate(int newSize) {
+        for (int i = newSize; i < size; i++) {
+            int block = i >> blockShift;
+            blocks[block][(heads[block] + i) & blockMask] = null;
+        }
+        int blockCount = (newSize + blockMask) >> blockShift;
+        Arrays.fill(blocks, blockCount, blocks.length, null);
+        size = newSize;
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        reset(INITIAL_BLOCK_SHIFT);
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copies the tasks into blocks of twice the capacity, and twice as many of them.
+     */
+    private void growBlocks() {
+        Task[][] oldBlocks = blocks;
+        int[] oldHeads = heads;
+        int oldMask = blockMask;
+        int oldShift = blockShift;
+        int oldSize = size;
+        reset(blockShift + 1);
+        for (int i = 0; i < oldSize; i++) {
+            int oldBlock = i >> oldShift;
+            int block = i >> blockShift;
+            if (blocks[block] == null) {
+                blocks[block] = new Task[blockMask + 1];
+            }
+            blocks[block][i & blockMask] = oldBlocks[oldBlock][(oldHeads[oldBlock] + i) & oldMask];
+        }
+        size = oldSize;
+    }
+
+    private void insertAt(int block, int offset, int count, Task task) {
+        Task[] tasks = blocks[block];
+        int head = heads[block];
+        for (int i = count; i > offset; i--) {
+            tasks[(head + i) & blockMask] = tasks[(head + i - 1) & blockMask];
+        }
+        tasks[(head + offset) & blockMask] = task;
+    }
+
+    private Task removeAt(int block, int offset, int count) {
+        Task[] tasks = blocks[block];
+        int head = heads[block];
+        Task removed = tasks[(head + offset) & blockMask];
+        for (int i = offset; i < count - 1; i++) {
+            tasks[(head + i) & blockMask] = tasks[(head + i + 1) & blockMask];
+        }
+        tasks[(head + count - 1) & blockMask] = null;
+        return removed;
+    }
+
+    private void pushFront(int block, Task task) {
+        heads[block] = (heads[block] - 1) & blockMask;
+        blocks[block][heads[block]] = task;
+    }
+
+    private Task popBack(int block, int count) {
+        int slot = (heads[block] + count - 1) & blockMask;
+        Task task = blocks[block][slot];
+        blocks[block][slot] = null;
+        return task;
+    }
+
+    private void pushBack(int block, int count, Task task) {
+        blocks[block][(heads[block] + count) & blockMask] = task;
+    }
+
+    private Task popFront(int block) {
+        Task task = blocks[block][heads[block]];
+        blocks[block][heads[block]] = null;
+        heads[block] = (heads[block] + 1) & blockMask;
+        return task;
+    }
+}
@@ -68,17 +68,16 @@ public class Deadline extends Task {
     }
 
     /**
-     * Returns a string representation of the deadline task for storage,
-     * including type, done status, description, and formatted timing.
+     * Appends a string representation of the deadline task for storage,
+     * including type, done status, description, formatted timing, and ID.
      *
-     * @return string for storage representation
+     * @param sb the builder to append the storage representation to
      */
     @Override
-    public String toStorageString() {
-        return String.format("D | %d | %s | %s",
-                getIsDone() ? 1 : 0,
-                getDescription(),
-                DateTimeParser.formatForStorage(byTiming));
+    public void appendStorageString(StringBuilder sb) {
+        sb.append("D | ").append(getIsDone() ? 1 : 0).append(" | ").append(getDescription()).append(" | ");
+        DateTimeParser.appendForStorage(sb, byTiming);
+        appendIdField(sb);
     }
 
     /**
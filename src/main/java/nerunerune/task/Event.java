@@ -74,18 +74,18 @@ public class Event extends Task {
     }
 
     /**
-     * Returns a string suitable for storage, including task type, status, description,
-     * and formatted from/to timings.
+     * Appends a string suitable for storage, including task type, status, description,
+     * formatted from/to timings, and ID.
      *
-     * @return storage string of the event
+     * @param sb the builder to append the storage string of the event to
      */
     @Override
-    public String toStorageString() {
-        return String.format("E | %d | %s | %s | %s",
-                getIsDone() ? 1 : 0,
-                getDescription(),
-                DateTimeParser.formatForStorage(fromTiming),
-                DateTimeParser.formatForStorage(toTiming));
+    public void appendStorageString(StringBuilder sb) {
+        sb.append("E | ").append(getIsDone() ? 1 : 0).append(" | ").append(getDescription()).append(" | ");
+        DateTimeParser.appendForStorage(sb, fromTiming);
+        sb.append(" | ");
+        DateTimeParser.appendForStorage(sb, toTiming);
+        appendIdField(sb);
     }
 
     /**
@@ -10,6 +10,7 @@ import java.time.LocalDate;
 public abstract class Task {
     protected String description;
     protected boolean isDone;
+    protected long id;
 
     /**
      * Constructs a Task with the given description.
@@ -58,6 +59,34 @@ public abstract class Task {
         return isDone;
     }
 
+    /**
+     * Returns the ID of the task, which stays the same as other tasks are added and removed.
+     *
+     * @return the task ID, or 0 if the task has not been given one yet
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns whether the task has been given an ID.
+     *
+     * @return true if the task has an ID
+     */
+    public boolean hasId() {
+        return id > 0;
+    }
+
+    /**
+     * Gives the task an ID. IDs start from 1 and are never reused within a task list.
+     *
+     * @param id the task ID
+     */
+    public void setId(long id) {
+        assert id > 0 : "task IDs should be positive";
+        this.id = id;
+    }
+
     /**
      * Abstract method to identify the type of schedule item.
      *
@@ -92,7 +121,31 @@ public abstract class Task {
      *
      * @return string for storage
      */
-    public abstract String toStorageString();
+    public String toStorageString() {
+        StringBuilder sb = new StringBuilder();
+        appendStorageString(sb);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the storage representation of the task to the given builder,
+     * so that tasks can be written one after another through a single reused buffer.
+     *
+     * @param sb the builder to append to
+     */
+    public abstract void appendStorageString(StringBuilder sb);
+
+    /**
+     * Appends the ID of the task as the last field of its storage representation.
+     * Appends nothing if the task has no ID yet, as tasks were stored before they had IDs.
+     *
+     * @param sb the builder to append to
+     */
+    protected void appendIdField(StringBuilder sb) {
+        if (hasId()) {
+            sb.append(" | ").append(id);
+        }
+    }
 
     /**
      * Checks if this task is backdated (date/time has passed).
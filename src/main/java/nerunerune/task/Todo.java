@@ -49,14 +49,15 @@ public class Todo extends Task {
     }
 
     /**
-     * Returns a string suitable for storage, including task type,
-     * done status, and description.
+     * Appends a string suitable for storage, including task type,
+     * done status, description, and ID.
      *
-     * @return storage string of the todo
+     * @param sb the builder to append the storage string of the todo to
      */
     @Override
-    public String toStorageString() {
-        return String.format("T | %d | %s", getIsDone() ? 1 : 0, getDescription());
+    public void appendStorageString(StringBuilder sb) {
+        sb.append("T | ").append(getIsDone() ? 1 : 0).append(" | ").append(getDescription());
+        appendIdField(sb);
     }
 
     /**
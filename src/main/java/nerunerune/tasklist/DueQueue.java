@@ -0,0 +1,149 @@
+package nerunerune.tasklist;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import nerunerune.task.Deadline;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+
+/**
+ * The deadlines and events that are not done, ordered by when they fall due: the due time
+ * of a deadline and the end time of an event, the times {@link Task#isBackdated()} compares
+ * with the current time.
+ * <p>
+ * The tasks that are backdated at a given time are then a prefix of the queue, so they are found,
+ * counted or taken off the queue without visiting the tasks that are not, in O(k log n) time for k
+ * backdated tasks. Tasks due at the same time are ordered by their sequence number, and so in list order.
+ */
+class DueQueue {
+    private final TreeSet<Entry> entries;
+
+    /**
+     * A task in the queue, with the time it falls due.
+     */
+    static class Entry {
+        private final LocalDateTime due;
+        private final long sequence;
+        private final Task task;
+
+        private Entry(LocalDateTime due, long sequence, Task task) {
+            this.due = due;
+            this.sequence = sequence;
+            this.task = task;
+        }
+
+        /**
+         * Returns the sequence number the task was added with.
+         *
+         * @return the sequence number of the task
+         */
+        long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Returns the task.
+         *
+         * @return the task that falls due
+         */
+        Task getTask() {
+            return task;
+        }
+    }
+
+    private static final Comparator<Entry> DUE_ORDER =
+            Comparator.<Entry, LocalDateTime>comparing(entry -> entry.due).thenComparingLong(entry -> entry.sequence);
+
+    /**
+     * Constructs an empty DueQueue.
+     */
+    DueQueue() {
+        this.entries = new TreeSet<>(DUE_ORDER);
+    }
+
+    /**
+     * Returns the time a task falls due, after which it is backdated.
+     *
+     * @return the due time, or null if the task has none
+     */
+    private static LocalDateTime getDue(Task task) {
+        if (task instanceof Deadline deadline) {
+            return deadline.getDeadlineByDateTime();
+        }
+        if (task instanceof Event event) {
+            return event.getEventToDateTime();
+        }
+        return null;
+    }
+
+    /**
+     * Adds a task if it is not done and falls due at some time; any other task is ignored.
+     *
+     * @param sequence the sequence number of the task, which orders it within the task list
+     * @param task     the task to add
+     */
+    void add(long sequence, Task task) {
+        LocalDateTime due = getDue(task);
+        if (due != null && !task.getIsDone()) {
+            entries.add(new Entry(due, sequence, task));
+        }
+    }
+
+    /**
+     * Removes a task that was added with the given sequence number, if it is still in the queue.
+     *
+     * @param sequence the sequence number the task was added with
+     * @param task     the task to remove
+     */
+    void remove(long sequence, Task task) {
+        LocalDateTime due = getDue(task);
+        if (due != null) {
+            entries.remove(new Entry(due, sequence, task));
+        }
+    }
+
+    /**
+     * Removes every task matching the filter.
+     *
+     * @param filter the condition the removed tasks satisfy
+     */
+    void removeIf(Predicate<Task> filter) {
+        entries.removeIf(entry -> filter.test(entry.task));
+    }
+
+    /**
+     * Removes every task.
+     */
+    void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Takes the tasks that fall due before the given time off the queue.
+     *
+     * @param now the current time
+     * @return the backdated tasks, earliest due first
+     */
+    List<Entry> pollDueBefore(LocalDateTime now) {
+        List<Entry> dueEntries = new ArrayList<>();
+        while (!entries.isEmpty() && entries.first().due.isBefore(now)) {
+            dueEntries.add(entries.pollFirst());
+        }
+        return dueEntries;
+    }
+
+    /**
+     * Returns the number of tasks that fall due before the given time.
+     *
+     * @param now the current time
+     * @return the number of backdated tasks
+     */
+    int countDueBefore(LocalDateTime now) {
+        return entries.headSet(new Entry(now, Long.MIN_VALUE, null)).size();
+    }
+}
@@ -0,0 +1,353 @@
+package nerunerune.tasklist;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+
+/**
+ * An interval tree over the time ranges of events, for finding the events that clash with a new one.
+ * <p>
+ * Two events clash when each starts before the other ends, so events that only touch do not clash.
+ * Events are kept in a treap ordered by start time, and then by a sequence number that follows their
+ * order in the task list, and every node also holds the latest end time in its subtree. A lookup skips
+ * every subtree that ends too early to overlap, and every start time that is too late, so finding the
+ * k events that overlap a range takes O(log n + k) expected time.
+ */
+class EventIntervalTree {
+    private Node root;
+
+    /**
+     * A node of the treap, holding one event.
+     */
+    private static class Node {
+        private final long from;
+        private final long to;
+        private final long sequence;
+        private final int priority;
+        private final Event event;
+        private long maxTo;
+        private Node left;
+        private Node right;
+
+        Node(long sequence, Event event) {
+            this.from = toKey(event.getEventFromDateTime());
+            this.to = toKey(event.getEventToDateTime());
+            this.sequence = sequence;
+            this.priority = Long.hashCode(sequence * 0x9E3779B97F4A7C15L); // spreads consecutive sequences
+            this.event = event;
+            this.maxTo = to;
+        }
+
+        int compareTo(long otherFrom, long otherSequence) {
+            int result = Long.compare(from, otherFrom);
+            return result != 0 ? result : Long.compare(sequence, otherSequence);
+        }
+
+        void update() {
+            maxTo = to;
+            if (left != null && left.maxTo > maxTo) {
+                maxTo = left.maxTo;
+            }
+            if (right != null && right.maxTo > maxTo) {
+                maxTo = right.maxTo;
+            }
+        }
+    }
+
+    /**
+     * A pair of events that clash, the one that starts first (or comes first in the list) being first.
+     */
+    static class Clash {
+        private final Event first;
+        private final Event second;
+
+        private Clash(Event first, Event second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        /**
+         * Returns the event of the pair that starts first.
+         *
+         * @return the earlier event
+         */
+        public Event getFirst() {
+            return first;
+        }
+
+        /**
+         * Returns the event of the pair that starts last.
+         *
+         * @return the later event
+         */
+        public Event getSecond() {
+            return second;
+        }
+    }
+
+    /**
+     * Builds a tree over the events in a task list, using their positions as sequence numbers.
+     *
+     * @param taskList the task list to take the events from
+     * @return the tree of the events in the list
+     */
+    static EventIntervalTree of(List<Task> taskList) {
+        EventIntervalTree tree = new EventIntervalTree();
+        for (int i = 0; i < taskList.size(); i++) {
+            if (taskList.get(i) instanceof Event event) {
+                tree.insert(i, event);
+            }
+        }
+        return tree;
+    }
+
+    private static long toKey(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Adds an event. Events without both times are ignored, as they cannot clash.
+     *
+     * @param sequence the sequence number of the event, which orders it within the task list
+     * @param event    the event to add
+     */
+    void insert(long sequence, Event event) {
+        if (hasTimes(event)) {
+            root = insert(root, new Node(sequence, event));
+        }
+    }
+
+    private static boolean hasTimes(Event event) {
+        return event.getEventFromDateTime() != null && event.getEventToDateTime() != null;
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.priority > node.priority) {
+            Node[] parts = split(node, added.from, added.sequence);
+            added.left = parts[0];
+            added.right = parts[1];
+            added.update();
+            return added;
+        }
+        if (node.compareTo(added.from, added.sequence) > 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        node.update();
+        return node;
+    }
+
+    /**
+     * Splits a subtree into the nodes ordered before the given key and the nodes ordered after it.
+     */
+    private static Node[] split(Node node, long from, long sequence) {
+        if (node == null) {
+            return new Node[2];
+        }
+        Node[] parts;
+        if (node.compareTo(from, sequence) < 0) {
+            parts = split(node.right, from, sequence);
+            node.right = parts[0];
+            parts[0] = node;
+        } else {
+            parts = split(node.left, from, sequence);
+            node.left = parts[1];
+            parts[1] = node;
+        }
+        node.update();
+        return parts;
+    }
+
+    /**
+     * Joins two subtrees, every node of the first being ordered before every node of the second.
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null || second == null) {
+            return first != null ? first : second;
+        }
+        if (first.priority > second.priority) {
+            first.right = merge(first.right, second);
+            first.update();
+            return first;
+        }
+        second.left = merge(first, second.left);
+        second.update();
+        return second;
+    }
+
+    /**
+     * Removes an event that was added with the given sequence number.
+     *
+     * @param sequence the sequence number the event was added with
+     * @param event    the event to remove
+     */
+    void remove(long sequence, Event event) {
+        if (hasTimes(event)) {
+            root = remove(root, toKey(event.getEventFromDateTime()), sequence);
+        }
+    }
+
+    private static Node remove(Node node, long from, long sequence) {
+        if (node == null) {
+            return null;
+        }
+        int result = node.compareTo(from, sequence);
+        if (result == 0) {
+            return merge(node.left, node.right);
+        }
+        if (result > 0) {
+            node.left = remove(node.left, from, sequence);
+        } else {
+            node.right = remove(node.right, from, sequence);
+        }
+        node.update();
+        return node;
+    }
+
+    /**
+     * Removes every event matching the filter, rebuilding the tree from the events that remain.
+     *
+     * @param filter the condition the removed tasks satisfy
+     */
+    void removeIf(Predicate<Task> filter) {
+        List<Node> nodes = new ArrayList<>();
+        collectInOrder(root, nodes);
+        root = null;
+        for (Node node : nodes) {
+            if (!filter.test(node.event)) {
+                node.left = null;
+                node.right = null;
+                node.maxTo = node.to;
+                root = insert(root, node);
+            }
+        }
+    }
+
+    /**
+     * Removes every event.
+     */
+    void clear() {
+        root = null;
+    }
+
+    /**
+     * Returns the event that clashes with the given time range and comes first in the task list.
+     *
+     * @param from the start of the range
+     * @param to   the end of the range
+     * @return the first clashing event, or null if there is none
+     */
+    Event findFirstOverlap(LocalDateTime from, LocalDateTime to) {
+        Node[] first = new Node[1];
+        findOverlaps(root, toKey(from), toKey(to), first);
+        return first[0] == null ? null : first[0].event;
+    }
+
+    /**
+     * Returns the events that take place on the given date, that is, those starting on or before it
+     * and ending on or after it, the same as {@link Event#occursOn(LocalDate)}.
+     *
+     * @param date the date to look up
+     * @return the events on the date, in list order
+     */
+    List<Event> findOccurringOn(LocalDate date) {
+        List<Node> nodes = new ArrayList<>();
+        // keys are whole seconds, so ending after the second before midnight is ending at or after midnight
+        collectOverlaps(root, toKey(date.atStartOfDay()) - 1, toKey(date.plusDays(1).atStartOfDay()), nodes);
+        nodes.sort(Comparator.comparingLong(node -> node.sequence));
+        List<Event> events = new ArrayList<>(nodes.size());
+        for (Node node : nodes) {
+            events.add(node.event);
+        }
+        return events;
+    }
+
+    private static void collectOverlaps(Node node, long from, long to, List<Node> nodes) {
+        if (node == null || node.maxTo <= from) {
+            return;
+        }
+        collectOverlaps(node.left, from, to, nodes);
+        if (node.from >= to) {
+            return;
+        }
+        if (node.to > from) {
+            nodes.add(node);
+        }
+        collectOverlaps(node.right, from, to, nodes);
+    }
+
+    /**
+     * Visits the nodes overlapping the range, keeping the one with the smallest sequence number.
+     */
+    private static void findOverlaps(Node node, long from, long to, Node[] first) {
+        if (node == null || node.maxTo <= from) {
+            return; // nothing in this subtree ends after the range starts
+        }
+        findOverlaps(node.left, from, to, first);
+        if (node.from >= to) {
+            return; // this node and those after it start after the range ends
+        }
+        if (node.to > from && (first[0] == null || node.sequence < first[0].sequence)) {
+            first[0] = node;
+        }
+        findOverlaps(node.right, from, to, first);
+    }
+
+    /**
+     * Returns every pair of clashing events, in the order in which the events start.
+     * The events are swept in start order while the ones still going on are kept in a heap
+     * ordered by end time, so this takes O(n log n + k) time for k clashes.
+     *
+     * @return the clashing pairs
+     */
+    List<Clash> findClashes() {
+        List<Node> nodes = new ArrayList<>();
+        collectInOrder(root, nodes);
+
+        List<Node[]> pairs = new ArrayList<>();
+        PriorityQueue<Node> ongoing = new PriorityQueue<>(Comparator.comparingLong((Node node) -> node.to));
+        for (Node node : nodes) {
+            while (!ongoing.isEmpty() && ongoing.peek().to <= node.from) {
+                ongoing.poll(); // ended before this and every later event starts
+            }
+            for (Node earlier : ongoing) {
+                if (node.to > earlier.from) {
+                    pairs.add(new Node[] {earlier, node});
+                }
+            }
+            ongoing.add(node);
+        }
+
+        pairs.sort(Comparator.<Node[], Node>comparing(pair -> pair[0], EventIntervalTree::compareNodes)
+                .thenComparing(pair -> pair[1], EventIntervalTree::compareNodes));
+        List<Clash> clashes = new ArrayList<>(pairs.size());
+        for (Node[] pair : pairs) {
+            clashes.add(new Clash(pair[0].event, pair[1].event));
+        }
+        return clashes;
+    }
+
+    private static int compareNodes(Node first, Node second) {
+        return first.compareTo(second.from, second.sequence);
+    }
+
+    private static void collectInOrder(Node node, List<Node> nodes) {
+        while (node != null) {
+            collectInOrder(node.left, nodes);
+            nodes.add(node);
+            node = node.right;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package nerunerune.tasklist;
+
+import java.util.BitSet;
+
+/**
+ * Converts the sequence numbers of the tasks in a task list into their positions in it.
+ * <p>
+ * Sequence numbers follow list order but keep gaps where tasks were removed, so the position
+ * of a task is the number of tasks still in the list with a smaller sequence number. A Fenwick
+ * (binary indexed) tree over the sequence numbers keeps that count, so a task is added, removed
+ * or located in O(log n) time instead of by searching the list.
+ */
+class SequencePositions {
+    private final BitSet sequences;
+    private int[] tree; // tree[i] counts the sequences in (i - lowbit(i), i], shifted by one
+
+    /**
+     * Constructs an empty SequencePositions.
+     */
+    SequencePositions() {
+        this.sequences = new BitSet();
+        this.tree = new int[17];
+    }
+
+    /**
+     * Adds the sequence number of a task added to the list.
+     *
+     * @param sequence the sequence number of the task
+     */
+    void add(long sequence) {
+        assert sequence < Integer.MAX_VALUE - 1 : "sequence numbers should fit the tree";
+
+        int slot = (int) sequence;
+        if (sequences.get(slot)) {
+            return;
+        }
+        sequences.set(slot);
+        if (slot + 1 >= tree.length) {
+            rebuild(Math.max(slot + 2, tree.length * 2));
+            return;
+        }
+        update(slot, 1);
+    }
+
+    /**
+     * Removes the sequence number of a task removed from the list.
+     *
+     * @param sequence the sequence number of the task
+     */
+    void remove(long sequence) {
+        int slot = (int) sequence;
+        if (sequence < 0 || !sequences.get(slot)) {
+            return;
+        }
+        sequences.clear(slot);
+        update(slot, -1);
+    }
+
+    /**
+     * Removes every sequence number.
+     */
+    void clear() {
+        sequences.clear();
+        tree = new int[17];
+    }
+
+    /**
+     * Returns the position in the list of the task with the given sequence number.
+     *
+     * @param sequence the sequence number of a task in the list
+     * @return the 0-based position of the task
+     */
+    int positionOf(long sequence) {
+        int count = 0;
+        for (int i = (int) sequence; i > 0; i -= i & -i) {
+            count += tree[i];
+        }
+        return count;
+    }
+
+    private void update(int slot, int delta) {
+        for (int i = slot + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Builds the tree again from the sequence numbers, in linear time.
+     */
+    private void rebuild(int length) {
+        tree = new int[length];
+        for (int slot = sequences.nextSetBit(0); slot >= 0; slot = sequences.nextSetBit(slot + 1)) {
+            tree[slot + 1]++;
+        }
+        for (int i = 1; i < length; i++) {
+            int parent = i + (i & -i);
+            if (parent < length) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package nerunerune.tasklist;
+
+import java.util.Arrays;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+
+import nerunerune.task.Task;
+
+/**
+ * Tasks ordered by the sequence numbers {@link TaskIndex} gives them, and so in list order,
+ * such as the tasks sharing one description and done status. Most descriptions are unique,
+ * so entries start out holding a single task.
+ */
+class SequencedTasks {
+    private long[] sequences = new long[1];
+    private Task[] tasks = new Task[1];
+    private int size;
+
+    /**
+     * Inserts a task at the place of its sequence number, which is usually at the end.
+     */
+    void insert(long sequence, Task task) {
+        if (size == tasks.length) {
+            sequences = Arrays.copyOf(sequences, size * 2);
+            tasks = Arrays.copyOf(tasks, size * 2);
+        }
+        int i = size;
+        if (size > 0 && sequences[size - 1] > sequence) {
+            i = -Arrays.binarySearch(sequences, 0, size, sequence) - 1;
+            System.arraycopy(sequences, i, sequences, i + 1, size - i);
+            System.arraycopy(tasks, i, tasks, i + 1, size - i);
+        }
+        sequences[i] = sequence;
+        tasks[i] = task;
+        size++;
+    }
+
+    /**
+     * Removes a task, searching inwards from both ends, as the task looked up last
+     * is usually the first or last one.
+     *
+     * @return the sequence number of the removed task, or -1 if it is not held here
+     */
+    long remove(Task task) {
+        for (int front = 0, back = size - 1; front <= back; front++, back--) {
+            if (tasks[front] == task) {
+                return removeAt(front);
+            }
+            if (tasks[back] == task) {
+                return removeAt(back);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes a task by its sequence number, found by binary search rather than by searching the tasks.
+     *
+     * @return true if the task was held here under that sequence number
+     */
+    boolean remove(long sequence, Task task) {
+        int i = Arrays.binarySearch(sequences, 0, size, sequence);
+        if (i < 0 || tasks[i] != task) {
+            return false;
+        }
+        removeAt(i);
+        return true;
+    }
+
+    private long removeAt(int i) {
+        long sequence = sequences[i];
+        System.arraycopy(sequences, i + 1, sequences, i, size - i - 1);
+        System.arraycopy(tasks, i + 1, tasks, i, size - i - 1);
+        tasks[--size] = null;
+        return sequence;
+    }
+
+    /**
+     * Removes every task matching the filter.
+     *
+     * @return true if any task was removed
+     */
+    boolean removeIf(Predicate<Task> filter) {
+        return removeIf(filter, (task, sequence) -> { });
+    }
+
+    /**
+     * Removes every task matching the filter, passing on each one with its sequence number.
+     *
+     * @param onRemoved called with every removed task and its sequence number
+     * @return true if any task was removed
+     */
+    boolean removeIf(Predicate<Task> filter, ObjLongConsumer<Task> onRemoved) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (!filter.test(tasks[i])) {
+                sequences[kept] = sequences[i];
+                tasks[kept++] = tasks[i];
+            } else {
+                onRemoved.accept(tasks[i], sequences[i]);
+            }
+        }
+        Arrays.fill(tasks, kept, size, null);
+        boolean isChanged = kept != size;
+        size = kept;
+        return isChanged;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Task get(int i) {
+        return tasks[i];
+    }
+
+    long getSequence(int i) {
+        return sequences[i];
+    }
+
+    Task getFirst() {
+        return tasks[0];
+    }
+
+    Task getLast() {
+        return tasks[size - 1];
+    }
+
+    long getFirstSequence() {
+        return sequences[0];
+    }
+
+    long getLastSequence() {
+        return sequences[size - 1];
+    }
+}
@@ -0,0 +1,168 @@
+package nerunerune.tasklist;
+
+import nerunerune.task.Task;
+
+/**
+ * Maps task IDs to the tasks with them and their sequence numbers.
+ * <p>
+ * IDs are kept in an open-addressing hash table of primitive longs probed linearly, so a task is
+ * found by its ID in constant expected time without boxing the ID. A removed entry is left behind
+ * as a tombstone, so that removing a task does not move the entries probed after it; once tombstones
+ * and entries fill too much of the table, it is compacted by rehashing the entries alone.
+ * <p>
+ * IDs are expected to be unique; if a second task has an ID that is already mapped, the first keeps it.
+ */
+class TaskIdMap {
+    private static final long EMPTY = 0; // IDs are positive, so no task has this one
+    private static final long TOMBSTONE = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] keys;
+    private Task[] tasks;
+    private long[] sequences;
+    private int size;
+    private int tombstoneCount;
+
+    /**
+     * Constructs an empty TaskIdMap.
+     */
+    TaskIdMap() {
+        clear();
+    }
+
+    /**
+     * Maps the ID of a task to it, unless the task has no ID or another task already has it.
+     *
+     * @param task     the task to map
+     * @param sequence the sequence number of the task
+     */
+    void put(Task task, long sequence) {
+        long id = task.getId();
+        if (id <= 0) {
+            return;
+        }
+        if ((size + tombstoneCount + 1) * 4L > keys.length * 3L) {
+            rehash(size + 1 > keys.length / 2 ? keys.length * 2 : keys.length);
+        }
+
+        int tombstoneSlot = -1;
+        int slot = slotOf(id);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == id) {
+                return;
+            }
+            if (keys[slot] == TOMBSTONE && tombstoneSlot < 0) {
+                tombstoneSlot = slot;
+            }
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        if (tombstoneSlot >= 0) {
+            slot = tombstoneSlot;
+            tombstoneCount--;
+        }
+        keys[slot] = id;
+        tasks[slot] = task;
+        sequences[slot] = sequence;
+        size++;
+    }
+
+    /**
+     * Returns the task with the given ID.
+     *
+     * @param id the task ID
+     * @return the task, or null if no task has the ID
+     */
+    Task get(long id) {
+        int slot = find(id);
+        return slot >= 0 ? tasks[slot] : null;
+    }
+
+    /**
+     * Returns the sequence number of a task, found by its ID.
+     *
+     * @param task the task
+     * @return the sequence number of the task, or -1 if it is not mapped
+     */
+    long getSequence(Task task) {
+        int slot = find(task.getId());
+        return slot >= 0 && tasks[slot] == task ? sequences[slot] : -1;
+    }
+
+    /**
+     * Unmaps the ID of a task, leaving a tombstone in its place.
+     * Does nothing if the ID is mapped to another task.
+     *
+     * @param task the task to unmap
+     */
+    void remove(Task task) {
+        int slot = find(task.getId());
+        if (slot < 0 || tasks[slot] != task) {
+            return;
+        }
+        keys[slot] = TOMBSTONE;
+        tasks[slot] = null;
+        size--;
+        tombstoneCount++;
+    }
+
+    /**
+     * Returns the number of slots in the hash table, including empty slots and tombstones.
+     *
+     * @return the table capacity
+     */
+    int getCapacity() {
+        return keys.length;
+    }
+
+    /**
+     * Unmaps every ID.
+     */
+    void clear() {
+        keys = new long[INITIAL_CAPACITY];
+        tasks = new Task[INITIAL_CAPACITY];
+        sequences = new long[INITIAL_CAPACITY];
+        size = 0;
+        tombstoneCount = 0;
+    }
+
+    private int find(long id) {
+        if (id <= 0) {
+            return -1;
+        }
+        for (int slot = slotOf(id); keys[slot] != EMPTY; slot = (slot + 1) & (keys.length - 1)) {
+            if (keys[slot] == id) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int slotOf(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L; // spreads consecutive IDs over the table
+        return (int) (hash >>> 32) & (keys.length - 1);
+    }
+
+    /**
+     * Moves the entries into a new table of the given capacity, dropping the tombstones.
+     */
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Task[] oldTasks = tasks;
+        long[] oldSequences = sequences;
+        keys = new long[capacity];
+        tasks = new Task[capacity];
+        sequences = new long[capacity];
+        tombstoneCount = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] > 0) {
+                int slot = slotOf(oldKeys[i]);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                keys[slot] = oldKeys[i];
+                tasks[slot] = oldTasks[i];
+                sequences[slot] = oldSequences[i];
+            }
+        }
+    }
+}
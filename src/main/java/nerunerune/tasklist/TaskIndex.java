@@ -0,0 +1,471 @@
+package nerunerune.tasklist;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+
+import nerunerune.storage.TaskIndexFile;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+
+/**
+ * In-memory lookup indexes over a task list, kept in sync with it on every change.
+ * <p>
+ * Maps each case-folded description, and each task date, to the matching tasks in list order,
+ * so that lookups by description or date do not scan the whole list. The index starts out
+ * not ready; until it is built, callers fall back to scanning the list. Loading the sidecar index file
+ * only installs the description and date maps, which then answer lookups by description or date
+ * while the rest is built in the background.
+ * <p>
+ * Descriptions are indexed separately for tasks that are done and not done, so the first or
+ * last task with a description and done status is found without visiting its duplicates.
+ * Tasks are only ever appended to the list, so each indexed task is given a sequence number
+ * in the order it was appended; sequence numbers keep the list order of the tasks even as
+ * others are removed, and a task moved between done states is put back in that order.
+ * <p>
+ * Events are also kept in an {@link EventIntervalTree}, so the events a new one clashes with are
+ * found without visiting every event, and descriptions in a {@link TrigramIndex} for keyword searches
+ * and a {@link TokenTree} for searches that tolerate typos. The deadlines and events that are not
+ * done are kept in a {@link DueQueue}, so the backdated ones are found without checking every task,
+ * and {@link SequencePositions} turns their sequence numbers back into positions in the list.
+ * Running totals of the tasks are kept in {@link TaskStats}. Tasks are found by their ID through
+ * a {@link TaskIdMap}, which also gives their sequence number and so their position in the list.
+ */
+public class TaskIndex {
+    private final Map<String, SequencedTasks> undoneByDescription;
+    private final Map<String, SequencedTasks> doneByDescription;
+    private final NavigableMap<LocalDate, ArrayList<Task>> tasksByDate;
+    private final EventIntervalTree eventTree;
+    private final TrigramIndex trigramIndex;
+    private final TokenTree tokenTree;
+    private final DueQueue dueQueue;
+    private final SequencePositions positions;
+    private final TaskStats stats;
+    private final TaskIdMap tasksById;
+    private long nextSequence;
+    private volatile boolean isReady;
+    private volatile boolean isDescriptionAndDateReady;
+
+    /**
+     * Constructs an empty TaskIndex that is not ready yet.
+     */
+    public TaskIndex() {
+        this.undoneByDescription = new HashMap<>();
+        this.doneByDescription = new HashMap<>();
+        this.tasksByDate = new TreeMap<>();
+        this.eventTree = new EventIntervalTree();
+        this.trigramIndex = new TrigramIndex();
+        this.tokenTree = new TokenTree();
+        this.dueQueue = new DueQueue();
+        this.positions = new SequencePositions();
+        this.stats = new TaskStats();
+        this.tasksById = new TaskIdMap();
+        this.nextSequence = 0;
+        this.isReady = false;
+        this.isDescriptionAndDateReady = false;
+    }
+
+    /**
+     * Returns whether the index reflects the task list and can answer lookups.
+     *
+     * @return true if the index has been built or loaded
+     */
+    public boolean isReady() {
+        return isReady;
+    }
+
+    /**
+     * Returns whether the index can answer lookups by description and by date, which it can
+     * once it has been built, and also once it has been loaded from the sidecar index file.
+     *
+     * @return true if the index has been built or loaded
+     */
+    public boolean isDescriptionAndDateReady() {
+        return isDescriptionAndDateReady;
+    }
+
+    /**
+     * Builds the index by indexing every task in the list.
+     *
+     * @param taskList the task list to index
+     */
+    public void rebuild(List<Task> taskList) {
+        clear();
+        for (Task task : taskList) {
+            index(task, true);
+        }
+        trigramIndex.buildPostings(); // usually on the background thread, so searches need not build it
+        isReady = true;
+        isDescriptionAndDateReady = true;
+    }
+
+    /**
+     * Installs the description and date maps from positions read from the sidecar index file,
+     * without folding descriptions or extracting dates again. Only lookups by description or date
+     * can be answered until the index is built; changes keep the installed maps up to date meanwhile.
+     *
+     * @param snapshot the positions read from an up-to-date index file
+     * @param taskList the task list the positions refer to
+     */
+    public void load(TaskIndexFile.Snapshot snapshot, List<Task> taskList) {
+        clear();
+        for (Map.Entry<String, int[]> entry : snapshot.getDescriptionPositions().entrySet()) {
+            for (int position : entry.getValue()) {
+                Task task = taskList.get(position);
+                getDescriptionIndex(task.getIsDone()).computeIfAbsent(entry.getKey(),
+                        key -> new SequencedTasks()).insert(position, task);
+            }
+        }
+        for (Map.Entry<LocalDate, int[]> entry : snapshot.getDatePositions().entrySet()) {
+            tasksByDate.put(entry.getKey(), toTasks(entry.getValue(), taskList));
+        }
+        nextSequence = taskList.size(); // positions serve as the sequence numbers of loaded tasks
+        isDescriptionAndDateReady = true;
+    }
+
+    private void clear() {
+        undoneByDescription.clear();
+        doneByDescription.clear();
+        tasksByDate.clear();
+        eventTree.clear();
+        trigramIndex.clear();
+        tokenTree.clear();
+        dueQueue.clear();
+        positions.clear();
+        stats.clear();
+        tasksById.clear();
+        nextSequence = 0;
+        isReady = false;
+        isDescriptionAndDateReady = false;
+    }
+
+    private Map<String, SequencedTasks> getDescriptionIndex(boolean isDone) {
+        return isDone ? doneByDescription : undoneByDescription;
+    }
+
+    private static ArrayList<Task> toTasks(int[] positions, List<Task> taskList) {
+        ArrayList<Task> tasks = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            tasks.add(taskList.get(position));
+        }
+        return tasks;
+    }
+
+    /**
+     * Adds a task that was appended to the end of the task list.
+     * Does nothing until the index is built or loaded.
+     *
+     * @param task the added task
+     */
+    public void add(Task task) {
+        if (isDescriptionAndDateReady) {
+            index(task, isReady);
+        }
+    }
+
+    private void index(Task task, boolean isIndexingAll) {
+        long sequence = nextSequence++;
+        getDescriptionIndex(task.getIsDone()).computeIfAbsent(TaskIndexFile.foldDescription(task.getDescription()),
+                key -> new SequencedTasks()).insert(sequence, task);
+        if (isIndexingAll) {
+            trigramIndex.add(sequence, task);
+            tokenTree.add(sequence, task);
+            dueQueue.add(sequence, task);
+            positions.add(sequence);
+            stats.add(task);
+            tasksById.put(task, sequence);
+            if (task instanceof Event event) {
+                eventTree.insert(sequence, event);
+            }
+        }
+        LocalDate date = TaskIndexFile.getIndexedDate(task);
+        if (date != null) {
+            tasksByDate.computeIfAbsent(date, key -> new ArrayList<>()).add(task);
+        }
+    }
+
+    /**
+     * Removes a task that was removed from the task list.
+     * Does nothing until the index is built or loaded.
+     *
+     * @param task the removed task
+     */
+    public void remove(Task task) {
+        if (!isDescriptionAndDateReady) {
+            return;
+        }
+        long sequence = removeDescription(task, task.getIsDone());
+        if (sequence >= 0 && isReady) {
+            trigramIndex.remove(sequence, task);
+            tokenTree.remove(sequence, task);
+            dueQueue.remove(sequence, task);
+            positions.remove(sequence);
+            stats.remove(task);
+            tasksById.remove(task);
+        }
+        if (task instanceof Event event && sequence >= 0 && isReady) {
+            eventTree.remove(sequence, event);
+        }
+        LocalDate date = TaskIndexFile.getIndexedDate(task);
+        if (date != null) {
+            removeFrom(tasksByDate, date, task);
+        }
+    }
+
+    /**
+     * Removes a task from the description index of the given done status. The task is found among
+     * tasks with the same description by the sequence number its ID maps to, or else by searching them.
+     *
+     * @return the sequence number the task had, or -1 if it was not indexed with that status
+     */
+    private long removeDescription(Task task, boolean isDone) {
+        Map<String, SequencedTasks> descriptionIndex = getDescriptionIndex(isDone);
+        String key = TaskIndexFile.foldDescription(task.getDescription());
+        SequencedTasks entries = descriptionIndex.get(key);
+        if (entries == null) {
+            return -1;
+        }
+        long sequence = tasksById.getSequence(task);
+        if (sequence < 0 || !entries.remove(sequence, task)) {
+            sequence = entries.remove(task);
+        }
+        if (entries.isEmpty()) {
+            descriptionIndex.remove(key);
+        }
+        return sequence;
+    }
+
+    /**
+     * Moves a task whose done status has just changed to the description index of its new status,
+     * keeping its place in list order. Does nothing until the index is built or loaded, or if the task
+     * is already indexed with its current status.
+     *
+     * @param task the task that was marked as done or not done
+     */
+    public void updateDone(Task task) {
+        if (!isDescriptionAndDateReady) {
+            return;
+        }
+        boolean isDone = task.getIsDone();
+        long sequence = removeDescription(task, !isDone);
+        if (sequence < 0) {
+            return;
+        }
+        getDescriptionIndex(isDone).computeIfAbsent(TaskIndexFile.foldDescription(task.getDescription()),
+                key -> new SequencedTasks()).insert(sequence, task);
+        if (!isReady) {
+            return;
+        }
+        stats.updateDone(task);
+        if (isDone) {
+            dueQueue.remove(sequence, task);
+        } else {
+            dueQueue.add(sequence, task);
+        }
+    }
+
+    private static <K> void removeFrom(Map<K, ArrayList<Task>> index, K key, Task task) {
+        ArrayList<Task> tasks = index.get(key);
+        if (tasks == null) {
+            return;
+        }
+        tasks.remove(task);
+        if (tasks.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Removes every task matching the filter, mirroring {@code taskList.removeIf(filter)}.
+     * Does nothing until the index is built or loaded.
+     *
+     * @param filter the condition the removed tasks satisfy
+     */
+    public void removeIf(Predicate<Task> filter) {
+        if (!isDescriptionAndDateReady) {
+            return;
+        }
+        ObjLongConsumer<Task> onRemoved = isReady ? this::forget : (task, sequence) -> { };
+        undoneByDescription.values().removeIf(entries -> entries.removeIf(filter, onRemoved) && entries.isEmpty());
+        doneByDescription.values().removeIf(entries -> entries.removeIf(filter, onRemoved) && entries.isEmpty());
+        tasksByDate.values().removeIf(tasks -> tasks.removeIf(filter) && tasks.isEmpty());
+        if (isReady) {
+            dueQueue.removeIf(filter);
+            eventTree.removeIf(filter);
+            trigramIndex.removeIf(filter);
+            tokenTree.removeIf(filter);
+        }
+    }
+
+    /**
+     * Drops a task removed from the description index from the position and total counts, and the ID map.
+     */
+    private void forget(Task task, long sequence) {
+        positions.remove(sequence);
+        stats.remove(task);
+        tasksById.remove(task);
+    }
+
+    /**
+     * Returns the running totals of the indexed tasks.
+     *
+     * @return the totals, kept up to date as the task list changes
+     */
+    TaskStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the task with the given ID.
+     *
+     * @param id the task ID
+     * @return the task, or null if no indexed task has the ID
+     */
+    public Task findById(long id) {
+        return tasksById.get(id);
+    }
+
+    /**
+     * Returns the position of an indexed task in the task list, found by its ID
+     * rather than by searching the list.
+     *
+     * @param task a task in the task list
+     * @return the 0-based position of the task, or -1 if it is not found by its ID
+     */
+    public int positionOf(Task task) {
+        long sequence = tasksById.getSequence(task);
+        return sequence >= 0 ? positions.positionOf(sequence) : -1;
+    }
+
+    /**
+     * Returns the first task in list order whose description equals the given one, ignoring case.
+     *
+     * @param description the description to look up
+     * @return the first matching task, or null if there is none
+     */
+    public Task findFirst(String description) {
+        String key = TaskIndexFile.foldDescription(description);
+        SequencedTasks undone = undoneByDescription.get(key);
+        SequencedTasks done = doneByDescription.get(key);
+        if (undone == null || done == null) {
+            return undone != null ? undone.getFirst() : done != null ? done.getFirst() : null;
+        }
+        return undone.getFirstSequence() < done.getFirstSequence() ? undone.getFirst() : done.getFirst();
+    }
+
+    /**
+     * Returns the first or last task in list order with the given description, ignoring case, and done status.
+     *
+     * @param description the description to look up
+     * @param isDone      the done status the task must have
+     * @param isFromEnd   true to return the last matching task, false to return the first
+     * @return the matching task, or null if there is none
+     */
+    public Task find(String description, boolean isDone, boolean isFromEnd) {
+        SequencedTasks entries = getDescriptionIndex(isDone).get(TaskIndexFile.foldDescription(description));
+        if (entries == null) {
+            return null;
+        }
+        return isFromEnd ? entries.getLast() : entries.getFirst();
+    }
+
+    /**
+     * Returns the event that clashes with the given time range and comes first in list order.
+     *
+     * @param from the start of the range
+     * @param to   the end of the range
+     * @return the first clashing event, or null if there is none
+     */
+    public Event findOverlappingEvent(LocalDateTime from, LocalDateTime to) {
+        return eventTree.findFirstOverlap(from, to);
+    }
+
+    /**
+     * Returns every pair of events that clash with each other.
+     *
+     * @return the clashing pairs, in the order in which the events start
+     */
+    public List<EventIntervalTree.Clash> findEventClashes() {
+        return eventTree.findClashes();
+    }
+
+    /**
+     * Returns the tasks whose description contains the keyword, case-sensitively.
+     *
+     * @param keyword the keyword to look for
+     * @return the matching tasks in list order
+     */
+    public List<Task> findContaining(String keyword) {
+        return trigramIndex.findContaining(keyword);
+    }
+
+    /**
+     * Takes the deadlines and events that are not done and have fallen due before the given time
+     * off the index of tasks to mark as backdated. The caller must then mark each one as done
+     * and call {@link #updateDone(Task)} for it.
+     *
+     * @param now the current time
+     * @return the positions of the backdated tasks in the task list, in list order
+     */
+    public int[] pollBackdated(LocalDateTime now) {
+        List<DueQueue.Entry> entries = dueQueue.pollDueBefore(now);
+        int[] backdatedPositions = new int[entries.size()];
+        for (int i = 0; i < backdatedPositions.length; i++) {
+            backdatedPositions[i] = positions.positionOf(entries.get(i).getSequence());
+        }
+        Arrays.sort(backdatedPositions);
+        return backdatedPositions;
+    }
+
+    /**
+     * Returns the number of deadlines and events that are not done and have fallen due before the given time.
+     *
+     * @param now the current time
+     * @return the number of backdated tasks
+     */
+    public int countBackdated(LocalDateTime now) {
+        return dueQueue.countDueBefore(now);
+    }
+
+    /**
+     * Returns the tasks with a word in their description closest to the term, allowing for typos.
+     *
+     * @param term  the word to look for, in any case
+     * @param limit the maximum number of tasks to return
+     * @return the closest tasks, closest first and then in list order
+     */
+    public List<Task> findClosest(String term, int limit) {
+        return tokenTree.findClosest(term, limit);
+    }
+
+    /**
+     * Returns the tasks dated within the given range, grouped by date.
+     * The returned map is a view that is only valid until the task list changes.
+     *
+     * @param startDate the first date of the range (inclusive)
+     * @param endDate   the last date of the range (inclusive)
+     * @return the tasks on each date of the range that has any, in list order
+     */
+    public NavigableMap<LocalDate, List<Task>> findByDate(LocalDate startDate, LocalDate endDate) {
+        return Collections.unmodifiableNavigableMap(tasksByDate.subMap(startDate, true, endDate, true));
+    }
+
+    /**
+     * Returns the events that take place on the given date, including events that started on an earlier date.
+     *
+     * @param date the date to look up
+     * @return the events on the date, in list order
+     */
+    public List<Event> findEventsOn(LocalDate date) {
+        return eventTree.findOccurringOn(date);
+    }
+}
@@ -1,12 +1,23 @@
 package nerunerune.tasklist;
 
 import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import nerunerune.exception.NeruneruneException;
 import nerunerune.parser.Parser;
+import nerunerune.storage.FileStorage;
+import nerunerune.storage.LazyTaskList;
 import nerunerune.storage.Storage;
+import nerunerune.storage.TaskIds;
+import nerunerune.storage.TaskIndexFile;
+import nerunerune.storage.TieredTaskList;
 import nerunerune.task.Deadline;
 import nerunerune.task.Event;
 import nerunerune.task.Task;
@@ -16,10 +27,26 @@ import nerunerune.ui.Ui;
 /**
  * Manages a list of tasks and coordinates between UI and storage.
  * Supports loading, saving, adding, deleting, marking, and listing tasks.
+ * <p>
+ * Lazy loading, the journal, the sidecar index, shards and the cold archive are only used
+ * when storage is a {@link FileStorage}; other backends simply load and save the whole list.
+ * <p>
+ * When storage is sharded by month, older months are paged into the list by the lookups that
+ * reach back to them, so the list only holds every task once such a lookup has run.
+ * <p>
+ * Every task is given an ID by storage when it is added, which is never given out again, not even once
+ * the task is deleted, and keeps it as other tasks are added and removed; {@code mark}, {@code unmark}
+ * and {@code delete} take these IDs as task numbers. Once the lookup indexes are ready, a task and its
+ * position are found by its ID without searching the list.
  */
 public class TaskList {
-    private final ArrayList<Task> taskList;
+    private final List<Task> taskList;
+    private TaskIndex index;
+    private List<Consumer<TaskIndex>> pendingIndexChanges; // non-null while indexes are built in the background
+    private boolean isPendingIndexStale;
+    private int structuralChangeCount;
     private final Storage storage;
+    private final FileStorage fileStorage; // null unless storage is kept in files on disk
     private final Ui ui;
 
     /**
@@ -30,18 +57,190 @@ public class TaskList {
      */
     public TaskList(Storage storage, Ui ui) {
         this.storage = storage;
+        this.fileStorage = storage instanceof FileStorage diskStorage ? diskStorage : null;
         this.ui = ui;
-        this.taskList = new ArrayList<>();
+        this.taskList = fileStorage != null ? fileStorage.createTaskList() : new TieredTaskList();
+        this.index = new TaskIndex();
+        this.structuralChangeCount = 0;
     }
 
     /**
-     * Loads tasks from storage into the task list.
+     * Loads tasks from storage into the task list; storage gives an ID to any task stored without one.
+     * Lookup indexes are built in the background. Meanwhile, the description and date maps are loaded
+     * from the sidecar index file when it is up to date, so lookups by description or date need not
+     * scan the list while the rest is built. A {@link LazyTaskList} is only indexed on demand,
+     * see {@link #indexOnDemand()}, as indexing decodes every task.
      *
      * @throws NeruneruneException if storage loading fails
      * @throws IOException         if an IO error occurs during reading
      */
     public void loadTasks() throws NeruneruneException, IOException {
         storage.handleStorage(taskList);
+
+        if (!(taskList instanceof LazyTaskList)) {
+            TaskIndexFile.Snapshot snapshot = fileStorage != null ? fileStorage.loadIndex(taskList.size()) : null;
+            if (snapshot != null) {
+                index.load(snapshot, taskList);
+            }
+            buildIndexInBackground();
+        }
+        if (fileStorage != null) {
+            fileStorage.watchExternalChanges(taskList, this::reindexExternalChanges);
+        }
+    }
+
+    /**
+     * Applies any changes that other processes made to the stored tasks since they were last applied,
+     * when storage is shared. Must be called holding the task list lock.
+     *
+     * @throws NeruneruneException if the changed tasks cannot be read
+     */
+    public void syncExternalChanges() throws NeruneruneException {
+        if (fileStorage != null) {
+            fileStorage.syncExternalChanges();
+        }
+    }
+
+    /**
+     * Rebuilds the lookup indexes after storage applied changes made by another process to the list.
+     * Called by storage while holding the task list lock.
+     */
+    private void reindexExternalChanges() {
+        if (taskList instanceof LazyTaskList) {
+            index = new TaskIndex(); // indexed again on demand, rather than decoding every task now
+        } else {
+            index.rebuild(taskList);
+        }
+        invalidatePendingIndex();
+        structuralChangeCount++;
+    }
+
+    /**
+     * Builds the lookup indexes on a background thread from a copy of the task list, without holding
+     * the task list lock, so that commands keep running meanwhile. Lookups scan the list, or use the
+     * description and date maps loaded from the sidecar index file, until the indexes are swapped in.
+     * The list is copied before this returns, and changes made to it afterwards are caught up on
+     * under the lock just before the swap, see {@link #swapInIndex(TaskIndex)}.
+     * Must not be used with a {@link LazyTaskList}, as copying it decodes every task.
+     */
+    private void buildIndexInBackground() {
+        List<Task> firstCopy = copyForIndexing();
+        Thread thread = new Thread(() -> {
+            List<Task> copiedTasks = firstCopy;
+            while (true) {
+                TaskIndex builtIndex = new TaskIndex();
+                builtIndex.rebuild(copiedTasks);
+                if (swapInIndex(builtIndex)) {
+                    return;
+                }
+                copiedTasks = copyForIndexing();
+            }
+        }, "index-builder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Copies the task list to build the lookup indexes from, and starts remembering the changes made
+     * to the list from then on, for the built indexes to catch up on.
+     *
+     * @return the copy of the task list
+     */
+    private List<Task> copyForIndexing() {
+        ReentrantLock taskListLock = storage.getTaskListLock();
+        taskListLock.lock();
+        try {
+            pendingIndexChanges = new ArrayList<>();
+            isPendingIndexStale = false;
+            return new ArrayList<>(taskList);
+        } finally {
+            taskListLock.unlock();
+        }
+    }
+
+    /**
+     * Swaps in lookup indexes built in the background, after catching them up on the changes
+     * made to the task list since it was copied to build them. Fails if the list was changed
+     * in a way that cannot be caught up on, such as by deleting every done task, in which case
+     * the indexes must be built again from a fresh copy.
+     *
+     * @param builtIndex the indexes built from the copy
+     * @return true if the indexes were swapped in
+     */
+    private boolean swapInIndex(TaskIndex builtIndex) {
+        ReentrantLock taskListLock = storage.getTaskListLock();
+        taskListLock.lock();
+        try {
+            if (isPendingIndexStale) {
+                return false;
+            }
+            for (Consumer<TaskIndex> change : pendingIndexChanges) { // marks as well, which are not structural
+                change.accept(builtIndex);
+            }
+            pendingIndexChanges = null;
+            index = builtIndex;
+            return true;
+        } finally {
+            taskListLock.unlock();
+        }
+    }
+
+    /**
+     * Builds the lookup indexes of a {@link LazyTaskList} for a lookup that would otherwise scan
+     * every task, decoding each one. Indexing decodes every task as well, but only once, so that
+     * later lookups need not scan the list again. Lookups that stop at the first match, or that
+     * only need the IDs, done flags and due times a lazy list reads without decoding, never call this.
+     * Does nothing for other lists, which are indexed on load.
+     */
+    private void indexOnDemand() {
+        if (taskList instanceof LazyTaskList && !index.isReady()) {
+            index.rebuild(taskList);
+        }
+    }
+
+    /**
+     * Applies a change of the task list to the lookup indexes, and remembers it for the indexes
+     * being built in the background, if any, to catch up on before they are swapped in.
+     *
+     * @param change the change to apply to the indexes
+     */
+    private void updateIndex(Consumer<TaskIndex> change) {
+        change.accept(index);
+        if (pendingIndexChanges != null) {
+            pendingIndexChanges.add(change);
+        }
+    }
+
+    /**
+     * Makes the lookup indexes being built in the background, if any, be built again from a fresh copy
+     * of the task list, after a change to the list that they cannot catch up on.
+     */
+    private void invalidatePendingIndex() {
+        if (pendingIndexChanges != null) {
+            isPendingIndexStale = true;
+        }
+    }
+
+    /**
+     * Returns whether the lookup indexes have been built and swapped in.
+     *
+     * @return true if every lookup is answered by the indexes
+     */
+    boolean isIndexReady() {
+        return index.isReady();
+    }
+
+    /**
+     * Writes any pending changes to storage and saves the lookup indexes next to it,
+     * so the next start can load them instead of rebuilding them.
+     *
+     * @throws NeruneruneException if writing to storage fails
+     */
+    public void close() throws NeruneruneException {
+        storage.close();
+        if (fileStorage != null) {
+            fileStorage.saveIndex(taskList);
+        }
     }
 
     /**
@@ -54,22 +253,39 @@ public class TaskList {
     /**
      * Returns the list of tasks.
      *
-     * @return the ArrayList of Task objects
+     * @return the list of Task objects
      */
-    public ArrayList<Task> getTaskList() {
+    public List<Task> getTaskList() {
         return this.taskList;
     }
 
     /**
-     * Adds a task to the list and displays a confirmation message.
+     * Adds a task to the list, giving it the next ID if it has none, and displays a confirmation message.
      *
      * @param task the task to add
      */
     public void addTask(Task task) {
         assert task != null : "task to add should not be null";
 
+        LocalDate taskDate = TaskIndexFile.getIndexedDate(task);
+        if (taskDate != null) {
+            pageInTasksFrom(taskDate); // its shard is rewritten on save, so it must be loaded first
+        }
+        if (!task.hasId()) {
+            try {
+                task.setId(storage.takeNextId());
+            } catch (NeruneruneException e) {
+                ui.printMessage((e.getMessage() + "\n").indent(4));
+                return;
+            }
+        }
         int sizeBeforeAdd = taskList.size();
         taskList.add(task);
+        updateIndex(changedIndex -> changedIndex.add(task));
+        structuralChangeCount++;
+        if (fileStorage != null) {
+            fileStorage.recordAdd(task);
+        }
 
         assert taskList.size() == sizeBeforeAdd + 1 : "Task list size should increase by 1";
         assert taskList.contains(task) : "Task should be in the list after adding";
@@ -82,28 +298,40 @@ public class TaskList {
     /**
      * Marks a task or multiple tasks as done based on the task string provided.
      * If the task string is "backdated", marks all tasks with deadlines/events that have passed.
-     * Otherwise, finds and marks a single task by description or numeric index.
+     * Otherwise, finds and marks a single task by ID or description.
      * Displays confirmation message after marking.
      *
-     * @param taskString the task description, index, or "backdated" to mark all backdated tasks
+     * @param taskString the task ID, description, or "backdated" to mark all backdated tasks
      */
     public void markTask(String taskString) {
         try {
             // mark all backdated tasks
             if (taskString.equalsIgnoreCase("backdated")) {
+                pageInAllTasks();
                 int taskCount = 0;
 
-                for (Task task : taskList) {
-                    if (!task.getIsDone() && task.isBackdated()) {
-                        task.markAsDone();
+                if (index.isReady()) {
+                    for (int i : index.pollBackdated(LocalDateTime.now())) {
+                        markAsDoneAt(i);
                         taskCount++;
                     }
+                } else {
+                    for (int i = 0; i < taskList.size(); i++) {
+                        if (!isDone(i) && isBackdated(i)) {
+                            markAsDoneAt(i);
+                            taskCount++;
+                        }
+                    }
                 }
 
                 ui.printMessage(("Marked " + taskCount + " backdated task(s) as done.\n").indent(4));
             } else {
                 Task task = findTaskByDescription(taskString, false, false);
                 task.markAsDone();
+                updateIndex(changedIndex -> changedIndex.updateDone(task));
+                if (fileStorage != null) {
+                    fileStorage.recordMark(task);
+                }
                 ui.printMessage(("Alright! \"" + taskString + "\" mark as done!").indent(4));
                 ui.printMessage((task + "\n").indent(8));
             }
@@ -113,14 +341,32 @@ public class TaskList {
     }
 
     /**
-     * Unmarks a task as undone, found by description or index.
+     * Marks the task at the given position as done, keeping the indexes and storage up to date.
      *
-     * @param taskString the task description or index
+     * @param taskIndex the 0-based position of the task
+     */
+    private void markAsDoneAt(int taskIndex) {
+        Task task = taskList.get(taskIndex);
+        task.markAsDone();
+        updateIndex(changedIndex -> changedIndex.updateDone(task));
+        if (fileStorage != null) {
+            fileStorage.recordMark(task);
+        }
+    }
+
+    /**
+     * Unmarks a task as undone, found by ID or description.
+     *
+     * @param taskString the task ID or description
      */
     public void unmarkTask(String taskString) {
         try {
             Task task = findTaskByDescription(taskString, true, true);
             task.markAsUndone();
+            updateIndex(changedIndex -> changedIndex.updateDone(task));
+            if (fileStorage != null) {
+                fileStorage.recordUnmark(task);
+            }
             ui.printMessage(("Alright! \"" + taskString + "\" unmark.").indent(4));
             ui.printMessage((task + "\n").indent(8));
         } catch (NeruneruneException e) {
@@ -131,24 +377,41 @@ public class TaskList {
     /**
      * Deletes a task or multiple tasks based on the description provided.
      * If the description is "all done", removes all completed tasks from the list.
-     * Otherwise, finds and removes a single task by description or numeric index.
+     * Otherwise, finds and removes a single task by ID or description.
      * Displays confirmation message after deletion.
      *
-     * @param description the task description, index, or "all done" to delete all completed tasks
+     * @param description the task ID, description, or "all done" to delete all completed tasks
      */
     public void deleteTask(String description) {
         try {
             // delete all completed tasks
             if (description.equalsIgnoreCase("all done")) {
+                pageInAllTasks();
                 int initialSize = taskList.size();
-                taskList.removeIf(Task::getIsDone);
+                index.removeIf(Task::getIsDone); // indexed tasks are decoded already
+                invalidatePendingIndex(); // which tasks were done is lost once they are removed
+                if (taskList instanceof LazyTaskList lazyTasks) {
+                    lazyTasks.removeDone();
+                } else {
+                    taskList.removeIf(Task::getIsDone);
+                }
+                if (fileStorage != null) {
+                    fileStorage.recordDeleteDone();
+                }
+                structuralChangeCount++;
                 int deletedCount = initialSize - taskList.size();
                 ui.printMessage(("Got it, " + deletedCount + " completed task(s) removed.").indent(4));
                 ui.printMessage(("Now you have " + taskList.size() + " tasks in the list.\n").indent(4));
                 // delete task based on description
             } else {
                 Task task = findTaskByDescription(description);
-                taskList.remove(task);
+                int taskIndex = positionOf(task);
+                taskList.remove(taskIndex);
+                updateIndex(changedIndex -> changedIndex.remove(task));
+                if (fileStorage != null) {
+                    fileStorage.recordDelete(task);
+                }
+                structuralChangeCount++;
                 ui.printMessage(("Got it, task removed from your task list.").indent(4));
                 ui.printMessage((task.toString() + "\n").indent(8));
                 ui.printMessage(("Now you have " + taskList.size() + " tasks in the list.\n").indent(4));
@@ -160,20 +423,166 @@ public class TaskList {
     }
 
     /**
-     * Finds a task by description and done status, optionally searching from the end.
+     * Pages in the tasks of older months that are due or still going on at or after the given date.
+     * Does nothing unless storage is sharded.
+     *
+     * @param date the earliest date the caller looks at
+     */
+    public void pageInTasksFrom(LocalDate date) {
+        try {
+            if (fileStorage != null) {
+                addPagedInTasks(fileStorage.loadShardsFrom(taskList, date));
+            }
+        } catch (NeruneruneException e) {
+            ui.printMessage((e.getMessage() + "\n").indent(4));
+        }
+    }
+
+    /**
+     * Pages in the tasks of every month not loaded yet. Does nothing unless storage is sharded.
+     *
+     * @return true if any task was paged in
+     */
+    private boolean pageInAllTasks() {
+        try {
+            return fileStorage != null && addPagedInTasks(fileStorage.loadAllShards(taskList));
+        } catch (NeruneruneException e) {
+            ui.printMessage((e.getMessage() + "\n").indent(4));
+            return false;
+        }
+    }
+
+    /**
+     * Indexes tasks that storage has just appended to the task list, already numbered by storage.
+     *
+     * @param pagedInTasks the appended tasks
+     * @return true if any task was appended
+     */
+    private boolean addPagedInTasks(List<Task> pagedInTasks) {
+        if (pagedInTasks.isEmpty()) {
+            return false;
+        }
+        updateIndex(changedIndex -> pagedInTasks.forEach(changedIndex::add));
+        structuralChangeCount++;
+        return true;
+    }
+
+    /**
+     * Returns whether the task at the given position is done, without decoding it from a {@link LazyTaskList}.
+     *
+     * @param index the 0-based position of the task
+     * @return true if the task is done
+     */
+    private boolean isDone(int index) {
+        if (taskList instanceof LazyTaskList lazyTasks) {
+            return lazyTasks.isDone(index);
+        }
+        return taskList.get(index).getIsDone();
+    }
+
+    /**
+     * Returns whether the task at the given position is backdated, without decoding it from a {@link LazyTaskList}.
+     *
+     * @param index the 0-based position of the task
+     * @return true if the task's date has passed
+     */
+    private boolean isBackdated(int index) {
+        if (taskList instanceof LazyTaskList lazyTasks) {
+            return lazyTasks.isBackdated(index);
+        }
+        return taskList.get(index).isBackdated();
+    }
+
+    /**
+     * Returns the position of a task in the list, found from the task's ID without searching the list,
+     * through the lookup indexes once they are ready and by the IDs in list order until then.
+     *
+     * @param task a task in the list
+     * @return the 0-based position of the task
+     */
+    private int positionOf(Task task) {
+        int position = index.isReady() ? index.positionOf(task) : TaskIds.indexOf(taskList, task.getId());
+        return position >= 0 && taskList.get(position) == task ? position : taskList.indexOf(task);
+    }
+
+    /**
+     * Finds a task by its ID. Older months are paged in and searched if no loaded task has it.
+     *
+     * @param id the task ID
+     * @return the task with the ID, or null if there is none
+     */
+    private Task findTaskById(long id) {
+        Task task = findLoadedTaskById(id);
+        if (task == null && pageInAllTasks()) {
+            task = findLoadedTaskById(id);
+        }
+        return task;
+    }
+
+    /**
+     * Finds a task by its ID among the loaded tasks. Until the lookup indexes are ready,
+     * the IDs are searched in list order without decoding tasks from a {@link LazyTaskList}.
+     *
+     * @param id the task ID
+     * @return the task with the ID, or null if none is loaded
+     */
+    private Task findLoadedTaskById(long id) {
+        if (index.isReady()) {
+            return index.findById(id);
+        }
+        int position = TaskIds.indexOf(taskList, id);
+        return position >= 0 ? taskList.get(position) : null;
+    }
+
+    /**
+     * Finds a task by ID, or else by description and done status, optionally searching from the end.
      * Finds from end if findFromEnd is true
      * Supports finding tasks with duplicate descriptions by searching from the
      * start of the list when marking done, and from the end of the list when unmarking.
+     * Once the description maps are loaded, the task is looked up directly without visiting its duplicates.
+     * Older months are paged in and searched if no loaded task matches.
+     * A number is looked up as an ID first, and as a description if no task has that ID.
      *
-     * @param description the task description (case-insensitive)
-     * @param doneStatus  the done status the task must have
+     * @param description the task ID or description (case-insensitive)
+     * @param doneStatus  the done status the task must have if found by description
      * @param findFromEnd true to search from the end of the list, false from beginning
      * @return the Task found with matching criteria
      * @throws NeruneruneException if no matching task is found
      */
     private Task findTaskByDescription(String description, boolean doneStatus, boolean findFromEnd)
             throws NeruneruneException {
+        try {
+            Task task = findTaskById(Long.parseLong(description));
+            if (task != null) {
+                return task;
+            }
+        } catch (NumberFormatException e) {
+            // no number provided, fall back to description search
+        }
+
+        Task task = findLoadedTaskByDescription(description, doneStatus, findFromEnd);
+        if (task == null && pageInAllTasks()) {
+            task = findLoadedTaskByDescription(description, doneStatus, findFromEnd);
+        }
+        if (task == null) {
+            throw new NeruneruneException(
+                    "Task with description \"" + description + "\" not found.");
+        }
+        return task;
+    }
 
+    /**
+     * Finds a task by description and done status among the loaded tasks.
+     *
+     * @param description the task description (case-insensitive)
+     * @param doneStatus  the done status the task must have
+     * @param findFromEnd true to search from the end of the list, false from beginning
+     * @return the Task found with matching criteria, or null if none is loaded
+     */
+    private Task findLoadedTaskByDescription(String description, boolean doneStatus, boolean findFromEnd) {
+        if (index.isDescriptionAndDateReady()) {
+            return index.find(description, doneStatus, findFromEnd);
+        }
         int startFrom = findFromEnd ? taskList.size() - 1 : 0;
         int endAt = findFromEnd ? -1 : taskList.size();
         int step = findFromEnd ? -1 : 1;
@@ -186,36 +595,54 @@ public class TaskList {
                 return task;
             }
         }
-        throw new NeruneruneException(
-                "Task with description \"" + description + "\" not found.");
-
+        return null;
     }
 
     /**
-     * Finds a task by description or numeric index.
+     * Finds a task by ID or description.
      *
-     * @param description the task description or index string
+     * @param description the task description or ID string
      * @return the Task found
-     * @throws NeruneruneException if no matching task is found or index is out of range
+     * @throws NeruneruneException if no matching task is found or no task has the ID
      */
     private Task findTaskByDescription(String description) throws NeruneruneException {
         try {
-            int taskIndex = Integer.parseInt(description) - 1;
-            if (taskIndex < 0 || taskIndex >= taskList.size()) {
-                throw new NeruneruneException("No task number: " + (taskIndex + 1));
+            long id = Long.parseLong(description);
+            Task task = findTaskById(id);
+            if (task == null) {
+                throw new NeruneruneException("No task number: " + id);
             }
-            return taskList.get(taskIndex);
+            return task;
         } catch (NumberFormatException e) {
             // no number provided, fall back to description search
         }
 
+        Task task = findLoadedTaskByDescription(description);
+        if (task == null && pageInAllTasks()) {
+            task = findLoadedTaskByDescription(description);
+        }
+        if (task != null) {
+            return task;
+        }
+        throw new NeruneruneException("Task with description \"" + description + "\" not found.");
+    }
+
+    /**
+     * Finds a task by description among the loaded tasks.
+     *
+     * @param description the task description (case-insensitive)
+     * @return the Task found, or null if none is loaded
+     */
+    private Task findLoadedTaskByDescription(String description) {
+        if (index.isDescriptionAndDateReady()) {
+            return index.findFirst(description);
+        }
         for (Task task : taskList) {
             if (task.getDescription().equalsIgnoreCase(description)) {
                 return task;
             }
         }
-
-        throw new NeruneruneException("Task with description \"" + description + "\" not found.");
+        return null;
     }
 
     /**
@@ -277,12 +704,18 @@ public class TaskList {
      * Finds an overlapping event with the given time range.
      * An overlap occurs when the new event starts before an existing event ends
      * and the new event ends after the existing event starts.
+     * Once the lookup indexes are ready, only events near the given range are visited.
      *
      * @param newFrom the start time of the new event
      * @param newTo   the end time of the new event
-     * @return the first overlapping Event found, or null if no overlap exists
+     * @return the first overlapping Event in list order, or null if no overlap exists
      */
     public Event findOverlappingEvent(LocalDateTime newFrom, LocalDateTime newTo) {
+        pageInTasksFrom(newFrom.toLocalDate()); // events ending after the new one starts
+        indexOnDemand();
+        if (index.isReady()) {
+            return index.findOverlappingEvent(newFrom, newTo);
+        }
         for (Task task : taskList) {
             if (task instanceof Event event) {
                 LocalDateTime existingFrom = event.getEventFromDateTime();
@@ -297,6 +730,87 @@ public class TaskList {
         return null;
     }
 
+    /**
+     * Displays every pair of events that clash with each other, in the order in which the events start.
+     */
+    public void listEventClashes() {
+        pageInAllTasks();
+        indexOnDemand();
+        List<EventIntervalTree.Clash> clashes = index.isReady()
+                ? index.findEventClashes()
+                : EventIntervalTree.of(taskList).findClashes();
+        if (clashes.isEmpty()) {
+            ui.printMessage(("No events clash with each other!\n").indent(4));
+            return;
+        }
+        ui.printMessage(("Here are the events that clash:\n").indent(4));
+        for (int i = 0; i < clashes.size(); i++) {
+            EventIntervalTree.Clash clash = clashes.get(i);
+            ui.printMessage(((i + 1) + ". " + clash.getFirst()).indent(8));
+            ui.printMessage(("clashes with " + clash.getSecond()).indent(11));
+        }
+        ui.printMessage(("Total: " + clashes.size() + " clash(es)\n").indent(4));
+    }
+
+    /**
+     * Finds all tasks dated within a range, using the deadline date or the event start date, grouped by date.
+     * Once the lookup indexes are ready, only the dates in the range are visited.
+     *
+     * @param startDate the first date of the range (inclusive)
+     * @param endDate   the last date of the range (inclusive)
+     * @return the tasks on each date of the range that has any, in list order; only valid until the list changes
+     */
+    public NavigableMap<LocalDate, List<Task>> findTasksByDate(LocalDate startDate, LocalDate endDate) {
+        pageInTasksFrom(startDate);
+        indexOnDemand();
+        if (index.isDescriptionAndDateReady()) {
+            return index.findByDate(startDate, endDate);
+        }
+
+        NavigableMap<LocalDate, List<Task>> tasksByDate = new TreeMap<>();
+        for (Task task : taskList) {
+            LocalDate taskDate = TaskIndexFile.getIndexedDate(task);
+            if (taskDate != null && !taskDate.isBefore(startDate) && !taskDate.isAfter(endDate)) {
+                tasksByDate.computeIfAbsent(taskDate, key -> new ArrayList<>()).add(task);
+            }
+        }
+        return tasksByDate;
+    }
+
+    /**
+     * Finds the deadlines due on a date and the events taking place on it, including events that
+     * started on an earlier date. Once the lookup indexes are ready, other tasks are not visited.
+     *
+     * @param date      the date to look up
+     * @param deadlines the list to add the deadlines due on the date to, in list order
+     * @param events    the list to add the events on the date to, in list order
+     */
+    public void findTasksOn(LocalDate date, List<Task> deadlines, List<Task> events) {
+        pageInTasksFrom(date);
+        indexOnDemand();
+        if (index.isReady()) {
+            for (Task task : index.findByDate(date, date).getOrDefault(date, List.of())) {
+                if (task instanceof Deadline) {
+                    deadlines.add(task);
+                }
+            }
+            events.addAll(index.findEventsOn(date));
+            return;
+        }
+
+        for (Task task : taskList) {
+            if (!task.occursOn(date)) {
+                continue;
+            }
+
+            if (task instanceof Deadline) {
+                deadlines.add(task);
+            } else if (task instanceof Event) {
+                events.add(task);
+            }
+        }
+    }
+
     /**
      * Filters the task list to find all tasks containing the
      * specified keyword (case-sensitive) in their description.
@@ -306,6 +820,11 @@ public class TaskList {
      * Returns an empty ArrayList if no matches are found.
      */
     public ArrayList<Task> filterTasksByKeyword(String keyword) {
+        pageInAllTasks();
+        indexOnDemand();
+        if (index.isReady()) {
+            return new ArrayList<>(index.findContaining(keyword));
+        }
         ArrayList<Task> matchingTasks = new ArrayList<>();
 
         for (Task task : taskList) {
@@ -315,4 +834,83 @@ public class TaskList {
         }
         return matchingTasks;
     }
+
+    /**
+     * Counts the deadlines and events that are not done and whose date has passed, the tasks
+     * that {@code mark backdated} would mark as done.
+     *
+     * @return the number of backdated tasks
+     */
+    public int countBackdatedTasks() {
+        pageInAllTasks();
+        if (index.isReady()) {
+            return index.countBackdated(LocalDateTime.now());
+        }
+        int taskCount = 0;
+        for (int i = 0; i < taskList.size(); i++) {
+            if (!isDone(i) && isBackdated(i)) {
+                taskCount++;
+            }
+        }
+        return taskCount;
+    }
+
+    /**
+     * Prints the number of tasks of each type, how many are done and backdated,
+     * and the deadlines and events in the week starting today.
+     * Once the lookup indexes are ready, this reads running totals instead of counting the list.
+     */
+    public void printStats() {
+        pageInAllTasks();
+        indexOnDemand();
+        TaskStats stats = index.isReady() ? index.getStats() : TaskStats.of(taskList);
+        LocalDate today = LocalDate.now();
+        LocalDate weekEnd = today.plusDays(6);
+
+        ui.printMessage(("Here are the stats of your task list:\n").indent(4));
+        ui.printMessage(("Tasks: " + stats.getTaskCount() + " (" + stats.getTodoCount() + " todo(s), "
+                + stats.getDeadlineCount() + " deadline(s), " + stats.getEventCount() + " event(s))").indent(8));
+        ui.printMessage(("Done: " + stats.getDoneCount() + ", not done: "
+                + (stats.getTaskCount() - stats.getDoneCount())).indent(8));
+        ui.printMessage(("Backdated: " + countBackdatedTasks()).indent(8));
+        ui.printMessage(("Next 7 days: " + stats.countDeadlinesBetween(today, weekEnd) + " deadline(s), "
+                + stats.countEventsBetween(today, weekEnd) + " event(s)\n").indent(8));
+    }
+
+    /**
+     * Finds the tasks with a word in their description closest to the term, ignoring case,
+     * so that a misspelt term still finds them. See {@link TokenTree} for how words are compared.
+     *
+     * @param term  the word to search for
+     * @param limit the maximum number of tasks to return
+     * @return the closest tasks, closest first and then in list order; empty if no word is close enough
+     */
+    public ArrayList<Task> findClosestTasks(String term, int limit) {
+        pageInAllTasks();
+        indexOnDemand();
+        if (index.isReady()) {
+            return new ArrayList<>(index.findClosest(term, limit));
+        }
+        return new ArrayList<>(TokenTree.of(taskList).findClosest(term, limit));
+    }
+
+    /**
+     * Searches the cold archive for completed tasks containing the
+     * specified keyword (case-sensitive) in their description.
+     *
+     * @param keyword The keyword to search for in task descriptions.
+     * @return An ArrayList containing all archived tasks whose descriptions contain the keyword.
+     * Returns an empty ArrayList if no matches are found or the archive cannot be read.
+     */
+    public ArrayList<Task> filterArchivedTasksByKeyword(String keyword) {
+        if (fileStorage == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return new ArrayList<>(fileStorage.searchArchive(task -> task.getDescription().contains(keyword)));
+        } catch (NeruneruneException e) {
+            ui.printMessage((e.getMessage() + "\n").indent(4));
+            return new ArrayList<>();
+        }
+    }
 }
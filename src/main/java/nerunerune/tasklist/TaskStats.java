@@ -0,0 +1,161 @@
+package nerunerune.tasklist;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import nerunerune.storage.TaskIndexFile;
+import nerunerune.task.Deadline;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+
+/**
+ * Running totals over a task list, adjusted on every change so that they are read without a scan:
+ * the number of tasks of each type, how many of them are done, and a histogram of the deadlines
+ * and events under each date, the deadline date or the event start date.
+ * <p>
+ * Totals are read in constant time, and the deadlines or events in a range of dates are
+ * counted from the histogram in time proportional to the number of dates in the range.
+ */
+class TaskStats {
+    private static final int DEADLINES = 0;
+    private static final int EVENTS = 1;
+
+    private final NavigableMap<LocalDate, int[]> countsByDate;
+    private int todoCount;
+    private int deadlineCount;
+    private int eventCount;
+    private int doneCount;
+
+    /**
+     * Constructs TaskStats for an empty task list.
+     */
+    TaskStats() {
+        this.countsByDate = new TreeMap<>();
+    }
+
+    /**
+     * Counts the tasks in a task list.
+     *
+     * @param taskList the task list to count
+     * @return the totals of the list
+     */
+    static TaskStats of(List<Task> taskList) {
+        TaskStats stats = new TaskStats();
+        for (Task task : taskList) {
+            stats.add(task);
+        }
+        return stats;
+    }
+
+    /**
+     * Counts a task added to the list.
+     *
+     * @param task the added task
+     */
+    void add(Task task) {
+        count(task, 1);
+    }
+
+    /**
+     * Stops counting a task removed from the list.
+     *
+     * @param task the removed task
+     */
+    void remove(Task task) {
+        count(task, -1);
+    }
+
+    private void count(Task task, int delta) {
+        if (task instanceof Deadline) {
+            deadlineCount += delta;
+        } else if (task instanceof Event) {
+            eventCount += delta;
+        } else {
+            todoCount += delta;
+        }
+        if (task.getIsDone()) {
+            doneCount += delta;
+        }
+
+        LocalDate date = TaskIndexFile.getIndexedDate(task);
+        if (date != null) {
+            int[] counts = countsByDate.computeIfAbsent(date, key -> new int[2]);
+            counts[task instanceof Deadline ? DEADLINES : EVENTS] += delta;
+            if (counts[DEADLINES] == 0 && counts[EVENTS] == 0) {
+                countsByDate.remove(date);
+            }
+        }
+    }
+
+    /**
+     * Counts a task that was just marked as done or not done.
+     *
+     * @param task the task whose done status changed
+     */
+    void updateDone(Task task) {
+        doneCount += task.getIsDone() ? 1 : -1;
+    }
+
+    /**
+     * Stops counting every task.
+     */
+    void clear() {
+        countsByDate.clear();
+        todoCount = 0;
+        deadlineCount = 0;
+        eventCount = 0;
+        doneCount = 0;
+    }
+
+    int getTaskCount() {
+        return todoCount + deadlineCount + eventCount;
+    }
+
+    int getTodoCount() {
+        return todoCount;
+    }
+
+    int getDeadlineCount() {
+        return deadlineCount;
+    }
+
+    int getEventCount() {
+        return eventCount;
+    }
+
+    int getDoneCount() {
+        return doneCount;
+    }
+
+    /**
+     * Returns the number of deadlines due within a range of dates.
+     *
+     * @param startDate the first date of the range (inclusive)
+     * @param endDate   the last date of the range (inclusive)
+     * @return the number of deadlines in the range
+     */
+    int countDeadlinesBetween(LocalDate startDate, LocalDate endDate) {
+        return countBetween(startDate, endDate, DEADLINES);
+    }
+
+    /**
+     * Returns the number of events starting within a range of dates.
+     *
+     * @param startDate the first date of the range (inclusive)
+     * @param endDate   the last date of the range (inclusive)
+     * @return the number of events in the range
+     */
+    int countEventsBetween(LocalDate startDate, LocalDate endDate) {
+        return countBetween(startDate, endDate, EVENTS);
+    }
+
+    private int countBetween(LocalDate startDate, LocalDate endDate, int type) {
+        int total = 0;
+        for (int[] counts : countsByDate.subMap(startDate, true, endDate, true).values()) {
+            total += counts[type];
+        }
+        return total;
+    }
+}
@@ -0,0 +1,338 @@
+package nerunerune.tasklist;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import nerunerune.storage.TaskIndexFile;
+import nerunerune.task.Task;
+
+/**
+ * A BK-tree over the words of task descriptions, for finding the tasks with a word close to a
+ * possibly misspelt search term.
+ * <p>
+ * Words are case-folded and compared by their edit (Levenshtein) distance, the number of characters
+ * that must be inserted, deleted or replaced to turn one into the other. Every word is stored once,
+ * and each child of a word is the subtree of words at one distance from it. As the distance is
+ * a metric, a search for the words within {@code d} of a term only descends into the children
+ * whose distance from their parent is within {@code d} of the term's, skipping most of the tree.
+ * <p>
+ * Each word holds the tasks containing it in list order, so the closest tasks are ranked by
+ * distance and then list order, and only as many of them are visited as are returned. The search
+ * starts with the term itself and only widens to words further away while results are missing.
+ * Words are never removed from the tree; a word whose tasks are all gone is skipped.
+ * <p>
+ * Placing a new word takes a distance computation at every level of the tree, so the tree is only
+ * built by the first search; until then the added tasks are just kept in list order.
+ */
+class TokenTree {
+    private final Map<String, Node> nodesByWord;
+    private Node root;
+    private SequencedTasks pendingTasks; // the tasks to build the tree from, or null once it is built
+    private int[] previousRow;
+    private int[] currentRow;
+
+    /**
+     * A word of the tree and the tasks containing it.
+     */
+    private static class Node {
+        private final String word;
+        private final SequencedTasks tasks;
+        private Node[] children; // indexed by distance from this word
+
+        Node(String word) {
+            this.word = word;
+            this.tasks = new SequencedTasks();
+        }
+    }
+
+    /**
+     * A task offered for the results, ranked by its distance and then by its sequence number.
+     */
+    private static class Match {
+        private final int distance;
+        private final long sequence;
+        private final Task task;
+
+        Match(int distance, long sequence, Task task) {
+            this.distance = distance;
+            this.sequence = sequence;
+            this.task = task;
+        }
+    }
+
+    private static final Comparator<Match> RANKING =
+            Comparator.<Match>comparingInt(match -> match.distance).thenComparingLong(match -> match.sequence);
+
+    /**
+     * Constructs an empty TokenTree.
+     */
+    TokenTree() {
+        this.nodesByWord = new HashMap<>();
+        this.pendingTasks = new SequencedTasks();
+        this.previousRow = new int[16];
+        this.currentRow = new int[16];
+    }
+
+    /**
+     * Builds a tree over the tasks in a task list, using their positions as sequence numbers.
+     *
+     * @param taskList the task list to take the tasks from
+     * @return the tree of the words in the list
+     */
+    static TokenTree of(List<Task> taskList) {
+        TokenTree tree = new TokenTree();
+        for (int i = 0; i < taskList.size(); i++) {
+            tree.add(i, taskList.get(i));
+        }
+        return tree;
+    }
+
+    /**
+     * Returns the largest edit distance at which a word still matches a search term. Short terms
+     * must match exactly, as a single edit turns them into too many other words.
+     */
+    private static int getMaxDistance(String term) {
+        return term.length() < 3 ? 0 : term.length() < 6 ? 1 : 2;
+    }
+
+    /**
+     * Adds a task under each word of its description. Tasks must be added in sequence order.
+     *
+     * @param sequence the sequence number of the task, which orders it within the task list
+     * @param task     the task to add
+     */
+    void add(long sequence, Task task) {
+        if (pendingTasks != null) {
+            pendingTasks.insert(sequence, task);
+            return;
+        }
+        for (String word : toWords(task.getDescription())) {
+            SequencedTasks tasks = getOrCreateNode(word).tasks;
+            if (tasks.isEmpty() || tasks.getLastSequence() != sequence) { // the word repeats within the description
+                tasks.insert(sequence, task);
+            }
+        }
+    }
+
+    private Node getOrCreateNode(String word) {
+        Node node = nodesByWord.get(word);
+        if (node != null) {
+            return node;
+        }
+        Node added = new Node(word);
+        nodesByWord.put(word, added);
+        if (root == null) {
+            root = added;
+            return added;
+        }
+        for (Node parent = root; ; ) {
+            int distance = getDistance(word, parent.word);
+            if (parent.children == null || parent.children.length <= distance) {
+                parent.children = Arrays.copyOf(parent.children == null ? new Node[0] : parent.children,
+                        distance + 1);
+            }
+            if (parent.children[distance] == null) {
+                parent.children[distance] = added;
+                return added;
+            }
+            parent = parent.children[distance];
+        }
+    }
+
+    /**
+     * Removes a task that was added with the given sequence number from the words of its description.
+     *
+     * @param sequence the sequence number the task was added with
+     * @param task     the task to remove
+     */
+    void remove(long sequence, Task task) {
+        if (pendingTasks != null) {
+            pendingTasks.remove(sequence, task);
+            return;
+        }
+        for (String word : toWords(task.getDescription())) {
+            Node node = nodesByWord.get(word);
+            if (node != null) {
+                node.tasks.remove(sequence, task);
+            }
+        }
+    }
+
+    /**
+     * Removes every task matching the filter.
+     *
+     * @param filter the condition the removed tasks satisfy
+     */
+    void removeIf(Predicate<Task> filter) {
+        if (pendingTasks != null) {
+            pendingTasks.removeIf(filter);
+            return;
+        }
+        for (Node node : nodesByWord.values()) {
+            node.tasks.removeIf(filter);
+        }
+    }
+
+    /**
+     * Removes every word and task.
+     */
+    void clear() {
+        nodesByWord.clear();
+        root = null;
+        pendingTasks = new SequencedTasks();
+    }
+
+    /**
+     * Builds the tree from the tasks added so far, if it has not been built yet.
+     */
+    void build() {
+        if (pendingTasks == null) {
+            return;
+        }
+        SequencedTasks tasks = pendingTasks;
+        pendingTasks = null;
+        for (int i = 0; i < tasks.size(); i++) {
+            add(tasks.getSequence(i), tasks.get(i));
+        }
+    }
+
+    /**
+     * Returns the tasks with a word closest to the term, at most the maximum distance away.
+     * Tasks are ranked by the distance of their closest word, and then by list order.
+     *
+     * @param term  the word to look for, in any case
+     * @param limit the maximum number of tasks to return
+     * @return the closest tasks, closest first
+     */
+    List<Task> findClosest(String term, int limit) {
+        build();
+        String folded = TaskIndexFile.foldDescription(term);
+        // the worst match is at the head, so it is the one dropped when a better one comes
+        PriorityQueue<Match> closest = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        Set<Task> offered = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Node exact = nodesByWord.get(folded);
+        if (exact != null) {
+            offerAll(exact.tasks, 0, limit, closest, offered);
+        }
+        int maxDistance = getMaxDistance(folded);
+        for (int distance = 1; distance <= maxDistance && closest.size() < limit; distance++) {
+            for (Node node : collectAt(folded, distance)) {
+                offerAll(node.tasks, distance, limit, closest, offered);
+            }
+        }
+
+        Task[] tasks = new Task[closest.size()];
+        for (int i = tasks.length - 1; i >= 0; i--) {
+            tasks[i] = closest.poll().task;
+        }
+        return Arrays.asList(tasks);
+    }
+
+    /**
+     * Returns the words with tasks that are exactly the given distance from the term.
+     */
+    private List<Node> collectAt(String term, int targetDistance) {
+        List<Node> nodes = new ArrayList<>();
+        if (root == null) {
+            return nodes;
+        }
+        Deque<Node> unvisited = new ArrayDeque<>();
+        unvisited.push(root);
+        while (!unvisited.isEmpty()) {
+            Node node = unvisited.pop();
+            int distance = getDistance(term, node.word);
+            if (distance == targetDistance && !node.tasks.isEmpty()) {
+                nodes.add(node);
+            }
+            if (node.children == null) {
+                continue;
+            }
+            // by the triangle inequality, only children this close to the node can be close enough to the term
+            int last = Math.min(distance + targetDistance, node.children.length - 1);
+            for (int i = Math.max(distance - targetDistance, 1); i <= last; i++) {
+                if (node.children[i] != null) {
+                    unvisited.push(node.children[i]);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Offers the tasks of one word, in list order, stopping at the first that ranks below every kept match.
+     * Tasks offered before were offered at a distance at least as close, and are skipped.
+     */
+    private static void offerAll(SequencedTasks tasks, int distance, int limit,
+            PriorityQueue<Match> closest, Set<Task> offered) {
+        for (int i = 0; i < tasks.size(); i++) {
+            Match match = new Match(distance, tasks.getSequence(i), tasks.get(i));
+            if (closest.size() == limit && RANKING.compare(match, closest.peek()) >= 0) {
+                return; // the rest of the word's tasks come later in the list and rank lower still
+            }
+            if (offered.add(match.task)) {
+                closest.add(match);
+                if (closest.size() > limit) {
+                    closest.poll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits a description into its case-folded words.
+     */
+    private static List<String> toWords(String description) {
+        String folded = TaskIndexFile.foldDescription(description);
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean isSpace = i == folded.length() || Character.isWhitespace(folded.charAt(i));
+            if (isSpace && start >= 0) {
+                words.add(folded.substring(start, i));
+                start = -1;
+            } else if (!isSpace && start < 0) {
+                start = i;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Returns the Levenshtein distance between two words, keeping only two reused rows of the distance table.
+     */
+    private int getDistance(String first, String second) {
+        if (previousRow.length <= second.length()) {
+            previousRow = new int[second.length() + 1];
+            currentRow = new int[second.length() + 1];
+        }
+        int[] previous = previousRow;
+        int[] current = currentRow;
+        for (int j = 0; j <= second.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            char c = first.charAt(i - 1);
+            for (int j = 1; j <= second.length(); j++) {
+                int replaced = previous[j - 1] + (c == second.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(replaced, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swapped = previous;
+            previous = current;
+            current = swapped;
+        }
+        return previous[second.length()];
+    }
+}
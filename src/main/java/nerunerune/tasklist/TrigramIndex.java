@@ -0,0 +1,273 @@
+package nerunerune.tasklist;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import nerunerune.task.Task;
+
+/**
+ * An inverted index from every three-character substring of a description to the tasks containing it,
+ * for finding the tasks whose description contains a keyword without checking every description.
+ * <p>
+ * Tasks are held by their sequence number, which follows their order in the task list, and each posting
+ * list keeps its sequence numbers sorted. A keyword of three or more characters can only occur in
+ * a description holding all of its trigrams, so the posting lists of those trigrams are intersected,
+ * smallest first, and only the remaining candidates are checked with {@link String#contains}.
+ * Matching is case-sensitive and by {@code char}, exactly as {@link String#contains} is.
+ * <p>
+ * The posting lists can be left to be built by the first search, so that an index loaded from the
+ * sidecar file does not pay for them at startup; until then only the tasks themselves are tracked.
+ * <p>
+ * A removed task is left in its posting lists as a tombstone, as sequence numbers are never reused,
+ * so removing a task whose trigrams are common does not shift long posting lists. Searches skip
+ * tombstones, and a posting list is compacted once they make up more than half of it.
+ */
+class TrigramIndex {
+    private static final int TRIGRAM_LENGTH = 3;
+
+    private Task[] tasksBySequence;
+    private Map<Long, Postings> postingsByTrigram;
+
+    /**
+     * The sorted sequence numbers of the tasks containing one trigram.
+     */
+    private static class Postings {
+        private int[] sequences = new int[2];
+        private int size;
+        private int removedCount;
+
+        /**
+         * Adds a sequence number, which is usually the largest, unless it is already present.
+         */
+        void add(int sequence) {
+            int i = size;
+            if (size > 0 && sequences[size - 1] >= sequence) {
+                i = Arrays.binarySearch(sequences, 0, size, sequence);
+                if (i >= 0) {
+                    return; // the trigram repeats within the description
+                }
+                i = -i - 1;
+            }
+            if (size == sequences.length) {
+                sequences = Arrays.copyOf(sequences, size * 2);
+            }
+            if (i < size) {
+                System.arraycopy(sequences, i, sequences, i + 1, size - i);
+            }
+            sequences[i] = sequence;
+            size++;
+        }
+
+        /**
+         * Counts a sequence number whose task was removed as a tombstone, compacting the list
+         * once tombstones make up more than half of it.
+         *
+         * @param tasksBySequence the tasks still indexed, with removed ones null
+         */
+        void remove(Task[] tasksBySequence) {
+            removedCount++;
+            if (removedCount * 2 > size) {
+                compact(tasksBySequence);
+            }
+        }
+
+        /**
+         * Drops the sequence numbers of removed tasks.
+         *
+         * @param tasksBySequence the tasks still indexed, with removed ones null
+         */
+        void compact(Task[] tasksBySequence) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (tasksBySequence[sequences[i]] != null) {
+                    sequences[kept++] = sequences[i];
+                }
+            }
+            size = kept;
+            removedCount = 0;
+        }
+    }
+
+    /**
+     * Constructs an empty TrigramIndex.
+     */
+    TrigramIndex() {
+        this.tasksBySequence = new Task[16];
+    }
+
+    /**
+     * Removes every task.
+     */
+    void clear() {
+        tasksBySequence = new Task[16];
+        postingsByTrigram = null;
+    }
+
+    /**
+     * Adds a task under its sequence number.
+     *
+     * @param sequence the sequence number of the task, which orders it within the task list
+     * @param task     the task to add
+     */
+    void add(long sequence, Task task) {
+        assert sequence < Integer.MAX_VALUE : "sequence numbers should fit the posting lists";
+
+        int slot = (int) sequence;
+        if (slot >= tasksBySequence.length) {
+            tasksBySequence = Arrays.copyOf(tasksBySequence, Math.max(slot + 1, tasksBySequence.length * 2));
+        }
+        tasksBySequence[slot] = task;
+        if (postingsByTrigram != null) {
+            addPostings(slot, task.getDescription());
+        }
+    }
+
+    private void addPostings(int sequence, String description) {
+        for (int i = 0; i + TRIGRAM_LENGTH <= description.length(); i++) {
+            postingsByTrigram.computeIfAbsent(trigramAt(description, i), key -> new Postings()).add(sequence);
+        }
+    }
+
+    /**
+     * Removes a task that was added with the given sequence number.
+     *
+     * @param sequence the sequence number the task was added with
+     * @param task     the task to remove
+     */
+    void remove(long sequence, Task task) {
+        int slot = (int) sequence;
+        if (slot >= tasksBySequence.length || tasksBySequence[slot] != task) {
+            return;
+        }
+        tasksBySequence[slot] = null;
+        if (postingsByTrigram == null) {
+            return;
+        }
+        String description = task.getDescription();
+        long[] trigrams = new long[Math.max(0, description.length() - TRIGRAM_LENGTH + 1)];
+        for (int i = 0; i < trigrams.length; i++) {
+            trigrams[i] = trigramAt(description, i);
+        }
+        Arrays.sort(trigrams);
+        for (int i = 0; i < trigrams.length; i++) {
+            if (i > 0 && trigrams[i] == trigrams[i - 1]) {
+                continue; // the trigram repeats within the description, and is only posted once
+            }
+            Postings postings = postingsByTrigram.get(trigrams[i]);
+            if (postings != null) {
+                postings.remove(tasksBySequence);
+                if (postings.size == 0) {
+                    postingsByTrigram.remove(trigrams[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes every task matching the filter.
+     *
+     * @param filter the condition the removed tasks satisfy
+     */
+    void removeIf(Predicate<Task> filter) {
+        for (int i = 0; i < tasksBySequence.length; i++) {
+            if (tasksBySequence[i] != null && filter.test(tasksBySequence[i])) {
+                tasksBySequence[i] = null;
+            }
+        }
+        if (postingsByTrigram == null) {
+            return;
+        }
+        postingsByTrigram.values().removeIf(postings -> {
+            postings.compact(tasksBySequence);
+            return postings.size == 0;
+        });
+    }
+
+    /**
+     * Builds the posting lists of every task, if they have not been built yet.
+     */
+    void buildPostings() {
+        if (postingsByTrigram != null) {
+            return;
+        }
+        postingsByTrigram = new HashMap<>();
+        for (int i = 0; i < tasksBySequence.length; i++) {
+            if (tasksBySequence[i] != null) {
+                addPostings(i, tasksBySequence[i].getDescription());
+            }
+        }
+    }
+
+    /**
+     * Returns the tasks whose description contains the keyword, case-sensitively.
+     *
+     * @param keyword the keyword to look for
+     * @return the matching tasks in list order
+     */
+    List<Task> findContaining(String keyword) {
+        ArrayList<Task> matchingTasks = new ArrayList<>();
+        if (keyword.length() < TRIGRAM_LENGTH) { // too short to narrow down by trigrams
+            for (Task task : tasksBySequence) {
+                if (task != null && task.getDescription().contains(keyword)) {
+                    matchingTasks.add(task);
+                }
+            }
+            return matchingTasks;
+        }
+
+        buildPostings();
+        List<Postings> keywordPostings = new ArrayList<>();
+        for (int i = 0; i + TRIGRAM_LENGTH <= keyword.length(); i++) {
+            Postings postings = postingsByTrigram.get(trigramAt(keyword, i));
+            if (postings == null) {
+                return matchingTasks;
+            }
+            keywordPostings.add(postings);
+        }
+        keywordPostings.sort(Comparator.comparingInt(postings -> postings.size));
+
+        Postings smallest = keywordPostings.get(0);
+        int[] candidates = Arrays.copyOf(smallest.sequences, smallest.size);
+        int candidateCount = candidates.length;
+        for (int i = 1; i < keywordPostings.size() && candidateCount > 0; i++) {
+            candidateCount = retainAll(candidates, candidateCount, keywordPostings.get(i));
+        }
+
+        for (int i = 0; i < candidateCount; i++) {
+            Task task = tasksBySequence[candidates[i]];
+            if (task != null && task.getDescription().contains(keyword)) { // the trigrams may be in another order
+                matchingTasks.add(task);
+            }
+        }
+        return matchingTasks;
+    }
+
+    /**
+     * Keeps only the candidates that are also in the posting list, searching forward from the last one found.
+     *
+     * @return the number of candidates kept at the front of the array
+     */
+    private static int retainAll(int[] candidates, int candidateCount, Postings postings) {
+        int kept = 0;
+        int from = 0;
+        for (int i = 0; i < candidateCount && from < postings.size; i++) {
+            int found = Arrays.binarySearch(postings.sequences, from, postings.size, candidates[i]);
+            if (found >= 0) {
+                candidates[kept++] = candidates[i];
+                from = found + 1;
+            } else {
+                from = -found - 1;
+            }
+        }
+        return kept;
+    }
+
+    private static long trigramAt(String text, int index) {
+        return ((long) text.charAt(index) << 32) | ((long) text.charAt(index + 1) << 16) | text.charAt(index + 2);
+    }
+}
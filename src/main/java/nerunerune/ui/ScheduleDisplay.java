@@ -4,7 +4,9 @@ import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 
 import nerunerune.exception.NeruneruneException;
 import nerunerune.parser.DateTimeParser;
@@ -109,107 +111,49 @@ public class ScheduleDisplay {
             ui.printMessage("Schedule for " + capitalizeMonth(startDate.getMonth()) + ":");
         }
 
-        ArrayList<Task> allTasksInRange = collectTasksInRange(tasks, startDate, endDate);
+        NavigableMap<LocalDate, List<Task>> tasksByDate = tasks.findTasksByDate(startDate, endDate);
 
-        if (allTasksInRange.isEmpty()) {
+        if (tasksByDate.isEmpty()) {
             ui.printMessage("\nNo tasks scheduled in this period.");
             return;
         }
 
-        displayTasksByDate(allTasksInRange, startDate, endDate);
+        displayTasksByDate(tasksByDate);
     }
 
     /**
-     * Collects all tasks that occur within a date range.
+     * Displays tasks grouped by date and task type.
      * <p>
-     * Uses Java Streams to filter tasks whose dates fall between the specified
-     * start and end dates (inclusive).
-     * <p>
-     * The stream pipeline:
-     * <ol>
-     *   <li>Creates a stream from the task list</li>
-     *   <li>Filters tasks to include only those with dates in range</li>
-     *   <li>Collects remaining tasks into a new ArrayList</li>
-     * </ol>
-     *
-     * @param tasks     the TaskList containing all tasks to filter
-     * @param startDate the start date of the range (inclusive)
-     * @param endDate   the end date of the range (inclusive)
-     * @return a new ArrayList containing only tasks with dates between startDate and endDate
-     */
-    private ArrayList<Task> collectTasksInRange(TaskList tasks, LocalDate startDate, LocalDate endDate) {
-        return tasks.getTaskList().stream()
-                .filter(task -> {
-                    LocalDate taskDate = getTaskDate(task);
-                    // task has date && date is not before start && date is not after end
-                    return taskDate != null && !taskDate.isBefore(startDate) && !taskDate.isAfter(endDate);
-                }) // filter only tasks with dates between startDate and endDate
-                .collect(Collectors.toCollection(ArrayList::new));
-    }
-
-    /**
-     * Extracts the date from a task based on its type.
-     * <p>
-     * For Deadline tasks, returns the deadline date.
-     * For Event tasks, returns the event start date.
-     * For Todo tasks or unknown types, returns null since they have no associated date.
-     * <p>
-     * This method centralizes the instanceof checking logic, avoiding code duplication
-     * throughout the ScheduleDisplay class.
-     *
-     * @param task the task to extract the date from
-     * @return the LocalDate associated with the task, or null if the task has no date
-     */
-    private LocalDate getTaskDate(Task task) {
-        if (task instanceof Deadline) {
-            return ((Deadline) task).getDeadlineByDateTime().toLocalDate();
-        } else if (task instanceof Event) {
-            return ((Event) task).getEventFromDateTime().toLocalDate();
-        }
-        return null;
-    }
-
-
-    /**
-     * Displays tasks grouped by date and task type within a date range.
-     * <p>
-     * For each date in the range, displays a header with the formatted date,
+     * A deadline is shown on its due date and an event on its start date.
+     * For each date that has tasks, displays a header with the formatted date,
      * followed by separate sections for Deadlines and Events.
      * Shows a total count of tasks at the end.
      *
-     * @param allTasks  the list of all tasks in the range
-     * @param startDate the start date of the range
-     * @param endDate   the end date of the range
+     * @param tasksByDate the tasks in the range, grouped by date in date order
      */
-    private void displayTasksByDate(ArrayList<Task> allTasks, LocalDate startDate, LocalDate endDate) {
-        LocalDate currentDate = startDate;
+    private void displayTasksByDate(NavigableMap<LocalDate, List<Task>> tasksByDate) {
         int totalCount = 0;
 
-        while (!currentDate.isAfter(endDate)) {
+        for (Map.Entry<LocalDate, List<Task>> entry : tasksByDate.entrySet()) {
             ArrayList<Task> deadlinesForDate = new ArrayList<>();
             ArrayList<Task> eventsForDate = new ArrayList<>();
 
             // separate tasks by type for this date
-            for (Task task : allTasks) {
-                if (task instanceof Deadline && ((Deadline) task).getDeadlineByDateTime().toLocalDate().equals(currentDate)) {
+            for (Task task : entry.getValue()) {
+                if (task instanceof Deadline) {
                     deadlinesForDate.add(task);
-                } else if (task instanceof Event && ((Event) task).getEventFromDateTime().toLocalDate().equals(currentDate)) {
+                } else if (task instanceof Event) {
                     eventsForDate.add(task);
                 }
             }
 
-            // display date if there are tasks
-            if (!deadlinesForDate.isEmpty() || !eventsForDate.isEmpty()) {
-                ui.printMessage("\n" + DateTimeParser.formatForSchedule(currentDate) + ":");
+            ui.printMessage("\n" + DateTimeParser.formatForSchedule(entry.getKey()) + ":");
 
-                displayTaskCategory("Deadlines", deadlinesForDate);
+            displayTaskCategory("Deadlines", deadlinesForDate);
 
-                displayTaskCategory("Events", eventsForDate);
+            displayTaskCategory("Events", eventsForDate);
 
-                totalCount += deadlinesForDate.size() + eventsForDate.size();
-            }
-
-            currentDate = currentDate.plusDays(1);
+            totalCount += deadlinesForDate.size() + eventsForDate.size();
         }
 
         ui.printMessage("\nTotal: " + totalCount + " task(s)");
@@ -218,9 +162,9 @@ public class ScheduleDisplay {
     /**
      * Filters tasks by the specified date and groups them by type.
      * <p>
-     * Iterates through all tasks and categorizes those occurring on the given date
-     * into separate lists for Deadlines and Events. Todo tasks are excluded as they
-     * have no specific date.
+     * Categorizes the tasks occurring on the given date into separate lists for Deadlines
+     * and Events. Todo tasks are excluded as they have no specific date. The lookup is
+     * answered by the task list's indexes when they are ready.
      *
      * @param tasks     the TaskList containing all tasks
      * @param date      the date to filter tasks by
@@ -229,17 +173,7 @@ public class ScheduleDisplay {
      */
     private void filterAndGroupTasks(TaskList tasks, LocalDate date,
                                      ArrayList<Task> deadlines, ArrayList<Task> events) {
-        for (Task task : tasks.getTaskList()) {
-            if (!task.occursOn(date)) {
-                continue;
-            }
-
-            if (task instanceof Deadline) {
-                deadlines.add(task);
-            } else if (task instanceof Event) {
-                events.add(task);
-            }
-        }
+        tasks.findTasksOn(date, deadlines, events);
     }
 
     /**
@@ -266,7 +200,7 @@ public class ScheduleDisplay {
      * Displays a category of tasks with a header and numbered list.
      * <p>
      * If the task list is empty, the category is not displayed.
-     * Each task is numbered starting from 1 and indented for readability.
+     * Each task is shown with its ID, the number that commands take, and indented for readability.
      *
      * @param categoryName the name of the category (e.g., "Deadlines", "Events")
      * @param tasks        the list of tasks to display in this category
@@ -277,8 +211,8 @@ public class ScheduleDisplay {
         }
 
         ui.printMessage((categoryName + ":").indent(4));
-        for (int i = 0; i < tasks.size(); i++) {
-            ui.printMessage(((i + 1) + ". " + tasks.get(i)).indent(8));
+        for (Task task : tasks) {
+            ui.printMessage((task.getId() + ". " + task).indent(8));
         }
     }
 
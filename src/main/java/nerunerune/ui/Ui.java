@@ -3,6 +3,7 @@ package nerunerune.ui;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.List;
 
 import nerunerune.command.Command;
 import nerunerune.exception.NeruneruneException;
@@ -23,7 +24,9 @@ public class Ui {
             Nerunerune Commands
             
             list - Show all tasks
+            stats - Show task counts
             find <keyword> - Search tasks
+            find ~<word> - Search tasks allowing for typos
             schedule <date> - View tasks for date
               • Dates: DD-MM-YYYY, today, tomorrow, yesterday, next week, next month
             
@@ -34,14 +37,16 @@ public class Ui {
             event <task> /from <date> /to <date> - Add event
               • Format: DD-MM-YYYY HHmm
               • Example: event meeting /from 01-01-2025 1400 /to 01-01-2025 1600
+            clashes - List events that overlap
             
-            mark <task> - Mark complete (task name only)
-            unmark <task> - Mark incomplete (task name only)
-            delete <task> - Delete task (task name only)
+            mark <task> - Mark complete (task name or number)
+            unmark <task> - Mark incomplete (task name or number)
+            delete <task> - Delete task (task name or number)
             
             mark backdated - Mark all overdue as complete
             delete all done - Delete all completed
             
+            export - Save a readable copy of all tasks
             command - Show help
             bye - Exit
             """;
@@ -90,20 +95,21 @@ public class Ui {
     }
 
     /**
-     * Prints all tasks in the given task list, formatted with index and indentation.
+     * Prints all tasks in the given task list, formatted with their ID and indentation.
      * <p>
      * If the list is empty, displays an appropriate message instead.
      *
      * @param taskList the list of tasks to display
      */
-    public void printTaskList(ArrayList<Task> taskList) {
+    public void printTaskList(List<Task> taskList) {
         if (taskList.isEmpty()) {
             printMessage(("Your task list is empty!").indent(4));
         } else {
             printMessage(
                     ("Here's what's on your task list so far: " + "(" + taskList.size() + " in total)").indent(4));
             for (int i = 0; i < taskList.size(); i++) {
-                printMessage(((i + 1) + ". " + taskList.get(i)).indent(8));
+                Task task = taskList.get(i);
+                printMessage((task.getId() + ". " + task).indent(8));
             }
         }
     }
@@ -133,18 +139,27 @@ public class Ui {
     /**
      * Displays the list of tasks that match the search criteria.
      * <p>
-     * If the list is empty, displays a "no matching tasks found" message.
-     * Otherwise, displays each matching task with its index number starting from 1.
+     * If both lists are empty, displays a "no matching tasks found" message.
+     * Otherwise, displays each matching task with its ID, the number that commands take,
+     * followed by the matching archived tasks under their own heading. Archived tasks can no longer
+     * be changed, so they are listed without a number.
      *
      * @param matchingTasks the list of tasks to display; can be empty
+     * @param archivedTasks the list of archived tasks to display; can be empty
      */
-    public void showMatchingTasks(ArrayList<Task> matchingTasks) {
-        if (matchingTasks.isEmpty()) {
+    public void showMatchingTasks(ArrayList<Task> matchingTasks, ArrayList<Task> archivedTasks) {
+        if (matchingTasks.isEmpty() && archivedTasks.isEmpty()) {
             printMessage(("No matching tasks found!").indent(4));
-        } else {
-            printMessage(("Here are all the matching tasks I can find:\n").indent(4));
-            for (int i = 0; i < matchingTasks.size(); i++) {
-                printMessage(((i + 1) + ". " + matchingTasks.get(i)).indent(8));
+            return;
+        }
+        printMessage(("Here are all the matching tasks I can find:\n").indent(4));
+        for (Task task : matchingTasks) {
+            printMessage((task.getId() + ". " + task).indent(8));
+        }
+        if (!archivedTasks.isEmpty()) {
+            printMessage(("From the archive:").indent(4));
+            for (Task task : archivedTasks) {
+                printMessage(("- " + task).indent(8));
             }
         }
     }
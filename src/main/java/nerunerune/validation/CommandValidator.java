@@ -9,7 +9,8 @@ import nerunerune.exception.NeruneruneException;
 public class CommandValidator {
     /**
      * Validates that the details following a command are not empty.
-     * For deadline and event commands, also ensures the description part is not empty.
+     * For deadline and event commands, also ensures the description part is not empty,
+     * and for a fuzzy find, that it searches for a single word.
      *
      * @param command    the command word (e.g. "todo", "mark", "deadline", "event")
      * @param taskString the string containing task details after the command
@@ -30,6 +31,14 @@ public class CommandValidator {
             if (findIndexFrom == 0) {
                 throw new NeruneruneException("Details after event  cannot be empty");
             }
+        } else if (command.equals("find") && taskString.startsWith("~")) {
+            String term = taskString.substring(1).trim();
+            if (term.isEmpty()) {
+                throw new NeruneruneException("Details after '~' cannot be empty.");
+            }
+            if (term.chars().anyMatch(Character::isWhitespace)) {
+                throw new NeruneruneException("A fuzzy search looks for a single word.");
+            }
         }
     }
 
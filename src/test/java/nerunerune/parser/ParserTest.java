@@ -1,5 +1,6 @@
 package nerunerune.parser;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
@@ -119,6 +120,36 @@ public class ParserTest {
         assertEquals("meeting", task.getDescription());
     }
 
+    @Test
+    public void parseTaskLine_eventWithId_returnEventWithId() throws Exception {
+        Task task = Parser.parseTaskLine("E | 0 | meeting | Aug 03 2025 1400 | Aug 03 2025 1530 | 42");
+        assertEquals("meeting", task.getDescription());
+        assertEquals(42, task.getId());
+    }
+
+    @Test
+    public void parseTaskLine_todoWithoutId_returnTodoWithoutId() throws Exception {
+        Task task = Parser.parseTaskLine("T | 0 | buy books");
+        assertFalse(task.hasId());
+    }
+
+    @Test
+    public void parseTaskLine_todoWithInvalidId_throwIOException() {
+        assertThrows(IOException.class, () -> Parser.parseTaskLine("T | 0 | buy books | x1"));
+    }
+
+    // splitStorageLine tests
+    @Test
+    public void splitStorageLine_eventLine_returnAllFields() {
+        assertArrayEquals(new String[] {"E", "0", "meeting", "Aug 03 2025 1400", "Aug 03 2025 1530"},
+                Parser.splitStorageLine("E | 0 | meeting | Aug 03 2025 1400 | Aug 03 2025 1530"));
+    }
+
+    @Test
+    public void splitStorageLine_pipeWithoutSpaces_keptInDescription() {
+        assertArrayEquals(new String[] {"T", "0", "a|b || c"}, Parser.splitStorageLine("T | 0 | a|b || c"));
+    }
+
     @Test
     public void parseTodo_emptyDescription_createTodoWithEmptyDescription() {
         Task task = Parser.parseTodo("");
@@ -0,0 +1,109 @@
+package nerunerune.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class StorageDateTimeCodecTest {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("MMM dd yyyy HHmm");
+
+    private static LocalDateTime randomDateTime(Random random, int minYear, int maxYear) {
+        LocalDateTime start = LocalDateTime.of(minYear, 1, 1, 0, 0);
+        long minutes = start.until(LocalDateTime.of(maxYear, 12, 31, 23, 59), ChronoUnit.MINUTES);
+        return start.plusMinutes((long) (random.nextDouble() * minutes));
+    }
+
+    // the formatter is the oracle: the codec must parse every text to the same result, or fail the same way
+    private static void assertParsesLikeFormatter(String text) {
+        LocalDateTime expected;
+        try {
+            expected = LocalDateTime.parse(text, FORMATTER);
+        } catch (DateTimeParseException e) {
+            assertThrows(DateTimeParseException.class, () -> StorageDateTimeCodec.parse(text), text);
+            assertThrows(DateTimeParseException.class,
+                    () -> StorageDateTimeCodec.parse(text.toCharArray(), 0, text.length()), text);
+            assertEquals(StorageDateTimeCodec.NOT_PARSED, parseEpochMinutes(text), text);
+            return;
+        }
+        assertEquals(expected, StorageDateTimeCodec.parse(text), text);
+        assertEquals(expected, StorageDateTimeCodec.parse(text.toCharArray(), 0, text.length()), text);
+        long epochMinutes = parseEpochMinutes(text);
+        if (epochMinutes != StorageDateTimeCodec.NOT_PARSED) {
+            assertEquals(expected.toEpochSecond(ZoneOffset.UTC) / 60, epochMinutes, text);
+        }
+    }
+
+    private static long parseEpochMinutes(String text) {
+        byte[] bytes = ("x|" + text + "|x").getBytes(); // a field of a stored line, in the platform charset
+        return StorageDateTimeCodec.parseEpochMinutes(bytes, 2, bytes.length - 2);
+    }
+
+    @Test
+    public void format_randomDateTimes_matchesFormatter() {
+        Random random = new Random(16);
+        for (int i = 0; i < 20_000; i++) {
+            LocalDateTime dateTime = randomDateTime(random, 1, 9999);
+            String expected = FORMATTER.format(dateTime);
+            assertEquals(expected, StorageDateTimeCodec.format(dateTime));
+            StringBuilder sb = new StringBuilder("T | ");
+            StorageDateTimeCodec.append(sb, dateTime);
+            assertEquals("T | " + expected, sb.toString());
+        }
+    }
+
+    @Test
+    public void format_yearOutsideFourDigits_matchesFormatter() {
+        for (LocalDateTime dateTime : new LocalDateTime[] {LocalDateTime.of(0, 3, 4, 5, 6),
+                LocalDateTime.of(-42, 12, 31, 23, 59), LocalDateTime.of(10_000, 1, 1, 0, 0)}) {
+            assertEquals(FORMATTER.format(dateTime), StorageDateTimeCodec.format(dateTime));
+            assertParsesLikeFormatter(FORMATTER.format(dateTime));
+        }
+    }
+
+    @Test
+    public void parse_randomDateTimes_matchesFormatter() {
+        Random random = new Random(61);
+        for (int i = 0; i < 20_000; i++) {
+            LocalDateTime dateTime = randomDateTime(random, 1, 9999);
+            String text = FORMATTER.format(dateTime);
+            assertEquals(dateTime, StorageDateTimeCodec.parse(text));
+            assertParsesLikeFormatter(text);
+        }
+    }
+
+    @Test
+    public void parse_invalidDateTimes_failsLikeFormatter() {
+        String[] texts = {"Feb 29 2025 1200", "Feb 29 2024 1200", "Apr 31 2025 0000", "Jan 00 2025 0000",
+            "Jan 01 2025 2400", "Jan 01 2025 2360", "Jan 1 2025 1200", "Jan 01 2025 12:00", "Jan 01 0000 0000",
+            "January 01 2025 1200", "jan 01 2025 1200", "Jan 01 2025 120", "Jan 01 2025 12000", "", "Jan",
+            "2025-01-01T12:00", "Jan +1 2025 1200", "Jan 01 -025 1200"};
+        for (String text : texts) {
+            assertParsesLikeFormatter(text);
+        }
+    }
+
+    @Test
+    public void parse_mutatedDateTimes_matchesFormatter() {
+        Random random = new Random(1616);
+        String alphabet = "0123456789 +-:aJnF";
+        for (int i = 0; i < 20_000; i++) {
+            char[] chars = FORMATTER.format(randomDateTime(random, 1900, 2100)).toCharArray();
+            chars[random.nextInt(chars.length)] = alphabet.charAt(random.nextInt(alphabet.length()));
+            assertParsesLikeFormatter(new String(chars));
+        }
+    }
+
+    @Test
+    public void parse_rangeOfArray_readsOnlyThatRange() {
+        char[] chars = "D | 0 | essay | Oct 26 2025 1830 | 7".toCharArray();
+        assertEquals(LocalDateTime.of(2025, 10, 26, 18, 30), StorageDateTimeCodec.parse(chars, 16, 32));
+    }
+}
@@ -0,0 +1,122 @@
+package nerunerune.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class AtomicWriteTest {
+    private static final String STORED = "T | 0 | first | 1\nT | 1 | second | 2\n";
+
+    @TempDir
+    Path tempDir;
+
+    private static StorageSettings durable(StorageFormat format) {
+        return new StorageSettings(false, format, 0, true, false, false, false, 0, StorageBackend.FILE, false);
+    }
+
+    private static List<String> readStoredTasks(File storageFile) throws Exception {
+        List<Task> taskList = new ArrayList<>();
+        StorageFiles.readTasks(storageFile, taskList, null);
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList) {
+            descriptions.add(task.toStorageString());
+        }
+        return descriptions;
+    }
+
+    @Test
+    public void writeAtomically_failsMidWrite_leavesOldContents() throws Exception {
+        Path target = tempDir.resolve("tasks.txt");
+        Files.writeString(target, STORED, Charset.defaultCharset());
+
+        assertThrows(IOException.class, () -> StorageFiles.writeAtomically(target, channel -> {
+            channel.write(ByteBuffer.wrap("T | 0 | half".getBytes(Charset.defaultCharset())));
+            throw new IOException("disk full");
+        }, true));
+
+        assertEquals(STORED, Files.readString(target, Charset.defaultCharset()));
+    }
+
+    @Test
+    public void handleStorage_leftoverTempFile_loadsOldContentsAndReplacesTempOnSave() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        Files.writeString(storageFile.toPath(), STORED, Charset.defaultCharset());
+        // a save that crashed before its rename
+        Path tempFile = tempDir.resolve("tasks.txt.tmp");
+        Files.writeString(tempFile, "T | 0 | torn", Charset.defaultCharset());
+
+        FileStorage storage = new FileStorage(storageFile.getPath(), durable(StorageFormat.TEXT));
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+        assertIterableEquals(List.of("T | 0 | first | 1", "T | 1 | second | 2"), readStoredTasks(storageFile));
+
+        Todo todo = new Todo("third");
+        todo.setId(storage.takeNextId());
+        taskList.add(todo);
+        storage.saveTasksToStorage(taskList);
+        storage.close();
+
+        assertIterableEquals(List.of("T | 0 | first | 1", "T | 1 | second | 2", "T | 0 | third | 3"),
+                readStoredTasks(storageFile));
+        assertFalse(Files.exists(tempFile));
+    }
+
+    @Test
+    public void saveTasksToStorage_durableWithoutInterval_writtenWithinCommitWindow() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        FileStorage storage = new FileStorage(storageFile.getPath(), durable(StorageFormat.TEXT));
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+        Todo todo = new Todo("committed");
+        todo.setId(storage.takeNextId());
+        taskList.add(todo);
+
+        storage.saveTasksToStorage(taskList);
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (readStoredTasks(storageFile).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertIterableEquals(List.of("T | 0 | committed | 1"), readStoredTasks(storageFile));
+        storage.close();
+    }
+
+    @Test
+    public void saveTasksToStorage_durableBinary_replacesFileAndLeavesNoTempFile() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        FileStorage storage = new FileStorage(storageFile.getPath(), durable(StorageFormat.BINARY));
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+        for (int i = 0; i < 3; i++) {
+            Todo todo = new Todo("task " + i);
+            todo.setId(storage.takeNextId());
+            taskList.add(todo);
+            storage.saveTasksToStorage(taskList);
+        }
+        storage.close();
+
+        assertEquals(StorageFormat.BINARY, StorageFiles.detectFormat(storageFile));
+        assertIterableEquals(List.of("T | 0 | task 0 | 1", "T | 0 | task 1 | 2", "T | 0 | task 2 | 3"),
+                readStoredTasks(storageFile));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertFalse(files.anyMatch(path -> path.toString().endsWith(".tmp")));
+        }
+    }
+}
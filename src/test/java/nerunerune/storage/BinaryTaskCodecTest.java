@@ -0,0 +1,160 @@
+package nerunerune.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.parser.Parser;
+import nerunerune.task.Deadline;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class BinaryTaskCodecTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 0, 0);
+    private static final String[] DESCRIPTIONS = {"buy books", "", "ねるねるね | pipes", "line\tbreak", "x"};
+
+    private static List<Task> randomTasks(Random random, int count) {
+        List<Task> taskList = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String description = DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)] + " " + i;
+            boolean isDone = random.nextBoolean();
+            // dates either side of the epoch, at minute resolution as the format stores them
+            LocalDateTime from = START.plusMinutes(random.nextInt(2_000_000) - 1_000_000);
+            Task task;
+            switch (random.nextInt(3)) {
+            case 0:
+                task = new Todo(description, isDone);
+                break;
+            case 1:
+                task = new Deadline(description, from, isDone);
+                break;
+            default:
+                task = new Event(description, from, from.plusMinutes(random.nextInt(10_000)), isDone);
+                break;
+            }
+            if (random.nextInt(4) > 0) {
+                task.setId(1 + random.nextInt(1 << 20));
+            }
+            taskList.add(task);
+        }
+        return taskList;
+    }
+
+    // the text storage strings hold every stored field, so equal strings mean an exact round trip
+    private static List<String> describe(List<Task> taskList) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList) {
+            descriptions.add(task.toStorageString());
+        }
+        return descriptions;
+    }
+
+    @Test
+    public void read_encodedTasks_roundTripsEveryField() throws Exception {
+        List<Task> taskList = randomTasks(new Random(5), 1000);
+        List<Task> decoded = new ArrayList<>();
+
+        BinaryTaskCodec.read(ByteBuffer.wrap(BinaryTaskCodec.encode(taskList, 1234)), decoded, null);
+
+        assertIterableEquals(describe(taskList), describe(decoded));
+    }
+
+    private static List<Task> tasksDescribedAs(String... descriptions) {
+        List<Task> taskList = new ArrayList<>();
+        for (int i = 0; i < descriptions.length; i++) {
+            LocalDateTime from = START.plusHours(i);
+            Task task = switch (i % 3) {
+            case 0 -> new Todo(descriptions[i], i % 2 == 0);
+            case 1 -> new Deadline(descriptions[i], from, i % 2 == 0);
+            default -> new Event(descriptions[i], from, from.plusHours(1), i % 2 == 0);
+            };
+            task.setId(i + 1);
+            taskList.add(task);
+        }
+        return taskList;
+    }
+
+    private static Task readTextLine(String line) {
+        try {
+            return Parser.parseTaskLine(line);
+        } catch (IOException | NeruneruneException e) {
+            return null;
+        }
+    }
+
+    @Test
+    public void read_pipesAndNonAsciiDescriptions_matchTextCodec() throws Exception {
+        List<Task> taskList = tasksDescribedAs("a|b", "| leading", "a |b| c", "ñandú", "日本語のタスク",
+                "emoji \uD83C\uDF61", "tab\there", "|", "mixed ü|é");
+        List<Task> decoded = new ArrayList<>();
+
+        BinaryTaskCodec.read(ByteBuffer.wrap(BinaryTaskCodec.encode(taskList, 100)), decoded, null);
+
+        // the text codec is the reference for every description it can hold
+        List<Task> fromText = new ArrayList<>();
+        for (Task task : taskList) {
+            fromText.add(readTextLine(task.toStorageString()));
+        }
+        assertIterableEquals(describe(fromText), describe(decoded));
+        assertIterableEquals(describe(taskList), describe(decoded));
+    }
+
+    @Test
+    public void read_delimiterInDescription_keptUnlikeTextCodec() throws Exception {
+        List<Task> taskList = tasksDescribedAs("a | b", "x | 1 | y", "trailing |");
+        List<Task> decoded = new ArrayList<>();
+
+        BinaryTaskCodec.read(ByteBuffer.wrap(BinaryTaskCodec.encode(taskList)), decoded, null);
+
+        assertIterableEquals(describe(taskList), describe(decoded));
+        for (Task task : taskList) {
+            // the text format splits on the delimiter, so it cannot give the description back
+            Task fromText = readTextLine(task.toStorageString());
+            assertNotEquals(task.getDescription(), fromText == null ? null : fromText.getDescription());
+        }
+    }
+
+    @Test
+    public void read_emptyList_readsNoTasks() throws Exception {
+        List<Task> decoded = new ArrayList<>();
+        BinaryTaskCodec.read(ByteBuffer.wrap(BinaryTaskCodec.encode(List.of())), decoded, null);
+        assertEquals(0, decoded.size());
+    }
+
+    @Test
+    public void encodedSize_variedTasks_matchesEncodedLength() {
+        List<Task> taskList = randomTasks(new Random(9), 1000);
+        taskList.add(new Todo("\u00e9\u2603 \ud834\udd1e lone \ud834 and \udd1e"));
+
+        assertEquals((long) BinaryTaskCodec.encode(taskList, 1L << 40).length,
+                BinaryTaskCodec.encodedSize(taskList, 1L << 40));
+        assertEquals((long) BinaryTaskCodec.encode(List.of()).length, BinaryTaskCodec.encodedSize(List.of(), 0));
+    }
+
+    @Test
+    public void readNextId_encodedWithNextId_returnsIt() {
+        List<Task> taskList = randomTasks(new Random(6), 10);
+        assertEquals(1234, BinaryTaskCodec.readNextId(ByteBuffer.wrap(BinaryTaskCodec.encode(taskList, 1234))));
+        assertEquals(0, BinaryTaskCodec.readNextId(ByteBuffer.wrap(BinaryTaskCodec.encode(taskList))));
+    }
+
+    @Test
+    public void read_truncatedHeader_throws() {
+        byte[] bytes = BinaryTaskCodec.encode(List.of(new Todo("todo")));
+        assertThrows(CorruptedRecordException.class,
+                () -> BinaryTaskCodec.read(ByteBuffer.wrap(Arrays.copyOf(bytes, 2)), new ArrayList<>(), null));
+    }
+}
@@ -0,0 +1,147 @@
+package nerunerune.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.task.Deadline;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class ColdArchiveTest {
+    private static final int ARCHIVE_AFTER_DAYS = 30;
+    private static final LocalDateTime CUTOFF = LocalDate.now().minusDays(ARCHIVE_AFTER_DAYS).atStartOfDay();
+
+    @TempDir
+    Path tempDir;
+
+    private static StorageSettings archiving(boolean isLazy) {
+        return new StorageSettings(false, StorageFormat.TEXT, 0, false, false, isLazy, false, ARCHIVE_AFTER_DAYS,
+                StorageBackend.FILE, false);
+    }
+
+    private static List<Task> sampleTasks() {
+        List<Task> taskList = new ArrayList<>();
+        taskList.add(new Deadline("done before cutoff", CUTOFF.minusMinutes(1), true));
+        taskList.add(new Deadline("done at cutoff", CUTOFF, true));
+        taskList.add(new Deadline("not done before cutoff", CUTOFF.minusDays(5), false));
+        taskList.add(new Event("ended before cutoff", CUTOFF.minusDays(10), CUTOFF.minusDays(9), true));
+        taskList.add(new Event("started before cutoff", CUTOFF.minusDays(10), CUTOFF.plusDays(1), true));
+        taskList.add(new Todo("done todo", true));
+        for (int i = 0; i < taskList.size(); i++) {
+            taskList.get(i).setId(i + 1);
+        }
+        return taskList;
+    }
+
+    private static List<String> describe(List<Task> taskList) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList) {
+            descriptions.add(task.toStorageString());
+        }
+        return descriptions;
+    }
+
+    private static List<String> readStoredTasks(File storageFile) throws Exception {
+        List<Task> taskList = new ArrayList<>();
+        StorageFiles.readTasks(storageFile, taskList, null);
+        return describe(taskList);
+    }
+
+    @Test
+    public void append_thenSearch_roundTripsInArchiveOrder() throws Exception {
+        ColdArchive archive = new ColdArchive(tempDir.resolve("archive.bin").toFile(), false);
+        List<Task> tasks = sampleTasks();
+
+        archive.append(tasks.subList(0, 2));
+        archive.append(List.of());
+        archive.append(tasks.subList(2, tasks.size()));
+
+        assertIterableEquals(describe(tasks), describe(archive.search(task -> true)));
+        assertIterableEquals(describe(List.of(tasks.get(3), tasks.get(4))),
+                describe(archive.search(task -> task instanceof Event)));
+    }
+
+    @Test
+    public void append_afterTornBlock_dropsTornBlock() throws Exception {
+        File archiveFile = tempDir.resolve("archive.bin").toFile();
+        ColdArchive archive = new ColdArchive(archiveFile, false);
+        List<Task> tasks = sampleTasks();
+        archive.append(tasks.subList(0, 2));
+        // an append cut short by a crash: a block header promising more bytes than follow
+        Files.write(archiveFile.toPath(), new byte[] {0, 0, 1, 0, 42}, StandardOpenOption.APPEND);
+
+        assertIterableEquals(describe(tasks.subList(0, 2)), describe(archive.search(task -> true)));
+        archive.append(tasks.subList(2, 3));
+
+        assertIterableEquals(describe(tasks.subList(0, 3)), describe(archive.search(task -> true)));
+    }
+
+    @Test
+    public void moveCompletedTasks_sampleTasks_movesOnlyTasksDoneBeforeCutoff() throws Exception {
+        ColdArchive archive = new ColdArchive(tempDir.resolve("archive.bin").toFile(), false);
+        List<Task> taskList = sampleTasks();
+        List<Task> tasks = new ArrayList<>(taskList);
+
+        // only the deadline done before the cutoff and the event that ended before it are archived
+        assertEquals(2, archive.moveCompletedTasks(taskList, CUTOFF));
+
+        assertIterableEquals(describe(List.of(tasks.get(0), tasks.get(3))),
+                describe(archive.search(task -> true)));
+        assertIterableEquals(describe(List.of(tasks.get(1), tasks.get(2), tasks.get(4), tasks.get(5))),
+                describe(taskList));
+        assertEquals(0, archive.moveCompletedTasks(taskList, CUTOFF));
+    }
+
+    @Test
+    public void handleStorage_archiveAge_movesOnlyTasksDoneBeforeCutoff() throws Exception {
+        for (boolean isLazy : new boolean[] {false, true}) {
+            Path directory = Files.createDirectory(tempDir.resolve(isLazy ? "lazy" : "eager"));
+            File storageFile = directory.resolve("tasks.txt").toFile();
+            List<Task> stored = sampleTasks();
+            StorageFiles.writeTasks(storageFile, stored, stored.size() + 1, StorageFormat.TEXT, isLazy, false);
+
+            FileStorage storage = new FileStorage(storageFile.getPath(), archiving(isLazy));
+            List<Task> taskList = storage.createTaskList();
+            storage.handleStorage(taskList);
+
+            List<Task> archived = List.of(stored.get(0), stored.get(3));
+            List<Task> kept = new ArrayList<>(stored);
+            kept.removeAll(archived);
+            assertIterableEquals(describe(kept), describe(taskList), "lazy " + isLazy);
+            assertIterableEquals(describe(kept), readStoredTasks(storageFile), "lazy " + isLazy);
+            assertIterableEquals(describe(archived), describe(storage.searchArchive(task -> true)),
+                    "lazy " + isLazy);
+        }
+    }
+
+    @Test
+    public void searchArchive_afterReload_findsArchivedTasksByDescription() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        List<Task> stored = sampleTasks();
+        StorageFiles.writeTasks(storageFile, stored, stored.size() + 1, StorageFormat.TEXT, false, false);
+        new FileStorage(storageFile.getPath(), archiving(false)).handleStorage(new ArrayList<>());
+
+        FileStorage storage = new FileStorage(storageFile.getPath(), archiving(false));
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+
+        assertTrue(taskList.stream().noneMatch(task -> task.getDescription().equals("ended before cutoff")));
+        assertIterableEquals(List.of(stored.get(3).toStorageString()),
+                describe(storage.searchArchive(task -> task.getDescription().contains("ended"))));
+        assertIterableEquals(List.of(), describe(storage.searchArchive(task -> !task.getIsDone())));
+    }
+}
@@ -0,0 +1,83 @@
+package nerunerune.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.task.Task;
+
+public class JournalCheckpointerTest {
+    private static final String SNAPSHOT = "T | 0 | first | 1\nT | 0 | second | 2\n";
+
+    @TempDir
+    Path tempDir;
+
+    private File write(String filename, String contents) throws IOException {
+        File file = tempDir.resolve(filename).toFile();
+        Files.write(file.toPath(), contents.getBytes(Charset.defaultCharset()));
+        return file;
+    }
+
+    private JournalCheckpointer newCheckpointer(File storageFile, TaskIdCounter ids) {
+        TaskJournal journal = new TaskJournal(tempDir.resolve("tasksJournal.txt").toFile(), false, ids);
+        return new JournalCheckpointer(storageFile, journal, ids, StorageSettings.defaults(), 100, 1 << 20, null);
+    }
+
+    private static List<String> readStoredTasks(File storageFile) throws Exception {
+        List<Task> taskList = new ArrayList<>();
+        StorageFiles.readTasks(storageFile, taskList, null);
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList) {
+            descriptions.add(task.toStorageString());
+        }
+        return descriptions;
+    }
+
+    @Test
+    public void recoverInterruptedCheckpoint_stagedAndSealed_discardsStagedAndFoldsJournal() throws Exception {
+        File storageFile = write("tasks.txt", SNAPSHOT);
+        write("tasksJournalSealed.txt", "MARK | 1\nDELETE | 2\nADD | T | 0 | third | 3\n");
+        // a snapshot written before the crash, but not committed by deleting the sealed journal
+        write("tasksSnapshotStaged.txt", "T | 0 | half-written | 1\n");
+        TaskIdCounter ids = new TaskIdCounter();
+
+        newCheckpointer(storageFile, ids).recoverInterruptedCheckpoint();
+
+        assertIterableEquals(List.of("T | 1 | first | 1", "T | 0 | third | 3"), readStoredTasks(storageFile));
+        assertFalse(tempDir.resolve("tasksJournalSealed.txt").toFile().exists());
+        assertFalse(tempDir.resolve("tasksSnapshotStaged.txt").toFile().exists());
+        assertEquals(4, ids.getNextId());
+    }
+
+    @Test
+    public void recoverInterruptedCheckpoint_stagedOnly_movesStagedIn() throws Exception {
+        File storageFile = write("tasks.txt", SNAPSHOT);
+        // the sealed journal was deleted, so the staged snapshot was committed
+        write("tasksSnapshotStaged.txt", "T | 1 | first | 1\nT | 0 | third | 3\n");
+
+        newCheckpointer(storageFile, new TaskIdCounter()).recoverInterruptedCheckpoint();
+
+        assertIterableEquals(List.of("T | 1 | first | 1", "T | 0 | third | 3"), readStoredTasks(storageFile));
+        assertFalse(tempDir.resolve("tasksSnapshotStaged.txt").toFile().exists());
+    }
+
+    @Test
+    public void recoverInterruptedCheckpoint_noCheckpointFiles_leavesStorageFile() throws Exception {
+        File storageFile = write("tasks.txt", SNAPSHOT);
+
+        newCheckpointer(storageFile, new TaskIdCounter()).recoverInterruptedCheckpoint();
+
+        assertEquals(SNAPSHOT, Files.readString(storageFile.toPath(), Charset.defaultCharset()));
+    }
+}
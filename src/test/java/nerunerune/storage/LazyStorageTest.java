@@ -0,0 +1,156 @@
+package nerunerune.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.task.Deadline;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class LazyStorageTest {
+    private static final LocalDateTime PAST = LocalDateTime.of(2020, 1, 15, 9, 0);
+    private static final LocalDateTime FUTURE = LocalDateTime.now().plusYears(1).withNano(0).withSecond(0);
+
+    @TempDir
+    Path tempDir;
+
+    private static StorageSettings lazy(StorageFormat format) {
+        return new StorageSettings(false, format, 0, false, false, true, false, 0, StorageBackend.FILE, false);
+    }
+
+    private static List<Task> sampleTasks() {
+        List<Task> taskList = new ArrayList<>();
+        taskList.add(new Todo("todo", true));
+        taskList.add(new Deadline("overdue", PAST, false));
+        taskList.add(new Deadline("upcoming", FUTURE, true));
+        taskList.add(new Event("finished", PAST, PAST.plusHours(2), false));
+        taskList.add(new Event("planned", FUTURE, FUTURE.plusHours(2), false));
+        for (int i = 0; i < taskList.size(); i++) {
+            taskList.get(i).setId(i + 1);
+        }
+        return taskList;
+    }
+
+    private static List<String> describe(List<Task> taskList) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList) {
+            descriptions.add(task.toStorageString());
+        }
+        return descriptions;
+    }
+
+    private LazyTaskList loadLazily(File storageFile, StorageFormat format) throws Exception {
+        FileStorage storage = new FileStorage(storageFile.getPath(), lazy(format));
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+        return assertInstanceOf(LazyTaskList.class, taskList);
+    }
+
+    @Test
+    public void handleStorage_lazy_leavesEveryRecordUndecoded() throws Exception {
+        for (StorageFormat format : StorageFormat.values()) {
+            File storageFile = tempDir.resolve("tasks-" + format + ".txt").toFile();
+            List<Task> stored = sampleTasks();
+            StorageFiles.writeTasks(storageFile, stored, stored.size() + 1, format, true, false);
+
+            LazyTaskList taskList = loadLazily(storageFile, format);
+
+            assertEquals(stored.size(), taskList.size());
+            for (int i = 0; i < taskList.size(); i++) {
+                assertNotNull(taskList.getUnreadRecord(i, format), format + " record " + i);
+            }
+        }
+    }
+
+    @Test
+    public void hotFields_lazy_answeredWithoutDecoding() throws Exception {
+        for (StorageFormat format : StorageFormat.values()) {
+            File storageFile = tempDir.resolve("tasks-" + format + ".txt").toFile();
+            List<Task> stored = sampleTasks();
+            StorageFiles.writeTasks(storageFile, stored, stored.size() + 1, format, true, false);
+
+            LazyTaskList taskList = loadLazily(storageFile, format);
+
+            for (int i = 0; i < taskList.size(); i++) {
+                Task expected = stored.get(i);
+                assertEquals(expected.getIsDone(), taskList.isDone(i), format + " record " + i);
+                assertEquals(expected.isBackdated(), taskList.isBackdated(i), format + " record " + i);
+                assertEquals(expected.getId(), taskList.getId(i), format + " record " + i);
+                assertNotNull(taskList.getUnreadRecord(i, format), format + " record " + i);
+            }
+        }
+    }
+
+    @Test
+    public void get_lazy_decodesOnlyTheAccessedRecord() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        List<Task> stored = sampleTasks();
+        StorageFiles.writeTasks(storageFile, stored, stored.size() + 1, StorageFormat.TEXT, true, false);
+
+        LazyTaskList taskList = loadLazily(storageFile, StorageFormat.TEXT);
+
+        assertEquals(stored.get(2).toStorageString(), taskList.get(2).toStorageString());
+        for (int i = 0; i < taskList.size(); i++) {
+            if (i == 2) {
+                assertNull(taskList.getUnreadRecord(i, StorageFormat.TEXT));
+            } else {
+                assertNotNull(taskList.getUnreadRecord(i, StorageFormat.TEXT), "record " + i);
+            }
+        }
+    }
+
+    @Test
+    public void saveTasksToStorage_lazy_copiesUntouchedRecordsWithoutDecoding() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        List<Task> stored = sampleTasks();
+        StorageFiles.writeTasks(storageFile, stored, stored.size() + 1, StorageFormat.TEXT, true, false);
+        FileStorage storage = new FileStorage(storageFile.getPath(), lazy(StorageFormat.TEXT));
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+        LazyTaskList lazyTasks = assertInstanceOf(LazyTaskList.class, taskList);
+
+        lazyTasks.get(1).markAsDone();
+        stored.get(1).markAsDone();
+        storage.saveTasksToStorage(lazyTasks);
+
+        for (int i = 0; i < lazyTasks.size(); i++) {
+            assertEquals(i != 1, lazyTasks.getUnreadRecord(i, StorageFormat.TEXT) != null, "record " + i);
+        }
+        List<Task> reloaded = new ArrayList<>();
+        StorageFiles.readTasks(storageFile, reloaded, null);
+        assertIterableEquals(describe(stored), describe(reloaded));
+    }
+
+    @Test
+    public void deleteDone_lazy_removesWithoutDecoding() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        List<Task> stored = sampleTasks();
+        StorageFiles.writeTasks(storageFile, stored, stored.size() + 1, StorageFormat.TEXT, true, false);
+
+        LazyTaskList taskList = loadLazily(storageFile, StorageFormat.TEXT);
+
+        assertTrue(taskList.removeDone());
+        stored.removeIf(Task::getIsDone);
+        assertEquals(stored.size(), taskList.size());
+        for (int i = 0; i < taskList.size(); i++) {
+            assertFalse(taskList.isDone(i));
+            assertEquals(stored.get(i).getId(), taskList.getId(i));
+            assertNotNull(taskList.getUnreadRecord(i, StorageFormat.TEXT), "record " + i);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package nerunerune.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.task.Deadline;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class MappedFileStorageTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 9, 0);
+
+    @TempDir
+    Path tempDir;
+
+    private static StorageSettings mapped() {
+        return new StorageSettings(false, StorageFormat.TEXT, 0, false, false, false, false, 0,
+                StorageBackend.MAPPED, false);
+    }
+
+    private static List<String> describe(List<Task> taskList) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList) {
+            descriptions.add(task.toStorageString());
+        }
+        return descriptions;
+    }
+
+    private static List<Task> addSampleTasks(Storage storage) throws Exception {
+        List<Task> taskList = new ArrayList<>();
+        taskList.add(new Todo("plain todo"));
+        taskList.add(new Deadline("caf\u00e9 \u2603", START, true));
+        taskList.add(new Event("clef \ud834\udd1e", START, START.plusHours(3)));
+        taskList.add(new Todo("a\ud834\udd1e".repeat(30_000)));
+        for (Task task : taskList) {
+            task.setId(storage.takeNextId());
+        }
+        return taskList;
+    }
+
+    @Test
+    public void saveTasksToStorage_thenReload_roundTripsTasksAndNextId() throws Exception {
+        String filepath = tempDir.resolve("tasks.txt").toString();
+        Storage storage = Storage.create(filepath, mapped());
+        storage.handleStorage(new ArrayList<>());
+        List<Task> taskList = addSampleTasks(storage);
+        taskList.remove(taskList.size() - 1); // the newest ID must not be given out again
+        storage.saveTasksToStorage(taskList);
+
+        MappedFileStorage reopened = new MappedFileStorage(filepath, mapped());
+        List<Task> loaded = new ArrayList<>();
+        reopened.handleStorage(loaded);
+
+        assertIterableEquals(describe(taskList), describe(loaded));
+        assertEquals(5, reopened.takeNextId());
+    }
+
+    @Test
+    public void saveTasksToStorage_variedTasks_writesSameBytesAsBinaryCodec() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        MappedFileStorage storage = new MappedFileStorage(storageFile.getPath(), mapped());
+        storage.handleStorage(new ArrayList<>());
+        List<Task> taskList = addSampleTasks(storage);
+        Todo loneSurrogate = new Todo("lone \ud834"); // encoded as a single '?'
+        loneSurrogate.setId(storage.takeNextId());
+        taskList.add(loneSurrogate);
+
+        storage.saveTasksToStorage(taskList);
+
+        assertArrayEquals(BinaryTaskCodec.encode(taskList, taskList.size() + 1),
+                Files.readAllBytes(storageFile.toPath()));
+    }
+
+    @Test
+    public void handleStorage_textFile_migratesToBinary() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        List<Task> stored = new ArrayList<>();
+        stored.add(new Todo("written as text"));
+        stored.add(new Deadline("due", START));
+        stored.get(0).setId(3);
+        stored.get(1).setId(7);
+        StorageFiles.writeTasks(storageFile, stored, 10, StorageFormat.TEXT, false, false);
+
+        MappedFileStorage storage = new MappedFileStorage(storageFile.getPath(), mapped());
+        List<Task> loaded = new ArrayList<>();
+        storage.handleStorage(loaded);
+
+        assertIterableEquals(describe(stored), describe(loaded));
+        assertTrue(BinaryTaskCodec.isBinaryFile(storageFile));
+        assertEquals(10, storage.takeNextId());
+    }
+}
@@ -0,0 +1,182 @@
+package nerunerune.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class SalvageTest {
+    private static final int TASK_COUNT = 200;
+
+    @TempDir
+    Path tempDir;
+
+    private static List<Task> numberedTasks() {
+        List<Task> taskList = new ArrayList<>();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            Todo todo = new Todo(String.format("task-%03d", i), i % 3 == 0);
+            todo.setId(i + 1);
+            taskList.add(todo);
+        }
+        return taskList;
+    }
+
+    private static byte[] encodeText(List<Task> taskList) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TextRecordWriter writer = new TextRecordWriter(Channels.newChannel(bytes), true);
+        writer.writeNextIdHeader(TASK_COUNT + 1);
+        for (Task task : taskList) {
+            writer.write(task);
+        }
+        writer.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Set<Integer> pickCorrupted(Random random) {
+        Set<Integer> corrupted = new TreeSet<>();
+        while (corrupted.size() < 10) {
+            corrupted.add(random.nextInt(TASK_COUNT));
+        }
+        return corrupted;
+    }
+
+    // flips one bit of the description of each picked task, leaving every record well-formed,
+    // so only its checksum tells it apart
+    private static void corrupt(byte[] bytes, Set<Integer> corrupted) {
+        for (int position : corrupted) {
+            byte[] description = String.format("task-%03d", position).getBytes(Charset.defaultCharset());
+            int start = indexOf(bytes, description);
+            bytes[start] ^= 0x20;
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte[] target) {
+        for (int i = 0; i + target.length <= bytes.length; i++) {
+            int j = 0;
+            while (j < target.length && bytes[i + j] == target[j]) {
+                j++;
+            }
+            if (j == target.length) {
+                return i;
+            }
+        }
+        throw new AssertionError("not found");
+    }
+
+    // linear scan oracle: the stored tasks without the corrupted ones
+    private static List<String> describeIntact(List<Task> taskList, Set<Integer> corrupted) {
+        List<String> descriptions = new ArrayList<>();
+        for (int i = 0; i < taskList.size(); i++) {
+            if (!corrupted.contains(i)) {
+                descriptions.add(taskList.get(i).toStorageString());
+            }
+        }
+        return descriptions;
+    }
+
+    private static List<String> describe(List<Task> taskList) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList) {
+            descriptions.add(task.toStorageString());
+        }
+        return descriptions;
+    }
+
+    private File writeFile(byte[] bytes) throws Exception {
+        File file = tempDir.resolve("tasks.txt").toFile();
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+
+    @Test
+    public void readTasks_corruptedTextRecords_skippedWhenSalvaging() throws Exception {
+        List<Task> taskList = numberedTasks();
+        Set<Integer> corrupted = pickCorrupted(new Random(3));
+        byte[] bytes = encodeText(taskList);
+        corrupt(bytes, corrupted);
+        File file = writeFile(bytes);
+
+        List<Task> loaded = new ArrayList<>();
+        SalvagedRecords salvaged = new SalvagedRecords();
+        StorageFiles.readTasks(file, loaded, salvaged);
+
+        // placeholders keep the positions of the skipped records until they are removed
+        assertEquals(TASK_COUNT, loaded.size());
+        assertEquals(corrupted.size(), salvaged.getRecords().size());
+        salvaged.removePlaceholders(loaded);
+        assertIterableEquals(describeIntact(taskList, corrupted), describe(loaded));
+    }
+
+    @Test
+    public void readTasks_corruptedTextRecord_failsWithoutSalvage() throws Exception {
+        byte[] bytes = encodeText(numberedTasks());
+        corrupt(bytes, Set.of(TASK_COUNT / 2));
+        File file = writeFile(bytes);
+
+        assertThrows(CorruptedRecordException.class, () -> StorageFiles.readTasks(file, new ArrayList<>(), null));
+    }
+
+    @Test
+    public void read_corruptedBinaryRecords_skippedWhenSalvaging() throws Exception {
+        List<Task> taskList = numberedTasks();
+        Set<Integer> corrupted = pickCorrupted(new Random(4));
+        byte[] bytes = BinaryTaskCodec.encode(taskList, TASK_COUNT + 1);
+        corrupt(bytes, corrupted);
+
+        List<Task> loaded = new ArrayList<>();
+        SalvagedRecords salvaged = new SalvagedRecords();
+        BinaryTaskCodec.read(ByteBuffer.wrap(bytes), loaded, salvaged);
+
+        assertEquals(TASK_COUNT, loaded.size());
+        assertEquals(corrupted.size(), salvaged.getRecords().size());
+        salvaged.removePlaceholders(loaded);
+        assertIterableEquals(describeIntact(taskList, corrupted), describe(loaded));
+    }
+
+    @Test
+    public void read_corruptedBinaryRecord_failsWithoutSalvage() {
+        byte[] bytes = BinaryTaskCodec.encode(numberedTasks(), TASK_COUNT + 1);
+        corrupt(bytes, Set.of(TASK_COUNT / 2));
+
+        assertThrows(CorruptedRecordException.class,
+                () -> BinaryTaskCodec.read(ByteBuffer.wrap(bytes), new ArrayList<>(), null));
+    }
+
+    @Test
+    public void handleStorage_corruptedTextRecords_reportsSkippedRecords() throws Exception {
+        List<Task> taskList = numberedTasks();
+        Set<Integer> corrupted = pickCorrupted(new Random(5));
+        byte[] bytes = encodeText(taskList);
+        corrupt(bytes, corrupted);
+        File file = writeFile(bytes);
+        StorageSettings settings = new StorageSettings(false, StorageFormat.TEXT, 0, false, true, false, false, 0,
+                StorageBackend.FILE, false);
+        List<String> messages = new ArrayList<>();
+
+        List<Task> loaded = new ArrayList<>();
+        new FileStorage(file.getPath(), settings, messages::add).handleStorage(loaded);
+
+        assertIterableEquals(describeIntact(taskList, corrupted), describe(loaded));
+        assertEquals(List.of("Storage file found. saved tasks loaded",
+                "Skipped " + corrupted.size() + " corrupted record(s), archived to: "
+                        + StorageFiles.getArchiveFile(file).getName()), messages);
+    }
+}
@@ -0,0 +1,69 @@
+package nerunerune.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class SaveSchedulerTest {
+    private static final int COMMAND_COUNT = 200;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void markDirty_burstOfCommands_fewerForcesThanCommands() throws Exception {
+        ReentrantLock taskListLock = new ReentrantLock();
+        AtomicInteger forceCount = new AtomicInteger();
+        List<Integer> writtenSizes = Collections.synchronizedList(new ArrayList<>());
+        try (FileChannel channel = FileChannel.open(tempDir.resolve("tasks.txt"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            SaveScheduler scheduler = new SaveScheduler(20, taskListLock, taskList -> {
+                int size = taskList.size(); // captured under the lock, written without it
+                return () -> {
+                    try {
+                        channel.write(ByteBuffer.wrap(new byte[] {(byte) size}));
+                        channel.force(false);
+                    } catch (IOException e) {
+                        throw new AssertionError(e);
+                    }
+                    forceCount.incrementAndGet();
+                    writtenSizes.add(size);
+                };
+            });
+
+            List<Task> taskList = new ArrayList<>();
+            for (int i = 0; i < COMMAND_COUNT; i++) {
+                taskListLock.lock(); // as every command does
+                try {
+                    taskList.add(new Todo("task " + i));
+                    scheduler.markDirty(taskList);
+                } finally {
+                    taskListLock.unlock();
+                }
+            }
+            scheduler.shutdown();
+
+            assertFalse(scheduler.isDirty());
+            assertTrue(forceCount.get() >= 1);
+            assertTrue(forceCount.get() < COMMAND_COUNT, forceCount.get() + " forces");
+            assertEquals(COMMAND_COUNT, (int) writtenSizes.get(writtenSizes.size() - 1));
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package nerunerune.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.task.Deadline;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class ShardedStorageTest {
+    private static final LocalDateTime CURRENT = LocalDate.now().withDayOfMonth(10).atTime(9, 0);
+
+    @TempDir
+    Path tempDir;
+
+    private static StorageSettings sharded() {
+        return new StorageSettings(false, StorageFormat.TEXT, 0, false, false, false, true, 0,
+                StorageBackend.FILE, false);
+    }
+
+    private static List<Task> sampleTasks() {
+        List<Task> taskList = new ArrayList<>();
+        taskList.add(new Todo("undated", false));
+        taskList.add(new Deadline("january", LocalDateTime.of(2020, 1, 20, 12, 0), true));
+        // starts in January but ends in February, so it is still going on in February
+        taskList.add(new Event("across months", LocalDateTime.of(2020, 1, 31, 22, 0),
+                LocalDateTime.of(2020, 2, 1, 2, 0), false));
+        // due on the first minute of March
+        taskList.add(new Deadline("march", LocalDateTime.of(2020, 3, 1, 0, 0), false));
+        taskList.add(new Deadline("this month", CURRENT, false));
+        taskList.add(new Event("next month", CURRENT.plusMonths(1), CURRENT.plusMonths(1).plusHours(1), false));
+        for (int i = 0; i < taskList.size(); i++) {
+            taskList.get(i).setId(i + 1);
+        }
+        return taskList;
+    }
+
+    private static List<String> describe(List<Task> taskList) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList) {
+            descriptions.add(task.toStorageString());
+        }
+        return descriptions;
+    }
+
+    private static List<String> sorted(List<String> descriptions) {
+        List<String> copy = new ArrayList<>(descriptions);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    private File writeUnsharded(List<Task> taskList) throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        StorageFiles.writeTasks(storageFile, taskList, taskList.size() + 1, StorageFormat.TEXT, false, false);
+        return storageFile;
+    }
+
+    private File shardFile(String key) {
+        return tempDir.resolve("tasksShards").resolve(key + ".txt").toFile();
+    }
+
+    @Test
+    public void handleStorage_unshardedFile_splitsByDueMonth() throws Exception {
+        List<Task> stored = sampleTasks();
+        File storageFile = writeUnsharded(stored);
+
+        FileStorage storage = new FileStorage(storageFile.getPath(), sharded());
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+
+        assertIterableEquals(describe(stored), describe(taskList));
+        assertEquals(0, storageFile.length());
+        assertTrue(shardFile("todo").exists());
+        assertTrue(shardFile("2020-01").exists());
+        assertTrue(shardFile("2020-02").exists());
+        assertTrue(shardFile("2020-03").exists());
+        assertTrue(shardFile(YearMonth.from(CURRENT).toString()).exists());
+        List<Task> february = new ArrayList<>();
+        StorageFiles.readTasks(shardFile("2020-02"), february, null);
+        assertIterableEquals(List.of(stored.get(2).toStorageString()), describe(february));
+    }
+
+    @Test
+    public void handleStorage_sharded_loadsOnlyTodosAndCurrentMonths() throws Exception {
+        List<Task> stored = sampleTasks();
+        File storageFile = writeUnsharded(stored);
+        new FileStorage(storageFile.getPath(), sharded()).handleStorage(new ArrayList<>());
+
+        FileStorage storage = new FileStorage(storageFile.getPath(), sharded());
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+
+        assertIterableEquals(sorted(describe(List.of(stored.get(0), stored.get(4), stored.get(5)))),
+                sorted(describe(taskList)));
+        assertEquals(stored.size() + 1, storage.takeNextId(), "the next ID is read without the older shards");
+    }
+
+    @Test
+    public void loadShardsFrom_monthBoundary_loadsEventEndingInThatMonth() throws Exception {
+        List<Task> stored = sampleTasks();
+        File storageFile = writeUnsharded(stored);
+        new FileStorage(storageFile.getPath(), sharded()).handleStorage(new ArrayList<>());
+        FileStorage storage = new FileStorage(storageFile.getPath(), sharded());
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+
+        List<Task> loaded = storage.loadShardsFrom(taskList, LocalDate.of(2020, 2, 1));
+
+        assertIterableEquals(sorted(describe(List.of(stored.get(2), stored.get(3)))), sorted(describe(loaded)));
+        assertTrue(storage.loadShardsFrom(taskList, LocalDate.of(2020, 2, 15)).isEmpty(), "loaded only once");
+
+        List<Task> rest = storage.loadAllShards(taskList);
+        assertIterableEquals(List.of(stored.get(1).toStorageString()), describe(rest));
+        assertIterableEquals(sorted(describe(stored)), sorted(describe(taskList)));
+        assertTrue(storage.loadAllShards(taskList).isEmpty());
+    }
+
+    @Test
+    public void saveTasksToStorage_partlyLoaded_keepsUnloadedShards() throws Exception {
+        List<Task> stored = sampleTasks();
+        File storageFile = writeUnsharded(stored);
+        new FileStorage(storageFile.getPath(), sharded()).handleStorage(new ArrayList<>());
+        long januaryModified = Files.getLastModifiedTime(shardFile("2020-01").toPath()).toMillis();
+
+        FileStorage storage = new FileStorage(storageFile.getPath(), sharded());
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+        Todo todo = new Todo("added");
+        todo.setId(storage.takeNextId());
+        taskList.add(todo);
+        storage.saveTasksToStorage(taskList);
+        stored.add(todo);
+
+        assertEquals(januaryModified, Files.getLastModifiedTime(shardFile("2020-01").toPath()).toMillis());
+        FileStorage reopened = new FileStorage(storageFile.getPath(), sharded());
+        List<Task> reloaded = reopened.createTaskList();
+        reopened.handleStorage(reloaded);
+        reopened.loadAllShards(reloaded);
+        assertIterableEquals(sorted(describe(stored)), sorted(describe(reloaded)));
+    }
+}
@@ -0,0 +1,134 @@
+package nerunerune.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class SharedStorageTest {
+    @TempDir
+    Path tempDir;
+
+    private FileStorage first;
+    private FileStorage second;
+    private List<Task> firstTasks;
+    private List<Task> secondTasks;
+
+    private static StorageSettings shared() {
+        return new StorageSettings(true, StorageFormat.TEXT, 0, false, false, false, false, 0,
+                StorageBackend.FILE, true);
+    }
+
+    private static List<String> describe(List<Task> taskList) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList) {
+            descriptions.add(task.toStorageString());
+        }
+        return descriptions;
+    }
+
+    private static Task addTodo(FileStorage storage, List<Task> taskList, String description) throws Exception {
+        storage.getTaskListLock().lock();
+        try {
+            Todo todo = new Todo(description);
+            todo.setId(storage.takeNextId());
+            taskList.add(todo);
+            storage.recordAdd(todo);
+            storage.saveTasksToStorage(taskList);
+            return todo;
+        } finally {
+            storage.getTaskListLock().unlock();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        String filepath = tempDir.resolve("tasks.txt").toString();
+        first = new FileStorage(filepath, shared());
+        second = new FileStorage(filepath, shared());
+        firstTasks = first.createTaskList();
+        secondTasks = second.createTaskList();
+        first.handleStorage(firstTasks);
+        second.handleStorage(secondTasks);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void syncExternalChanges_otherInstanceAppended_replaysItsRecords() throws Exception {
+        second.watchExternalChanges(secondTasks, () -> { });
+        addTodo(first, firstTasks, "from first");
+        firstTasks.get(0).markAsDone();
+        first.recordMark(firstTasks.get(0));
+        first.saveTasksToStorage(firstTasks);
+
+        second.getTaskListLock().lock();
+        try {
+            second.syncExternalChanges();
+            assertIterableEquals(describe(firstTasks), describe(secondTasks));
+        } finally {
+            second.getTaskListLock().unlock();
+        }
+    }
+
+    @Test
+    public void saveTasksToStorage_bothAppendWithoutSync_bothEndUpWithEveryTask() throws Exception {
+        addTodo(first, firstTasks, "from first");
+        addTodo(second, secondTasks, "from second"); // behind the first, so it reloads after appending
+
+        assertEquals(2, secondTasks.size());
+        first.watchExternalChanges(firstTasks, () -> { });
+        first.getTaskListLock().lock();
+        try {
+            first.syncExternalChanges();
+        } finally {
+            first.getTaskListLock().unlock();
+        }
+        assertIterableEquals(describe(secondTasks), describe(firstTasks));
+    }
+
+    @Test
+    public void takeNextId_interleavedInstances_neverGivesOutAnIdTwice() throws Exception {
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            assertTrue(ids.add(addTodo(first, firstTasks, "first " + i).getId()));
+            assertTrue(ids.add(addTodo(second, secondTasks, "second " + i).getId()));
+        }
+        assertEquals(40, ids.size());
+    }
+
+    @Test
+    public void watchExternalChanges_otherInstanceAppends_appliesChangesAndCallsBack() throws Exception {
+        CountDownLatch changed = new CountDownLatch(1);
+        second.watchExternalChanges(secondTasks, changed::countDown);
+
+        addTodo(first, firstTasks, "watched");
+
+        assertTrue(changed.await(10, TimeUnit.SECONDS), "the watcher saw the journal append");
+        second.getTaskListLock().lock();
+        try {
+            assertIterableEquals(describe(firstTasks), describe(secondTasks));
+        } finally {
+            second.getTaskListLock().unlock();
+        }
+    }
+}
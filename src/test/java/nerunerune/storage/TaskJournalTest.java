@@ -0,0 +1,130 @@
+package nerunerune.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.exception.NeruneruneException;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class TaskJournalTest {
+    @TempDir
+    Path tempDir;
+
+    private static Todo todoWithId(long id) {
+        Todo todo = new Todo("task " + id);
+        todo.setId(id);
+        return todo;
+    }
+
+    private static List<String> describe(List<Task> taskList) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList) {
+            descriptions.add(task.toStorageString());
+        }
+        return descriptions;
+    }
+
+    private File writeJournal(String contents) throws IOException {
+        File file = tempDir.resolve("tasksJournal.txt").toFile();
+        Files.write(file.toPath(), contents.getBytes(Charset.defaultCharset()));
+        return file;
+    }
+
+    @Test
+    public void replay_randomRecords_matchesOperationsAppliedToList() throws Exception {
+        Random random = new Random(11);
+        File file = tempDir.resolve("tasksJournal.txt").toFile();
+        TaskJournal journal = new TaskJournal(file);
+        List<Task> snapshot = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            snapshot.add(todoWithId(id));
+        }
+        // the oracle applies every operation straight to its own copy of the list
+        List<Task> expected = new ArrayList<>();
+        for (Task task : snapshot) {
+            expected.add(todoWithId(task.getId()));
+        }
+        long nextId = 21;
+
+        for (int step = 0; step < 2000; step++) {
+            int operation = random.nextInt(10);
+            if (operation < 4 || expected.isEmpty()) {
+                Todo added = todoWithId(nextId++);
+                expected.add(added);
+                journal.recordAdd(added);
+            } else if (operation < 6) {
+                Task deleted = expected.remove(random.nextInt(expected.size()));
+                journal.recordDelete(deleted);
+            } else if (operation < 8) {
+                Task marked = expected.get(random.nextInt(expected.size()));
+                marked.markAsDone();
+                journal.recordMark(marked);
+            } else if (operation < 9) {
+                Task unmarked = expected.get(random.nextInt(expected.size()));
+                unmarked.markAsUndone();
+                journal.recordUnmark(unmarked);
+            } else if (random.nextInt(5) == 0) {
+                expected.removeIf(Task::getIsDone);
+                journal.recordDeleteDone();
+            }
+            if (step % 50 == 0) {
+                journal.flush();
+            }
+        }
+        journal.flush();
+
+        TaskIdCounter ids = new TaskIdCounter();
+        TaskJournal.replay(file, snapshot, null, ids);
+        assertIterableEquals(describe(expected), describe(snapshot));
+        assertEquals(nextId, ids.getNextId(), "IDs of deleted tasks are not given out again");
+    }
+
+    @Test
+    public void replay_tornLastRecord_isDroppedAndCutOffFile() throws Exception {
+        String applied = "ADD | T | 0 | first | 1\nMARK | 1\n";
+        File file = writeJournal(applied + "DELETE | 9");
+        List<Task> taskList = new ArrayList<>();
+
+        int appliedCount = TaskJournal.replay(file, taskList, null, new TaskIdCounter());
+
+        assertEquals(2, appliedCount);
+        assertEquals(1, taskList.size());
+        assertTrue(taskList.get(0).getIsDone());
+        assertEquals(applied, Files.readString(file.toPath(), Charset.defaultCharset()));
+    }
+
+    @Test
+    public void replay_badMiddleRecord_failsWithoutSalvage() throws Exception {
+        File file = writeJournal("ADD | T | 0 | first | 1\nMARK | 9\nMARK | 1\n");
+        assertThrows(NeruneruneException.class,
+                () -> TaskJournal.replay(file, new ArrayList<>(), null, new TaskIdCounter()));
+    }
+
+    @Test
+    public void replay_badMiddleRecord_isSkippedWhenSalvaging() throws Exception {
+        File file = writeJournal("ADD | T | 0 | first | 1\nMARK | 9\nMARK | 1\n");
+        List<Task> taskList = new ArrayList<>();
+        SalvagedRecords salvaged = new SalvagedRecords();
+
+        int appliedCount = TaskJournal.replay(file, taskList, salvaged, new TaskIdCounter());
+
+        assertEquals(2, appliedCount);
+        assertTrue(taskList.get(0).getIsDone());
+        assertIterableEquals(List.of("MARK | 9"), salvaged.getRecords());
+    }
+}
@@ -0,0 +1,104 @@
+package nerunerune.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class TieredTaskListTest {
+
+    private static Todo todoWithId(long id) {
+        Todo todo = new Todo("task " + id);
+        todo.setId(id);
+        return todo;
+    }
+
+    private static void assertSameTasks(List<Task> expected, List<Task> actual, String message) {
+        assertEquals(expected.size(), actual.size(), message);
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i), message + ", position " + i);
+        }
+    }
+
+    @Test
+    public void operations_randomChanges_matchArrayList() {
+        Random random = new Random(25);
+        List<Task> expected = new ArrayList<>(); // array list oracle
+        TieredTaskList tasks = new TieredTaskList();
+        long nextId = 1;
+
+        // grows well past several block sizes, then shrinks, and grows again
+        for (int step = 0; step < 20_000; step++) {
+            int operation = random.nextInt(20);
+            boolean isGrowing = step % 8000 < 5000;
+            if (expected.isEmpty() || operation < (isGrowing ? 12 : 6)) {
+                Todo todo = todoWithId(nextId++);
+                int index = random.nextInt(4) == 0 ? expected.size() : random.nextInt(expected.size() + 1);
+                expected.add(index, todo);
+                tasks.add(index, todo);
+            } else if (operation < 19) {
+                int index = random.nextInt(expected.size());
+                assertSame(expected.remove(index), tasks.remove(index), "step " + step);
+            } else if (random.nextBoolean()) {
+                int index = random.nextInt(expected.size());
+                Todo todo = todoWithId(nextId++);
+                assertSame(expected.set(index, todo), tasks.set(index, todo), "step " + step);
+            } else {
+                long divisor = 2 + random.nextInt(5);
+                assertEquals(expected.removeIf(task -> task.getId() % divisor == 0),
+                        tasks.removeIf(task -> task.getId() % divisor == 0), "step " + step);
+            }
+            if (step % 100 == 0) {
+                assertSameTasks(expected, tasks, "step " + step);
+            }
+        }
+        assertSameTasks(expected, tasks, "after every step");
+    }
+
+    @Test
+    public void remove_fromEveryPosition_keepsOrder() {
+        for (int size = 1; size <= 70; size++) {
+            for (int index = 0; index < size; index++) {
+                List<Task> expected = new ArrayList<>();
+                TieredTaskList tasks = new TieredTaskList();
+                for (int id = 1; id <= size; id++) {
+                    Todo todo = todoWithId(id);
+                    expected.add(todo);
+                    tasks.add(todo);
+                }
+                assertSame(expected.remove(index), tasks.remove(index));
+                assertSameTasks(expected, tasks, "size " + size + ", index " + index);
+            }
+        }
+    }
+
+    @Test
+    public void clear_thenAdd_startsOver() {
+        TieredTaskList tasks = new TieredTaskList();
+        for (int id = 1; id <= 1000; id++) {
+            tasks.add(todoWithId(id));
+        }
+        tasks.clear();
+        Todo todo = todoWithId(1001);
+        tasks.add(todo);
+        assertEquals(1, tasks.size());
+        assertSame(todo, tasks.get(0));
+    }
+
+    @Test
+    public void get_outOfRange_throws() {
+        TieredTaskList tasks = new TieredTaskList();
+        tasks.add(todoWithId(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> tasks.get(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> tasks.remove(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> tasks.add(2, todoWithId(2)));
+    }
+}
@@ -0,0 +1,160 @@
+package nerunerune.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class WriteBehindStorageTest {
+    private static final long LONG_INTERVAL_MILLIS = 60_000;
+
+    @TempDir
+    Path tempDir;
+
+    private static StorageSettings writeBehind(long saveIntervalMillis) {
+        return new StorageSettings(false, StorageFormat.TEXT, saveIntervalMillis, false, false, false, false, 0,
+                StorageBackend.FILE, false);
+    }
+
+    private static List<String> readStoredTasks(File storageFile) throws Exception {
+        List<Task> taskList = new ArrayList<>();
+        StorageFiles.readTasks(storageFile, taskList, null);
+        return describe(taskList);
+    }
+
+    private static List<String> describe(List<Task> taskList) {
+        List<String> descriptions = new ArrayList<>();
+        for (Task task : taskList) {
+            descriptions.add(task.toStorageString());
+        }
+        return descriptions;
+    }
+
+    private static void addTodo(FileStorage storage, List<Task> taskList, String description) throws Exception {
+        Todo todo = new Todo(description);
+        todo.setId(storage.takeNextId());
+        taskList.add(todo);
+        storage.saveTasksToStorage(taskList);
+    }
+
+    @Test
+    public void saveTasksToStorage_writeBehind_defersWriteUntilFlush() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        FileStorage storage = new FileStorage(storageFile.getPath(), writeBehind(LONG_INTERVAL_MILLIS));
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+
+        for (int i = 0; i < 20; i++) {
+            addTodo(storage, taskList, "task " + i);
+        }
+        assertIterableEquals(List.of(), readStoredTasks(storageFile));
+
+        storage.flush();
+        assertIterableEquals(describe(taskList), readStoredTasks(storageFile));
+        storage.close();
+    }
+
+    @Test
+    public void close_pendingChanges_writesLatestTaskList() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        FileStorage storage = new FileStorage(storageFile.getPath(), writeBehind(LONG_INTERVAL_MILLIS));
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+        addTodo(storage, taskList, "first");
+        addTodo(storage, taskList, "second");
+        taskList.get(0).markAsDone();
+        taskList.remove(1);
+        storage.saveTasksToStorage(taskList);
+
+        storage.close();
+
+        assertIterableEquals(List.of("T | 1 | first | 1"), readStoredTasks(storageFile));
+        FileStorage reopened = new FileStorage(storageFile.getPath(), writeBehind(LONG_INTERVAL_MILLIS));
+        List<Task> reloaded = reopened.createTaskList();
+        reopened.handleStorage(reloaded);
+        assertTrue(reopened.takeNextId() > 2, "the ID of the deleted task is not given out again");
+        reopened.close();
+    }
+
+    @Test
+    public void saveTasksToStorage_shortInterval_writtenInBackground() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        FileStorage storage = new FileStorage(storageFile.getPath(), writeBehind(20));
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+        addTodo(storage, taskList, "background");
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (readStoredTasks(storageFile).isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertIterableEquals(describe(taskList), readStoredTasks(storageFile));
+        storage.close();
+    }
+
+    @Test
+    public void flush_writeBehind_streamsSameBytesAsStorageStrings() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        FileStorage storage = new FileStorage(storageFile.getPath(), writeBehind(LONG_INTERVAL_MILLIS));
+        List<Task> taskList = storage.createTaskList();
+        storage.handleStorage(taskList);
+        addTodo(storage, taskList, "caf\u00e9 | \u2603 snowman");
+        addTodo(storage, taskList, "clef \ud834\udd1e and a lone \ud834 surrogate");
+        // longer than the output buffer, so records and surrogate pairs straddle its boundary
+        addTodo(storage, taskList, "a\ud834\udd1e".repeat(30_000));
+        addTodo(storage, taskList, "plain");
+        taskList.get(1).markAsDone();
+        storage.saveTasksToStorage(taskList);
+
+        storage.flush();
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream(); // no header, as no newest task was deleted
+        for (Task task : taskList) {
+            expected.write((task.toStorageString() + System.lineSeparator()).getBytes(Charset.defaultCharset()));
+        }
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(storageFile.toPath()));
+        storage.close();
+    }
+
+    @Test
+    public void flush_lazyWriteBehind_copiesUntouchedRecordsWithoutDecoding() throws Exception {
+        File storageFile = tempDir.resolve("tasks.txt").toFile();
+        List<Task> stored = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            Todo todo = new Todo("stored " + i);
+            todo.setId(i);
+            stored.add(todo);
+        }
+        StorageFiles.writeTasks(storageFile, stored, stored.size() + 1, StorageFormat.TEXT, true, false);
+        FileStorage storage = new FileStorage(storageFile.getPath(), new StorageSettings(false, StorageFormat.TEXT,
+                LONG_INTERVAL_MILLIS, false, false, true, false, 0, StorageBackend.FILE, false));
+        LazyTaskList taskList = (LazyTaskList) storage.createTaskList();
+        storage.handleStorage(taskList);
+
+        taskList.get(2).markAsDone();
+        stored.get(2).markAsDone();
+        storage.saveTasksToStorage(taskList);
+        storage.flush();
+
+        for (int i = 0; i < taskList.size(); i++) {
+            assertEquals(i != 2, taskList.getUnreadRecord(i, StorageFormat.TEXT) != null, "record " + i);
+        }
+        assertIterableEquals(describe(stored), readStoredTasks(storageFile));
+        storage.close();
+    }
+}
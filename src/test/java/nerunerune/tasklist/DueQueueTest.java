@@ -0,0 +1,185 @@
+package nerunerune.tasklist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nerunerune.task.Deadline;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class DueQueueTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 6, 1, 9, 0);
+
+    // a task in the queue, with the sequence number it was added with
+    private record Entry(long sequence, Task task) {
+    }
+
+    private static LocalDateTime getDue(Task task) {
+        return task instanceof Deadline deadline ? deadline.getDeadlineByDateTime()
+                : ((Event) task).getEventToDateTime();
+    }
+
+    // linear scan oracle: the queued tasks due before the given time, earliest due first, then in list order
+    private static List<Entry> findDueBefore(List<Entry> queued, LocalDateTime now) {
+        List<Entry> dueEntries = new ArrayList<>();
+        for (Entry entry : queued) {
+            if (getDue(entry.task()).isBefore(now)) {
+                dueEntries.add(entry);
+            }
+        }
+        dueEntries.sort(Comparator.comparing((Entry entry) -> getDue(entry.task()))
+                .thenComparingLong(Entry::sequence));
+        return dueEntries;
+    }
+
+    private static List<Task> toTasks(List<Entry> entries) {
+        List<Task> tasks = new ArrayList<>();
+        for (Entry entry : entries) {
+            tasks.add(entry.task());
+        }
+        return tasks;
+    }
+
+    private static List<Task> toTasksFromQueue(List<DueQueue.Entry> entries) {
+        List<Task> tasks = new ArrayList<>();
+        for (DueQueue.Entry entry : entries) {
+            tasks.add(entry.getTask());
+        }
+        return tasks;
+    }
+
+    @Test
+    public void add_todoDoneOrUndatedTask_isIgnored() {
+        DueQueue queue = new DueQueue();
+        queue.add(0, new Todo("todo"));
+        queue.add(1, new Deadline("done", START, true));
+        queue.add(2, new Deadline("undated", false));
+        assertEquals(0, queue.countDueBefore(START.plusYears(1)));
+    }
+
+    @Test
+    public void pollDueBefore_sameDueTime_returnsListOrder() {
+        DueQueue queue = new DueQueue();
+        Deadline second = new Deadline("second", START);
+        Deadline first = new Deadline("first", START);
+        Event event = new Event("event", START.minusHours(2), START);
+        queue.add(5, second);
+        queue.add(3, event);
+        queue.add(1, first);
+        List<DueQueue.Entry> polled = queue.pollDueBefore(START.plusMinutes(1));
+        assertIterableEquals(List.of(first, event, second), toTasksFromQueue(polled));
+        assertEquals(0, queue.countDueBefore(START.plusMinutes(1)));
+    }
+
+    @Test
+    public void countDueBefore_dueExactlyNow_isNotCounted() {
+        DueQueue queue = new DueQueue();
+        queue.add(0, new Deadline("now", START));
+        assertEquals(0, queue.countDueBefore(START));
+        assertEquals(1, queue.countDueBefore(START.plusSeconds(1)));
+    }
+
+    @Test
+    public void operations_randomAddsRemovesAndPolls_matchLinearScan() {
+        Random random = new Random(11);
+        DueQueue queue = new DueQueue();
+        List<Entry> queued = new ArrayList<>();
+        long nextSequence = 0;
+
+        for (int step = 0; step < 5000; step++) {
+            int operation = random.nextInt(20);
+            if (operation < 12 || queued.isEmpty()) {
+                LocalDateTime due = START.plusHours(random.nextInt(100)); // few distinct times, so many ties
+                Task task = random.nextBoolean() ? new Deadline("deadline " + step, due)
+                        : new Event("event " + step, due.minusHours(1), due);
+                Entry entry = new Entry(nextSequence++, task);
+                queued.add(entry);
+                queue.add(entry.sequence(), entry.task());
+            } else if (operation < 17) {
+                Entry entry = queued.remove(random.nextInt(queued.size()));
+                queue.remove(entry.sequence(), entry.task());
+            } else if (operation < 19) {
+                int hour = random.nextInt(100);
+                queued.removeIf(entry -> getDue(entry.task()).getHour() == hour % 24);
+                queue.removeIf(task -> getDue(task).getHour() == hour % 24);
+            } else {
+                LocalDateTime now = START.plusHours(random.nextInt(30));
+                List<Entry> expected = findDueBefore(queued, now);
+                queued.removeAll(expected);
+                assertIterableEquals(toTasks(expected), toTasksFromQueue(queue.pollDueBefore(now)), "step " + step);
+            }
+
+            LocalDateTime now = START.plusHours(random.nextInt(110));
+            assertEquals(findDueBefore(queued, now).size(), queue.countDueBefore(now), "step " + step);
+        }
+    }
+
+    @Test
+    public void updateDone_marksAndDeleteDoneThroughIndex_matchLinearScan() {
+        Random random = new Random(23);
+        List<Task> taskList = new ArrayList<>();
+        TaskIndex index = new TaskIndex();
+        index.rebuild(taskList);
+
+        for (int step = 0; step < 3000; step++) {
+            int operation = random.nextInt(20);
+            if (operation < 9 || taskList.isEmpty()) {
+                LocalDateTime due = START.plusHours(random.nextInt(100));
+                Task task = random.nextBoolean() ? new Deadline("deadline " + step, due)
+                        : new Event("event " + step, due.minusHours(1), due);
+                taskList.add(task);
+                index.add(task);
+            } else if (operation < 17) {
+                Task task = taskList.get(random.nextInt(taskList.size()));
+                if (task.getIsDone()) {
+                    task.markAsUndone();
+                } else {
+                    task.markAsDone();
+                }
+                index.updateDone(task);
+            } else if (operation < 19) {
+                LocalDateTime now = START.plusHours(random.nextInt(100)); // mark backdated
+                List<Integer> expected = new ArrayList<>();
+                for (int i = 0; i < taskList.size(); i++) {
+                    if (!taskList.get(i).getIsDone() && getDue(taskList.get(i)).isBefore(now)) {
+                        expected.add(i);
+                    }
+                }
+                List<Integer> polled = new ArrayList<>();
+                for (int position : index.pollBackdated(now)) {
+                    polled.add(position);
+                    taskList.get(position).markAsDone();
+                    index.updateDone(taskList.get(position));
+                }
+                assertIterableEquals(expected, polled, "step " + step);
+            } else {
+                taskList.removeIf(Task::getIsDone); // delete all done
+                index.removeIf(Task::getIsDone);
+            }
+
+            LocalDateTime now = START.plusHours(random.nextInt(110));
+            int backdatedCount = 0;
+            for (Task task : taskList) {
+                backdatedCount += !task.getIsDone() && getDue(task).isBefore(now) ? 1 : 0;
+            }
+            assertEquals(backdatedCount, index.countBackdated(now), "step " + step);
+        }
+    }
+
+    @Test
+    public void clear_addedTasks_emptiesQueue() {
+        DueQueue queue = new DueQueue();
+        queue.add(0, new Deadline("deadline", START));
+        queue.clear();
+        assertEquals(0, queue.pollDueBefore(START.plusDays(1)).size());
+    }
+}
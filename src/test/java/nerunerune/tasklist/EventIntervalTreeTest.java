@@ -0,0 +1,235 @@
+package nerunerune.tasklist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class EventIntervalTreeTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 3, 1, 0, 0);
+
+    // an event in the tree, with the sequence number it was inserted with
+    private record Entry(long sequence, Event event) {
+    }
+
+    private static Event eventAt(int fromHour, int hours) {
+        return new Event("event " + fromHour, START.plusHours(fromHour), START.plusHours(fromHour + hours));
+    }
+
+    private static boolean overlaps(Event event, LocalDateTime from, LocalDateTime to) {
+        return event.getEventFromDateTime().isBefore(to) && from.isBefore(event.getEventToDateTime());
+    }
+
+    // linear scan oracle for findFirstOverlap: the overlapping event with the smallest sequence number
+    private static Event findFirstOverlap(List<Entry> entries, LocalDateTime from, LocalDateTime to) {
+        Entry first = null;
+        for (Entry entry : entries) {
+            if (overlaps(entry.event(), from, to) && (first == null || entry.sequence() < first.sequence())) {
+                first = entry;
+            }
+        }
+        return first == null ? null : first.event();
+    }
+
+    private static List<Event> findOccurringOn(List<Entry> entries, LocalDate date) {
+        List<Entry> matching = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.event().occursOn(date)) {
+                matching.add(entry);
+            }
+        }
+        matching.sort(Comparator.comparingLong(Entry::sequence));
+        List<Event> events = new ArrayList<>();
+        for (Entry entry : matching) {
+            events.add(entry.event());
+        }
+        return events;
+    }
+
+    // every clashing pair, the one that starts first (or was inserted first) first, in that order
+    private static List<String> findClashes(List<Entry> entries) {
+        Comparator<Entry> startOrder = Comparator.comparing((Entry entry) -> entry.event().getEventFromDateTime())
+                .thenComparingLong(Entry::sequence);
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(startOrder);
+        List<String> clashes = new ArrayList<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            for (int j = i + 1; j < sorted.size(); j++) {
+                Event first = sorted.get(i).event();
+                Event second = sorted.get(j).event();
+                if (overlaps(first, second.getEventFromDateTime(), second.getEventToDateTime())) {
+                    clashes.add(describe(first, second));
+                }
+            }
+        }
+        return clashes;
+    }
+
+    private static List<String> describe(List<EventIntervalTree.Clash> clashes) {
+        List<String> descriptions = new ArrayList<>();
+        for (EventIntervalTree.Clash clash : clashes) {
+            descriptions.add(describe(clash.getFirst(), clash.getSecond()));
+        }
+        return descriptions;
+    }
+
+    private static String describe(Event first, Event second) {
+        return System.identityHashCode(first) + "/" + System.identityHashCode(second);
+    }
+
+    @Test
+    public void findFirstOverlap_touchingEvents_doNotClash() {
+        EventIntervalTree tree = new EventIntervalTree();
+        tree.insert(0, eventAt(10, 2));
+        assertNull(tree.findFirstOverlap(START.plusHours(12), START.plusHours(13)));
+        assertNull(tree.findFirstOverlap(START.plusHours(8), START.plusHours(10)));
+    }
+
+    @Test
+    public void findFirstOverlap_severalOverlaps_returnsFirstInListOrder() {
+        EventIntervalTree tree = new EventIntervalTree();
+        Event late = eventAt(1, 10);
+        Event early = eventAt(5, 1);
+        tree.insert(3, early);
+        tree.insert(1, late);
+        assertSame(late, tree.findFirstOverlap(START.plusHours(5), START.plusHours(6)));
+    }
+
+    @Test
+    public void insert_eventWithoutTimes_isIgnored() {
+        EventIntervalTree tree = new EventIntervalTree();
+        tree.insert(0, new Event("no times", false));
+        assertEquals(0, tree.findClashes().size());
+        assertNull(tree.findFirstOverlap(LocalDateTime.MIN, LocalDateTime.MAX));
+    }
+
+    @Test
+    public void of_taskList_skipsOtherTasksAndUsesPositions() {
+        Event first = eventAt(0, 5);
+        Event second = eventAt(1, 1);
+        List<Task> taskList = List.of(new Todo("todo"), second, first);
+        EventIntervalTree tree = EventIntervalTree.of(taskList);
+        assertSame(second, tree.findFirstOverlap(START.plusHours(1), START.plusHours(2)));
+        assertEquals(1, tree.findClashes().size());
+    }
+
+    @Test
+    public void operations_ascendingStarts_matchLinearScan() {
+        // inserted in key order, so the treap must rotate to stay balanced
+        EventIntervalTree tree = new EventIntervalTree();
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Entry entry = new Entry(i, eventAt(i, 1 + i % 4));
+            entries.add(entry);
+            tree.insert(entry.sequence(), entry.event());
+        }
+        for (int hour = -2; hour < 510; hour += 7) {
+            LocalDateTime from = START.plusHours(hour);
+            LocalDateTime to = from.plusHours(2);
+            assertSame(findFirstOverlap(entries, from, to), tree.findFirstOverlap(from, to));
+        }
+        assertIterableEquals(findClashes(entries), describe(tree.findClashes()));
+    }
+
+    @Test
+    public void operations_randomInsertsAndRemoves_matchLinearScan() {
+        Random random = new Random(7);
+        EventIntervalTree tree = new EventIntervalTree();
+        List<Entry> entries = new ArrayList<>();
+        long nextSequence = 0;
+
+        for (int step = 0; step < 3000; step++) {
+            int operation = random.nextInt(10);
+            if (operation < 6 || entries.isEmpty()) {
+                // few distinct start hours, so many events share a start and are ordered by sequence
+                Entry entry = new Entry(nextSequence++, eventAt(random.nextInt(200), 1 + random.nextInt(72)));
+                entries.add(entry);
+                tree.insert(entry.sequence(), entry.event());
+            } else if (operation < 9) {
+                Entry entry = entries.remove(random.nextInt(entries.size()));
+                tree.remove(entry.sequence(), entry.event());
+            } else {
+                int hour = random.nextInt(200);
+                entries.removeIf(entry -> entry.event().getEventFromDateTime().getHour() == hour % 24);
+                tree.removeIf(task -> ((Event) task).getEventFromDateTime().getHour() == hour % 24);
+            }
+
+            LocalDateTime from = START.plusHours(random.nextInt(300) - 20);
+            LocalDateTime to = from.plusHours(random.nextInt(12) + 1);
+            assertSame(findFirstOverlap(entries, from, to), tree.findFirstOverlap(from, to), "step " + step);
+            LocalDate date = START.toLocalDate().plusDays(random.nextInt(14));
+            assertIterableEquals(findOccurringOn(entries, date), tree.findOccurringOn(date), "step " + step);
+            if (step % 100 == 0) {
+                assertIterableEquals(findClashes(entries), describe(tree.findClashes()), "step " + step);
+            }
+        }
+        assertIterableEquals(findClashes(entries), describe(tree.findClashes()));
+    }
+
+    @Test
+    public void removeIf_marksAndDeleteDoneThroughIndex_matchLinearScan() {
+        Random random = new Random(19);
+        List<Task> taskList = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            taskList.add(eventAt(random.nextInt(200), 1 + random.nextInt(72)));
+        }
+        TaskIndex index = new TaskIndex();
+        index.rebuild(taskList);
+
+        for (int step = 0; step < 1000; step++) {
+            int operation = random.nextInt(20);
+            if (operation < 6 || taskList.isEmpty()) {
+                Event event = eventAt(random.nextInt(200), 1 + random.nextInt(72));
+                taskList.add(event);
+                index.add(event);
+            } else if (operation < 19) {
+                Task task = taskList.get(random.nextInt(taskList.size()));
+                if (task.getIsDone()) {
+                    task.markAsUndone();
+                } else {
+                    task.markAsDone();
+                }
+                index.updateDone(task);
+            } else {
+                taskList.removeIf(Task::getIsDone); // delete all done
+                index.removeIf(Task::getIsDone);
+            }
+
+            List<Entry> entries = new ArrayList<>(); // list positions keep the order of sequence numbers
+            for (int i = 0; i < taskList.size(); i++) {
+                entries.add(new Entry(i, (Event) taskList.get(i)));
+            }
+            LocalDateTime from = START.plusHours(random.nextInt(300) - 20);
+            LocalDateTime to = from.plusHours(random.nextInt(12) + 1);
+            assertSame(findFirstOverlap(entries, from, to), index.findOverlappingEvent(from, to), "step " + step);
+            LocalDate date = START.toLocalDate().plusDays(random.nextInt(14));
+            assertIterableEquals(findOccurringOn(entries, date), index.findEventsOn(date), "step " + step);
+            if (step % 50 == 0) {
+                assertIterableEquals(findClashes(entries), describe(index.findEventClashes()), "step " + step);
+            }
+        }
+    }
+
+    @Test
+    public void clear_insertedEvents_removesAll() {
+        EventIntervalTree tree = new EventIntervalTree();
+        tree.insert(0, eventAt(0, 5));
+        tree.insert(1, eventAt(1, 5));
+        tree.clear();
+        assertEquals(0, tree.findClashes().size());
+        assertNull(tree.findFirstOverlap(START, START.plusHours(10)));
+    }
+}
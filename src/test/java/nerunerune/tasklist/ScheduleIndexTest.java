@@ -0,0 +1,166 @@
+package nerunerune.tasklist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.storage.FileStorage;
+import nerunerune.storage.StorageBackend;
+import nerunerune.storage.StorageFormat;
+import nerunerune.storage.StorageSettings;
+import nerunerune.storage.TaskIndexFile;
+import nerunerune.task.Deadline;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+import nerunerune.ui.Ui;
+
+public class ScheduleIndexTest {
+    private static final LocalDate START = LocalDate.of(2025, 1, 25);
+    private static final int DAYS = 20;
+
+    @TempDir
+    Path tempDir;
+
+    private static Task randomTask(Random random, long id) {
+        LocalDateTime dateTime = START.plusDays(random.nextInt(DAYS)).atTime(random.nextInt(24), 0);
+        Task task = switch (random.nextInt(3)) {
+        case 0 -> new Todo("todo " + id);
+        case 1 -> new Deadline("deadline " + id, dateTime);
+        default -> new Event("event " + id, dateTime, dateTime.plusHours(random.nextInt(72)));
+        };
+        task.setId(id);
+        return task;
+    }
+
+    // linear scan oracles, as TaskList searches the list before the index is ready
+    private static NavigableMap<LocalDate, List<Task>> findByDate(List<Task> taskList, LocalDate startDate,
+            LocalDate endDate) {
+        NavigableMap<LocalDate, List<Task>> tasksByDate = new TreeMap<>();
+        for (Task task : taskList) {
+            LocalDate taskDate = TaskIndexFile.getIndexedDate(task);
+            if (taskDate != null && !taskDate.isBefore(startDate) && !taskDate.isAfter(endDate)) {
+                tasksByDate.computeIfAbsent(taskDate, key -> new ArrayList<>()).add(task);
+            }
+        }
+        return tasksByDate;
+    }
+
+    private static List<Event> findEventsOn(List<Task> taskList, LocalDate date) {
+        List<Event> events = new ArrayList<>();
+        for (Task task : taskList) {
+            if (task instanceof Event event && event.occursOn(date)) {
+                events.add(event);
+            }
+        }
+        return events;
+    }
+
+    private static void assertMatchesScan(List<Task> taskList, TaskIndex index, String message) {
+        for (int day = -1; day <= DAYS + 3; day++) {
+            LocalDate date = START.plusDays(day);
+            assertIterableEquals(findEventsOn(taskList, date), index.findEventsOn(date), message + ", on " + date);
+            LocalDate endDate = date.plusDays(6);
+            assertEquals(findByDate(taskList, date, endDate), index.findByDate(date, endDate),
+                    message + ", week from " + date);
+        }
+    }
+
+    private static StorageSettings sharded() {
+        return new StorageSettings(false, StorageFormat.TEXT, 0, false, false, false, true, 0,
+                StorageBackend.FILE, false);
+    }
+
+    @Test
+    public void findByDate_randomChanges_matchLinearScan() {
+        Random random = new Random(20);
+        List<Task> taskList = new ArrayList<>();
+        long nextId = 1;
+        for (int i = 0; i < 40; i++) {
+            taskList.add(randomTask(random, nextId++));
+        }
+        TaskIndex index = new TaskIndex();
+        index.rebuild(taskList);
+
+        for (int step = 0; step < 500; step++) {
+            int operation = random.nextInt(20);
+            if (operation < 8 || taskList.isEmpty()) {
+                Task task = randomTask(random, nextId++);
+                taskList.add(task);
+                index.add(task);
+            } else if (operation < 13) {
+                Task task = taskList.remove(random.nextInt(taskList.size()));
+                index.remove(task);
+            } else if (operation < 19) {
+                Task task = taskList.get(random.nextInt(taskList.size()));
+                if (task.getIsDone()) {
+                    task.markAsUndone();
+                } else {
+                    task.markAsDone();
+                }
+                index.updateDone(task);
+            } else {
+                taskList.removeIf(Task::getIsDone);
+                index.removeIf(Task::getIsDone);
+            }
+            assertMatchesScan(taskList, index, "step " + step);
+        }
+    }
+
+    @Test
+    public void findTasksOn_olderShardedMonth_pagesInEventsEndingOnThatDate() throws Exception {
+        String filepath = tempDir.resolve("tasks.txt").toString();
+        FileStorage storage = new FileStorage(filepath, sharded());
+        TaskList saved = new TaskList(storage, new Ui());
+        saved.loadTasks();
+        saved.addTask(new Deadline("january", LocalDateTime.of(2020, 1, 20, 12, 0)));
+        saved.addTask(new Event("across months", LocalDateTime.of(2020, 1, 31, 22, 0),
+                LocalDateTime.of(2020, 2, 1, 2, 0)));
+        saved.addTask(new Deadline("february", LocalDateTime.of(2020, 2, 1, 18, 0)));
+        storage.saveTasksToStorage(saved.getTaskList());
+        saved.close();
+
+        FileStorage reopened = new FileStorage(filepath, sharded());
+        TaskList tasks = new TaskList(reopened, new Ui());
+        ReentrantLock taskListLock = reopened.getTaskListLock();
+        taskListLock.lock(); // held by every command, as the index may be swapped in meanwhile
+        try {
+            tasks.loadTasks();
+            assertEquals(0, tasks.getTaskList().size());
+
+            List<Task> deadlines = new ArrayList<>();
+            List<Task> events = new ArrayList<>();
+            tasks.findTasksOn(LocalDate.of(2020, 2, 1), deadlines, events);
+
+            assertEquals(List.of("february"), deadlines.stream().map(Task::getDescription).toList());
+            assertEquals(List.of("across months"), events.stream().map(Task::getDescription).toList());
+            NavigableMap<LocalDate, List<Task>> january = tasks.findTasksByDate(LocalDate.of(2020, 1, 1),
+                    LocalDate.of(2020, 1, 31));
+            assertEquals(Map.of(LocalDate.of(2020, 1, 20), List.of("january"), LocalDate.of(2020, 1, 31),
+                    List.of("across months")), toDescriptions(january));
+        } finally {
+            taskListLock.unlock();
+        }
+        tasks.close();
+    }
+
+    private static Map<LocalDate, List<String>> toDescriptions(Map<LocalDate, List<Task>> tasksByDate) {
+        Map<LocalDate, List<String>> descriptions = new TreeMap<>();
+        tasksByDate.forEach((date, tasks) -> descriptions.put(date,
+                tasks.stream().map(Task::getDescription).toList()));
+        return descriptions;
+    }
+}
@@ -0,0 +1,100 @@
+package nerunerune.tasklist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class SequencePositionsTest {
+
+    // linear scan oracle: the position is the number of smaller sequence numbers still present
+    private static int positionOf(List<Long> sequences, long sequence) {
+        int count = 0;
+        for (long present : sequences) {
+            if (present < sequence) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void positionOf_consecutiveSequences_isSequence() {
+        SequencePositions positions = new SequencePositions();
+        for (int i = 0; i < 100; i++) {
+            positions.add(i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, positions.positionOf(i));
+        }
+    }
+
+    @Test
+    public void positionOf_afterRemovals_skipsRemovedSequences() {
+        SequencePositions positions = new SequencePositions();
+        for (int i = 0; i < 10; i++) {
+            positions.add(i);
+        }
+        positions.remove(2);
+        positions.remove(5);
+        assertEquals(2, positions.positionOf(3));
+        assertEquals(4, positions.positionOf(6));
+        assertEquals(7, positions.positionOf(9));
+    }
+
+    @Test
+    public void addAndRemove_repeatedOrUnknownSequence_isIgnored() {
+        SequencePositions positions = new SequencePositions();
+        positions.add(0);
+        positions.add(0);
+        positions.add(1);
+        positions.remove(7);
+        positions.remove(-1);
+        assertEquals(1, positions.positionOf(1));
+        positions.remove(0);
+        positions.remove(0);
+        assertEquals(0, positions.positionOf(1));
+    }
+
+    @Test
+    public void operations_randomAddsAndRemoves_matchLinearScan() {
+        Random random = new Random(23);
+        SequencePositions positions = new SequencePositions();
+        List<Long> sequences = new ArrayList<>();
+        long nextSequence = 0;
+
+        for (int step = 0; step < 5000; step++) {
+            if (random.nextInt(3) > 0 || sequences.isEmpty()) {
+                nextSequence += 1 + random.nextInt(3); // gaps as left by removals made before the index was built
+                sequences.add(nextSequence);
+                positions.add(nextSequence); // grows the tree past its initial size
+            } else {
+                positions.remove(sequences.remove(random.nextInt(sequences.size())));
+            }
+
+            if (!sequences.isEmpty()) {
+                long probed = sequences.get(random.nextInt(sequences.size()));
+                assertEquals(positionOf(sequences, probed), positions.positionOf(probed), "step " + step);
+            }
+        }
+        Collections.sort(sequences);
+        for (int i = 0; i < sequences.size(); i++) {
+            assertEquals(i, positions.positionOf(sequences.get(i)));
+        }
+    }
+
+    @Test
+    public void clear_addedSequences_resetsPositions() {
+        SequencePositions positions = new SequencePositions();
+        for (int i = 0; i < 40; i++) {
+            positions.add(i);
+        }
+        positions.clear();
+        positions.add(30);
+        assertEquals(0, positions.positionOf(30));
+    }
+}
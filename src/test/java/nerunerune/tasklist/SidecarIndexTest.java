@@ -0,0 +1,208 @@
+package nerunerune.tasklist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.storage.FileStorage;
+import nerunerune.storage.TaskIndexFile;
+import nerunerune.task.Deadline;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+import nerunerune.ui.Ui;
+
+public class SidecarIndexTest {
+    private static final LocalDate START = LocalDate.of(2030, 3, 1);
+    private static final int TASK_COUNT = 30;
+
+    @TempDir
+    Path tempDir;
+
+    private String filepath() {
+        return tempDir.resolve("tasks.txt").toString();
+    }
+
+    private Path indexPath() {
+        return tempDir.resolve("tasksIndex.bin");
+    }
+
+    private void saveSampleTasks() throws Exception {
+        FileStorage storage = new FileStorage(filepath());
+        TaskList tasks = new TaskList(storage, new Ui());
+        tasks.loadTasks();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks.addTask(i % 3 == 0
+                    ? new Todo("todo " + i)
+                    : new Deadline("deadline " + i, START.plusDays(i % 7).atTime(12, 0)));
+        }
+        storage.saveTasksToStorage(tasks.getTaskList());
+        awaitIndex(tasks);
+        tasks.close();
+    }
+
+    private static void awaitIndex(TaskList tasks) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!tasks.isIndexReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(tasks.isIndexReady(), "the index was built in the background");
+    }
+
+    // linear scan oracle, as TaskList searches the list before the index is ready
+    private static Map<LocalDate, List<String>> findByDate(List<Task> taskList, LocalDate startDate,
+            LocalDate endDate) {
+        NavigableMap<LocalDate, List<String>> tasksByDate = new TreeMap<>();
+        for (Task task : taskList) {
+            LocalDate taskDate = TaskIndexFile.getIndexedDate(task);
+            if (taskDate != null && !taskDate.isBefore(startDate) && !taskDate.isAfter(endDate)) {
+                tasksByDate.computeIfAbsent(taskDate, key -> new ArrayList<>()).add(task.getDescription());
+            }
+        }
+        return tasksByDate;
+    }
+
+    private static Map<LocalDate, List<String>> toDescriptions(Map<LocalDate, List<Task>> tasksByDate) {
+        Map<LocalDate, List<String>> descriptions = new TreeMap<>();
+        tasksByDate.forEach((date, tasks) -> descriptions.put(date,
+                tasks.stream().map(Task::getDescription).toList()));
+        return descriptions;
+    }
+
+    private static void assertMatchesScan(FileStorage storage, TaskList tasks, String message) {
+        storage.getTaskListLock().lock(); // held by every command, as the index may be swapped in meanwhile
+        try {
+            assertMatchesScan(tasks, message);
+        } finally {
+            storage.getTaskListLock().unlock();
+        }
+    }
+
+    private static void assertMatchesScan(TaskList tasks, String message) {
+        List<Task> taskList = tasks.getTaskList();
+        LocalDate endDate = START.plusDays(10);
+        assertEquals(findByDate(taskList, START, endDate), toDescriptions(tasks.findTasksByDate(START, endDate)),
+                message);
+        List<String> containing = new ArrayList<>();
+        for (Task task : taskList) {
+            if (task.getDescription().contains("line 1")) {
+                containing.add(task.getDescription());
+            }
+        }
+        assertEquals(containing, tasks.filterTasksByKeyword("line 1").stream().map(Task::getDescription).toList(),
+                message);
+    }
+
+    @Test
+    public void loadTasks_storageChangedSinceIndexSaved_ignoresAndRebuildsIndex() throws Exception {
+        saveSampleTasks();
+        FileStorage other = new FileStorage(filepath());
+        TaskList changed = new TaskList(other, new Ui());
+        changed.loadTasks();
+        Task moved = new Deadline("deadline moved", START.plusDays(9).atTime(8, 0));
+        moved.setId(changed.getTaskList().get(1).getId());
+        changed.getTaskList().set(1, moved);
+        other.saveTasksToStorage(changed.getTaskList()); // the index file is not saved with it
+
+        FileStorage storage = new FileStorage(filepath());
+        TaskList tasks = new TaskList(storage, new Ui());
+        tasks.loadTasks();
+
+        assertNull(storage.loadIndex(tasks.getTaskList().size()), "the index file is stale");
+        assertMatchesScan(storage, tasks, "before the index is built");
+        awaitIndex(tasks);
+        assertMatchesScan(tasks, "after the index is built");
+        tasks.close();
+        FileStorage reopened = new FileStorage(filepath());
+        new TaskList(reopened, new Ui()).loadTasks();
+        assertNotNull(reopened.loadIndex(TASK_COUNT), "the rebuilt index was saved");
+    }
+
+    @Test
+    public void loadTasks_indexPositionOutOfRange_ignoresAndRebuildsIndex() throws Exception {
+        saveSampleTasks();
+        byte[] bytes = Files.readAllBytes(indexPath());
+        // magic, version, generation, task count, description count, key length, key, position count
+        int positionOffset = 4 + 1 + Long.BYTES + 3 * Integer.BYTES + "todo 0".length() + Integer.BYTES;
+        ByteBuffer.wrap(bytes).putInt(positionOffset, TASK_COUNT);
+        Files.write(indexPath(), bytes);
+
+        FileStorage storage = new FileStorage(filepath());
+        TaskList tasks = new TaskList(storage, new Ui());
+        tasks.loadTasks();
+
+        assertNull(storage.loadIndex(tasks.getTaskList().size()), "the index file is corrupted");
+        awaitIndex(tasks);
+        assertMatchesScan(tasks, "after the index is built");
+        tasks.close();
+        FileStorage reopened = new FileStorage(filepath());
+        new TaskList(reopened, new Ui()).loadTasks();
+        assertNotNull(reopened.loadIndex(TASK_COUNT), "the rebuilt index was saved");
+    }
+
+    @Test
+    public void loadTasks_changesWhileIndexBuilds_replayedOntoBuiltIndex() throws Exception {
+        saveSampleTasks();
+        FileStorage storage = new FileStorage(filepath());
+        TaskList tasks = new TaskList(storage, new Ui());
+        ReentrantLock taskListLock = storage.getTaskListLock();
+
+        taskListLock.lock(); // keeps the built index from being swapped in until the changes are made
+        try {
+            tasks.loadTasks();
+            assertNotNull(storage.loadIndex(TASK_COUNT));
+            tasks.addTask(new Deadline("deadline 1 added", START.plusDays(2).atTime(9, 0)));
+            tasks.deleteTask("2");
+            tasks.markTask("deadline 1");
+            tasks.unmarkTask("deadline 1");
+            tasks.markTask("deadline 10");
+            assertMatchesScan(tasks, "before the index is built");
+        } finally {
+            taskListLock.unlock();
+        }
+
+        awaitIndex(tasks);
+        assertMatchesScan(tasks, "after the index is built");
+        assertEquals(1, tasks.getTaskList().stream().filter(Task::getIsDone).count());
+        tasks.close();
+    }
+
+    @Test
+    public void loadTasks_deleteDoneWhileIndexBuilds_rebuildsFromFreshCopy() throws Exception {
+        saveSampleTasks();
+        FileStorage storage = new FileStorage(filepath());
+        TaskList tasks = new TaskList(storage, new Ui());
+        ReentrantLock taskListLock = storage.getTaskListLock();
+
+        taskListLock.lock();
+        try {
+            tasks.loadTasks();
+            tasks.markTask("deadline 1");
+            tasks.markTask("todo 3");
+            tasks.deleteTask("all done");
+            tasks.addTask(new Todo("todo 1 added"));
+            assertMatchesScan(tasks, "before the index is built");
+        } finally {
+            taskListLock.unlock();
+        }
+
+        awaitIndex(tasks);
+        assertMatchesScan(tasks, "after the index is built");
+        assertEquals(TASK_COUNT - 1, tasks.getTaskList().size());
+        tasks.close();
+    }
+}
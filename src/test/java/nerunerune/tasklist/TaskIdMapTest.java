@@ -0,0 +1,189 @@
+package nerunerune.tasklist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class TaskIdMapTest {
+
+    private static Todo todoWithId(long id) {
+        Todo todo = new Todo("task " + id);
+        todo.setId(id);
+        return todo;
+    }
+
+    // linear scan oracle: the first mapped task with the ID, as the map keeps the first one
+    private static int findMapped(List<Task> mapped, long id) {
+        for (int i = 0; i < mapped.size(); i++) {
+            if (mapped.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void get_unmappedId_returnsNull() {
+        TaskIdMap map = new TaskIdMap();
+        map.put(todoWithId(1), 0);
+        assertNull(map.get(2));
+        assertNull(map.get(0));
+        assertNull(map.get(-1));
+    }
+
+    @Test
+    public void put_taskWithoutId_isNotMapped() {
+        TaskIdMap map = new TaskIdMap();
+        Todo todo = new Todo("no id");
+        map.put(todo, 0);
+        assertEquals(-1, map.getSequence(todo));
+    }
+
+    @Test
+    public void put_duplicateId_firstTaskKeepsIt() {
+        TaskIdMap map = new TaskIdMap();
+        Todo first = todoWithId(5);
+        Todo second = todoWithId(5);
+        map.put(first, 0);
+        map.put(second, 1);
+        assertSame(first, map.get(5));
+        assertEquals(0, map.getSequence(first));
+        assertEquals(-1, map.getSequence(second));
+    }
+
+    @Test
+    public void remove_otherTaskWithSameId_keepsMappedTask() {
+        TaskIdMap map = new TaskIdMap();
+        Todo mapped = todoWithId(3);
+        map.put(mapped, 7);
+        map.remove(todoWithId(3));
+        assertSame(mapped, map.get(3));
+        assertEquals(7, map.getSequence(mapped));
+    }
+
+    @Test
+    public void put_afterRemove_reusesTombstoneAndFindsLaterEntries() {
+        TaskIdMap map = new TaskIdMap();
+        List<Todo> todos = new ArrayList<>();
+        for (int id = 1; id <= 10; id++) {
+            todos.add(todoWithId(id));
+            map.put(todos.get(id - 1), id);
+        }
+        for (int id = 1; id <= 10; id += 2) {
+            map.remove(todos.get(id - 1));
+        }
+        Todo readded = todoWithId(1);
+        map.put(readded, 100);
+        for (int id = 2; id <= 10; id += 2) {
+            assertSame(todos.get(id - 1), map.get(id), "entry probed after a tombstone");
+        }
+        assertSame(readded, map.get(1));
+        assertEquals(100, map.getSequence(readded));
+        assertNull(map.get(3));
+    }
+
+    @Test
+    public void put_afterManyRemoves_reusesTombstonesWithoutGrowing() {
+        TaskIdMap map = new TaskIdMap();
+        ArrayDeque<Todo> live = new ArrayDeque<>();
+        long nextId = 1;
+        for (int i = 0; i < 64; i++) {
+            Todo todo = todoWithId(nextId++);
+            live.add(todo);
+            map.put(todo, todo.getId());
+        }
+
+        // as the app uses IDs: every added task has a new one, so a removed ID is never put again
+        int capacity = 0;
+        for (int step = 0; step < 50_000; step++) {
+            if (step == 1000) {
+                capacity = map.getCapacity(); // the table may grow once before tombstones reach the load limit
+            }
+            Todo removed = live.poll();
+            map.remove(removed);
+            assertNull(map.get(removed.getId()), "step " + step);
+            Todo added = todoWithId(nextId++);
+            live.add(added);
+            map.put(added, added.getId());
+        }
+
+        assertEquals(capacity, map.getCapacity(), "tombstones are compacted rather than grown past");
+        for (Todo todo : live) {
+            assertSame(todo, map.get(todo.getId()));
+            assertEquals(todo.getId(), map.getSequence(todo));
+        }
+        for (long id = 1; id < nextId - live.size(); id += 997) {
+            assertNull(map.get(id));
+        }
+    }
+
+    @Test
+    public void operations_randomPutsAndRemoves_matchLinearScan() {
+        Random random = new Random(42);
+        TaskIdMap map = new TaskIdMap();
+        List<Task> mapped = new ArrayList<>();
+        List<Long> sequences = new ArrayList<>();
+        long nextSequence = 0;
+
+        // IDs from a small range, so removes leave many tombstones and puts collide with them
+        for (int step = 0; step < 20_000; step++) {
+            long id = 1 + random.nextInt(300);
+            int oracleIndex = findMapped(mapped, id);
+            if (random.nextInt(3) > 0) {
+                Todo todo = todoWithId(id);
+                map.put(todo, nextSequence);
+                if (oracleIndex < 0) {
+                    mapped.add(todo);
+                    sequences.add(nextSequence);
+                }
+                nextSequence++;
+            } else if (oracleIndex >= 0) {
+                map.remove(mapped.get(oracleIndex));
+                mapped.remove(oracleIndex);
+                sequences.remove(oracleIndex);
+            }
+
+            long probedId = 1 + random.nextInt(300);
+            int probedIndex = findMapped(mapped, probedId);
+            assertSame(probedIndex < 0 ? null : mapped.get(probedIndex), map.get(probedId), "step " + step);
+        }
+        for (int i = 0; i < mapped.size(); i++) {
+            assertSame(mapped.get(i), map.get(mapped.get(i).getId()));
+            assertEquals((long) sequences.get(i), map.getSequence(mapped.get(i)));
+        }
+    }
+
+    @Test
+    public void put_manyIds_rehashesAndKeepsEveryEntry() {
+        TaskIdMap map = new TaskIdMap();
+        List<Todo> todos = new ArrayList<>();
+        for (int id = 1; id <= 5000; id++) {
+            todos.add(todoWithId(id));
+            map.put(todos.get(id - 1), id * 2L);
+        }
+        for (Todo todo : todos) {
+            assertSame(todo, map.get(todo.getId()));
+            assertEquals(todo.getId() * 2, map.getSequence(todo));
+        }
+    }
+
+    @Test
+    public void clear_mappedIds_unmapsAll() {
+        TaskIdMap map = new TaskIdMap();
+        Todo todo = todoWithId(1);
+        map.put(todo, 0);
+        map.clear();
+        assertNull(map.get(1));
+        assertEquals(-1, map.getSequence(todo));
+    }
+}
@@ -0,0 +1,211 @@
+package nerunerune.tasklist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import nerunerune.storage.TaskIndexFile;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class TaskIndexTest {
+    private static final String[] DESCRIPTIONS = {"read", "Read", "READ", "book", "Book club", "book club", "swim"};
+
+    @TempDir
+    Path tempDir;
+
+    private static Todo todo(String description, long id) {
+        Todo todo = new Todo(description);
+        todo.setId(id);
+        return todo;
+    }
+
+    // linear scan oracles, as TaskList searches the list before the index is ready
+    private static Task find(List<Task> taskList, String description, boolean isDone, boolean isFromEnd) {
+        for (int i = 0; i < taskList.size(); i++) {
+            Task task = taskList.get(isFromEnd ? taskList.size() - 1 - i : i);
+            if (task.getDescription().equalsIgnoreCase(description) && task.getIsDone() == isDone) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private static Task findFirst(List<Task> taskList, String description) {
+        for (Task task : taskList) {
+            if (task.getDescription().equalsIgnoreCase(description)) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private static void assertMatchesScan(List<Task> taskList, TaskIndex index, String message) {
+        assertDescriptionsMatchScan(taskList, index, message);
+        for (int i = 0; i < taskList.size(); i++) {
+            assertEquals(i, index.positionOf(taskList.get(i)), message);
+            assertSame(taskList.get(i), index.findById(taskList.get(i).getId()), message);
+        }
+    }
+
+    private static void assertDescriptionsMatchScan(List<Task> taskList, TaskIndex index, String message) {
+        for (String description : DESCRIPTIONS) {
+            assertSame(findFirst(taskList, description), index.findFirst(description), message);
+            for (boolean isDone : new boolean[] {false, true}) {
+                assertSame(find(taskList, description, isDone, false), index.find(description, isDone, false),
+                        message + ", first " + description + (isDone ? " done" : ""));
+                assertSame(find(taskList, description, isDone, true), index.find(description, isDone, true),
+                        message + ", last " + description + (isDone ? " done" : ""));
+            }
+        }
+    }
+
+    @Test
+    public void isReady_beforeBuild_isFalseAndChangesAreIgnored() {
+        TaskIndex index = new TaskIndex();
+        assertFalse(index.isReady());
+        index.add(todo("read", 1));
+        index.rebuild(List.of());
+        assertTrue(index.isReady());
+        assertNull(index.findFirst("read"));
+    }
+
+    @Test
+    public void find_duplicateDescriptions_skipsTasksWithOtherStatus() {
+        List<Task> taskList = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            taskList.add(todo("Read", i + 1));
+        }
+        taskList.get(0).markAsDone();
+        taskList.get(3).markAsDone();
+        TaskIndex index = new TaskIndex();
+        index.rebuild(taskList);
+        assertSame(taskList.get(1), index.find("read", false, false));
+        assertSame(taskList.get(4), index.find("READ", false, true));
+        assertSame(taskList.get(0), index.find("read", true, false));
+        assertSame(taskList.get(3), index.find("read", true, true));
+        assertSame(taskList.get(0), index.findFirst("read"));
+    }
+
+    @Test
+    public void updateDone_markedThenUnmarked_keepsListOrder() {
+        List<Task> taskList = new ArrayList<>(List.of(todo("swim", 1), todo("swim", 2), todo("swim", 3)));
+        TaskIndex index = new TaskIndex();
+        index.rebuild(taskList);
+        taskList.get(1).markAsDone();
+        index.updateDone(taskList.get(1));
+        assertSame(taskList.get(2), index.find("swim", false, true));
+        taskList.get(1).markAsUndone();
+        index.updateDone(taskList.get(1));
+        assertSame(taskList.get(0), index.find("swim", false, false));
+        assertNull(index.find("swim", true, false));
+        taskList.get(0).markAsDone();
+        index.updateDone(taskList.get(0));
+        assertSame(taskList.get(1), index.find("swim", false, false));
+        assertMatchesScan(taskList, index, "after marks");
+    }
+
+    @Test
+    public void operations_randomChanges_matchLinearScan() {
+        Random random = new Random(18);
+        List<Task> taskList = new ArrayList<>();
+        long nextId = 1;
+        for (int i = 0; i < 50; i++) {
+            taskList.add(todo(DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)], nextId++));
+        }
+        TaskIndex index = new TaskIndex();
+        index.rebuild(taskList);
+
+        for (int step = 0; step < 3000; step++) {
+            int operation = random.nextInt(20);
+            if (operation < 8 || taskList.isEmpty()) {
+                Task task = todo(DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)], nextId++);
+                if (random.nextInt(4) == 0) {
+                    task.markAsDone();
+                }
+                taskList.add(task);
+                index.add(task);
+            } else if (operation < 13) {
+                Task task = taskList.remove(random.nextInt(taskList.size()));
+                index.remove(task);
+            } else if (operation < 19) {
+                Task task = taskList.get(random.nextInt(taskList.size()));
+                if (task.getIsDone()) {
+                    task.markAsUndone();
+                } else {
+                    task.markAsDone();
+                }
+                index.updateDone(task);
+            } else {
+                taskList.removeIf(Task::getIsDone);
+                index.removeIf(Task::getIsDone);
+            }
+            assertMatchesScan(taskList, index, "step " + step);
+        }
+    }
+
+    @Test
+    public void load_indexFileOfList_matchesLinearScan() throws IOException {
+        Random random = new Random(180);
+        List<Task> taskList = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Task task = todo(DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)], i + 1);
+            if (random.nextBoolean()) {
+                task.markAsDone();
+            }
+            taskList.add(task);
+        }
+        TaskIndexFile indexFile = new TaskIndexFile(tempDir.resolve("tasksIndex.bin").toFile());
+        indexFile.write(42, taskList);
+        TaskIndexFile.Snapshot snapshot = indexFile.read(42, taskList.size());
+        assertNotNull(snapshot);
+        assertNull(indexFile.read(43, taskList.size()));
+
+        TaskIndex index = new TaskIndex();
+        index.load(snapshot, taskList);
+        assertFalse(index.isReady(), "only the description and date maps are loaded");
+        assertTrue(index.isDescriptionAndDateReady());
+        assertDescriptionsMatchScan(taskList, index, "loaded");
+        Task added = todo("read", 1000);
+        taskList.add(added);
+        index.add(added);
+        taskList.get(3).markAsUndone();
+        index.updateDone(taskList.get(3));
+        index.remove(taskList.remove(10));
+        taskList.removeIf(Task::getIsDone);
+        index.removeIf(Task::getIsDone);
+        assertDescriptionsMatchScan(taskList, index, "changed after loading");
+
+        index.rebuild(taskList);
+        assertMatchesScan(taskList, index, "built after loading");
+    }
+
+    @Test
+    public void read_positionOutOfRange_returnsNull() throws IOException {
+        List<Task> taskList = List.of(todo("read", 1), todo("swim", 2));
+        Path path = tempDir.resolve("tasksIndex.bin");
+        TaskIndexFile indexFile = new TaskIndexFile(path.toFile());
+        indexFile.write(42, taskList);
+        byte[] bytes = Files.readAllBytes(path);
+        // magic, version, generation, task count, description count, key length, key, position count
+        int positionOffset = 4 + 1 + Long.BYTES + 3 * Integer.BYTES + "read".length() + Integer.BYTES;
+        ByteBuffer.wrap(bytes).putInt(positionOffset, taskList.size());
+        Files.write(path, bytes);
+
+        assertNull(indexFile.read(42, taskList.size()));
+    }
+}
@@ -0,0 +1,162 @@
+package nerunerune.tasklist;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nerunerune.storage.TaskIndexFile;
+import nerunerune.task.Deadline;
+import nerunerune.task.Event;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class TaskStatsTest {
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 30, 8, 0);
+
+    private static Task randomTask(Random random) {
+        LocalDateTime time = START.plusHours(random.nextInt(24 * 40));
+        return switch (random.nextInt(4)) {
+        case 0 -> new Todo("todo", random.nextBoolean());
+        case 1 -> new Deadline("deadline", time, random.nextBoolean());
+        case 2 -> new Event("event", time, time.plusHours(1 + random.nextInt(72)), random.nextBoolean());
+        default -> new Deadline("undated", random.nextBoolean());
+        };
+    }
+
+    // linear scan oracle for the totals of a task list
+    private static void assertMatchesScan(List<Task> taskList, TaskStats stats, LocalDate startDate,
+            LocalDate endDate, String message) {
+        int todoCount = 0;
+        int deadlineCount = 0;
+        int eventCount = 0;
+        int doneCount = 0;
+        int deadlinesBetween = 0;
+        int eventsBetween = 0;
+        for (Task task : taskList) {
+            LocalDate date = TaskIndexFile.getIndexedDate(task);
+            boolean isBetween = date != null && !date.isBefore(startDate) && !date.isAfter(endDate);
+            if (task instanceof Deadline) {
+                deadlineCount++;
+                deadlinesBetween += isBetween ? 1 : 0;
+            } else if (task instanceof Event) {
+                eventCount++;
+                eventsBetween += isBetween ? 1 : 0;
+            } else {
+                todoCount++;
+            }
+            doneCount += task.getIsDone() ? 1 : 0;
+        }
+        assertEquals(taskList.size(), stats.getTaskCount(), message);
+        assertEquals(todoCount, stats.getTodoCount(), message);
+        assertEquals(deadlineCount, stats.getDeadlineCount(), message);
+        assertEquals(eventCount, stats.getEventCount(), message);
+        assertEquals(doneCount, stats.getDoneCount(), message);
+        assertEquals(deadlinesBetween, stats.countDeadlinesBetween(startDate, endDate), message);
+        assertEquals(eventsBetween, stats.countEventsBetween(startDate, endDate), message);
+    }
+
+    @Test
+    public void countBetween_rangeBounds_areInclusive() {
+        TaskStats stats = new TaskStats();
+        stats.add(new Deadline("first", START));
+        stats.add(new Deadline("last", START.plusDays(6)));
+        stats.add(new Event("event", START.plusDays(7), START.plusDays(8)));
+        assertEquals(2, stats.countDeadlinesBetween(START.toLocalDate(), START.toLocalDate().plusDays(6)));
+        assertEquals(0, stats.countEventsBetween(START.toLocalDate(), START.toLocalDate().plusDays(6)));
+        assertEquals(1, stats.countEventsBetween(START.toLocalDate().plusDays(7), START.toLocalDate().plusDays(7)));
+    }
+
+    @Test
+    public void remove_lastTaskOnDate_dropsDate() {
+        TaskStats stats = new TaskStats();
+        Deadline deadline = new Deadline("deadline", START);
+        stats.add(deadline);
+        stats.remove(deadline);
+        assertEquals(0, stats.countDeadlinesBetween(LocalDate.MIN, LocalDate.MAX));
+        assertEquals(0, stats.getTaskCount());
+    }
+
+    @Test
+    public void operations_randomChanges_matchLinearScan() {
+        Random random = new Random(24);
+        TaskStats stats = new TaskStats();
+        List<Task> taskList = new ArrayList<>();
+
+        for (int step = 0; step < 5000; step++) {
+            int operation = random.nextInt(10);
+            if (operation < 5 || taskList.isEmpty()) {
+                Task task = randomTask(random);
+                taskList.add(task);
+                stats.add(task);
+            } else if (operation < 7) {
+                stats.remove(taskList.remove(random.nextInt(taskList.size())));
+            } else {
+                Task task = taskList.get(random.nextInt(taskList.size()));
+                if (task.getIsDone()) {
+                    task.markAsUndone();
+                } else {
+                    task.markAsDone();
+                }
+                stats.updateDone(task);
+            }
+
+            LocalDate startDate = START.toLocalDate().plusDays(random.nextInt(45) - 3);
+            LocalDate endDate = startDate.plusDays(random.nextInt(10));
+            assertMatchesScan(taskList, stats, startDate, endDate, "step " + step);
+        }
+        assertMatchesScan(taskList, TaskStats.of(taskList), START.toLocalDate(), START.toLocalDate().plusDays(7),
+                "built from the list");
+    }
+
+    @Test
+    public void updateDone_marksAndDeleteDoneThroughIndex_matchLinearScan() {
+        Random random = new Random(240);
+        List<Task> taskList = new ArrayList<>();
+        long nextId = 1;
+        TaskIndex index = new TaskIndex();
+        index.rebuild(taskList);
+
+        for (int step = 0; step < 3000; step++) {
+            int operation = random.nextInt(20);
+            if (operation < 8 || taskList.isEmpty()) {
+                Task task = randomTask(random);
+                task.setId(nextId++);
+                taskList.add(task);
+                index.add(task);
+            } else if (operation < 11) {
+                Task task = taskList.remove(random.nextInt(taskList.size()));
+                index.remove(task);
+            } else if (operation < 19) {
+                Task task = taskList.get(random.nextInt(taskList.size()));
+                if (task.getIsDone()) {
+                    task.markAsUndone();
+                } else {
+                    task.markAsDone();
+                }
+                index.updateDone(task);
+            } else {
+                taskList.removeIf(Task::getIsDone); // delete all done
+                index.removeIf(Task::getIsDone);
+            }
+
+            LocalDate startDate = START.toLocalDate().plusDays(random.nextInt(45) - 3);
+            LocalDate endDate = startDate.plusDays(random.nextInt(10));
+            assertMatchesScan(taskList, index.getStats(), startDate, endDate, "step " + step);
+        }
+    }
+
+    @Test
+    public void clear_countedTasks_resetsTotals() {
+        TaskStats stats = new TaskStats();
+        stats.add(new Todo("todo", true));
+        stats.add(new Deadline("deadline", START));
+        stats.clear();
+        assertMatchesScan(List.of(), stats, LocalDate.MIN, LocalDate.MAX, "after clear");
+    }
+}
@@ -0,0 +1,203 @@
+package nerunerune.tasklist;
+
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nerunerune.storage.TaskIndexFile;
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class TokenTreeTest {
+
+    // a task in the tree, with the sequence number it was added with
+    private record Entry(long sequence, Task task) {
+    }
+
+    private static int getDistance(String first, String second) {
+        int[][] distances = new int[first.length() + 1][second.length() + 1];
+        for (int i = 0; i <= first.length(); i++) {
+            for (int j = 0; j <= second.length(); j++) {
+                if (i == 0 || j == 0) {
+                    distances[i][j] = i + j;
+                } else {
+                    int replaced = distances[i - 1][j - 1] + (first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1);
+                    distances[i][j] = Math.min(replaced, Math.min(distances[i - 1][j], distances[i][j - 1]) + 1);
+                }
+            }
+        }
+        return distances[first.length()][second.length()];
+    }
+
+    // linear scan oracle: every task ranked by its closest word, then in list order
+    private static List<Task> findClosest(List<Entry> entries, String term, int limit) {
+        String folded = TaskIndexFile.foldDescription(term);
+        int maxDistance = folded.length() < 3 ? 0 : folded.length() < 6 ? 1 : 2;
+        List<long[]> ranked = new ArrayList<>(); // distance, position in entries
+        for (int i = 0; i < entries.size(); i++) {
+            int closest = Integer.MAX_VALUE;
+            for (String word : TaskIndexFile.foldDescription(entries.get(i).task().getDescription()).split("\\s+")) {
+                if (!word.isEmpty()) {
+                    closest = Math.min(closest, getDistance(folded, word));
+                }
+            }
+            if (closest <= maxDistance) {
+                ranked.add(new long[] {closest, entries.get(i).sequence(), i});
+            }
+        }
+        ranked.sort(Comparator.<long[]>comparingLong(rank -> rank[0]).thenComparingLong(rank -> rank[1]));
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, ranked.size()); i++) {
+            tasks.add(entries.get((int) ranked.get(i)[2]).task());
+        }
+        return tasks;
+    }
+
+    // words from a small alphabet, so many of them are a few edits apart
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 1 + random.nextInt(7);
+        for (int i = 0; i < length; i++) {
+            word.append("abcAB".charAt(random.nextInt(5)));
+        }
+        return word.toString();
+    }
+
+    private static String randomDescription(Random random) {
+        StringBuilder description = new StringBuilder(randomWord(random));
+        int wordCount = random.nextInt(3);
+        for (int i = 0; i < wordCount; i++) {
+            description.append(random.nextBoolean() ? " " : "  ").append(randomWord(random));
+        }
+        return description.toString();
+    }
+
+    @Test
+    public void findClosest_misspeltTerm_findsTaskIgnoringCase() {
+        TokenTree tree = new TokenTree();
+        Todo todo = new Todo("Submit Report");
+        tree.add(0, todo);
+        assertIterableEquals(List.of(todo), tree.findClosest("reprot", 5));
+        assertIterableEquals(List.of(todo), tree.findClosest("SUBMIT", 5));
+    }
+
+    @Test
+    public void findClosest_shortTerm_mustMatchExactly() {
+        TokenTree tree = new TokenTree();
+        Todo todo = new Todo("go to gym");
+        tree.add(0, todo);
+        assertIterableEquals(List.of(todo), tree.findClosest("gym", 5));
+        assertIterableEquals(List.of(todo), tree.findClosest("go", 5));
+        assertIterableEquals(List.of(), tree.findClosest("ti", 5));
+        assertIterableEquals(List.of(), tree.findClosest("g", 5));
+    }
+
+    @Test
+    public void findClosest_exactAndCloseMatches_ranksExactFirstThenListOrder() {
+        TokenTree tree = new TokenTree();
+        Todo close = new Todo("buy bread");
+        Todo exact = new Todo("bake break");
+        Todo laterClose = new Todo("bread rolls");
+        tree.add(0, close);
+        tree.add(1, exact);
+        tree.add(2, laterClose);
+        assertIterableEquals(List.of(exact, close, laterClose), tree.findClosest("break", 5));
+        assertIterableEquals(List.of(exact, close), tree.findClosest("break", 2));
+    }
+
+    @Test
+    public void findClosest_repeatedWord_returnsTaskOnce() {
+        TokenTree tree = new TokenTree();
+        Todo todo = new Todo("wash wash wish");
+        tree.add(0, todo);
+        assertIterableEquals(List.of(todo), tree.findClosest("wash", 5));
+    }
+
+    @Test
+    public void operations_randomAddsAndRemoves_matchLinearScan() {
+        Random random = new Random(22);
+        TokenTree tree = new TokenTree();
+        List<Entry> entries = new ArrayList<>();
+        long nextSequence = 0;
+
+        for (int step = 0; step < 3000; step++) {
+            int operation = random.nextInt(20);
+            if (operation < 12 || entries.isEmpty()) {
+                Entry entry = new Entry(nextSequence++, new Todo(randomDescription(random)));
+                entries.add(entry);
+                tree.add(entry.sequence(), entry.task());
+            } else if (operation < 19) {
+                Entry entry = entries.remove(random.nextInt(entries.size()));
+                tree.remove(entry.sequence(), entry.task());
+            } else {
+                char removedInitial = "abc".charAt(random.nextInt(3));
+                entries.removeIf(entry -> entry.task().getDescription().charAt(0) == removedInitial);
+                tree.removeIf(task -> task.getDescription().charAt(0) == removedInitial);
+            }
+
+            if (step > 100) { // until the first search, the tree is not built and adds are only kept in order
+                String term = randomWord(random);
+                int limit = 1 + random.nextInt(8);
+                assertIterableEquals(findClosest(entries, term, limit), tree.findClosest(term, limit),
+                        "step " + step + ", term " + term);
+            }
+        }
+    }
+
+    @Test
+    public void removeIf_marksAndDeleteDoneThroughIndex_matchLinearScan() {
+        Random random = new Random(220);
+        List<Task> taskList = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            taskList.add(new Todo(randomDescription(random)));
+        }
+        TaskIndex index = new TaskIndex();
+        index.rebuild(taskList);
+
+        for (int step = 0; step < 1500; step++) {
+            int operation = random.nextInt(20);
+            if (operation < 8 || taskList.isEmpty()) {
+                Todo todo = new Todo(randomDescription(random));
+                taskList.add(todo);
+                index.add(todo);
+            } else if (operation < 19) {
+                Task task = taskList.get(random.nextInt(taskList.size()));
+                if (task.getIsDone()) {
+                    task.markAsUndone();
+                } else {
+                    task.markAsDone();
+                }
+                index.updateDone(task);
+            } else {
+                taskList.removeIf(Task::getIsDone); // delete all done
+                index.removeIf(Task::getIsDone);
+            }
+
+            List<Entry> entries = new ArrayList<>(); // list positions keep the order of sequence numbers
+            for (int i = 0; i < taskList.size(); i++) {
+                entries.add(new Entry(i, taskList.get(i)));
+            }
+            String term = randomWord(random);
+            int limit = 1 + random.nextInt(8);
+            assertIterableEquals(findClosest(entries, term, limit), index.findClosest(term, limit),
+                    "step " + step + ", term " + term);
+        }
+    }
+
+    @Test
+    public void clear_addedTasks_findsNothing() {
+        TokenTree tree = new TokenTree();
+        tree.add(0, new Todo("call mum"));
+        tree.build();
+        tree.clear();
+        assertIterableEquals(List.of(), tree.findClosest("call", 5));
+        Todo todo = new Todo("call dad");
+        tree.add(0, todo);
+        assertIterableEquals(List.of(todo), tree.findClosest("call", 5));
+    }
+}
@@ -0,0 +1,168 @@
+package nerunerune.tasklist;
+
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import nerunerune.task.Task;
+import nerunerune.task.Todo;
+
+public class TrigramIndexTest {
+
+    // linear scan oracle: the tasks whose description contains the keyword, in the order they were added
+    private static List<Task> findContaining(List<Task> indexed, String keyword) {
+        List<Task> matchingTasks = new ArrayList<>();
+        for (Task task : indexed) {
+            if (task.getDescription().contains(keyword)) {
+                matchingTasks.add(task);
+            }
+        }
+        return matchingTasks;
+    }
+
+    // a small alphabet, so descriptions share many trigrams and posting lists grow long
+    private static String randomText(Random random, int maxLength) {
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(maxLength + 1);
+        for (int i = 0; i < length; i++) {
+            text.append("abc A".charAt(random.nextInt(5)));
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void findContaining_caseSensitive_matchesLikeStringContains() {
+        TrigramIndex index = new TrigramIndex();
+        Todo lower = new Todo("read book");
+        Todo upper = new Todo("Read Book");
+        index.add(0, lower);
+        index.add(1, upper);
+        index.buildPostings();
+        assertIterableEquals(List.of(lower), index.findContaining("read"));
+        assertIterableEquals(List.of(upper), index.findContaining("Book"));
+        assertIterableEquals(List.of(lower, upper), index.findContaining("ea"));
+        assertIterableEquals(List.of(), index.findContaining("reading"));
+    }
+
+    @Test
+    public void findContaining_trigramsInOtherOrder_isNotMatched() {
+        TrigramIndex index = new TrigramIndex();
+        Todo todo = new Todo("bcdabc");
+        index.add(0, todo);
+        assertIterableEquals(List.of(), index.findContaining("abcd"));
+        assertIterableEquals(List.of(todo), index.findContaining("dabc"));
+    }
+
+    @Test
+    public void findContaining_repeatedTrigramRemoved_isNotMatched() {
+        TrigramIndex index = new TrigramIndex();
+        Todo repeated = new Todo("aaaaaa");
+        Todo other = new Todo("aaa");
+        index.add(0, repeated);
+        index.add(1, other);
+        index.buildPostings();
+        index.remove(0, repeated);
+        assertIterableEquals(List.of(other), index.findContaining("aaa"));
+    }
+
+    @Test
+    public void remove_taskNotAddedUnderSequence_isIgnored() {
+        TrigramIndex index = new TrigramIndex();
+        Todo todo = new Todo("water plants");
+        index.add(0, todo);
+        index.remove(0, new Todo("water plants"));
+        index.remove(5, todo);
+        assertIterableEquals(List.of(todo), index.findContaining("plant"));
+    }
+
+    @Test
+    public void operations_randomAddsAndRemoves_matchLinearScan() {
+        Random random = new Random(21);
+        TrigramIndex index = new TrigramIndex();
+        List<Task> indexed = new ArrayList<>();
+        List<Long> sequences = new ArrayList<>();
+        long nextSequence = 0;
+
+        for (int step = 0; step < 4000; step++) {
+            int operation = random.nextInt(20);
+            if (operation < 12 || indexed.isEmpty()) {
+                Todo todo = new Todo(randomText(random, 12));
+                indexed.add(todo);
+                sequences.add(nextSequence);
+                index.add(nextSequence++, todo);
+            } else if (operation < 19) {
+                // removing leaves tombstones, until they make up half a posting list and it is compacted
+                int removed = random.nextInt(indexed.size());
+                index.remove(sequences.remove(removed), indexed.remove(removed));
+            } else {
+                String infix = randomText(random, 2);
+                List<Long> keptSequences = new ArrayList<>();
+                List<Task> keptTasks = new ArrayList<>();
+                for (int i = 0; i < indexed.size(); i++) {
+                    if (!indexed.get(i).getDescription().contains(infix)) {
+                        keptSequences.add(sequences.get(i));
+                        keptTasks.add(indexed.get(i));
+                    }
+                }
+                indexed = keptTasks;
+                sequences = keptSequences;
+                index.removeIf(task -> task.getDescription().contains(infix));
+            }
+
+            if (step > 200) { // until the first search, posting lists are not built and adds only track tasks
+                String keyword = randomText(random, 5);
+                assertIterableEquals(findContaining(indexed, keyword), index.findContaining(keyword), "step " + step);
+            }
+        }
+    }
+
+    @Test
+    public void removeIf_marksAndDeleteDoneThroughIndex_matchLinearScan() {
+        Random random = new Random(210);
+        List<Task> taskList = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            taskList.add(new Todo(randomText(random, 12)));
+        }
+        TaskIndex index = new TaskIndex();
+        index.rebuild(taskList);
+
+        for (int step = 0; step < 2000; step++) {
+            int operation = random.nextInt(20);
+            if (operation < 8 || taskList.isEmpty()) {
+                Todo todo = new Todo(randomText(random, 12));
+                taskList.add(todo);
+                index.add(todo);
+            } else if (operation < 19) {
+                Task task = taskList.get(random.nextInt(taskList.size()));
+                if (task.getIsDone()) {
+                    task.markAsUndone();
+                } else {
+                    task.markAsDone();
+                }
+                index.updateDone(task);
+            } else {
+                taskList.removeIf(Task::getIsDone); // delete all done
+                index.removeIf(Task::getIsDone);
+            }
+
+            String keyword = randomText(random, 5);
+            assertIterableEquals(findContaining(taskList, keyword), index.findContaining(keyword), "step " + step);
+        }
+    }
+
+    @Test
+    public void clear_addedTasks_findsNothing() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(0, new Todo("buy milk"));
+        index.buildPostings();
+        index.clear();
+        assertIterableEquals(List.of(), index.findContaining("milk"));
+        Todo todo = new Todo("buy milk again");
+        index.add(0, todo);
+        assertIterableEquals(List.of(todo), index.findContaining("milk"));
+    }
+}
@@ -35,6 +35,23 @@ public class CommandValidatorTest {
         assertEquals("Details after 'delete' cannot be empty.", exception.getMessage());
     }
 
+    @Test
+    public void validateCommandDetails_fuzzyFindSingleWord_noExceptionThrown() {
+        assertDoesNotThrow(() -> CommandValidator.validateCommandDetails("find", "~reprot"));
+    }
+
+    @Test
+    public void validateCommandDetails_fuzzyFindEmpty_throwsException() {
+        NeruneruneException exception = assertThrows(NeruneruneException.class, () -> CommandValidator.validateCommandDetails("find", "~ "));
+        assertEquals("Details after '~' cannot be empty.", exception.getMessage());
+    }
+
+    @Test
+    public void validateCommandDetails_fuzzyFindSeveralWords_throwsException() {
+        NeruneruneException exception = assertThrows(NeruneruneException.class, () -> CommandValidator.validateCommandDetails("find", "~submit reprot"));
+        assertEquals("A fuzzy search looks for a single word.", exception.getMessage());
+    }
+
     // validateUserInputNotEmpty tests
     @Test
     public void validateUserInputNotEmpty_validInput_noExceptionThrown() {